@@ -0,0 +1,50 @@
+package io.github.wldt.demo.benchmark;
+
+import it.wldt.adapter.physical.PhysicalAdapter;
+import it.wldt.adapter.physical.PhysicalAssetDescription;
+import it.wldt.adapter.physical.PhysicalAssetProperty;
+import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
+import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
+import it.wldt.exception.EventBusException;
+
+/**
+ * Physical Adapter used by the benchmarks: it binds immediately with the given property keys and publishes a
+ * property variation only when requested by the benchmark thread
+ */
+public class BenchmarkPhysicalAdapter extends PhysicalAdapter {
+
+    private final String[] propertyKeys;
+
+    public BenchmarkPhysicalAdapter(String id, String[] propertyKeys) {
+        super(id);
+        this.propertyKeys = propertyKeys;
+    }
+
+    public void publishProperty(String propertyKey, double value) throws EventBusException {
+        publishPhysicalAssetPropertyWldtEvent(new PhysicalAssetPropertyWldtEvent<>(propertyKey, value));
+    }
+
+    @Override
+    public void onIncomingPhysicalAction(PhysicalAssetActionWldtEvent<?> physicalAssetActionWldtEvent) {
+    }
+
+    @Override
+    public void onAdapterStart() {
+        try {
+
+            PhysicalAssetDescription pad = new PhysicalAssetDescription();
+
+            for (String propertyKey : propertyKeys)
+                pad.getProperties().add(new PhysicalAssetProperty<Double>(propertyKey, 0.0));
+
+            this.notifyPhysicalAdapterBound(pad);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onAdapterStop() {
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.wldt.demo.benchmark;
+
+import io.github.wldt.demo.monitoring.DoubleCounterHandle;
+import io.github.wldt.demo.monitoring.DoubleGaugeHandle;
+import io.github.wldt.demo.monitoring.LongCounterHandle;
+import io.github.wldt.demo.monitoring.LongGaugeHandle;
+import io.github.wldt.demo.monitoring.OpenTelemetryWLDTMonitoring;
+import io.opentelemetry.exporter.logging.LoggingMetricExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-event metrics recording of the shadowing function through the name-based API of
+ * {@link OpenTelemetryWLDTMonitoring} (boxed values, map lookups and a new Random per gauge) with the pre-resolved
+ * metric handles. Run with the GC profiler to compare the allocation per operation:
+ *
+ *     java -jar target/benchmarks.jar MetricRecordingBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricRecordingBenchmark {
+
+    private OpenTelemetrySdk openTelemetrySdk;
+
+    private OpenTelemetryWLDTMonitoring monitoring;
+
+    private LongCounterHandle longCounterHandle;
+
+    private DoubleCounterHandle doubleCounterHandle;
+
+    private LongGaugeHandle longGaugeHandle;
+
+    private DoubleGaugeHandle doubleGaugeHandle;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        //A reader is required to have a recording SDK, the long interval keeps the export out of the measurement
+        openTelemetrySdk = OpenTelemetrySdk.builder()
+                .setMeterProvider(SdkMeterProvider.builder()
+                        .registerMetricReader(PeriodicMetricReader.builder(LoggingMetricExporter.create())
+                                .setInterval(Duration.ofHours(1))
+                                .build())
+                        .build())
+                .build();
+
+        monitoring = new OpenTelemetryWLDTMonitoring(null, openTelemetrySdk);
+
+        monitoring.addLongCounter("bench.name.long.counter", 0L);
+        monitoring.addDoubleCounter("bench.name.double.counter", 0.0);
+        monitoring.addLongGauge("bench.name.long.gauge", 0L);
+        monitoring.addDoubleGauge("bench.name.double.gauge", 0.0);
+
+        longCounterHandle = monitoring.registerLongCounter("bench.handle.long.counter");
+        doubleCounterHandle = monitoring.registerDoubleCounter("bench.handle.double.counter");
+        longGaugeHandle = monitoring.registerLongGauge("bench.handle.long.gauge");
+        doubleGaugeHandle = monitoring.registerDoubleGauge("bench.handle.double.gauge");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        openTelemetrySdk.close();
+    }
+
+    @Benchmark
+    public void nameBasedRecording() {
+        monitoring.incrementLongCounter("bench.name.long.counter", 1L);
+        monitoring.incrementDoubleCounter("bench.name.double.counter", 1.43);
+        monitoring.setLongGauge("bench.name.long.gauge", new Random().nextLong(101));
+        monitoring.setDoubleGauge("bench.name.double.gauge", new Random().nextDouble(101));
+    }
+
+    @Benchmark
+    public void handleBasedRecording() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        longCounterHandle.add(1L);
+        doubleCounterHandle.add(1.43);
+        longGaugeHandle.set(random.nextLong(101));
+        doubleGaugeHandle.set(random.nextDouble(101));
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.wldt.demo.benchmark;
+
+import io.github.wldt.demo.DemoShadowingFunction;
+import io.github.wldt.demo.digital.DemoConfDigitalAdapter;
+import io.github.wldt.demo.digital.DemoDigitalAdapterConfiguration;
+import io.github.wldt.demo.load.SendTimestampRegistry;
+import it.wldt.core.engine.DigitalTwin;
+import it.wldt.core.engine.DigitalTwinEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures the property hot path of the demo Digital Twin: publishPhysicalAssetPropertyWldtEvent on the physical
+ * adapter, DemoShadowingFunction.onPhysicalAssetPropertyVariation and DemoConfDigitalAdapter.onStateUpdate.
+ *
+ * Each invocation publishes one property variation and waits until all the digital adapters of the target twin
+ * have received it, so the Throughput mode reports round trips per second and the SampleTime mode reports the
+ * latency distribution (p50/p99/p999). The digital adapters run in delta-only mode, so that the full DT States are
+ * neither built nor logged, and count the deliveries on a registry dedicated to the trial. Allocation rate is
+ * reported by running the benchmark with the GC profiler:
+ *
+ *     java -jar target/benchmarks.jar ShadowingHotPathBenchmark -prof gc
+ *
+ * and reading the gc.alloc.rate.norm (bytes per round trip) secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ShadowingHotPathBenchmark {
+
+    private static final long DELIVERY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Param({"1", "10", "100"})
+    public int propertyCount;
+
+    @Param({"1", "10"})
+    public int twinCount;
+
+    @Param({"1", "4"})
+    public int adapterCount;
+
+    private DigitalTwinEngine digitalTwinEngine;
+
+    private BenchmarkPhysicalAdapter[] physicalAdapters;
+
+    private String[][] propertyKeys;
+
+    private long[][] sequenceNumbers;
+
+    // Created for each trial, so that its delivery count only includes the updates published by the trial
+    private SendTimestampRegistry sendTimestampRegistry;
+
+    private long expectedDeliveries;
+
+    private int nextTwin = 0;
+
+    private int nextProperty = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        digitalTwinEngine = new DigitalTwinEngine();
+        physicalAdapters = new BenchmarkPhysicalAdapter[twinCount];
+        propertyKeys = new String[twinCount][propertyCount];
+        sequenceNumbers = new long[twinCount][propertyCount];
+        sendTimestampRegistry = new SendTimestampRegistry(4096);
+        expectedDeliveries = 0;
+
+        DemoDigitalAdapterConfiguration digitalAdapterConfiguration = new DemoDigitalAdapterConfiguration();
+        digitalAdapterConfiguration.setDeltaOnlyEnabled(true);
+
+        DemoShadowingFunction[] shadowingFunctions = new DemoShadowingFunction[twinCount];
+
+        for (int t = 0; t < twinCount; t++) {
+
+            String twinId = String.format("bench-dt-%d", t);
+
+            for (int p = 0; p < propertyCount; p++) {
+                propertyKeys[t][p] = String.format("%s.bench-property-%d", twinId, p);
+                sendTimestampRegistry.registerProperty(propertyKeys[t][p]);
+            }
+
+            shadowingFunctions[t] = new DemoShadowingFunction(String.format("%s-shadowing-function", twinId));
+            physicalAdapters[t] = new BenchmarkPhysicalAdapter(String.format("%s-physical-adapter", twinId), propertyKeys[t]);
+
+            DigitalTwin digitalTwin = new DigitalTwin(twinId, shadowingFunctions[t]);
+            digitalTwin.addPhysicalAdapter(physicalAdapters[t]);
+
+            for (int a = 0; a < adapterCount; a++)
+                digitalTwin.addDigitalAdapter(new DemoConfDigitalAdapter(String.format("%s-digital-adapter-%d", twinId, a), digitalAdapterConfiguration, sendTimestampRegistry));
+
+            digitalTwinEngine.addDigitalTwin(digitalTwin);
+        }
+
+        digitalTwinEngine.startAll();
+
+        //Wait for all the twins to be synced before measuring
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        for (DemoShadowingFunction shadowingFunction : shadowingFunctions)
+            while (shadowingFunction.getShadowingSyncTimestamp() == 0) {
+                if (System.nanoTime() > deadline)
+                    throw new TimeoutException("Digital Twins not synced");
+                Thread.sleep(10);
+            }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        digitalTwinEngine.stopAll();
+    }
+
+    @Benchmark
+    public long propertyUpdateRoundTrip() throws Exception {
+
+        int twin = nextTwin;
+        int property = nextProperty;
+
+        nextTwin = (nextTwin + 1) % twinCount;
+        if (nextTwin == 0)
+            nextProperty = (nextProperty + 1) % propertyCount;
+
+        long sequenceNumber = ++sequenceNumbers[twin][property];
+        expectedDeliveries += adapterCount;
+
+        sendTimestampRegistry.recordSend(propertyKeys[twin][property], sequenceNumber, System.nanoTime());
+        physicalAdapters[twin].publishProperty(propertyKeys[twin][property], (double) sequenceNumber);
+
+        //Wait until every digital adapter of the twin has received the update
+        long deadline = System.nanoTime() + DELIVERY_TIMEOUT_NANOS;
+        long deliveries;
+        while ((deliveries = sendTimestampRegistry.getLatencyStatistics().getCount()) < expectedDeliveries) {
+            if (System.nanoTime() > deadline)
+                throw new TimeoutException("Property update not delivered");
+            Thread.onSpinWait();
+        }
+
+        return deliveries;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.wldt.demo.benchmark;
+
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.shard.TwinShardManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed by a fleet of twinCount emulated devices, partitioned on shardCount emulation shards, to
+ * run ticksPerTwin device ticks each burning tickWorkTokens of CPU.
+ *
+ * The ticks only run synthetic CPU work, without publishing samples to a DT, so the results show the overhead of the
+ * shard schedulers and how the tick work spreads on the shard threads, not the throughput of a fleet: the shadowing
+ * of the twins runs on the WLDT threads, whatever the shard count.
+ *
+ * Run with: java -jar target/benchmarks.jar ShardedEmulationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedEmulationBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int shardCount;
+
+    @Param({"256"})
+    public int twinCount;
+
+    @Param({"100"})
+    public int ticksPerTwin;
+
+    @Param({"1000"})
+    public int tickWorkTokens;
+
+    private TwinShardManager twinShardManager;
+
+    private DeviceEmulation[] deviceEmulations;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        twinShardManager = new TwinShardManager(shardCount);
+        deviceEmulations = new DeviceEmulation[twinCount];
+        for (int i = 0; i < twinCount; i++)
+            deviceEmulations[i] = twinShardManager.createDeviceEmulation(String.format("bench-dt-%d", i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        twinShardManager.shutdown();
+    }
+
+    @Benchmark
+    public void runTicks() throws InterruptedException {
+
+        CountDownLatch completedTwins = new CountDownLatch(twinCount);
+
+        //The shortest period keeps the ticks back to back, the elapsed time is bound by the CPU work of the shards
+        for (DeviceEmulation deviceEmulation : deviceEmulations)
+            deviceEmulation.scheduleAtFixedRate(0, 1, ticksPerTwin, tickIndex -> Blackhole.consumeCPU(tickWorkTokens), completedTwins::countDown);
+
+        completedTwins.await();
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.wldt.demo.benchmark;
+
+import io.github.wldt.demo.journal.FsyncPolicy;
+import io.github.wldt.demo.journal.JournalConfiguration;
+import io.github.wldt.demo.journal.JournalEntry;
+import io.github.wldt.demo.journal.JournalStateRestorer;
+import io.github.wldt.demo.journal.StateChangeJournal;
+import io.github.wldt.demo.journal.StateImage;
+import io.github.wldt.demo.journal.StateSnapshots;
+import it.wldt.core.state.DigitalTwinStateChange;
+import it.wldt.core.state.DigitalTwinStateProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the warm restart of a Digital Twin: reading the latest snapshot of a DT State with propertyCount
+ * properties and replaying the journalChangeCount property updates written after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateRestoreBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int propertyCount;
+
+    @Param({"0", "10000", "1000000"})
+    public int journalChangeCount;
+
+    private Path directory;
+
+    private JournalConfiguration journalConfiguration;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        directory = Files.createTempDirectory("state-restore-benchmark");
+        journalConfiguration = new JournalConfiguration("bench-dt", directory.toString(),
+                64 * 1024 * 1024, FsyncPolicy.NEVER, 0, Integer.MAX_VALUE);
+
+        long timestamp = System.currentTimeMillis();
+
+        try (StateChangeJournal stateChangeJournal = new StateChangeJournal(journalConfiguration)) {
+            stateChangeJournal.open();
+
+            //The properties are journaled as a running twin would do, so that the snapshot ends right before the
+            //first journaled update and the restore replays all of them
+            StateImage stateImage = new StateImage(stateChangeJournal.getNextSequence());
+            for (int p = 0; p < propertyCount; p++) {
+                DigitalTwinStateProperty<Double> property = new DigitalTwinStateProperty<>(propertyKey(p), 0.0);
+                long sequence = stateChangeJournal.append(timestamp, DigitalTwinStateChange.Operation.OPERATION_ADD,
+                        DigitalTwinStateChange.ResourceType.PROPERTY, property);
+                stateImage.apply(new JournalEntry(sequence, timestamp, DigitalTwinStateChange.Operation.OPERATION_ADD,
+                        DigitalTwinStateChange.ResourceType.PROPERTY, property));
+            }
+
+            StateSnapshots.write(journalConfiguration, stateImage, timestamp);
+            stateChangeJournal.onSnapshotWritten(stateImage.getSequence());
+
+            for (int c = 0; c < journalChangeCount; c++)
+                stateChangeJournal.append(timestamp + c, DigitalTwinStateChange.Operation.OPERATION_UPDATE_VALUE,
+                        DigitalTwinStateChange.ResourceType.PROPERTY_VALUE, new DigitalTwinStateProperty<>(propertyKey(c % propertyCount), (double) c));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public StateImage restore() throws IOException {
+        return JournalStateRestorer.restore(journalConfiguration);
+    }
+
+    private static String propertyKey(int index) {
+        return "bench-property-" + index;
+    }
+}
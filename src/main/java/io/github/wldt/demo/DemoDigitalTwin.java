@@ -1,10 +1,21 @@
 package io.github.wldt.demo;
 
+import io.github.wldt.demo.aggregation.AggregationDefinition;
 import io.github.wldt.demo.digital.DemoConfDigitalAdapter;
 import io.github.wldt.demo.digital.DemoDigitalAdapterConfiguration;
+import io.github.wldt.demo.journal.JournalConfiguration;
+import io.github.wldt.demo.journal.JournalDigitalAdapter;
+import io.github.wldt.demo.logger.CompositeEventLogger;
 import io.github.wldt.demo.logger.DemoEventLogger;
+import io.github.wldt.demo.logger.LogLevelController;
+import io.github.wldt.demo.logger.MetricsEventLogger;
+import io.github.wldt.demo.logger.RingBufferEventRecorder;
 import io.github.wldt.demo.physical.DemoConfPhysicalAdapter;
 import io.github.wldt.demo.physical.DemoPhysicalAdapterConfiguration;
+import io.github.wldt.demo.rules.RuleDefinition;
+import io.github.wldt.demo.shadowing.ActionPriority;
+import io.github.wldt.demo.shadowing.ActionRateLimit;
+import io.github.wldt.demo.utils.GlobalKeywords;
 
 import it.wldt.core.engine.DigitalTwin;
 import it.wldt.core.engine.DigitalTwinEngine;
@@ -12,6 +23,9 @@ import it.wldt.core.event.WldtEventBus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.util.List;
+
 
 /**
  * Main class to build and test a demo Digital Twin with the created physical and digital adapters
@@ -22,10 +36,24 @@ public class DemoDigitalTwin {
 
     public static void main(String[] args)  {
         try{
+
+            //Log levels of the subsystems from the wldt.demo.log.level.<subsystem> system properties
+            LogLevelController.applySystemProperties();
+
+            //The same journal is written by the journal digital adapter and restored by the shadowing function on start
+            JournalConfiguration journalConfiguration = new JournalConfiguration("test-dt-id");
+            DemoShadowingFunctionConfiguration shadowingFunctionConfiguration = new DemoShadowingFunctionConfiguration();
+            shadowingFunctionConfiguration.setJournalConfiguration(journalConfiguration);
+            shadowingFunctionConfiguration.setHistoryEnabled(true);
+            shadowingFunctionConfiguration.setRuleDefinitions(createTemperatureRules());
+            shadowingFunctionConfiguration.setAggregationDefinitions(List.of(new AggregationDefinition(
+                    GlobalKeywords.TEMPERATURE_PROPERTY_KEY, GlobalKeywords.TEMPERATURE_MIN_VALUE, GlobalKeywords.TEMPERATURE_MAX_VALUE)));
+            shadowingFunctionConfiguration.setActionRateLimits(createActionRateLimits());
+
             // Create the new Digital Twin
             DigitalTwin digitalTwin = new DigitalTwin(
                     "test-dt-id",
-                    new DemoShadowingFunction("test-shadowing-function")
+                    new DemoShadowingFunction("test-shadowing-function", shadowingFunctionConfiguration)
             );
 
             //Default Physical and Digital Adapter
@@ -36,6 +64,9 @@ public class DemoDigitalTwin {
             digitalTwin.addPhysicalAdapter(new DemoConfPhysicalAdapter("test-physical-adapter", new DemoPhysicalAdapterConfiguration()));
             digitalTwin.addDigitalAdapter(new DemoConfDigitalAdapter("test-digital-adapter", new DemoDigitalAdapterConfiguration()));
 
+            //Journal of the DT State changes
+            digitalTwin.addDigitalAdapter(new JournalDigitalAdapter("test-journal-digital-adapter", journalConfiguration));
+
             // Create the Digital Twin Engine
             DigitalTwinEngine digitalTwinEngine = new DigitalTwinEngine();
 
@@ -43,7 +74,14 @@ public class DemoDigitalTwin {
             digitalTwinEngine.addDigitalTwin(digitalTwin);
 
             // Set a new Event-Logger to a Custom One that we created with the class 'DemoEventLogger'
-            WldtEventBus.getInstance().setEventLogger(new DemoEventLogger());
+            //WldtEventBus.getInstance().setEventLogger(new DemoEventLogger());
+
+            // Record the event bus traffic in an off-heap ring buffer, dumped to file if a thread dies with an error
+            RingBufferEventRecorder eventRecorder = new RingBufferEventRecorder();
+            eventRecorder.dumpOnUncaughtException(Path.of(GlobalKeywords.EVENT_RECORDER_DUMP_DIRECTORY));
+
+            // The event bus accepts a single logger: the recorder and the metrics logger are combined
+            WldtEventBus.getInstance().setEventLogger(new CompositeEventLogger(eventRecorder, new MetricsEventLogger()));
 
             // Start all the DTs registered on the engine
             digitalTwinEngine.startAll();
@@ -52,4 +90,34 @@ public class DemoDigitalTwin {
             System.err.println(e.getMessage());
         }
     }
+
+    /**
+     * Rules deriving the temperature events: high temperature with hysteresis, spikes and a rising trend
+     */
+    private static List<RuleDefinition> createTemperatureRules() {
+
+        RuleDefinition highTemperatureRule = RuleDefinition.hysteresis("temperature-high", GlobalKeywords.TEMPERATURE_PROPERTY_KEY,
+                GlobalKeywords.TEMPERATURE_HIGH_EVENT_KEY, GlobalKeywords.TEMPERATURE_HIGH_RAISE_VALUE, GlobalKeywords.TEMPERATURE_HIGH_CLEAR_VALUE);
+        highTemperatureRule.setClearEventBody("normal");
+
+        RuleDefinition temperatureSpikeRule = RuleDefinition.rateOfChange("temperature-spike", GlobalKeywords.TEMPERATURE_PROPERTY_KEY,
+                GlobalKeywords.TEMPERATURE_SPIKE_EVENT_KEY, GlobalKeywords.TEMPERATURE_SPIKE_RATE_PER_SECOND);
+
+        RuleDefinition temperatureTrendRule = RuleDefinition.windowAverage("temperature-trend", GlobalKeywords.TEMPERATURE_PROPERTY_KEY,
+                GlobalKeywords.TEMPERATURE_TREND_EVENT_KEY, GlobalKeywords.TEMPERATURE_TREND_WINDOW_SIZE, GlobalKeywords.TEMPERATURE_TREND_AVERAGE_VALUE);
+        temperatureTrendRule.setClearEventBody("normal");
+
+        return List.of(highTemperatureRule, temperatureSpikeRule, temperatureTrendRule);
+    }
+
+    /**
+     * Rate limits of the demo actions: routine temperature setpoints and the emergency stop preempting them
+     */
+    static List<ActionRateLimit> createActionRateLimits() {
+        return List.of(
+                new ActionRateLimit(GlobalKeywords.SET_TEMPERATURE_ACTION_KEY,
+                        GlobalKeywords.SET_TEMPERATURE_ACTION_RATE_PER_SECOND, GlobalKeywords.SET_TEMPERATURE_ACTION_BURST, ActionPriority.ROUTINE),
+                new ActionRateLimit(GlobalKeywords.EMERGENCY_STOP_ACTION_KEY,
+                        GlobalKeywords.EMERGENCY_STOP_ACTION_RATE_PER_SECOND, GlobalKeywords.EMERGENCY_STOP_ACTION_BURST, ActionPriority.SAFETY));
+    }
 }
@@ -0,0 +1,328 @@
+package io.github.wldt.demo;
+
+import io.github.wldt.demo.digital.DemoConfDigitalAdapter;
+import io.github.wldt.demo.digital.DemoDigitalAdapterConfiguration;
+import io.github.wldt.demo.index.FleetStateIndex;
+import io.github.wldt.demo.index.IndexingDigitalAdapter;
+import io.github.wldt.demo.index.IndexingDigitalAdapterConfiguration;
+import io.github.wldt.demo.index.RelationshipGraph;
+import io.github.wldt.demo.logger.CompositeEventLogger;
+import io.github.wldt.demo.logger.LogLevelController;
+import io.github.wldt.demo.logger.MetricsEventLogger;
+import io.github.wldt.demo.logger.RingBufferEventRecorder;
+import io.github.wldt.demo.monitoring.OpenTelemetryWLDTMonitoring;
+import io.github.wldt.demo.physical.DemoConfPhysicalAdapter;
+import io.github.wldt.demo.physical.DemoPhysicalAdapterConfiguration;
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.shard.TwinShardManager;
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+import it.wldt.core.engine.DigitalTwin;
+import it.wldt.core.engine.DigitalTwinEngine;
+import it.wldt.core.event.WldtEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Launcher creating a fleet of Digital Twins from the same template and registering all of them on a single
+ * {@link DigitalTwinEngine}. Twins are started one after the other with a configurable delay, so that their
+ * bound and sync phases are spread over time instead of landing at the same instant.
+ *
+ * Each twin gets its own adapters and configurations created by the template methods, that can be overridden
+ * to customize the generated twins. Once started, the launcher reports the startup time of each twin (from the
+ * start request to the shadowing function sync) and the heap used by the whole fleet.
+ *
+ * With a shard count greater than zero the device emulations of the twins are partitioned on a
+ * {@link TwinShardManager}: each twin ticks on the thread of its shard and the hottest twins are periodically moved
+ * to the least loaded shards.
+ */
+public class DemoDigitalTwinFleet {
+
+    private static final Logger logger = LoggerFactory.getLogger(DemoDigitalTwinFleet.class);
+
+    private final DemoDigitalTwinFleetConfiguration configuration;
+
+    private final DigitalTwinEngine digitalTwinEngine;
+
+    // Null when the device emulations run on the shared emulation scheduler
+    private final TwinShardManager twinShardManager;
+
+    private final Map<String, DemoShadowingFunction> shadowingFunctions = new LinkedHashMap<>();
+
+    private final Map<String, Long> startRequestTimestamps = new LinkedHashMap<>();
+
+    private long heapUsedBeforeFleet = 0;
+
+    public DemoDigitalTwinFleet(DemoDigitalTwinFleetConfiguration configuration) throws Exception {
+        this.configuration = configuration;
+        this.digitalTwinEngine = new DigitalTwinEngine();
+        this.twinShardManager = configuration.getShardCount() > 0 ? new TwinShardManager(configuration.getShardCount()) : null;
+    }
+
+    public static void main(String[] args) {
+        try{
+
+            //Log levels of the subsystems from the wldt.demo.log.level.<subsystem> system properties
+            LogLevelController.applySystemProperties();
+
+            DemoDigitalTwinFleetConfiguration fleetConfiguration = new DemoDigitalTwinFleetConfiguration();
+
+            if (args.length > 0)
+                fleetConfiguration.setTwinCount(Integer.parseInt(args[0]));
+            if (args.length > 1)
+                fleetConfiguration.setStartupStaggerMs(Integer.parseInt(args[1]));
+            if (args.length > 2)
+                fleetConfiguration.setShardCount(Integer.parseInt(args[2]));
+
+            DemoDigitalTwinFleet fleet = new DemoDigitalTwinFleet(fleetConfiguration);
+
+            // Record the event bus traffic in an off-heap ring buffer, dumped to file if a thread dies with an error
+            RingBufferEventRecorder eventRecorder = new RingBufferEventRecorder();
+            eventRecorder.dumpOnUncaughtException(Path.of(GlobalKeywords.EVENT_RECORDER_DUMP_DIRECTORY));
+
+            // The event bus accepts a single logger: the recorder and the metrics logger are combined
+            WldtEventBus.getInstance().setEventLogger(new CompositeEventLogger(eventRecorder, new MetricsEventLogger()));
+
+            fleet.createFleet();
+            fleet.startFleet();
+            fleet.awaitFleetSync();
+            fleet.reportFleetStatistics();
+            fleet.reportShardLoads();
+
+            // Publish and forward rates of the event bus since the recorder creation
+            eventRecorder.snapshotRates().forEach(rate -> logger.info("[DemoDigitalTwinFleet] -> {}", rate));
+
+            fleet.reportIndexQueries();
+
+        }catch (Exception e){
+            System.err.println(e.getMessage());
+        }
+    }
+
+    //// Template Methods ////
+
+    protected String getTwinId(int index) {
+        return String.format("%s-%d", configuration.getTwinIdPrefix(), index);
+    }
+
+    protected DemoShadowingFunctionConfiguration createShadowingFunctionConfiguration(int index) {
+        DemoShadowingFunctionConfiguration shadowingFunctionConfiguration = new DemoShadowingFunctionConfiguration();
+        //Fleet-wide actuation sends bursts of setpoints to each twin, only the last one of each window is dispatched
+        shadowingFunctionConfiguration.setActionBatchingEnabled(true);
+        shadowingFunctionConfiguration.setActionRateLimits(DemoDigitalTwin.createActionRateLimits());
+        return shadowingFunctionConfiguration;
+    }
+
+    protected DemoPhysicalAdapterConfiguration createPhysicalAdapterConfiguration(int index) {
+        return new DemoPhysicalAdapterConfiguration();
+    }
+
+    protected DemoDigitalAdapterConfiguration createDigitalAdapterConfiguration(int index) {
+        return new DemoDigitalAdapterConfiguration();
+    }
+
+    protected DeviceEmulation createDeviceEmulation(String twinId) {
+        return twinShardManager != null ? twinShardManager.createDeviceEmulation(twinId) : new DeviceEmulation();
+    }
+
+    //// Fleet Management ////
+
+    /**
+     * Creates all the Digital Twins of the fleet and registers them on the engine without starting them
+     */
+    public void createFleet() throws Exception {
+
+        heapUsedBeforeFleet = usedHeapBytes();
+
+        for (int i = 0; i < configuration.getTwinCount(); i++) {
+
+            String twinId = getTwinId(i);
+
+            //The twins register the same metric names, their series are told apart by the twin id
+            DemoShadowingFunctionConfiguration shadowingFunctionConfiguration = createShadowingFunctionConfiguration(i);
+            shadowingFunctionConfiguration.setMetricsTwinId(twinId);
+
+            DemoDigitalAdapterConfiguration digitalAdapterConfiguration = createDigitalAdapterConfiguration(i);
+            digitalAdapterConfiguration.setMetricsTwinId(twinId);
+
+            DemoShadowingFunction shadowingFunction = new DemoShadowingFunction(
+                    String.format("%s-shadowing-function", twinId),
+                    shadowingFunctionConfiguration);
+
+            DigitalTwin digitalTwin = new DigitalTwin(twinId, shadowingFunction);
+
+            digitalTwin.addPhysicalAdapter(new DemoConfPhysicalAdapter(String.format("%s-physical-adapter", twinId), createPhysicalAdapterConfiguration(i), createDeviceEmulation(twinId)));
+            digitalTwin.addDigitalAdapter(new DemoConfDigitalAdapter(String.format("%s-digital-adapter", twinId), digitalAdapterConfiguration));
+            digitalTwin.addDigitalAdapter(new IndexingDigitalAdapter(String.format("%s-indexing-digital-adapter", twinId), new IndexingDigitalAdapterConfiguration(twinId)));
+
+            digitalTwinEngine.addDigitalTwin(digitalTwin);
+
+            shadowingFunctions.put(twinId, shadowingFunction);
+        }
+
+        logger.info("[DemoDigitalTwinFleet] -> createFleet() -> Created {} Digital Twins", shadowingFunctions.size());
+
+        if (twinShardManager != null) {
+            twinShardManager.registerMetrics(new OpenTelemetryWLDTMonitoring());
+            twinShardManager.startRebalancing(configuration.getShardRebalanceIntervalMs());
+            logger.info("[DemoDigitalTwinFleet] -> createFleet() -> {}", twinShardManager);
+        }
+    }
+
+    /**
+     * Starts the registered Digital Twins waiting the configured stagger time between two consecutive starts
+     */
+    public void startFleet() throws Exception {
+
+        for (String twinId : shadowingFunctions.keySet()) {
+
+            startRequestTimestamps.put(twinId, System.currentTimeMillis());
+            digitalTwinEngine.startDigitalTwin(twinId);
+
+            if (configuration.getStartupStaggerMs() > 0)
+                Thread.sleep(configuration.getStartupStaggerMs());
+        }
+
+        logger.info("[DemoDigitalTwinFleet] -> startFleet() -> Start requested for {} Digital Twins", startRequestTimestamps.size());
+    }
+
+    /**
+     * Waits until all the Digital Twins of the fleet are synced or the startup timeout expires
+     *
+     * @return true if all the Digital Twins are synced
+     */
+    public boolean awaitFleetSync() throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + configuration.getStartupTimeoutMs();
+
+        while (System.currentTimeMillis() < deadline) {
+            if (getSyncedTwinCount() == shadowingFunctions.size())
+                return true;
+            Thread.sleep(100);
+        }
+
+        logger.warn("[DemoDigitalTwinFleet] -> awaitFleetSync() -> Timeout expired with {}/{} Digital Twins synced", getSyncedTwinCount(), shadowingFunctions.size());
+        return false;
+    }
+
+    public int getSyncedTwinCount() {
+        return (int) shadowingFunctions.values().stream().filter(sf -> sf.getShadowingSyncTimestamp() > 0).count();
+    }
+
+    /**
+     * Returns the time (ms) between the start request and the sync of each Digital Twin that has completed its startup
+     */
+    public Map<String, Long> getStartupTimes() {
+
+        Map<String, Long> startupTimes = new LinkedHashMap<>();
+
+        shadowingFunctions.forEach((twinId, shadowingFunction) -> {
+            Long startRequestTimestamp = startRequestTimestamps.get(twinId);
+            if (startRequestTimestamp != null && shadowingFunction.getShadowingSyncTimestamp() > 0)
+                startupTimes.put(twinId, shadowingFunction.getShadowingSyncTimestamp() - startRequestTimestamp);
+        });
+
+        return startupTimes;
+    }
+
+    /**
+     * Returns the heap (bytes) used by the JVM after the fleet creation minus the heap used before the fleet creation
+     */
+    public long getFleetHeapUsedBytes() {
+        return usedHeapBytes() - heapUsedBeforeFleet;
+    }
+
+    public void reportFleetStatistics() {
+
+        Map<String, Long> startupTimes = getStartupTimes();
+
+        startupTimes.forEach((twinId, startupTime) ->
+                logger.info("[DemoDigitalTwinFleet] -> Digital Twin {} startup time: {} ms", twinId, startupTime));
+
+        List<Long> sortedStartupTimes = new ArrayList<>(startupTimes.values());
+        sortedStartupTimes.sort(Long::compare);
+
+        if (!sortedStartupTimes.isEmpty())
+            logger.info("[DemoDigitalTwinFleet] -> Startup time over {} synced Digital Twins -> min: {} ms avg: {} ms max: {} ms",
+                    sortedStartupTimes.size(),
+                    sortedStartupTimes.get(0),
+                    sortedStartupTimes.stream().mapToLong(Long::longValue).average().orElse(0),
+                    sortedStartupTimes.get(sortedStartupTimes.size() - 1));
+
+        long fleetHeapUsedBytes = getFleetHeapUsedBytes();
+
+        logger.info("[DemoDigitalTwinFleet] -> Fleet heap used: {} MB ({} KB per Digital Twin)",
+                fleetHeapUsedBytes / (1024 * 1024),
+                shadowingFunctions.isEmpty() ? 0 : fleetHeapUsedBytes / 1024 / shadowingFunctions.size());
+    }
+
+    /**
+     * Runs a few example queries on the fleet state index
+     */
+    public void reportIndexQueries() throws InterruptedException {
+
+        FleetStateIndex fleetStateIndex = FleetStateIndex.getInstance();
+        fleetStateIndex.awaitApplied(1000);
+
+        long startNanos = System.nanoTime();
+        int hotTwinCount = fleetStateIndex.findByPropertyGreaterThan(GlobalKeywords.TEMPERATURE_PROPERTY_KEY, 30.0).size();
+        int hqTwinCount = fleetStateIndex.findByRelationshipTarget(GlobalKeywords.INSIDE_IN_RELATIONSHIP_NAME, "building-hq").size();
+        long queryMicros = (System.nanoTime() - startNanos) / 1000;
+
+        logger.info("[DemoDigitalTwinFleet] -> Fleet index: {} Digital Twins with {} > 30, {} Digital Twins {} building-hq (queries: {} us)",
+                hotTwinCount, GlobalKeywords.TEMPERATURE_PROPERTY_KEY, hqTwinCount, GlobalKeywords.INSIDE_IN_RELATIONSHIP_NAME, queryMicros);
+
+        RelationshipGraph relationshipGraph = fleetStateIndex.getRelationshipGraph();
+        int hqFloorTwinCount = relationshipGraph.findSources("building-hq", GlobalKeywords.INSIDE_IN_RELATIONSHIP_NAME, "f0").size();
+
+        logger.info("[DemoDigitalTwinFleet] -> Relationship graph: {} nodes, {} edges, {} Digital Twins {} building-hq on floor f0",
+                relationshipGraph.getNodeCount(), relationshipGraph.getEdgeCount(), hqFloorTwinCount, GlobalKeywords.INSIDE_IN_RELATIONSHIP_NAME);
+    }
+
+    /**
+     * Reports the number of twins and the utilization of each emulation shard since the previous rebalancing
+     */
+    public void reportShardLoads() {
+
+        if (twinShardManager == null)
+            return;
+
+        Map<String, Double> twinCounts = twinShardManager.getShardTwinCounts();
+        Map<String, Double> utilizations = twinShardManager.getShardUtilizations();
+
+        twinCounts.forEach((shardId, twinCount) ->
+                logger.info("[DemoDigitalTwinFleet] -> Shard {}: {} Digital Twins, utilization: {}%",
+                        shardId, twinCount.intValue(), String.format("%.1f", utilizations.getOrDefault(shardId, 0.0) * 100)));
+
+        logger.info("[DemoDigitalTwinFleet] -> Digital Twins moved by the shard rebalancing: {}", twinShardManager.getMovedTwinCount());
+    }
+
+    public void stopFleet() throws Exception {
+        digitalTwinEngine.stopAll();
+        if (twinShardManager != null)
+            twinShardManager.shutdown();
+    }
+
+    public DigitalTwinEngine getDigitalTwinEngine() {
+        return digitalTwinEngine;
+    }
+
+    public TwinShardManager getTwinShardManager() {
+        return twinShardManager;
+    }
+
+    private static long usedHeapBytes() {
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        // Hint a collection to reduce the amount of garbage counted as used heap
+        System.gc();
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.wldt.demo;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+public class DemoDigitalTwinFleetConfiguration {
+
+    private String twinIdPrefix = "test-dt-id";
+
+    private int twinCount = GlobalKeywords.FLEET_TWIN_COUNT;
+
+    private int startupStaggerMs = GlobalKeywords.FLEET_STARTUP_STAGGER_MS;
+
+    private int startupTimeoutMs = GlobalKeywords.FLEET_STARTUP_TIMEOUT_MS;
+
+    // Number of emulation shards the twins are partitioned on, 0 to use the shared emulation scheduler
+    private int shardCount = GlobalKeywords.FLEET_SHARD_COUNT;
+
+    private int shardRebalanceIntervalMs = GlobalKeywords.SHARD_REBALANCE_INTERVAL_MS;
+
+    public DemoDigitalTwinFleetConfiguration() {
+    }
+
+    public DemoDigitalTwinFleetConfiguration(String twinIdPrefix, int twinCount, int startupStaggerMs, int startupTimeoutMs) {
+        this.twinIdPrefix = twinIdPrefix;
+        this.twinCount = twinCount;
+        this.startupStaggerMs = startupStaggerMs;
+        this.startupTimeoutMs = startupTimeoutMs;
+    }
+
+    public String getTwinIdPrefix() {
+        return twinIdPrefix;
+    }
+
+    public void setTwinIdPrefix(String twinIdPrefix) {
+        this.twinIdPrefix = twinIdPrefix;
+    }
+
+    public int getTwinCount() {
+        return twinCount;
+    }
+
+    public void setTwinCount(int twinCount) {
+        this.twinCount = twinCount;
+    }
+
+    public int getStartupStaggerMs() {
+        return startupStaggerMs;
+    }
+
+    public void setStartupStaggerMs(int startupStaggerMs) {
+        this.startupStaggerMs = startupStaggerMs;
+    }
+
+    public int getStartupTimeoutMs() {
+        return startupTimeoutMs;
+    }
+
+    public void setStartupTimeoutMs(int startupTimeoutMs) {
+        this.startupTimeoutMs = startupTimeoutMs;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public int getShardRebalanceIntervalMs() {
+        return shardRebalanceIntervalMs;
+    }
+
+    public void setShardRebalanceIntervalMs(int shardRebalanceIntervalMs) {
+        this.shardRebalanceIntervalMs = shardRebalanceIntervalMs;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DemoDigitalTwinFleetConfiguration{");
+        sb.append("twinIdPrefix='").append(twinIdPrefix).append('\'');
+        sb.append(", twinCount=").append(twinCount);
+        sb.append(", startupStaggerMs=").append(startupStaggerMs);
+        sb.append(", startupTimeoutMs=").append(startupTimeoutMs);
+        sb.append(", shardCount=").append(shardCount);
+        sb.append(", shardRebalanceIntervalMs=").append(shardRebalanceIntervalMs);
+        sb.append('}');
+        return sb.toString();
+    }
+}
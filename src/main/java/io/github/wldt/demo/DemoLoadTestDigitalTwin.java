@@ -0,0 +1,77 @@
+package io.github.wldt.demo;
+
+import io.github.wldt.demo.digital.DemoConfDigitalAdapter;
+import io.github.wldt.demo.digital.DemoDigitalAdapterConfiguration;
+import io.github.wldt.demo.load.LoadProfile;
+import io.github.wldt.demo.load.SendTimestampRegistry;
+import io.github.wldt.demo.logger.LogLevelController;
+import io.github.wldt.demo.physical.LoadGeneratorPhysicalAdapter;
+import io.github.wldt.demo.physical.LoadGeneratorPhysicalAdapterConfiguration;
+
+import it.wldt.core.engine.DigitalTwin;
+import it.wldt.core.engine.DigitalTwinEngine;
+
+/**
+ * Capacity test of a single Digital Twin fed by a {@link LoadGeneratorPhysicalAdapter}. The end-to-end latency
+ * measured by the Digital Adapter is printed every second together with the generated rate.
+ *
+ * Usage: DemoLoadTestDigitalTwin [CONSTANT|RAMP|BURST|POISSON] [baseRate] [peakRate] [propertyCount]
+ */
+public class DemoLoadTestDigitalTwin {
+
+    public static void main(String[] args)  {
+        try{
+
+            //Log levels of the subsystems from the wldt.demo.log.level.<subsystem> system properties
+            LogLevelController.applySystemProperties();
+
+
+            LoadGeneratorPhysicalAdapterConfiguration loadConfiguration = new LoadGeneratorPhysicalAdapterConfiguration();
+
+            if (args.length > 0)
+                loadConfiguration.setLoadProfile(LoadProfile.valueOf(args[0].toUpperCase()));
+            if (args.length > 1)
+                loadConfiguration.setBaseRate(Double.parseDouble(args[1]));
+            if (args.length > 2)
+                loadConfiguration.setPeakRate(Double.parseDouble(args[2]));
+            if (args.length > 3)
+                loadConfiguration.setPropertyCount(Integer.parseInt(args[3]));
+
+            LoadGeneratorPhysicalAdapter loadGenerator = new LoadGeneratorPhysicalAdapter("load-physical-adapter", loadConfiguration);
+
+            DigitalTwin digitalTwin = new DigitalTwin("load-test-dt-id", new DemoShadowingFunction("load-test-shadowing-function"));
+            digitalTwin.addPhysicalAdapter(loadGenerator);
+            //Full DT States are not printed at load test rates
+            DemoDigitalAdapterConfiguration digitalAdapterConfiguration = new DemoDigitalAdapterConfiguration();
+            digitalAdapterConfiguration.setDeltaOnlyEnabled(true);
+
+            digitalTwin.addDigitalAdapter(new DemoConfDigitalAdapter("load-test-digital-adapter", digitalAdapterConfiguration));
+
+            DigitalTwinEngine digitalTwinEngine = new DigitalTwinEngine();
+            digitalTwinEngine.addDigitalTwin(digitalTwin);
+            digitalTwinEngine.startAll();
+
+            long previousPropertyCount = 0;
+            long testEnd = System.currentTimeMillis() + loadConfiguration.getStartupDelayMs() + loadConfiguration.getDurationMs() + 5000;
+
+            while (System.currentTimeMillis() < testEnd) {
+
+                Thread.sleep(1000);
+
+                long propertyCount = loadGenerator.getGeneratedPropertyCount();
+
+                System.out.println("[DemoLoadTestDigitalTwin] -> Generated: " + (propertyCount - previousPropertyCount) + " updates/s"
+                        + " End-to-End Latency: " + SendTimestampRegistry.getInstance().getLatencyStatistics()
+                        + " Event Latency: " + SendTimestampRegistry.getInstance().getEventLatencyStatistics()
+                        + " Untracked: " + SendTimestampRegistry.getInstance().getUntrackedDeliveryCount());
+
+                previousPropertyCount = propertyCount;
+            }
+
+            digitalTwinEngine.stopAll();
+
+        }catch (Exception e){
+            System.err.println(e.getMessage());
+        }
+    }
+}
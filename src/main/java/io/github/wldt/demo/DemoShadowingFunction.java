@@ -1,6 +1,32 @@
 package io.github.wldt.demo;
 
+import io.github.wldt.demo.aggregation.AggregationEngine;
+import io.github.wldt.demo.aggregation.DerivedValueConsumer;
+import io.github.wldt.demo.aggregation.PendingDerivedValues;
+import io.github.wldt.demo.history.PropertyHistoryStore;
+import io.github.wldt.demo.journal.JournalStateRestorer;
+import io.github.wldt.demo.journal.StateImage;
+import io.github.wldt.demo.logger.LogMarkers;
+import io.github.wldt.demo.monitoring.DoubleCounterHandle;
+import io.github.wldt.demo.monitoring.DoubleGaugeHandle;
+import io.github.wldt.demo.monitoring.DoubleHistogramHandle;
+import io.github.wldt.demo.monitoring.LongCounterHandle;
+import io.github.wldt.demo.monitoring.LongGaugeHandle;
+import io.github.wldt.demo.monitoring.LongHistogramHandle;
 import io.github.wldt.demo.monitoring.OpenTelemetryWLDTMonitoring;
+import io.github.wldt.demo.physical.DeadbandPhysicalAssetProperty;
+import io.github.wldt.demo.rules.RuleDefinition;
+import io.github.wldt.demo.rules.RuleEngine;
+import io.github.wldt.demo.rules.RuleEventListener;
+import io.github.wldt.demo.shadowing.ActionAckTracker;
+import io.github.wldt.demo.shadowing.ActionPriority;
+import io.github.wldt.demo.shadowing.ActionRateLimit;
+import io.github.wldt.demo.shadowing.ActionRateLimiter;
+import io.github.wldt.demo.shadowing.ActionRequest;
+import io.github.wldt.demo.shadowing.DeadbandFilter;
+import io.github.wldt.demo.shadowing.DigitalActionBatcher;
+import io.github.wldt.demo.shadowing.PropertyVariationBatcher;
+import io.github.wldt.demo.shadowing.PropertyVariationQueue;
 import io.github.wldt.demo.utils.GlobalKeywords;
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.trace.Span;
@@ -17,8 +43,15 @@ import it.wldt.core.state.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Authors:
@@ -29,13 +62,203 @@ import java.util.Random;
 public class DemoShadowingFunction extends ShadowingFunction {
 
     private static final Logger logger = LoggerFactory.getLogger(DemoShadowingFunction.class);
+
+    public static final String STATE_BATCH_SIZE_METRIC = "wldt.state.batch.size";
+    public static final String PROPERTY_QUEUE_DEPTH_METRIC = "wldt.property.queue.depth";
+    public static final String PROPERTY_QUEUE_COALESCED_METRIC = "wldt.property.queue.coalesced";
+    public static final String PROPERTY_QUEUE_DROPPED_METRIC = "wldt.property.queue.dropped";
+    public static final String EVENT_TO_COMMIT_LATENCY_METRIC = "wldt.shadowing.event.to.commit.latency";
+    public static final String STATE_COMMIT_DURATION_METRIC = "wldt.state.commit.duration";
+    public static final String SHADOWING_BUSY_NANOS_METRIC = "wldt.shadowing.busy.nanos";
+    public static final String DEADBAND_PASSED_METRIC = "wldt.deadband.passed";
+    public static final String DEADBAND_SUPPRESSED_METRIC = "wldt.deadband.suppressed";
+    public static final String DEADBAND_HEARTBEAT_METRIC = "wldt.deadband.heartbeat";
+    public static final String DEADBAND_SUPPRESSION_RATIO_METRIC = "wldt.deadband.suppression.ratio";
+    public static final String PROPERTY_KEY_ATTRIBUTE = "property.key";
+    public static final String ACTION_BATCH_SIZE_METRIC = "wldt.action.batch.size";
+    public static final String ACTION_SUPERSEDED_METRIC = "wldt.action.superseded";
+    public static final String ACTION_DISPATCHED_METRIC = "wldt.action.dispatched";
+    public static final String ACTION_ACKED_METRIC = "wldt.action.acked";
+    public static final String ACTION_EXPIRED_METRIC = "wldt.action.expired";
+    public static final String ACTION_PENDING_METRIC = "wldt.action.pending";
+    public static final String ACTION_ACK_LATENCY_METRIC = "wldt.action.ack.latency";
+    public static final String ACTION_QUEUE_WAIT_METRIC = "wldt.action.queue.wait";
+    public static final String ACTION_REJECTED_METRIC = "wldt.action.rejected";
+    public static final String ACTION_DELAYED_METRIC = "wldt.action.delayed";
+    public static final String ACTION_QUEUE_DEPTH_METRIC = "wldt.action.queue.depth";
+    public static final String ACTION_PRIORITY_ATTRIBUTE = "action.priority";
+
     OpenTelemetryWLDTMonitoring otMetricExporter;
 
+    // Pre-resolved metric handles used on the property hot path (available once the DT is bound)
+    private volatile LongCounterHandle testLongCounter;
+    private volatile DoubleCounterHandle testDoubleCounter;
+    private volatile LongGaugeHandle testLongGauge;
+    private volatile DoubleGaugeHandle testDoubleGauge;
+    private volatile LongHistogramHandle stateBatchSizeHistogram;
+    // Time from the creation of the physical event to the commit of the DT State (ms)
+    private volatile DoubleHistogramHandle eventToCommitLatencyHistogram;
+    // Duration of the DT State transactions, from start to commit (ms)
+    private volatile DoubleHistogramHandle stateCommitDurationHistogram;
+    // Number of action requests received in each action batch, before the deduplication
+    private volatile LongHistogramHandle actionBatchSizeHistogram;
+    // Action requests replaced in their batch by a later request with the same action key
+    private volatile LongCounterHandle actionSupersededCounter;
+    // Time from the creation of the digital action request to its acknowledgement by the physical adapter (ms)
+    private volatile DoubleHistogramHandle actionAckLatencyHistogram;
+    // Time spent by the action requests waiting for the rate limits (ms)
+    private volatile DoubleHistogramHandle actionQueueWaitHistogram;
+
+    private final DemoShadowingFunctionConfiguration configuration;
+
+    // Collects property variations to apply them in a single state transaction (null if batching is disabled)
+    private final PropertyVariationBatcher propertyVariationBatcher;
+
+    // Bounded queue decoupling the publishing physical adapters from the property processing (null if disabled)
+    private final PropertyVariationQueue propertyVariationQueue;
+
+    // History of the numeric properties fed by every applied variation (null if disabled)
+    private final PropertyHistoryStore propertyHistoryStore;
+
+    // Derives DT events from every applied numeric property variation (null if no rule is configured)
+    private final RuleEngine ruleEngine;
+
+    // Kept in a field so that the rule evaluation does not allocate a new listener for each sample
+    private final RuleEventListener ruleEventListener = this::notifyRuleEvent;
+
+    // Sliding window statistics written as derived properties (null if no aggregation is configured)
+    private final AggregationEngine aggregationEngine;
+
+    private final DerivedValueConsumer derivedValueConsumer = this::updateDerivedProperty;
+
+    // Derived values computed from the batched samples, written by the transaction of the next batch
+    private final PendingDerivedValues pendingDerivedValues = new PendingDerivedValues();
+
+    // Collects the digital action requests to dispatch them in batches (null if action batching is disabled)
+    private final DigitalActionBatcher digitalActionBatcher;
+
+    // Rate limits the actions between their reception and the publication to the physical adapters (null if not limited)
+    private final ActionRateLimiter actionRateLimiter;
+
+    // Action keys with the SAFETY priority, never delayed by the action batching
+    private final Set<String> safetyActionKeys = new HashSet<>();
+
+    private final ActionAckTracker actionAckTracker = new ActionAckTracker(GlobalKeywords.ACTION_MAX_PENDING_ACKS);
+
+    // Physical adapters receiving the requests of an action batch in a single event, set when the DT is bound
+    private volatile Set<String> batchAdapterIds = Set.of();
+
+    // Suppresses the redundant samples of the properties declaring a deadband in their PAD
+    private final DeadbandFilter deadbandFilter = new DeadbandFilter();
+
+    // Time (ns) spent applying the physical property variations on the DT State
+    private final LongAdder shadowingBusyNanos = new LongAdder();
+
+    // Time (ms) at which the shadowing function notified the sync of the DT, 0 if not yet synced
+    private volatile long shadowingSyncTimestamp = 0;
+
+    // DT State restored from the journal when the shadowing function started (empty if no journal is configured)
+    private StateImage restoredState = new StateImage(0);
+
     public DemoShadowingFunction(String id) {
+        this(id, new DemoShadowingFunctionConfiguration());
+    }
+
+    public DemoShadowingFunction(String id, DemoShadowingFunctionConfiguration configuration) {
         super(id);
+        this.configuration = configuration;
+
+        if (configuration.isBatchingEnabled())
+            this.propertyVariationBatcher = new PropertyVariationBatcher(
+                    configuration.getBatchWindowMs(),
+                    configuration.getBatchMaxSize(),
+                    this::applyPropertyVariationBatch);
+        else
+            this.propertyVariationBatcher = null;
+
+        if (configuration.isQueueEnabled())
+            this.propertyVariationQueue = new PropertyVariationQueue(
+                    configuration.getQueueCapacity(),
+                    configuration.getQueueOverflowPolicy(),
+                    this::applyPropertyVariation);
+        else
+            this.propertyVariationQueue = null;
+
+        if (configuration.isActionBatchingEnabled())
+            this.digitalActionBatcher = new DigitalActionBatcher(
+                    configuration.getActionBatchWindowMs(),
+                    configuration.getActionBatchMaxSize(),
+                    this::applyDigitalActionBatch);
+        else
+            this.digitalActionBatcher = null;
+
+        if ((configuration.getActionRateLimits() != null && !configuration.getActionRateLimits().isEmpty()) || configuration.getTwinActionRatePerSecond() > 0)
+            this.actionRateLimiter = new ActionRateLimiter(
+                    configuration.getActionRateLimits() != null ? configuration.getActionRateLimits() : List.of(),
+                    configuration.getTwinActionRatePerSecond(),
+                    configuration.getTwinActionBurst(),
+                    configuration.getActionQueueCapacity(),
+                    this::publishDigitalAction);
+        else
+            this.actionRateLimiter = null;
+
+        if (configuration.getActionRateLimits() != null)
+            for (ActionRateLimit actionRateLimit : configuration.getActionRateLimits())
+                if (actionRateLimit.getPriority() == ActionPriority.SAFETY)
+                    safetyActionKeys.add(actionRateLimit.getActionKey());
+
+        this.propertyHistoryStore = configuration.isHistoryEnabled() ? new PropertyHistoryStore() : null;
+
+        this.ruleEngine = configuration.getRuleDefinitions() != null && !configuration.getRuleDefinitions().isEmpty()
+                ? new RuleEngine(configuration.getRuleDefinitions())
+                : null;
+
+        this.aggregationEngine = configuration.getAggregationDefinitions() != null && !configuration.getAggregationDefinitions().isEmpty()
+                ? new AggregationEngine(configuration.getAggregationDefinitions())
+                : null;
+
         maybeRunWithSpan(() -> logger.info("A slf4j log message without a span"), false);
     }
 
+    public DemoShadowingFunctionConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public long getShadowingSyncTimestamp() {
+        return shadowingSyncTimestamp;
+    }
+
+    public PropertyHistoryStore getPropertyHistoryStore() {
+        return propertyHistoryStore;
+    }
+
+    public RuleEngine getRuleEngine() {
+        return ruleEngine;
+    }
+
+    public AggregationEngine getAggregationEngine() {
+        return aggregationEngine;
+    }
+
+    public DeadbandFilter getDeadbandFilter() {
+        return deadbandFilter;
+    }
+
+    public ActionAckTracker getActionAckTracker() {
+        return actionAckTracker;
+    }
+
+    public ActionRateLimiter getActionRateLimiter() {
+        return actionRateLimiter;
+    }
+
+    /**
+     * @return the cumulative time (ns) spent applying the physical property variations on the DT State
+     */
+    public long getShadowingBusyNanos() {
+        return shadowingBusyNanos.sum();
+    }
+
     //// Shadowing Function Management Callbacks ////
 
     @Override
@@ -46,11 +269,73 @@ public class DemoShadowingFunction extends ShadowingFunction {
     @Override
     protected void onStart() {
 
+        //The last known state is available to the digital adapters before any physical adapter binds
+        if (configuration.getJournalConfiguration() != null)
+            restoreDigitalTwinState();
+
+        if (propertyVariationBatcher != null)
+            propertyVariationBatcher.start();
+        if (propertyVariationQueue != null)
+            propertyVariationQueue.start();
+        if (digitalActionBatcher != null)
+            digitalActionBatcher.start();
+        if (actionRateLimiter != null)
+            actionRateLimiter.start();
     }
 
     @Override
     protected void onStop() {
+        //Stopped from upstream to downstream: the queue hands its queued samples to the batcher, the batchers flush
+        //their pending batch and the action batcher flush reaches the rate limiter before it is stopped
+        if (propertyVariationQueue != null)
+            propertyVariationQueue.stop();
+        if (propertyVariationBatcher != null)
+            propertyVariationBatcher.stop();
+        if (digitalActionBatcher != null)
+            digitalActionBatcher.stop();
+        if (actionRateLimiter != null)
+            actionRateLimiter.stop();
+    }
+
+    /**
+     * Rebuilds the DT State from the latest snapshot and the journal through a single state transaction
+     */
+    private void restoreDigitalTwinState() {
+
+        try {
+
+            StateImage stateImage = JournalStateRestorer.restore(configuration.getJournalConfiguration());
+
+            if (stateImage.isEmpty())
+                return;
+
+            this.digitalTwinStateManager.startStateTransaction();
+
+            for (DigitalTwinStateProperty<?> property : stateImage.getProperties())
+                this.digitalTwinStateManager.createProperty(property);
+
+            for (DigitalTwinStateEvent event : stateImage.getEvents())
+                this.digitalTwinStateManager.registerEvent(event);
+
+            for (DigitalTwinStateAction action : stateImage.getActions())
+                this.digitalTwinStateManager.enableAction(action);
+
+            for (DigitalTwinStateRelationship<?> relationship : stateImage.getRelationships()) {
+                this.digitalTwinStateManager.createRelationship(relationship);
+                for (DigitalTwinStateRelationshipInstance<?> instance : stateImage.getRelationshipInstances(relationship.getName()))
+                    this.digitalTwinStateManager.addRelationshipInstance(instance);
+            }
 
+            this.digitalTwinStateManager.commitStateTransaction();
+            invalidateWatchedProperties();
+
+            restoredState = stateImage;
+
+            logger.info("[TestShadowingFunction] -> restoreDigitalTwinState() -> DT State restored: {}", stateImage);
+
+        } catch (Exception e) {
+            logger.error("[TestShadowingFunction] -> restoreDigitalTwinState() -> Error restoring the DT State: {}", e.getMessage());
+        }
     }
 
     //// Bound LifeCycle State Management Callbacks ////
@@ -71,8 +356,25 @@ public class DemoShadowingFunction extends ShadowingFunction {
                 pad.getProperties().forEach(property -> {
                     try {
 
-                        //Create and write the property on the DT's State
-                        this.digitalTwinStateManager.createProperty(new DigitalTwinStateProperty<>(property.getKey(),(Double) property.getInitialValue()));
+                        //Create and write the property on the DT's State, a restored property keeps its last known value
+                        if (!restoredState.containsProperty(property.getKey()))
+                            this.digitalTwinStateManager.createProperty(new DigitalTwinStateProperty<>(property.getKey(),(Double) property.getInitialValue()));
+
+                        //Create the properties derived by the aggregations, starting from the same initial value
+                        if (aggregationEngine != null)
+                            for (String derivedPropertyKey : aggregationEngine.getDerivedPropertyKeys(property.getKey()))
+                                if (!restoredState.containsProperty(derivedPropertyKey))
+                                    this.digitalTwinStateManager.createProperty(new DigitalTwinStateProperty<>(derivedPropertyKey, (Double) property.getInitialValue()));
+
+                        //The deadband declared by the Physical Adapter is applied before any state update
+                        if (property instanceof DeadbandPhysicalAssetProperty) {
+                            DeadbandPhysicalAssetProperty<?> deadbandProperty = (DeadbandPhysicalAssetProperty<?>) property;
+                            deadbandFilter.configure(property.getKey(),
+                                    deadbandProperty.getAbsoluteDeadband(),
+                                    deadbandProperty.getPercentDeadband(),
+                                    deadbandProperty.getMinIntervalMs(),
+                                    deadbandProperty.getMaxSilenceMs());
+                        }
 
                         //Start observing the variation of the physical property in order to receive notifications
                         //Without this call the Shadowing Function will not receive any notifications or callback about
@@ -94,7 +396,8 @@ public class DemoShadowingFunction extends ShadowingFunction {
                         DigitalTwinStateEvent dtStateEvent = new DigitalTwinStateEvent(event.getKey(), event.getType());
 
                         //Create and write the event on the DT's State
-                        this.digitalTwinStateManager.registerEvent(dtStateEvent);
+                        if (!restoredState.containsEvent(event.getKey()))
+                            this.digitalTwinStateManager.registerEvent(dtStateEvent);
 
                         //Start observing the variation of the physical event in order to receive notifications
                         //Without this call the Shadowing Function will not receive any notifications or callback about
@@ -110,13 +413,19 @@ public class DemoShadowingFunction extends ShadowingFunction {
 
                 //Iterate over available declared Physical Actions for the target Physical Adapter's PAD
                 pad.getActions().forEach(action -> {
+
+                    //The batch action is an internal channel towards the physical adapter, not a DT action
+                    if (ActionRequest.isBatchActionKey(action.getKey()))
+                        return;
+
                     try {
 
                         //Instantiate a new DT State Action with the same key and type
                         DigitalTwinStateAction dtStateAction = new DigitalTwinStateAction(action.getKey(), action.getType(), action.getContentType());
 
                         //Enable the action on the DT's State
-                        this.digitalTwinStateManager.enableAction(dtStateAction);
+                        if (!restoredState.containsAction(action.getKey()))
+                            this.digitalTwinStateManager.enableAction(dtStateAction);
 
                         logger.info("[TestShadowingFunction] -> onDigitalTwinBound() -> Action Enabled:{}", action.getKey());
 
@@ -131,7 +440,8 @@ public class DemoShadowingFunction extends ShadowingFunction {
 
                             DigitalTwinStateRelationship<String> insideInDtStateRelationship = new DigitalTwinStateRelationship<>(relationship.getName(), relationship.getName());
 
-                            this.digitalTwinStateManager.createRelationship(insideInDtStateRelationship);
+                            if (!restoredState.containsRelationship(relationship.getName()))
+                                this.digitalTwinStateManager.createRelationship(insideInDtStateRelationship);
 
                             observePhysicalAssetRelationship(relationship);
 
@@ -144,17 +454,64 @@ public class DemoShadowingFunction extends ShadowingFunction {
 
             });
 
+            //Route the batched actions to the physical adapter declaring them
+            if (digitalActionBatcher != null) {
+                Map<String, String> actionAdapterIds = new HashMap<>();
+                Set<String> adapterIdsWithBatchAction = new HashSet<>();
+                adaptersPhysicalAssetDescriptionMap.forEach((adapterId, pad) -> pad.getActions().forEach(action -> {
+                    if (action.getKey().equals(ActionRequest.batchActionKey(adapterId)))
+                        adapterIdsWithBatchAction.add(adapterId);
+                    else
+                        actionAdapterIds.put(action.getKey(), adapterId);
+                }));
+                digitalActionBatcher.setActionAdapterIds(actionAdapterIds);
+                batchAdapterIds = adapterIdsWithBatchAction;
+            }
+
+            //Register the events derived by the rules that are not declared by the Physical Adapters
+            if (ruleEngine != null)
+                registerRuleEvents(adaptersPhysicalAssetDescriptionMap);
+
             // NEW in 0.3.0 -> Commit DT State Change Transaction to apply the changes on the DT State and notify about the change
             this.digitalTwinStateManager.commitStateTransaction();
 
             // WLDT Metrics
-            otMetricExporter = new OpenTelemetryWLDTMonitoring(this.digitalTwinStateManager);
+            otMetricExporter = new OpenTelemetryWLDTMonitoring(this.digitalTwinStateManager, configuration.getMetricsTwinId());
             otMetricExporter.watchPropertyDoubleGauge(GlobalKeywords.TEMPERATURE_PROPERTY_KEY);
-            otMetricExporter.addLongCounter("test.long.counter", 0L);
-            otMetricExporter.addDoubleCounter("test.double.counter", 0.0);
-            otMetricExporter.addLongGauge("test.long.gauge", 0L);
-            otMetricExporter.addDoubleGauge("test.double.gauge", 0.0);
+            testLongCounter = otMetricExporter.registerLongCounter("test.long.counter");
+            testDoubleCounter = otMetricExporter.registerDoubleCounter("test.double.counter");
+            testLongGauge = otMetricExporter.registerLongGauge("test.long.gauge");
+            testDoubleGauge = otMetricExporter.registerDoubleGauge("test.double.gauge");
+            stateBatchSizeHistogram = otMetricExporter.registerLongHistogram(STATE_BATCH_SIZE_METRIC, "{samples}");
+            eventToCommitLatencyHistogram = otMetricExporter.registerDoubleHistogram(EVENT_TO_COMMIT_LATENCY_METRIC, "ms", GlobalKeywords.LATENCY_HISTOGRAM_BUCKETS_MS);
+            stateCommitDurationHistogram = otMetricExporter.registerExponentialDoubleHistogram(STATE_COMMIT_DURATION_METRIC, "ms");
+            otMetricExporter.addObservableLongCounter(SHADOWING_BUSY_NANOS_METRIC, this::getShadowingBusyNanos);
+
+            if (propertyVariationQueue != null) {
+                otMetricExporter.addObservableLongGauge(PROPERTY_QUEUE_DEPTH_METRIC, propertyVariationQueue::getDepth);
+                otMetricExporter.addObservableLongCounter(PROPERTY_QUEUE_COALESCED_METRIC, propertyVariationQueue::getCoalescedCount);
+                otMetricExporter.addObservableLongCounter(PROPERTY_QUEUE_DROPPED_METRIC, propertyVariationQueue::getDroppedCount);
+            }
+
+            actionBatchSizeHistogram = otMetricExporter.registerLongHistogram(ACTION_BATCH_SIZE_METRIC, "{requests}");
+            actionSupersededCounter = otMetricExporter.registerLongCounter(ACTION_SUPERSEDED_METRIC);
+            actionAckLatencyHistogram = otMetricExporter.registerDoubleHistogram(ACTION_ACK_LATENCY_METRIC, "ms", GlobalKeywords.LATENCY_HISTOGRAM_BUCKETS_MS);
+            otMetricExporter.addObservableLongCounter(ACTION_DISPATCHED_METRIC, actionAckTracker::getDispatchedCount);
+            otMetricExporter.addObservableLongCounter(ACTION_ACKED_METRIC, actionAckTracker::getAckedCount);
+            otMetricExporter.addObservableLongCounter(ACTION_EXPIRED_METRIC, actionAckTracker::getExpiredCount);
+            otMetricExporter.addObservableLongGauge(ACTION_PENDING_METRIC, actionAckTracker::getPendingCount);
+
+            if (actionRateLimiter != null) {
+                actionQueueWaitHistogram = otMetricExporter.registerDoubleHistogram(ACTION_QUEUE_WAIT_METRIC, "ms", GlobalKeywords.LATENCY_HISTOGRAM_BUCKETS_MS);
+                otMetricExporter.addObservableLongCounter(ACTION_REJECTED_METRIC, ACTION_PRIORITY_ATTRIBUTE, actionRateLimiter::getRejectedCounts);
+                otMetricExporter.addObservableLongCounter(ACTION_DELAYED_METRIC, ACTION_PRIORITY_ATTRIBUTE, actionRateLimiter::getDelayedCounts);
+                otMetricExporter.addObservableDoubleGauge(ACTION_QUEUE_DEPTH_METRIC, ACTION_PRIORITY_ATTRIBUTE, actionRateLimiter::getQueueDepths);
+            }
 
+            otMetricExporter.addObservableLongCounter(DEADBAND_PASSED_METRIC, PROPERTY_KEY_ATTRIBUTE, deadbandFilter::getPassedCounts);
+            otMetricExporter.addObservableLongCounter(DEADBAND_SUPPRESSED_METRIC, PROPERTY_KEY_ATTRIBUTE, deadbandFilter::getSuppressedCounts);
+            otMetricExporter.addObservableLongCounter(DEADBAND_HEARTBEAT_METRIC, PROPERTY_KEY_ATTRIBUTE, deadbandFilter::getHeartbeatCounts);
+            otMetricExporter.addObservableDoubleGauge(DEADBAND_SUPPRESSION_RATIO_METRIC, PROPERTY_KEY_ATTRIBUTE, deadbandFilter::getSuppressionRatios);
 
 
             //Start observation to receive all incoming Digital Action through active Digital Adapter
@@ -166,6 +523,8 @@ public class DemoShadowingFunction extends ShadowingFunction {
             //internal status according to what is available and declared through the Physical Adapters
             notifyShadowingSync();
 
+            shadowingSyncTimestamp = System.currentTimeMillis();
+
         } catch (Exception e) {
             logger.error(e.getMessage());
         }
@@ -188,7 +547,52 @@ public class DemoShadowingFunction extends ShadowingFunction {
 
         try {
 
-            logger.info("[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> Variation on Property :{}", physicalAssetPropertyWldtEvent.getPhysicalPropertyId());
+            logger.debug(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> Variation on Property :{}", physicalAssetPropertyWldtEvent.getPhysicalPropertyId());
+
+            //Samples within the deadband are dropped before reaching the queue, the batcher and the state transaction
+            if (!deadbandFilter.accept(
+                    physicalAssetPropertyWldtEvent.getPhysicalPropertyId(),
+                    physicalAssetPropertyWldtEvent.getCreationTimestamp(),
+                    physicalAssetPropertyWldtEvent.getBody())) {
+                logger.debug(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> Variation within the deadband :{}", physicalAssetPropertyWldtEvent.getPhysicalPropertyId());
+                return;
+            }
+
+            //With the queue enabled the variation is processed by the queue drain thread
+            if (propertyVariationQueue != null) {
+                propertyVariationQueue.offer(physicalAssetPropertyWldtEvent);
+                return;
+            }
+
+            applyPropertyVariation(physicalAssetPropertyWldtEvent);
+
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        }
+
+    }
+
+    /**
+     * Applies a property variation on the DT State, directly or through the batcher when batching is enabled
+     *
+     * @param physicalAssetPropertyWldtEvent the received physical property variation
+     */
+    private void applyPropertyVariation(PhysicalAssetPropertyWldtEvent<?> physicalAssetPropertyWldtEvent) {
+
+        try {
+
+            //With batching enabled the variation is applied together with the others received in the same window.
+            //The batch commits only the latest sample of each property, so the history, the aggregations and the
+            //rules are fed here with every received sample
+            if (propertyVariationBatcher != null) {
+                recordPropertyHistory(physicalAssetPropertyWldtEvent);
+                updateAggregations(physicalAssetPropertyWldtEvent, pendingDerivedValues);
+                evaluateRules(physicalAssetPropertyWldtEvent);
+                propertyVariationBatcher.offer(physicalAssetPropertyWldtEvent);
+                return;
+            }
+
+            long transactionStartNanos = System.nanoTime();
 
             //Update Digital Twin State
             //NEW from 0.3.0 -> Start State Transaction
@@ -198,15 +602,23 @@ public class DemoShadowingFunction extends ShadowingFunction {
                     physicalAssetPropertyWldtEvent.getPhysicalPropertyId(),
                     physicalAssetPropertyWldtEvent.getBody()));
 
+            updateAggregations(physicalAssetPropertyWldtEvent, derivedValueConsumer);
+
             //NEW from 0.3.0 -> Commit State Transaction
             this.digitalTwinStateManager.commitStateTransaction();
+            invalidateWatchedProperties();
 
-            this.otMetricExporter.incrementLongCounter("test.long.counter", 1L);
-            this.otMetricExporter.incrementDoubleCounter("test.double.counter", 1.43);
-            this.otMetricExporter.setLongGauge("test.long.gauge", new Random().nextLong(101));
-            this.otMetricExporter.setDoubleGauge("test.double.gauge", new Random().nextDouble(101));
+            recordCommitLatencyMetrics(transactionStartNanos, physicalAssetPropertyWldtEvent.getCreationTimestamp());
 
-            logger.info("[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> DT State UPDATE Property :{}", physicalAssetPropertyWldtEvent.getPhysicalPropertyId());
+            recordPropertyHistory(physicalAssetPropertyWldtEvent);
+
+            evaluateRules(physicalAssetPropertyWldtEvent);
+
+            recordPropertyVariationMetrics();
+
+            shadowingBusyNanos.add(System.nanoTime() - transactionStartNanos);
+
+            logger.info(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> DT State UPDATE Property :{}", physicalAssetPropertyWldtEvent.getPhysicalPropertyId());
 
         } catch (Exception e) {
             logger.error(e.getMessage());
@@ -214,20 +626,202 @@ public class DemoShadowingFunction extends ShadowingFunction {
 
     }
 
+    /**
+     * Records the demo metrics associated to a property variation through the pre-resolved handles,
+     * without boxing, lookups by name or allocations
+     */
+    private void recordPropertyVariationMetrics() {
+
+        //Handles are registered when the DT is bound, the last one is used to check that all of them are available
+        if (this.testDoubleGauge == null)
+            return;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        this.testLongCounter.add(1L);
+        this.testDoubleCounter.add(1.43);
+        this.testLongGauge.set(random.nextLong(101));
+        this.testDoubleGauge.set(random.nextDouble(101));
+    }
+
+    /**
+     * Invalidates the watched properties of the metrics after a committed state transaction, including the derived
+     * properties updated within it
+     */
+    private void invalidateWatchedProperties() {
+        OpenTelemetryWLDTMonitoring metricExporter = this.otMetricExporter;
+        if (metricExporter != null)
+            metricExporter.invalidateWatchedProperties();
+    }
+
+    /**
+     * Records the duration of a committed DT State transaction and the latency from the creation of the
+     * physical event that triggered it
+     *
+     * @param transactionStartNanos the System.nanoTime() value taken before starting the transaction
+     * @param eventCreationTimestamp the creation timestamp (ms since the epoch) of the physical event
+     */
+    private void recordCommitLatencyMetrics(long transactionStartNanos, long eventCreationTimestamp) {
+
+        DoubleHistogramHandle commitDurationHistogram = this.stateCommitDurationHistogram;
+        if (commitDurationHistogram != null)
+            commitDurationHistogram.recordElapsedSince(transactionStartNanos);
+
+        DoubleHistogramHandle eventLatencyHistogram = this.eventToCommitLatencyHistogram;
+        if (eventLatencyHistogram != null)
+            eventLatencyHistogram.recordElapsedSinceEpochMillis(eventCreationTimestamp);
+    }
+
+    /**
+     * Records a numeric property variation in the history store, at the creation time of the physical event
+     */
+    private void recordPropertyHistory(PhysicalAssetPropertyWldtEvent<?> physicalAssetPropertyWldtEvent) {
+        if (this.propertyHistoryStore != null && physicalAssetPropertyWldtEvent.getBody() instanceof Number)
+            this.propertyHistoryStore.record(
+                    physicalAssetPropertyWldtEvent.getPhysicalPropertyId(),
+                    physicalAssetPropertyWldtEvent.getCreationTimestamp(),
+                    ((Number) physicalAssetPropertyWldtEvent.getBody()).doubleValue());
+    }
+
+    /**
+     * Adds a numeric property variation to its aggregations and passes the derived values to the consumer, either
+     * writing them in the current state transaction or keeping them for the next batch
+     */
+    private void updateAggregations(PhysicalAssetPropertyWldtEvent<?> physicalAssetPropertyWldtEvent, DerivedValueConsumer consumer) {
+        if (this.aggregationEngine != null && physicalAssetPropertyWldtEvent.getBody() instanceof Number)
+            this.aggregationEngine.update(
+                    physicalAssetPropertyWldtEvent.getPhysicalPropertyId(),
+                    ((Number) physicalAssetPropertyWldtEvent.getBody()).doubleValue(),
+                    consumer);
+    }
+
+    private void updateDerivedProperty(String derivedPropertyKey, double value) {
+        try {
+            this.digitalTwinStateManager.updateProperty(new DigitalTwinStateProperty<>(derivedPropertyKey, value));
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Evaluates the rules of a numeric property variation
+     */
+    private void evaluateRules(PhysicalAssetPropertyWldtEvent<?> physicalAssetPropertyWldtEvent) {
+        if (this.ruleEngine != null && physicalAssetPropertyWldtEvent.getBody() instanceof Number)
+            this.ruleEngine.evaluate(
+                    physicalAssetPropertyWldtEvent.getPhysicalPropertyId(),
+                    physicalAssetPropertyWldtEvent.getCreationTimestamp(),
+                    ((Number) physicalAssetPropertyWldtEvent.getBody()).doubleValue(),
+                    ruleEventListener);
+    }
+
+    /**
+     * Notifies the DT event of a rule transition, the clear is notified only if the rule has a clear event body
+     */
+    private void notifyRuleEvent(RuleDefinition ruleDefinition, boolean raised, long timestamp, double signal) {
+
+        String eventBody = raised ? ruleDefinition.getEventBody() : ruleDefinition.getClearEventBody();
+        if (eventBody == null)
+            return;
+
+        try {
+
+            this.digitalTwinStateManager.notifyDigitalTwinStateEvent(new DigitalTwinStateEventNotification<>(ruleDefinition.getEventKey(), eventBody, timestamp));
+
+            logger.info(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> notifyRuleEvent() -> Rule {} {} with signal {}", ruleDefinition.getRuleId(), raised ? "raised" : "cleared", signal);
+
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Registers on the DT State the events of the rules that are neither declared in the PADs nor restored
+     * (to be called inside the bound state transaction)
+     */
+    private void registerRuleEvents(Map<String, PhysicalAssetDescription> adaptersPhysicalAssetDescriptionMap) {
+
+        Set<String> declaredEventKeys = new HashSet<>();
+        adaptersPhysicalAssetDescriptionMap.values().forEach(pad -> pad.getEvents().forEach(event -> declaredEventKeys.add(event.getKey())));
+
+        for (RuleDefinition ruleDefinition : ruleEngine.getRuleDefinitions()) {
+            try {
+                if (declaredEventKeys.add(ruleDefinition.getEventKey()) && !restoredState.containsEvent(ruleDefinition.getEventKey())) {
+                    this.digitalTwinStateManager.registerEvent(new DigitalTwinStateEvent(ruleDefinition.getEventKey(), "text/plain"));
+                    logger.info("[TestShadowingFunction] -> onDigitalTwinBound() -> Rule Event Registered:{}", ruleDefinition.getEventKey());
+                }
+            } catch (Exception e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of coalesced property variations through a single DT State transaction, together with the
+     * latest derived values computed from the received samples. The history and the rules have already been fed with
+     * each sample when it has been offered to the batcher.
+     *
+     * @param propertyEvents the latest variation received for each property in the batch
+     * @param sampleCount the number of variations received in the batch before coalescing
+     */
+    private void applyPropertyVariationBatch(Collection<PhysicalAssetPropertyWldtEvent<?>> propertyEvents, int sampleCount) {
+
+        try {
+
+            long transactionStartNanos = System.nanoTime();
+
+            this.digitalTwinStateManager.startStateTransaction();
+
+            //The oldest variation of the batch is the one that waited the most before being committed
+            long oldestCreationTimestamp = Long.MAX_VALUE;
+
+            for (PhysicalAssetPropertyWldtEvent<?> propertyEvent : propertyEvents) {
+                this.digitalTwinStateManager.updateProperty(new DigitalTwinStateProperty<>(
+                        propertyEvent.getPhysicalPropertyId(),
+                        propertyEvent.getBody()));
+                oldestCreationTimestamp = Math.min(oldestCreationTimestamp, propertyEvent.getCreationTimestamp());
+            }
+
+            pendingDerivedValues.drainTo(derivedValueConsumer);
+
+            this.digitalTwinStateManager.commitStateTransaction();
+            invalidateWatchedProperties();
+
+            recordCommitLatencyMetrics(transactionStartNanos, oldestCreationTimestamp);
+
+            LongHistogramHandle batchSizeHistogram = this.stateBatchSizeHistogram;
+            if (batchSizeHistogram != null)
+                batchSizeHistogram.record(sampleCount);
+
+            shadowingBusyNanos.add(System.nanoTime() - transactionStartNanos);
+
+            logger.info(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> applyPropertyVariationBatch() -> DT State UPDATE Properties :{} Samples :{}", propertyEvents.size(), sampleCount);
+
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        }
+    }
+
     //// Physical Event Notification Callback ////
 
     @Override
     protected void onPhysicalAssetEventNotification(PhysicalAssetEventWldtEvent<?> physicalAssetEventWldtEvent) {
         try {
 
-            logger.info("[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> Notification for Event :{}", physicalAssetEventWldtEvent.getPhysicalEventKey());
+            logger.debug(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> Notification for Event :{}", physicalAssetEventWldtEvent.getPhysicalEventKey());
+
+            //Physical events are never queued or coalesced, they are always notified as soon as they are received
+
+            //Action acknowledgements complete the tracked requests and are notified as any other event
+            if (GlobalKeywords.ACTION_ACK_EVENT_KEY.equals(physicalAssetEventWldtEvent.getPhysicalEventKey()))
+                onActionAck(physicalAssetEventWldtEvent.getBody());
 
             this.digitalTwinStateManager.notifyDigitalTwinStateEvent(new DigitalTwinStateEventNotification<>(
                     physicalAssetEventWldtEvent.getPhysicalEventKey(),
                     physicalAssetEventWldtEvent.getBody(),
                     physicalAssetEventWldtEvent.getCreationTimestamp()));
 
-            logger.info("[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> DT State Notification for Event:{}", physicalAssetEventWldtEvent.getPhysicalEventKey());
+            logger.info(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> onPhysicalAssetPropertyVariation() -> DT State Notification for Event:{}", physicalAssetEventWldtEvent.getPhysicalEventKey());
 
         } catch (Exception e) {
             logger.error(e.getMessage());
@@ -251,7 +845,8 @@ public class DemoShadowingFunction extends ShadowingFunction {
                     String relKey = paRelInstance.getKey();
                     String relTargetId = (String)paRelInstance.getTargetId();
 
-                    DigitalTwinStateRelationshipInstance<String> instance = new DigitalTwinStateRelationshipInstance<String>(relName, relTargetId, relKey);
+                    //The metadata (e.g. floor and room) are kept to qualify the relationship graph lookups
+                    DigitalTwinStateRelationshipInstance<String> instance = new DigitalTwinStateRelationshipInstance<String>(relName, relTargetId, relKey, paRelInstance.getMetadata());
 
                     //Update Digital Twin State
                     //NEW from 0.3.0 -> Start State Transaction
@@ -270,18 +865,176 @@ public class DemoShadowingFunction extends ShadowingFunction {
 
     @Override
     protected void onPhysicalAssetRelationshipDeleted(PhysicalAssetRelationshipInstanceDeletedWldtEvent<?> physicalAssetRelationshipInstanceDeletedWldtEvent) {
+        try{
+
+            if(physicalAssetRelationshipInstanceDeletedWldtEvent != null
+                    && physicalAssetRelationshipInstanceDeletedWldtEvent.getBody() != null){
+
+                PhysicalAssetRelationshipInstance<?> paRelInstance = physicalAssetRelationshipInstanceDeletedWldtEvent.getBody();
 
+                //Update Digital Twin State
+                this.digitalTwinStateManager.startStateTransaction();
+
+                this.digitalTwinStateManager.deleteRelationshipInstance(paRelInstance.getRelationship().getName(), paRelInstance.getKey());
+
+                this.digitalTwinStateManager.commitStateTransaction();
+            }
+        }catch (Exception e){
+            logger.error(e.getMessage());
+        }
     }
 
     //// Digital Action Received Callbacks ////
 
     @Override
     protected void onDigitalActionEvent(DigitalActionWldtEvent<?> digitalActionWldtEvent) {
+
+        //With action batching enabled the request is dispatched with the others received in the same window, the
+        //safety actions are dispatched right away instead of waiting the window behind the routine ones
+        if (digitalActionBatcher != null && !safetyActionKeys.contains(digitalActionWldtEvent.getActionKey())) {
+            digitalActionBatcher.offer(digitalActionWldtEvent);
+            return;
+        }
+
+        dispatchDigitalAction(digitalActionWldtEvent);
+    }
+
+    /**
+     * Dispatches a batch of deduplicated action requests, one physical adapter after the other. The conforming
+     * requests of a physical adapter declaring the batch action are published in a single action event, the others
+     * one by one.
+     *
+     * @param actionsByAdapter the latest request of each action key, grouped by the physical adapter declaring it
+     * @param requestCount the number of requests received in the batch before the deduplication
+     */
+    private void applyDigitalActionBatch(Map<String, List<DigitalActionWldtEvent<?>>> actionsByAdapter, int requestCount) {
+
+        int dispatchedCount = 0;
+
+        for (Map.Entry<String, List<DigitalActionWldtEvent<?>>> adapterEntry : actionsByAdapter.entrySet()) {
+
+            List<DigitalActionWldtEvent<?>> adapterActions = adapterEntry.getValue();
+
+            if (adapterActions.size() > 1 && batchAdapterIds.contains(adapterEntry.getKey())) {
+                //The requests waiting for the rate limits are published one by one when they conform
+                List<DigitalActionWldtEvent<?>> conformingActions = new ArrayList<>(adapterActions.size());
+                for (int i = 0, size = adapterActions.size(); i < size; i++)
+                    dispatchDigitalAction(adapterActions.get(i), (actionEvent, queueWaitNanos) -> conformingActions.add(actionEvent));
+                publishDigitalActionBatch(adapterEntry.getKey(), conformingActions);
+            }
+            else
+                for (int i = 0, size = adapterActions.size(); i < size; i++)
+                    dispatchDigitalAction(adapterActions.get(i));
+
+            dispatchedCount += adapterActions.size();
+        }
+
+        LongHistogramHandle batchSizeHistogram = this.actionBatchSizeHistogram;
+        if (batchSizeHistogram != null)
+            batchSizeHistogram.record(requestCount);
+
+        LongCounterHandle supersededCounter = this.actionSupersededCounter;
+        if (supersededCounter != null && requestCount > dispatchedCount)
+            supersededCounter.add(requestCount - dispatchedCount);
+
+        logger.info(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> applyDigitalActionBatch() -> Dispatched Actions :{} Requests :{} Adapters :{}", dispatchedCount, requestCount, actionsByAdapter.keySet());
+    }
+
+    /**
+     * Forwards an action request to the physical adapters, through the rate limiter when the actions are limited
+     */
+    private void dispatchDigitalAction(DigitalActionWldtEvent<?> digitalActionWldtEvent) {
+        dispatchDigitalAction(digitalActionWldtEvent, this::publishDigitalAction);
+    }
+
+    /**
+     * @param conformingDispatcher receives the request if it conforms right away, the queued requests are published
+     *                             when they conform
+     */
+    private void dispatchDigitalAction(DigitalActionWldtEvent<?> digitalActionWldtEvent, ActionRateLimiter.ActionDispatcher conformingDispatcher) {
+
+        if (actionRateLimiter == null) {
+            conformingDispatcher.dispatch(digitalActionWldtEvent, 0L);
+            return;
+        }
+
+        if (!actionRateLimiter.submit(digitalActionWldtEvent, conformingDispatcher))
+            logger.warn(LogMarkers.PER_EVENT, "[TestShadowingFunction] -> dispatchDigitalAction() -> Action Rejected by the rate limiter :{}", digitalActionWldtEvent.getActionKey());
+    }
+
+    /**
+     * Publishes a conforming action request to the physical adapters
+     *
+     * @param queueWaitNanos the time spent by the request waiting for the rate limits
+     */
+    private void publishDigitalAction(DigitalActionWldtEvent<?> digitalActionWldtEvent, long queueWaitNanos) {
+
+        DoubleHistogramHandle queueWaitHistogram = this.actionQueueWaitHistogram;
+        if (queueWaitHistogram != null)
+            queueWaitHistogram.record(queueWaitNanos / 1_000_000.0);
+
+        //Tracked before publishing, the acknowledgement can be received before the publish returns
+        ActionRequest actionRequest = trackActionRequest(digitalActionWldtEvent);
+
         try {
-            this.publishPhysicalAssetActionWldtEvent(digitalActionWldtEvent.getActionKey(), digitalActionWldtEvent.getBody());
+            this.publishPhysicalAssetActionWldtEvent(actionRequest.getActionKey(), actionRequest);
         } catch (Exception e) {
-            logger.error(e.getMessage());
+            actionAckTracker.onPublishFailed(actionRequest.getRequestId());
+            logger.error("[TestShadowingFunction] -> publishDigitalAction() -> Error publishing {}: {}", actionRequest.getActionKey(), e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the conforming requests of a batch to the physical adapter in a single action event
+     */
+    private void publishDigitalActionBatch(String physicalAdapterId, List<DigitalActionWldtEvent<?>> actionEvents) {
+
+        if (actionEvents.isEmpty())
+            return;
+
+        if (actionEvents.size() == 1) {
+            publishDigitalAction(actionEvents.get(0), 0L);
+            return;
         }
+
+        DoubleHistogramHandle queueWaitHistogram = this.actionQueueWaitHistogram;
+        List<ActionRequest> actionRequests = new ArrayList<>(actionEvents.size());
+
+        for (int i = 0, size = actionEvents.size(); i < size; i++) {
+            if (queueWaitHistogram != null)
+                queueWaitHistogram.record(0.0);
+            actionRequests.add(trackActionRequest(actionEvents.get(i)));
+        }
+
+        try {
+            this.publishPhysicalAssetActionWldtEvent(ActionRequest.batchActionKey(physicalAdapterId), actionRequests);
+        } catch (Exception e) {
+            for (int i = 0, size = actionRequests.size(); i < size; i++)
+                actionAckTracker.onPublishFailed(actionRequests.get(i).getRequestId());
+            logger.error("[TestShadowingFunction] -> publishDigitalActionBatch() -> Error publishing {} actions to {}: {}", actionRequests.size(), physicalAdapterId, e.getMessage());
+        }
+    }
+
+    private ActionRequest trackActionRequest(DigitalActionWldtEvent<?> digitalActionWldtEvent) {
+        long requestId = actionAckTracker.onDispatched(digitalActionWldtEvent.getActionKey(), digitalActionWldtEvent.getCreationTimestamp());
+        return new ActionRequest(requestId, digitalActionWldtEvent.getActionKey(), digitalActionWldtEvent.getBody());
+    }
+
+    /**
+     * Completes the acknowledged request and records its latency
+     *
+     * @param ackBody the body of the acknowledgement event, the id of the acknowledged request
+     */
+    private void onActionAck(Object ackBody) {
+
+        if (!(ackBody instanceof Number))
+            return;
+
+        long creationTimestamp = actionAckTracker.onAck(((Number) ackBody).longValue());
+
+        DoubleHistogramHandle ackLatencyHistogram = this.actionAckLatencyHistogram;
+        if (creationTimestamp >= 0 && ackLatencyHistogram != null)
+            ackLatencyHistogram.recordElapsedSinceEpochMillis(creationTimestamp);
     }
 
     private static void maybeRunWithSpan(Runnable runnable, boolean withSpan) {
@@ -0,0 +1,237 @@
+package io.github.wldt.demo;
+
+import io.github.wldt.demo.aggregation.AggregationDefinition;
+import io.github.wldt.demo.journal.JournalConfiguration;
+import io.github.wldt.demo.rules.RuleDefinition;
+import io.github.wldt.demo.shadowing.ActionRateLimit;
+import io.github.wldt.demo.shadowing.PropertyVariationQueue;
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DemoShadowingFunctionConfiguration {
+
+    private boolean batchingEnabled = GlobalKeywords.STATE_BATCHING_ENABLED;
+
+    private int batchWindowMs = GlobalKeywords.STATE_BATCH_WINDOW_MS;
+
+    private int batchMaxSize = GlobalKeywords.STATE_BATCH_MAX_SIZE;
+
+    private boolean queueEnabled = GlobalKeywords.PROPERTY_QUEUE_ENABLED;
+
+    private int queueCapacity = GlobalKeywords.PROPERTY_QUEUE_CAPACITY;
+
+    private PropertyVariationQueue.OverflowPolicy queueOverflowPolicy = PropertyVariationQueue.OverflowPolicy.COALESCE;
+
+    // Groups the digital action requests per physical adapter, keeping the last request of each action key
+    private boolean actionBatchingEnabled = GlobalKeywords.ACTION_BATCHING_ENABLED;
+
+    private int actionBatchWindowMs = GlobalKeywords.ACTION_BATCH_WINDOW_MS;
+
+    private int actionBatchMaxSize = GlobalKeywords.ACTION_BATCH_MAX_SIZE;
+
+    // Rate limits and priority classes of the actions forwarded to the physical adapters
+    private List<ActionRateLimit> actionRateLimits = new ArrayList<>();
+
+    // Rate shared by all the actions of the twin, <= 0 to limit only the single action keys
+    private double twinActionRatePerSecond = GlobalKeywords.TWIN_ACTION_RATE_PER_SECOND;
+
+    private int twinActionBurst = GlobalKeywords.TWIN_ACTION_BURST;
+
+    // Requests of each priority class waiting for the rate, the following ones are rejected
+    private int actionQueueCapacity = GlobalKeywords.ACTION_QUEUE_CAPACITY;
+
+    // Keeps the history of the numeric properties in an in-process time series store
+    private boolean historyEnabled = GlobalKeywords.PROPERTY_HISTORY_ENABLED;
+
+    // Rules deriving DT events from the numeric property samples
+    private List<RuleDefinition> ruleDefinitions = new ArrayList<>();
+
+    // Sliding window aggregations exposed as derived properties
+    private List<AggregationDefinition> aggregationDefinitions = new ArrayList<>();
+
+    // Journal used to restore the last known DT State when the shadowing function starts (null to start empty)
+    private JournalConfiguration journalConfiguration = null;
+
+    // Id of the twin recorded as attribute of its metrics, null when the metric names are not shared with other twins
+    private String metricsTwinId = null;
+
+    public DemoShadowingFunctionConfiguration() {
+    }
+
+    public DemoShadowingFunctionConfiguration(boolean batchingEnabled, int batchWindowMs, int batchMaxSize) {
+        this.batchingEnabled = batchingEnabled;
+        this.batchWindowMs = batchWindowMs;
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        this.batchingEnabled = batchingEnabled;
+    }
+
+    public int getBatchWindowMs() {
+        return batchWindowMs;
+    }
+
+    public void setBatchWindowMs(int batchWindowMs) {
+        this.batchWindowMs = batchWindowMs;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public boolean isQueueEnabled() {
+        return queueEnabled;
+    }
+
+    public void setQueueEnabled(boolean queueEnabled) {
+        this.queueEnabled = queueEnabled;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public PropertyVariationQueue.OverflowPolicy getQueueOverflowPolicy() {
+        return queueOverflowPolicy;
+    }
+
+    public void setQueueOverflowPolicy(PropertyVariationQueue.OverflowPolicy queueOverflowPolicy) {
+        this.queueOverflowPolicy = queueOverflowPolicy;
+    }
+
+    public boolean isActionBatchingEnabled() {
+        return actionBatchingEnabled;
+    }
+
+    public void setActionBatchingEnabled(boolean actionBatchingEnabled) {
+        this.actionBatchingEnabled = actionBatchingEnabled;
+    }
+
+    public int getActionBatchWindowMs() {
+        return actionBatchWindowMs;
+    }
+
+    public void setActionBatchWindowMs(int actionBatchWindowMs) {
+        this.actionBatchWindowMs = actionBatchWindowMs;
+    }
+
+    public int getActionBatchMaxSize() {
+        return actionBatchMaxSize;
+    }
+
+    public void setActionBatchMaxSize(int actionBatchMaxSize) {
+        this.actionBatchMaxSize = actionBatchMaxSize;
+    }
+
+    public List<ActionRateLimit> getActionRateLimits() {
+        return actionRateLimits;
+    }
+
+    public void setActionRateLimits(List<ActionRateLimit> actionRateLimits) {
+        this.actionRateLimits = actionRateLimits;
+    }
+
+    public double getTwinActionRatePerSecond() {
+        return twinActionRatePerSecond;
+    }
+
+    public void setTwinActionRatePerSecond(double twinActionRatePerSecond) {
+        this.twinActionRatePerSecond = twinActionRatePerSecond;
+    }
+
+    public int getTwinActionBurst() {
+        return twinActionBurst;
+    }
+
+    public void setTwinActionBurst(int twinActionBurst) {
+        this.twinActionBurst = twinActionBurst;
+    }
+
+    public int getActionQueueCapacity() {
+        return actionQueueCapacity;
+    }
+
+    public void setActionQueueCapacity(int actionQueueCapacity) {
+        this.actionQueueCapacity = actionQueueCapacity;
+    }
+
+    public boolean isHistoryEnabled() {
+        return historyEnabled;
+    }
+
+    public void setHistoryEnabled(boolean historyEnabled) {
+        this.historyEnabled = historyEnabled;
+    }
+
+    public List<RuleDefinition> getRuleDefinitions() {
+        return ruleDefinitions;
+    }
+
+    public void setRuleDefinitions(List<RuleDefinition> ruleDefinitions) {
+        this.ruleDefinitions = ruleDefinitions;
+    }
+
+    public List<AggregationDefinition> getAggregationDefinitions() {
+        return aggregationDefinitions;
+    }
+
+    public void setAggregationDefinitions(List<AggregationDefinition> aggregationDefinitions) {
+        this.aggregationDefinitions = aggregationDefinitions;
+    }
+
+    public JournalConfiguration getJournalConfiguration() {
+        return journalConfiguration;
+    }
+
+    public void setJournalConfiguration(JournalConfiguration journalConfiguration) {
+        this.journalConfiguration = journalConfiguration;
+    }
+
+    public String getMetricsTwinId() {
+        return metricsTwinId;
+    }
+
+    public void setMetricsTwinId(String metricsTwinId) {
+        this.metricsTwinId = metricsTwinId;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DemoShadowingFunctionConfiguration{");
+        sb.append("batchingEnabled=").append(batchingEnabled);
+        sb.append(", batchWindowMs=").append(batchWindowMs);
+        sb.append(", batchMaxSize=").append(batchMaxSize);
+        sb.append(", queueEnabled=").append(queueEnabled);
+        sb.append(", queueCapacity=").append(queueCapacity);
+        sb.append(", queueOverflowPolicy=").append(queueOverflowPolicy);
+        sb.append(", actionBatchingEnabled=").append(actionBatchingEnabled);
+        sb.append(", actionBatchWindowMs=").append(actionBatchWindowMs);
+        sb.append(", actionBatchMaxSize=").append(actionBatchMaxSize);
+        sb.append(", actionRateLimits=").append(actionRateLimits);
+        sb.append(", twinActionRatePerSecond=").append(twinActionRatePerSecond);
+        sb.append(", twinActionBurst=").append(twinActionBurst);
+        sb.append(", actionQueueCapacity=").append(actionQueueCapacity);
+        sb.append(", historyEnabled=").append(historyEnabled);
+        sb.append(", ruleDefinitions=").append(ruleDefinitions);
+        sb.append(", aggregationDefinitions=").append(aggregationDefinitions);
+        sb.append(", journalConfiguration=").append(journalConfiguration);
+        sb.append(", metricsTwinId=").append(metricsTwinId);
+        sb.append('}');
+        return sb.toString();
+    }
+}
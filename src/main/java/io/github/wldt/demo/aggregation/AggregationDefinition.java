@@ -0,0 +1,127 @@
+package io.github.wldt.demo.aggregation;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window aggregation of a numeric property, exposed through derived properties named
+ * &lt;derivedKeyPrefix&gt;.mean, .min, .max, .stddev, .ewma and .p&lt;percentile&gt; (e.g. .p95)
+ */
+public class AggregationDefinition {
+
+    private String propertyKey;
+
+    // Prefix of the derived property keys, the property key if not set
+    private String derivedKeyPrefix;
+
+    // Number of samples of the window
+    private int windowSize = GlobalKeywords.AGGREGATION_WINDOW_SIZE;
+
+    private double ewmaAlpha = GlobalKeywords.AGGREGATION_EWMA_ALPHA;
+
+    private double[] percentiles = {50.0, 95.0};
+
+    // Value range and bins of the histogram used to estimate the percentiles, values outside are clamped
+    private double histogramMinValue;
+
+    private double histogramMaxValue;
+
+    private int histogramBinCount = GlobalKeywords.AGGREGATION_HISTOGRAM_BIN_COUNT;
+
+    public AggregationDefinition(String propertyKey, double histogramMinValue, double histogramMaxValue) {
+        this.propertyKey = propertyKey;
+        this.histogramMinValue = histogramMinValue;
+        this.histogramMaxValue = histogramMaxValue;
+    }
+
+    public AggregationDefinition(String propertyKey, String derivedKeyPrefix, int windowSize, double ewmaAlpha, double[] percentiles, double histogramMinValue, double histogramMaxValue, int histogramBinCount) {
+        this.propertyKey = propertyKey;
+        this.derivedKeyPrefix = derivedKeyPrefix;
+        this.windowSize = windowSize;
+        this.ewmaAlpha = ewmaAlpha;
+        this.percentiles = percentiles;
+        this.histogramMinValue = histogramMinValue;
+        this.histogramMaxValue = histogramMaxValue;
+        this.histogramBinCount = histogramBinCount;
+    }
+
+    public String getPropertyKey() {
+        return propertyKey;
+    }
+
+    public void setPropertyKey(String propertyKey) {
+        this.propertyKey = propertyKey;
+    }
+
+    public String getDerivedKeyPrefix() {
+        return derivedKeyPrefix != null ? derivedKeyPrefix : propertyKey;
+    }
+
+    public void setDerivedKeyPrefix(String derivedKeyPrefix) {
+        this.derivedKeyPrefix = derivedKeyPrefix;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public double getEwmaAlpha() {
+        return ewmaAlpha;
+    }
+
+    public void setEwmaAlpha(double ewmaAlpha) {
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    public void setPercentiles(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    public double getHistogramMinValue() {
+        return histogramMinValue;
+    }
+
+    public void setHistogramMinValue(double histogramMinValue) {
+        this.histogramMinValue = histogramMinValue;
+    }
+
+    public double getHistogramMaxValue() {
+        return histogramMaxValue;
+    }
+
+    public void setHistogramMaxValue(double histogramMaxValue) {
+        this.histogramMaxValue = histogramMaxValue;
+    }
+
+    public int getHistogramBinCount() {
+        return histogramBinCount;
+    }
+
+    public void setHistogramBinCount(int histogramBinCount) {
+        this.histogramBinCount = histogramBinCount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AggregationDefinition{");
+        sb.append("propertyKey='").append(propertyKey).append('\'');
+        sb.append(", derivedKeyPrefix='").append(getDerivedKeyPrefix()).append('\'');
+        sb.append(", windowSize=").append(windowSize);
+        sb.append(", ewmaAlpha=").append(ewmaAlpha);
+        sb.append(", percentiles=").append(Arrays.toString(percentiles));
+        sb.append(", histogramMinValue=").append(histogramMinValue);
+        sb.append(", histogramMaxValue=").append(histogramMaxValue);
+        sb.append(", histogramBinCount=").append(histogramBinCount);
+        sb.append('}');
+        return sb.toString();
+    }
+}
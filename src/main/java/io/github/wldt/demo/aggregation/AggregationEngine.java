@@ -0,0 +1,104 @@
+package io.github.wldt.demo.aggregation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link WindowAggregator} for each {@link AggregationDefinition} and produces the values of the derived
+ * properties for each sample of the aggregated properties. The derived property keys are built once, so updating
+ * the aggregations does not allocate.
+ *
+ * Not thread safe, samples are added by the shadowing function thread.
+ */
+public class AggregationEngine {
+
+    private static final String[] STATISTIC_SUFFIXES = {".mean", ".min", ".max", ".stddev", ".ewma"};
+
+    private static final class Aggregation {
+
+        private final WindowAggregator windowAggregator;
+
+        private final double[] percentiles;
+
+        // Statistic keys in the STATISTIC_SUFFIXES order followed by the percentile keys
+        private final String[] derivedPropertyKeys;
+
+        private Aggregation(AggregationDefinition definition) {
+            this.windowAggregator = new WindowAggregator(definition);
+            this.percentiles = definition.getPercentiles() != null ? definition.getPercentiles().clone() : new double[0];
+            this.derivedPropertyKeys = new String[STATISTIC_SUFFIXES.length + percentiles.length];
+            for (int i = 0; i < STATISTIC_SUFFIXES.length; i++)
+                derivedPropertyKeys[i] = definition.getDerivedKeyPrefix() + STATISTIC_SUFFIXES[i];
+            for (int i = 0; i < percentiles.length; i++)
+                derivedPropertyKeys[STATISTIC_SUFFIXES.length + i] = definition.getDerivedKeyPrefix() + ".p" + formatPercentile(percentiles[i]);
+        }
+
+        private static String formatPercentile(double percentile) {
+            return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile).replace('.', '_');
+        }
+    }
+
+    private static final Aggregation[] NO_AGGREGATIONS = new Aggregation[0];
+
+    private final Map<String, Aggregation[]> aggregationsByProperty = new HashMap<>();
+
+    public AggregationEngine(List<AggregationDefinition> definitions) {
+
+        Map<String, List<Aggregation>> aggregations = new HashMap<>();
+        for (AggregationDefinition definition : definitions)
+            aggregations.computeIfAbsent(definition.getPropertyKey(), key -> new ArrayList<>()).add(new Aggregation(definition));
+
+        aggregations.forEach((propertyKey, propertyAggregations) -> aggregationsByProperty.put(propertyKey, propertyAggregations.toArray(NO_AGGREGATIONS)));
+    }
+
+    /**
+     * Adds a sample of a property to its aggregations and passes the updated derived values to the consumer
+     */
+    public void update(String propertyKey, double value, DerivedValueConsumer consumer) {
+
+        if (Double.isNaN(value))
+            return;
+
+        Aggregation[] aggregations = aggregationsByProperty.getOrDefault(propertyKey, NO_AGGREGATIONS);
+
+        for (int a = 0; a < aggregations.length; a++) {
+
+            Aggregation aggregation = aggregations[a];
+            WindowAggregator windowAggregator = aggregation.windowAggregator;
+            String[] keys = aggregation.derivedPropertyKeys;
+
+            windowAggregator.add(value);
+
+            consumer.onDerivedValue(keys[0], windowAggregator.getMean());
+            consumer.onDerivedValue(keys[1], windowAggregator.getMin());
+            consumer.onDerivedValue(keys[2], windowAggregator.getMax());
+            consumer.onDerivedValue(keys[3], windowAggregator.getStdDev());
+            consumer.onDerivedValue(keys[4], windowAggregator.getEwma());
+
+            for (int p = 0; p < aggregation.percentiles.length; p++)
+                consumer.onDerivedValue(keys[STATISTIC_SUFFIXES.length + p], windowAggregator.getPercentile(aggregation.percentiles[p]));
+        }
+    }
+
+    public boolean hasAggregations(String propertyKey) {
+        return aggregationsByProperty.containsKey(propertyKey);
+    }
+
+    /**
+     * @return the keys of the properties derived from the given property
+     */
+    public List<String> getDerivedPropertyKeys(String propertyKey) {
+
+        Aggregation[] aggregations = aggregationsByProperty.get(propertyKey);
+        if (aggregations == null)
+            return Collections.emptyList();
+
+        List<String> derivedPropertyKeys = new ArrayList<>();
+        for (Aggregation aggregation : aggregations)
+            Collections.addAll(derivedPropertyKeys, aggregation.derivedPropertyKeys);
+        return derivedPropertyKeys;
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.wldt.demo.aggregation;
+
+/**
+ * Receives the updated values of the derived properties
+ */
+@FunctionalInterface
+public interface DerivedValueConsumer {
+    void onDerivedValue(String derivedPropertyKey, double value);
+}
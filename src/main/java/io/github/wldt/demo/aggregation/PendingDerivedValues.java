@@ -0,0 +1,40 @@
+package io.github.wldt.demo.aggregation;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Keeps the latest value of each derived property until the next DT State transaction, so that the aggregations
+ * can be updated by every received sample while the derived properties are written once per transaction (e.g. when
+ * the property variations are applied in batches).
+ */
+public class PendingDerivedValues implements DerivedValueConsumer {
+
+    // Latest value of each updated derived property, in order of first update, guarded by this
+    private LinkedHashMap<String, Double> pendingValues = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void onDerivedValue(String derivedPropertyKey, double value) {
+        pendingValues.put(derivedPropertyKey, value);
+    }
+
+    /**
+     * Hands the pending values to the consumer, outside the lock, and clears them
+     */
+    public void drainTo(DerivedValueConsumer consumer) {
+
+        LinkedHashMap<String, Double> drainedValues;
+
+        synchronized (this) {
+            if (pendingValues.isEmpty())
+                return;
+            drainedValues = pendingValues;
+            pendingValues = new LinkedHashMap<>();
+        }
+
+        drainedValues.forEach(consumer::onDerivedValue);
+    }
+
+    public synchronized int size() {
+        return pendingValues.size();
+    }
+}
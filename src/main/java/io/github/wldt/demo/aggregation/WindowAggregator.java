@@ -0,0 +1,175 @@
+package io.github.wldt.demo.aggregation;
+
+/**
+ * Statistics over the last windowSize samples of a property, updated in O(1) per sample whatever the window size:
+ * <ul>
+ *     <li>mean and standard deviation from running sums over a primitive ring buffer (recomputed once per window
+ *     to bound the floating point drift)</li>
+ *     <li>min and max from monotonic deques of sample sequence numbers</li>
+ *     <li>EWMA over all the samples</li>
+ *     <li>percentiles from a fixed-bin histogram of the window (O(bins) to read, interpolated within the bin)</li>
+ * </ul>
+ * Not thread safe, samples are added by the shadowing function thread.
+ */
+public class WindowAggregator {
+
+    private final int windowSize;
+
+    private final double[] window;
+
+    private long sampleCount = 0;
+
+    private double sum = 0;
+
+    private double sumOfSquares = 0;
+
+    // Circular deques of the sequence numbers of the window min/max candidates
+    private final long[] minDeque;
+
+    private int minHead = 0;
+
+    private int minSize = 0;
+
+    private final long[] maxDeque;
+
+    private int maxHead = 0;
+
+    private int maxSize = 0;
+
+    private final double ewmaAlpha;
+
+    private double ewma = Double.NaN;
+
+    private final double histogramMinValue;
+
+    private final double binWidth;
+
+    private final int[] bins;
+
+    public WindowAggregator(AggregationDefinition definition) {
+        this.windowSize = Math.max(1, definition.getWindowSize());
+        this.window = new double[windowSize];
+        this.minDeque = new long[windowSize];
+        this.maxDeque = new long[windowSize];
+        this.ewmaAlpha = definition.getEwmaAlpha();
+        this.histogramMinValue = definition.getHistogramMinValue();
+        this.bins = new int[Math.max(1, definition.getHistogramBinCount())];
+        this.binWidth = Math.max(Double.MIN_VALUE, (definition.getHistogramMaxValue() - definition.getHistogramMinValue()) / bins.length);
+    }
+
+    public void add(double value) {
+
+        long sequence = sampleCount++;
+        int position = (int) (sequence % windowSize);
+
+        if (sequence >= windowSize) {
+            double evicted = window[position];
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+            bins[binOf(evicted)]--;
+        }
+
+        window[position] = value;
+        sum += value;
+        sumOfSquares += value * value;
+        bins[binOf(value)]++;
+
+        if (position == windowSize - 1)
+            recomputeSums();
+
+        //Drop the candidates that left the window, then the ones that can no longer be the min/max
+        long oldestSequence = sequence - windowSize + 1;
+
+        if (minSize > 0 && minDeque[minHead] < oldestSequence) {
+            minHead = (minHead + 1) % windowSize;
+            minSize--;
+        }
+        while (minSize > 0 && valueOf(minDeque[(minHead + minSize - 1) % windowSize]) >= value)
+            minSize--;
+        minDeque[(minHead + minSize++) % windowSize] = sequence;
+
+        if (maxSize > 0 && maxDeque[maxHead] < oldestSequence) {
+            maxHead = (maxHead + 1) % windowSize;
+            maxSize--;
+        }
+        while (maxSize > 0 && valueOf(maxDeque[(maxHead + maxSize - 1) % windowSize]) <= value)
+            maxSize--;
+        maxDeque[(maxHead + maxSize++) % windowSize] = sequence;
+
+        ewma = Double.isNaN(ewma) ? value : ewmaAlpha * value + (1.0 - ewmaAlpha) * ewma;
+    }
+
+    private void recomputeSums() {
+        double newSum = 0;
+        double newSumOfSquares = 0;
+        for (int i = 0; i < windowSize; i++) {
+            newSum += window[i];
+            newSumOfSquares += window[i] * window[i];
+        }
+        sum = newSum;
+        sumOfSquares = newSumOfSquares;
+    }
+
+    private double valueOf(long sequence) {
+        return window[(int) (sequence % windowSize)];
+    }
+
+    private int binOf(double value) {
+        int bin = (int) ((value - histogramMinValue) / binWidth);
+        return bin < 0 ? 0 : Math.min(bin, bins.length - 1);
+    }
+
+    public int getCount() {
+        return (int) Math.min(sampleCount, windowSize);
+    }
+
+    public double getMean() {
+        int count = getCount();
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    public double getStdDev() {
+        int count = getCount();
+        if (count == 0)
+            return Double.NaN;
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0.0, sumOfSquares / count - mean * mean));
+    }
+
+    public double getMin() {
+        return minSize > 0 ? valueOf(minDeque[minHead]) : Double.NaN;
+    }
+
+    public double getMax() {
+        return maxSize > 0 ? valueOf(maxDeque[maxHead]) : Double.NaN;
+    }
+
+    public double getEwma() {
+        return ewma;
+    }
+
+    /**
+     * @param percentile the percentile in [0, 100]
+     */
+    public double getPercentile(double percentile) {
+
+        int count = getCount();
+        if (count == 0)
+            return Double.NaN;
+
+        double rank = Math.max(0.0, Math.min(1.0, percentile / 100.0)) * count;
+        int cumulative = 0;
+
+        for (int bin = 0; bin < bins.length; bin++) {
+            int binCount = bins[bin];
+            if (binCount > 0 && cumulative + binCount >= rank) {
+                double estimate = histogramMinValue + binWidth * (bin + (rank - cumulative) / binCount);
+                //The exact min/max are known, the estimate never goes beyond them
+                return Math.max(getMin(), Math.min(getMax(), estimate));
+            }
+            cumulative += binCount;
+        }
+
+        return getMax();
+    }
+}
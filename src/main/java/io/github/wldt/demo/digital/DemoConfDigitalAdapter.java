@@ -1,11 +1,21 @@
 package io.github.wldt.demo.digital;
 
+import io.github.wldt.demo.executor.AdapterTaskRunner;
+import io.github.wldt.demo.load.SendTimestampRegistry;
+import io.github.wldt.demo.logger.LogMarkers;
+import io.github.wldt.demo.monitoring.DoubleHistogramHandle;
+import io.github.wldt.demo.monitoring.OpenTelemetryWLDTMonitoring;
+import io.github.wldt.demo.utils.GlobalKeywords;
 import it.wldt.adapter.digital.DigitalAdapter;
 import it.wldt.core.state.*;
 import it.wldt.exception.EventBusException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -16,8 +26,46 @@ import java.util.stream.Collectors;
  */
 public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterConfiguration> {
 
+    private static final Logger logger = LoggerFactory.getLogger(DemoConfDigitalAdapter.class);
+
+    public static final String COMMIT_TO_DELIVERY_LATENCY_METRIC = "wldt.digital.commit.to.delivery.latency";
+    public static final String LOAD_END_TO_END_LATENCY_METRIC = "wldt.load.end.to.end.latency";
+    public static final String LOAD_EVENT_LATENCY_METRIC = "wldt.load.event.latency";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    // Scheduled background tasks of the adapter, cancelled when the adapter is stopped
+    private final AdapterTaskRunner taskRunner = new AdapterTaskRunner();
+
+    // Resolves the send timestamp of the samples generated by load generators to measure end-to-end latency
+    private final SendTimestampRegistry sendTimestampRegistry;
+
+    // Time from the commit of the DT State to its delivery to the adapter (ms)
+    private DoubleHistogramHandle commitToDeliveryLatencyHistogram;
+
+    // Time from the send of a load generator sample to its delivery to the adapter (ms)
+    private DoubleHistogramHandle loadEndToEndLatencyHistogram;
+
+    // Time from the send of a load generator event to the delivery of its notification to the adapter (ms)
+    private DoubleHistogramHandle loadEventLatencyHistogram;
+
+    // Handlers of the state changes used when the delta-only mode is enabled
+    private final StateChangeDispatcher stateChangeDispatcher;
+
     public DemoConfDigitalAdapter(String id, DemoDigitalAdapterConfiguration configuration) {
+        this(id, configuration, SendTimestampRegistry.getInstance());
+    }
+
+    /**
+     * @param sendTimestampRegistry the registry of the generated samples, e.g. a dedicated one to count the deliveries
+     *                              of a single benchmark run
+     */
+    public DemoConfDigitalAdapter(String id, DemoDigitalAdapterConfiguration configuration, SendTimestampRegistry sendTimestampRegistry) {
         super(id, configuration);
+        this.sendTimestampRegistry = sendTimestampRegistry;
+        this.stateChangeDispatcher = new StateChangeDispatcher()
+                .register(DigitalTwinStateChange.ResourceType.PROPERTY, this::onPropertyChange)
+                .register(DigitalTwinStateChange.ResourceType.PROPERTY_VALUE, this::onPropertyChange);
     }
 
     /**
@@ -25,7 +73,12 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onAdapterStart() {
-        System.out.println("[TestDigitalAdapter] -> onAdapterStart()");
+        logger.info("[DemoDigitalAdapter] -> onAdapterStart()");
+
+        OpenTelemetryWLDTMonitoring otMetricExporter = new OpenTelemetryWLDTMonitoring(null, getConfiguration().getMetricsTwinId());
+        commitToDeliveryLatencyHistogram = otMetricExporter.registerDoubleHistogram(COMMIT_TO_DELIVERY_LATENCY_METRIC, "ms", GlobalKeywords.LATENCY_HISTOGRAM_BUCKETS_MS);
+        loadEndToEndLatencyHistogram = otMetricExporter.registerExponentialDoubleHistogram(LOAD_END_TO_END_LATENCY_METRIC, "ms");
+        loadEventLatencyHistogram = otMetricExporter.registerExponentialDoubleHistogram(LOAD_EVENT_LATENCY_METRIC, "ms");
     }
 
     /**
@@ -33,7 +86,9 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onAdapterStop() {
-        System.out.println("[DemoDigitalAdapter] -> onAdapterStop()");
+        logger.info("[DemoDigitalAdapter] -> onAdapterStop()");
+        //Cancel the digital action emulation if still running
+        taskRunner.shutdown();
     }
 
 
@@ -44,7 +99,7 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
     @Override
     public void onDigitalTwinSync(DigitalTwinState currentDigitalTwinState) {
 
-        System.out.println("[DemoDigitalAdapter] -> onDigitalTwinSync(): " + currentDigitalTwinState);
+        logger.info("[DemoDigitalAdapter] -> onDigitalTwinSync(): {}", currentDigitalTwinState);
 
         try {
 
@@ -56,15 +111,15 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
                         try {
                             observeDigitalTwinEventsNotifications(eventKeys);
                         } catch (EventBusException e) {
-                            e.printStackTrace();
+                            logger.error("[DemoDigitalAdapter] -> Error observing the event notifications: {}", e.getMessage());
                         }
                     });
 
             //Start Digital Action Emulation
-            new Thread(emulateIncomingDigitalAction()).start();
+            startDigitalActionEmulation();
 
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("[DemoDigitalAdapter] -> onDigitalTwinSync() -> Error: {}", e.getMessage());
         }
 
     }
@@ -75,7 +130,7 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onDigitalTwinUnSync(DigitalTwinState currentDigitalTwinState) {
-        System.out.println("[DemoDigitalAdapter] -> onDigitalTwinUnSync(): " + currentDigitalTwinState);
+        logger.info("[DemoDigitalAdapter] -> onDigitalTwinUnSync(): {}", currentDigitalTwinState);
     }
 
     /**
@@ -83,7 +138,7 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onDigitalTwinCreate() {
-        System.out.println("[DemoDigitalAdapter] -> onDigitalTwinCreate()");
+        logger.info("[DemoDigitalAdapter] -> onDigitalTwinCreate()");
     }
 
     /**
@@ -91,7 +146,7 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onDigitalTwinStart() {
-        System.out.println("[DemoDigitalAdapter] -> onDigitalTwinStart()");
+        logger.info("[DemoDigitalAdapter] -> onDigitalTwinStart()");
     }
 
     /**
@@ -99,7 +154,7 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onDigitalTwinStop() {
-        System.out.println("[DemoDigitalAdapter] -> onDigitalTwinStop()");
+        logger.info("[DemoDigitalAdapter] -> onDigitalTwinStop()");
     }
 
     /**
@@ -107,7 +162,7 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     public void onDigitalTwinDestroy() {
-        System.out.println("[DemoDigitalAdapter] -> onDigitalTwinDestroy()");
+        logger.info("[DemoDigitalAdapter] -> onDigitalTwinDestroy()");
     }
 
     /**
@@ -121,11 +176,21 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
     @Override
     protected void onStateUpdate(DigitalTwinState newDigitalTwinState, DigitalTwinState previousDigitalTwinState, ArrayList<DigitalTwinStateChange> digitalTwinStateChangeList) {
 
+        // The evaluation instant of the new DT State is set when the state transaction is committed
+        if (commitToDeliveryLatencyHistogram != null && newDigitalTwinState != null && newDigitalTwinState.getEvaluationInstant() != null)
+            commitToDeliveryLatencyHistogram.recordElapsedSinceEpochMillis(newDigitalTwinState.getEvaluationInstant().toEpochMilli());
+
+        // In delta-only mode only the changes are processed, the full DT States are never printed
+        if (getConfiguration().isDeltaOnlyEnabled()) {
+            stateChangeDispatcher.dispatchAll(digitalTwinStateChangeList);
+            return;
+        }
+
         // In newDigitalTwinState we have the new DT State
-        System.out.println("New DT State is: " + newDigitalTwinState);
+        logger.debug(LogMarkers.PER_EVENT, "New DT State is: {}", newDigitalTwinState);
 
         // The previous DT State is available through the variable previousDigitalTwinState
-        System.out.println("Previous DT State is: " + previousDigitalTwinState);
+        logger.debug(LogMarkers.PER_EVENT, "Previous DT State is: {}", previousDigitalTwinState);
 
         // We can also check each DT's state change potentially differentiating the behaviour for each change
         if (digitalTwinStateChangeList != null && !digitalTwinStateChangeList.isEmpty()) {
@@ -138,40 +203,65 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
                 DigitalTwinStateChange.ResourceType resourceType = stateChange.getResourceType();
                 DigitalTwinStateResource resource = stateChange.getResource();
 
+                // Measure the end-to-end latency of the property samples generated by a load generator
+                if (resource instanceof DigitalTwinStateProperty)
+                    recordPropertyDelivery((DigitalTwinStateProperty<?>) resource);
+
                 // Perform different actions based on the type of operation
                 switch (operation) {
                     case OPERATION_UPDATE:
                         // Handle an update operation
-                        System.out.println("Update operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Update operation on {}: {}", resourceType, resource);
                         break;
                     case OPERATION_UPDATE_VALUE:
                         // Handle an update value operation
-                        System.out.println("Update value operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Update value operation on {}: {}", resourceType, resource);
                         break;
                     case OPERATION_ADD:
                         // Handle an add operation
-                        System.out.println("Add operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Add operation on {}: {}", resourceType, resource);
                         break;
                     case OPERATION_REMOVE:
                         // Handle a remove operation
-                        System.out.println("Remove operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Remove operation on {}: {}", resourceType, resource);
                         break;
                     default:
                         // Handle unknown operation (optional)
-                        System.out.println("Unknown operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Unknown operation on {}: {}", resourceType, resource);
                         break;
                 }
 
                 // Specific log example for Relationships Instance Variation
                 if(resourceType.equals(DigitalTwinStateChange.ResourceType.RELATIONSHIP_INSTANCE))
-                    System.out.println("New Relationship Instance operation:" + operation + " Resource:" + resource);
+                    logger.info(LogMarkers.PER_EVENT, "New Relationship Instance operation:{} Resource:{}", operation, resource);
             }
         } else {
             // No state changes
-            System.out.println("No state changes detected.");
+            logger.debug(LogMarkers.PER_EVENT, "No state changes detected.");
         }
     }
 
+    /**
+     * Delta-only handler of the changes on the DT State properties
+     */
+    private void onPropertyChange(DigitalTwinStateChange stateChange) {
+        if (stateChange.getResource() instanceof DigitalTwinStateProperty)
+            recordPropertyDelivery((DigitalTwinStateProperty<?>) stateChange.getResource());
+    }
+
+    /**
+     * Records the end-to-end latency of a property sample if it has been generated by a load generator
+     */
+    private void recordPropertyDelivery(DigitalTwinStateProperty<?> property) {
+        long latencyNanos = sendTimestampRegistry.recordDelivery(property.getKey(), property.getValue());
+        if (latencyNanos >= 0 && loadEndToEndLatencyHistogram != null)
+            loadEndToEndLatencyHistogram.record(latencyNanos / NANOS_PER_MILLI);
+    }
+
+    public StateChangeDispatcher getStateChangeDispatcher() {
+        return stateChangeDispatcher;
+    }
+
     /**
      * Callback method to receive a new computed Event Notification (associated to event declared in the DT State)
      *
@@ -179,31 +269,56 @@ public class DemoConfDigitalAdapter extends DigitalAdapter<DemoDigitalAdapterCon
      */
     @Override
     protected void onEventNotificationReceived(DigitalTwinStateEventNotification<?> digitalTwinStateEventNotification) {
-        System.out.println("[DemoDigitalAdapter] -> Received Event Notification: " + digitalTwinStateEventNotification);
+
+        // Measure the latency of the events generated by a load generator
+        long latencyNanos = sendTimestampRegistry.recordEventDelivery(digitalTwinStateEventNotification.getDigitalEventKey(), digitalTwinStateEventNotification.getBody());
+        if (latencyNanos >= 0 && loadEventLatencyHistogram != null)
+            loadEventLatencyHistogram.record(latencyNanos / NANOS_PER_MILLI);
+
+        logger.info(LogMarkers.PER_EVENT, "[DemoDigitalAdapter] -> Received Event Notification: {}", digitalTwinStateEventNotification);
     }
 
-    private Runnable emulateIncomingDigitalAction(){
-        return () -> {
-            try {
+    /**
+     * Schedules the emulated digital actions on the shared scheduler, one every sleep time after a startup delay of
+     * 5 seconds, each action being published by a short task on the shared executor
+     */
+    private void startDigitalActionEmulation(){
 
-                System.out.println("[DemoDigitalAdapter] -> Sleeping before Emulating Incoming Digital Action ...");
-                Thread.sleep(5000);
-                Random random = new Random();
+        logger.info("[DemoDigitalAdapter] -> Sleeping before Emulating Incoming Digital Action ...");
 
-                //Emulate the generation on 'n' temperature measurements
-                for(int i = 0; i < getConfiguration().getEmulatedActionCount(); i++){
+        Random random = new Random();
 
-                    //Sleep to emulate sensor measurement
-                    Thread.sleep(getConfiguration().getSleepTimeMs());
+        if (getConfiguration().getEmulatedActionCount() > 0)
+            taskRunner.schedule(() -> emulateIncomingDigitalAction(random, 0), 5000 + getConfiguration().getSleepTimeMs(), TimeUnit.MILLISECONDS);
+        else
+            taskRunner.schedule(this::publishEmergencyStopAction, 5000, TimeUnit.MILLISECONDS);
+    }
 
-                    double randomTemperature = getConfiguration().getTemperatureMinValue() + (getConfiguration().getTemperatureMaxValue() - getConfiguration().getTemperatureMinValue()) * random.nextDouble();
-                    publishDigitalActionWldtEvent("set-temperature-action-key", randomTemperature);
+    private void emulateIncomingDigitalAction(Random random, int actionIndex){
+        try {
 
-                }
+            double randomTemperature = getConfiguration().getTemperatureMinValue() + (getConfiguration().getTemperatureMaxValue() - getConfiguration().getTemperatureMinValue()) * random.nextDouble();
+            publishDigitalActionWldtEvent("set-temperature-action-key", randomTemperature);
 
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        };
+        } catch (Exception e) {
+            logger.error("[DemoDigitalAdapter] -> Error emulating the incoming digital actions: {}", e.getMessage());
+        }
+
+        //Wait the sleep time to emulate the next action, the last one is followed by the safety action
+        if (actionIndex + 1 < getConfiguration().getEmulatedActionCount())
+            taskRunner.schedule(() -> emulateIncomingDigitalAction(random, actionIndex + 1), getConfiguration().getSleepTimeMs(), TimeUnit.MILLISECONDS);
+        else
+            publishEmergencyStopAction();
+    }
+
+    /**
+     * Ends the emulation with a safety action, dispatched before any setpoint still waiting for the rate limit
+     */
+    private void publishEmergencyStopAction(){
+        try {
+            publishDigitalActionWldtEvent(GlobalKeywords.EMERGENCY_STOP_ACTION_KEY, "stop");
+        } catch (Exception e) {
+            logger.error("[DemoDigitalAdapter] -> Error emulating the emergency stop action: {}", e.getMessage());
+        }
     }
 }
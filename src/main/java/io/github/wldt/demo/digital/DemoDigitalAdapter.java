@@ -1,11 +1,17 @@
 package io.github.wldt.demo.digital;
 
+import io.github.wldt.demo.executor.AdapterTaskRunner;
+import io.github.wldt.demo.logger.LogMarkers;
 import it.wldt.adapter.digital.DigitalAdapter;
 import it.wldt.core.state.*;
 import it.wldt.exception.EventBusException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +22,11 @@ import java.util.stream.Collectors;
  */
 public class DemoDigitalAdapter extends DigitalAdapter<Void> {
 
+    private static final Logger logger = LoggerFactory.getLogger(DemoDigitalAdapter.class);
+
+    // Scheduled background tasks of the adapter, cancelled when the adapter is stopped
+    private final AdapterTaskRunner taskRunner = new AdapterTaskRunner();
+
     public DemoDigitalAdapter(String id) {
         super(id);
     }
@@ -34,6 +45,8 @@ public class DemoDigitalAdapter extends DigitalAdapter<Void> {
     @Override
     public void onAdapterStop() {
         System.out.println("[DemoDigitalAdapter] -> onAdapterStop()");
+        //Cancel the digital action emulation if still running
+        taskRunner.shutdown();
     }
 
     /**
@@ -59,8 +72,11 @@ public class DemoDigitalAdapter extends DigitalAdapter<Void> {
                         }
                     });
 
-            //Start Digital Action Emulation
-            new Thread(emulateIncomingDigitalAction()).start();
+            //Start Digital Action Emulation, the first action follows a startup delay of 5 seconds and the 1 second
+            //between two actions
+            System.out.println("[DemoDigitalAdapter] -> Sleeping before Emulating Incoming Digital Action ...");
+            Random random = new Random();
+            taskRunner.schedule(() -> emulateIncomingDigitalAction(random, 0), 6, TimeUnit.SECONDS);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -121,10 +137,10 @@ public class DemoDigitalAdapter extends DigitalAdapter<Void> {
     protected void onStateUpdate(DigitalTwinState newDigitalTwinState, DigitalTwinState previousDigitalTwinState, ArrayList<DigitalTwinStateChange> digitalTwinStateChangeList) {
 
         // In newDigitalTwinState we have the new DT State
-        System.out.println("New DT State is: " + newDigitalTwinState);
+        logger.debug(LogMarkers.PER_EVENT, "New DT State is: {}", newDigitalTwinState);
 
         // The previous DT State is available through the variable previousDigitalTwinState
-        System.out.println("Previous DT State is: " + previousDigitalTwinState);
+        logger.debug(LogMarkers.PER_EVENT, "Previous DT State is: {}", previousDigitalTwinState);
 
         // We can also check each DT's state change potentially differentiating the behaviour for each change
         if (digitalTwinStateChangeList != null && !digitalTwinStateChangeList.isEmpty()) {
@@ -141,33 +157,33 @@ public class DemoDigitalAdapter extends DigitalAdapter<Void> {
                 switch (operation) {
                     case OPERATION_UPDATE:
                         // Handle an update operation
-                        System.out.println("Update operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Update operation on {}: {}", resourceType, resource);
                         break;
                     case OPERATION_UPDATE_VALUE:
                         // Handle an update value operation
-                        System.out.println("Update value operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Update value operation on {}: {}", resourceType, resource);
                         break;
                     case OPERATION_ADD:
                         // Handle an add operation
-                        System.out.println("Add operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Add operation on {}: {}", resourceType, resource);
                         break;
                     case OPERATION_REMOVE:
                         // Handle a remove operation
-                        System.out.println("Remove operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Remove operation on {}: {}", resourceType, resource);
                         break;
                     default:
                         // Handle unknown operation (optional)
-                        System.out.println("Unknown operation on " + resourceType + ": " + resource);
+                        logger.info(LogMarkers.PER_EVENT, "Unknown operation on {}: {}", resourceType, resource);
                         break;
                 }
 
                 // Specific log example for Relationships Instance Variation
                 if(resourceType.equals(DigitalTwinStateChange.ResourceType.RELATIONSHIP_INSTANCE))
-                    System.out.println("New Relationship Instance operation:" + operation + " Resource:" + resource);
+                    logger.info(LogMarkers.PER_EVENT, "New Relationship Instance operation:{} Resource:{}", operation, resource);
             }
         } else {
             // No state changes
-            System.out.println("No state changes detected.");
+            logger.debug(LogMarkers.PER_EVENT, "No state changes detected.");
         }
     }
 
@@ -178,31 +194,24 @@ public class DemoDigitalAdapter extends DigitalAdapter<Void> {
      */
     @Override
     protected void onEventNotificationReceived(DigitalTwinStateEventNotification<?> digitalTwinStateEventNotification) {
-        System.out.println("[DemoDigitalAdapter] -> Received Event Notification: " + digitalTwinStateEventNotification);
+        logger.info(LogMarkers.PER_EVENT, "[DemoDigitalAdapter] -> Received Event Notification: {}", digitalTwinStateEventNotification);
     }
 
-    private Runnable emulateIncomingDigitalAction(){
-        return () -> {
-            try {
-
-                System.out.println("[DemoDigitalAdapter] -> Sleeping before Emulating Incoming Digital Action ...");
-                Thread.sleep(5000);
-                Random random = new Random();
-
-                //Emulate the generation on 'n' digital action -> updating temperature value
-                for(int i = 0; i < 5; i++){
-
-                    //Sleep to emulate sensor measurement
-                    Thread.sleep(1000);
+    /**
+     * Emulates the generation of 'n' digital actions updating the temperature value, one every second: each action
+     * is published by a short task that schedules the next one
+     */
+    private void emulateIncomingDigitalAction(Random random, int actionIndex){
+        try {
 
-                    double randomTemperature = 25.0 + (30.0 - 25.0) * random.nextDouble();
-                    publishDigitalActionWldtEvent("set-temperature-action-key", randomTemperature);
+            double randomTemperature = 25.0 + (30.0 - 25.0) * random.nextDouble();
+            publishDigitalActionWldtEvent("set-temperature-action-key", randomTemperature);
 
-                }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        };
+        if (actionIndex + 1 < 5)
+            taskRunner.schedule(() -> emulateIncomingDigitalAction(random, actionIndex + 1), 1, TimeUnit.SECONDS);
     }
 }
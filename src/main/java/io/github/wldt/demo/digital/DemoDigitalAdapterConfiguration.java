@@ -12,6 +12,12 @@ public class DemoDigitalAdapterConfiguration {
 
     private double temperatureMaxValue = GlobalKeywords.TEMPERATURE_MAX_VALUE;
 
+    // Only the list of changes is processed on state updates, without building or printing the full DT States
+    private boolean deltaOnlyEnabled = GlobalKeywords.DIGITAL_DELTA_ONLY_ENABLED;
+
+    // Id of the twin recorded as attribute of its metrics, null when the metric names are not shared with other twins
+    private String metricsTwinId = null;
+
     public DemoDigitalAdapterConfiguration() {
     }
 
@@ -54,6 +60,22 @@ public class DemoDigitalAdapterConfiguration {
         this.temperatureMaxValue = temperatureMaxValue;
     }
 
+    public boolean isDeltaOnlyEnabled() {
+        return deltaOnlyEnabled;
+    }
+
+    public void setDeltaOnlyEnabled(boolean deltaOnlyEnabled) {
+        this.deltaOnlyEnabled = deltaOnlyEnabled;
+    }
+
+    public String getMetricsTwinId() {
+        return metricsTwinId;
+    }
+
+    public void setMetricsTwinId(String metricsTwinId) {
+        this.metricsTwinId = metricsTwinId;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("DemoDigitalAdapterConfiguration{");
@@ -61,6 +83,8 @@ public class DemoDigitalAdapterConfiguration {
         sb.append(", emulatedActionCount=").append(emulatedActionCount);
         sb.append(", temperatureMinValue=").append(temperatureMinValue);
         sb.append(", temperatureMaxValue=").append(temperatureMaxValue);
+        sb.append(", deltaOnlyEnabled=").append(deltaOnlyEnabled);
+        sb.append(", metricsTwinId=").append(metricsTwinId);
         sb.append('}');
         return sb.toString();
     }
@@ -0,0 +1,77 @@
+package io.github.wldt.demo.digital;
+
+import it.wldt.core.state.DigitalTwinStateChange;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dispatches DT State changes to the handler registered for their resource type and operation.
+ *
+ * Handlers are kept in a table indexed by the ordinals of the two enums, so the dispatch of a change is two array
+ * reads without any switch, map lookup or allocation. Changes without a registered handler are only counted.
+ * The dispatcher is meant to be used by the single thread delivering the state updates to an adapter.
+ */
+public class StateChangeDispatcher {
+
+    private static final StateChangeHandler IGNORE_HANDLER = stateChange -> {};
+
+    private static final DigitalTwinStateChange.ResourceType[] RESOURCE_TYPES = DigitalTwinStateChange.ResourceType.values();
+
+    private static final DigitalTwinStateChange.Operation[] OPERATIONS = DigitalTwinStateChange.Operation.values();
+
+    private final StateChangeHandler[][] handlers = new StateChangeHandler[RESOURCE_TYPES.length][OPERATIONS.length];
+
+    private final long[][] changeCounts = new long[RESOURCE_TYPES.length][OPERATIONS.length];
+
+    public StateChangeDispatcher() {
+        for (StateChangeHandler[] operationHandlers : handlers)
+            Arrays.fill(operationHandlers, IGNORE_HANDLER);
+    }
+
+    /**
+     * Registers the handler for a combination of resource type and operation, replacing the previous one
+     */
+    public StateChangeDispatcher register(DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateChange.Operation operation, StateChangeHandler handler) {
+        handlers[resourceType.ordinal()][operation.ordinal()] = handler != null ? handler : IGNORE_HANDLER;
+        return this;
+    }
+
+    /**
+     * Registers the handler for all the operations on a resource type
+     */
+    public StateChangeDispatcher register(DigitalTwinStateChange.ResourceType resourceType, StateChangeHandler handler) {
+        for (DigitalTwinStateChange.Operation operation : OPERATIONS)
+            register(resourceType, operation, handler);
+        return this;
+    }
+
+    public void dispatch(DigitalTwinStateChange stateChange) {
+
+        DigitalTwinStateChange.ResourceType resourceType = stateChange.getResourceType();
+        DigitalTwinStateChange.Operation operation = stateChange.getOperation();
+
+        //Changes missing the resource type or the operation can not be routed
+        if (resourceType == null || operation == null)
+            return;
+
+        changeCounts[resourceType.ordinal()][operation.ordinal()]++;
+        handlers[resourceType.ordinal()][operation.ordinal()].onStateChange(stateChange);
+    }
+
+    /**
+     * Dispatches all the changes of the list, iterating by index to avoid the allocation of an iterator
+     */
+    public void dispatchAll(List<DigitalTwinStateChange> stateChangeList) {
+
+        if (stateChangeList == null)
+            return;
+
+        for (int i = 0, size = stateChangeList.size(); i < size; i++)
+            dispatch(stateChangeList.get(i));
+    }
+
+    public long getChangeCount(DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateChange.Operation operation) {
+        return changeCounts[resourceType.ordinal()][operation.ordinal()];
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.wldt.demo.digital;
+
+import it.wldt.core.state.DigitalTwinStateChange;
+
+/**
+ * Handler of a single DT State change, registered in a {@link StateChangeDispatcher} for a combination of
+ * resource type and operation
+ */
+@FunctionalInterface
+public interface StateChangeHandler {
+
+    void onStateChange(DigitalTwinStateChange stateChange);
+
+}
@@ -0,0 +1,8 @@
+package io.github.wldt.demo.executor;
+
+public enum AdapterExecutionMode {
+    // Every background task runs on its own virtual thread
+    VIRTUAL,
+    // Background tasks share a bounded pool of platform threads
+    PLATFORM
+}
@@ -0,0 +1,115 @@
+package io.github.wldt.demo.executor;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors used for the background work of adapters and shadowing functions (device emulation, action
+ * emulation, queue draining, ...), so that the number of threads does not grow with the number of Digital Twins.
+ *
+ * By default each task runs on a virtual thread. The execution mode can be changed with {@link #configure} before
+ * the first use or through the system properties defined in {@link GlobalKeywords}.
+ *
+ * With platform threads all the tasks share a bounded pool, so they must never block waiting for time or for new
+ * work: delays and periodic work are triggered by {@link #getScheduler()} and run as short tasks on
+ * {@link #getExecutor()} (see {@link AdapterTaskRunner#schedule}).
+ *
+ * The executors are created once and published through volatile fields, so getting them does not take the class
+ * monitor.
+ */
+public class AdapterExecutors {
+
+    private static volatile AdapterExecutionMode executionMode = null;
+
+    private static int platformPoolSize = GlobalKeywords.ADAPTER_PLATFORM_POOL_SIZE;
+
+    private static volatile ExecutorService executor = null;
+
+    private static volatile ScheduledExecutorService scheduler = null;
+
+    private AdapterExecutors() {
+    }
+
+    /**
+     * Sets the execution mode used by the shared executors, it must be called before their first use
+     *
+     * @throws IllegalStateException if the executor has already been created
+     */
+    public static synchronized void configure(AdapterExecutionMode mode, int poolSize) {
+        if (executor != null)
+            throw new IllegalStateException("Adapter executor already initialized with mode: " + executionMode);
+        executionMode = mode;
+        platformPoolSize = Math.max(1, poolSize);
+    }
+
+    public static AdapterExecutionMode getExecutionMode() {
+
+        AdapterExecutionMode mode = executionMode;
+        if (mode != null)
+            return mode;
+
+        synchronized (AdapterExecutors.class) {
+            if (executionMode == null)
+                executionMode = AdapterExecutionMode.valueOf(System.getProperty(
+                        GlobalKeywords.ADAPTER_EXECUTION_MODE_PROPERTY,
+                        AdapterExecutionMode.VIRTUAL.name()).toUpperCase());
+            return executionMode;
+        }
+    }
+
+    /**
+     * Returns the shared executor for the short background tasks of the adapters
+     */
+    public static ExecutorService getExecutor() {
+
+        ExecutorService sharedExecutor = executor;
+        if (sharedExecutor != null)
+            return sharedExecutor;
+
+        synchronized (AdapterExecutors.class) {
+
+            if (executor != null)
+                return executor;
+
+            if (getExecutionMode() == AdapterExecutionMode.VIRTUAL) {
+                executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("wldt-adapter-", 0).factory());
+                return executor;
+            }
+
+            int poolSize = Integer.getInteger(GlobalKeywords.ADAPTER_PLATFORM_POOL_SIZE_PROPERTY, platformPoolSize);
+            executor = Executors.newFixedThreadPool(poolSize, daemonThreadFactory("wldt-adapter-"));
+            return executor;
+        }
+    }
+
+    /**
+     * Returns a shared single thread scheduler used only to trigger timers. Scheduled actions are expected to be short
+     * or to hand over their work to {@link #getExecutor()}.
+     */
+    public static ScheduledExecutorService getScheduler() {
+
+        ScheduledExecutorService sharedScheduler = scheduler;
+        if (sharedScheduler != null)
+            return sharedScheduler;
+
+        synchronized (AdapterExecutors.class) {
+            if (scheduler == null)
+                scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("wldt-adapter-scheduler-"));
+            return scheduler;
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
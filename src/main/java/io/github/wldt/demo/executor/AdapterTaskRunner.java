@@ -0,0 +1,82 @@
+package io.github.wldt.demo.executor;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the background tasks submitted by a single adapter on the shared {@link AdapterExecutors} executor,
+ * allowing the adapter to interrupt all of them when it is stopped (e.g. from onAdapterStop()) without affecting
+ * the tasks of the other adapters.
+ *
+ * Tasks must not sleep or loop waiting for time: delayed and repeated work is scheduled with
+ * {@link #schedule(Runnable, long, TimeUnit)}, each run being a short task on the executor.
+ */
+public class AdapterTaskRunner {
+
+    private final Queue<Future<?>> runningTasks = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService executor;
+
+    // Incremented by each shutdown, timers started before a shutdown no longer submit their task
+    private final AtomicLong generation = new AtomicLong();
+
+    public AdapterTaskRunner() {
+        this(AdapterExecutors.getExecutor());
+    }
+
+    public AdapterTaskRunner(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public Future<?> submit(Runnable task) {
+        removeCompletedTasks();
+        Future<?> future = executor.submit(task);
+        runningTasks.add(future);
+        return future;
+    }
+
+    /**
+     * Submits a task after a delay. The delay is waited by the shared scheduler, so no thread of the executor is tied
+     * up in the meantime. Repeated work reschedules itself from the task.
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        removeCompletedTasks();
+        long scheduleGeneration = generation.get();
+        runningTasks.add(AdapterExecutors.getScheduler().schedule(() -> {
+            if (generation.get() != scheduleGeneration)
+                return;
+            Future<?> future = submit(task);
+            //The runner has been shut down while the task was being submitted
+            if (generation.get() != scheduleGeneration)
+                future.cancel(true);
+        }, delay, unit));
+    }
+
+    /**
+     * Interrupts all the running tasks submitted through this runner and cancels the scheduled ones. The runner can
+     * still be used afterwards.
+     */
+    public void shutdown() {
+        generation.incrementAndGet();
+        Future<?> future;
+        while ((future = runningTasks.poll()) != null)
+            future.cancel(true);
+    }
+
+    public int getRunningTaskCount() {
+        removeCompletedTasks();
+        return runningTasks.size();
+    }
+
+    private void removeCompletedTasks() {
+        Iterator<Future<?>> iterator = runningTasks.iterator();
+        while (iterator.hasNext())
+            if (iterator.next().isDone())
+                iterator.remove();
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.wldt.demo.history;
+
+/**
+ * Reads the values written by a {@link BitWriter}
+ */
+class BitReader {
+
+    private final long[] words;
+
+    private long position = 0;
+
+    BitReader(long[] words) {
+        this.words = words;
+    }
+
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+    long read(int bits) {
+
+        if (bits == 0)
+            return 0;
+
+        int index = (int) (position >>> 6);
+        int offset = (int) (position & 63);
+        int available = 64 - offset;
+        position += bits;
+
+        if (bits <= available)
+            return (words[index] << offset) >>> (64 - bits);
+
+        int remaining = bits - available;
+        long high = words[index] & ((1L << available) - 1);
+        long low = words[index + 1] >>> (64 - remaining);
+        return (high << remaining) | low;
+    }
+}
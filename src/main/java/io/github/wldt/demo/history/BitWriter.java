@@ -0,0 +1,56 @@
+package io.github.wldt.demo.history;
+
+import java.util.Arrays;
+
+/**
+ * Appends values of 1 to 64 bits to a growing long[] (most significant bit first)
+ */
+class BitWriter {
+
+    private long[] words;
+
+    private long bitCount = 0;
+
+    BitWriter(int initialWords) {
+        this.words = new long[Math.max(2, initialWords)];
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1L : 0L, 1);
+    }
+
+    void write(long value, int bits) {
+
+        if (bits == 0)
+            return;
+
+        if (bits < 64)
+            value &= (1L << bits) - 1;
+
+        int index = (int) (bitCount >>> 6);
+        int free = 64 - (int) (bitCount & 63);
+
+        if (index + 1 >= words.length)
+            words = Arrays.copyOf(words, words.length * 2);
+
+        if (bits <= free) {
+            words[index] |= value << (free - bits);
+        } else {
+            words[index] |= value >>> (bits - free);
+            words[index + 1] |= value << (64 - (bits - free));
+        }
+
+        bitCount += bits;
+    }
+
+    long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return the written words, trimmed to the used length
+     */
+    long[] toWords() {
+        return Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6));
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.wldt.demo.history;
+
+/**
+ * Immutable block of samples compressed as in the Gorilla time series encoding: timestamps are stored as the
+ * delta of their deltas and values as the XOR with the previous value, so regular sampling intervals cost a single
+ * bit per timestamp and slowly changing values a few bits per value.
+ *
+ * Timestamps: the first one in 64 bits, then for each sample the zigzag encoded delta-of-delta with the prefixes
+ * 0 (zero), 10 (7 bits), 110 (9 bits), 1110 (12 bits), 1111 (64 bits).
+ *
+ * Values: the first one in 64 bits, then for each sample 0 if the XOR with the previous value is zero, otherwise
+ * 10 followed by the meaningful bits if they fit in the previous leading/trailing zeros window, or 11 followed by
+ * 6 bits of leading zeros, 6 bits of meaningful length - 1 and the meaningful bits.
+ */
+class CompressedChunk {
+
+    private final long[] words;
+
+    private final int count;
+
+    private final long firstTimestamp;
+
+    private final long lastTimestamp;
+
+    private CompressedChunk(long[] words, int count, long firstTimestamp, long lastTimestamp) {
+        this.words = words;
+        this.count = count;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    /**
+     * Compresses the first count samples of the columns, timestamps must be non-decreasing
+     */
+    static CompressedChunk compress(long[] timestamps, double[] values, int count) {
+
+        //Regular samples take about 2 bits for the timestamp and 10-20 bits for the value
+        BitWriter writer = new BitWriter(count / 2);
+
+        long previousTimestamp = timestamps[0];
+        long previousDelta = 0;
+        long previousBits = Double.doubleToRawLongBits(values[0]);
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+
+        writer.write(previousTimestamp, 64);
+        writer.write(previousBits, 64);
+
+        for (int i = 1; i < count; i++) {
+
+            long delta = timestamps[i] - previousTimestamp;
+            long deltaOfDelta = delta - previousDelta;
+            long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+
+            if (zigzag == 0) {
+                writer.write(0b0, 1);
+            } else if (zigzag < (1 << 7)) {
+                writer.write(0b10, 2);
+                writer.write(zigzag, 7);
+            } else if (zigzag < (1 << 9)) {
+                writer.write(0b110, 3);
+                writer.write(zigzag, 9);
+            } else if (zigzag < (1 << 12)) {
+                writer.write(0b1110, 4);
+                writer.write(zigzag, 12);
+            } else {
+                writer.write(0b1111, 4);
+                writer.write(zigzag, 64);
+            }
+
+            previousTimestamp = timestamps[i];
+            previousDelta = delta;
+
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previousBits;
+
+            if (xor == 0) {
+                writer.write(0b0, 1);
+            } else {
+
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 63);
+                int trailing = Long.numberOfTrailingZeros(xor);
+
+                if (leading >= previousLeading && trailing >= previousTrailing) {
+                    writer.write(0b10, 2);
+                    writer.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    writer.write(0b11, 2);
+                    writer.write(leading, 6);
+                    writer.write(meaningful - 1, 6);
+                    writer.write(xor >>> trailing, meaningful);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+
+            previousBits = bits;
+        }
+
+        return new CompressedChunk(writer.toWords(), count, timestamps[0], timestamps[count - 1]);
+    }
+
+    /**
+     * Decodes the samples and passes the ones in [fromTimestamp, toTimestamp] to the visitor
+     */
+    void visit(long fromTimestamp, long toTimestamp, SampleVisitor visitor) {
+
+        BitReader reader = new BitReader(words);
+
+        long timestamp = reader.read(64);
+        long delta = 0;
+        long bits = reader.read(64);
+        int leading = 0;
+        int trailing = 0;
+
+        if (timestamp > toTimestamp)
+            return;
+        if (timestamp >= fromTimestamp)
+            visitor.onSample(timestamp, Double.longBitsToDouble(bits));
+
+        for (int i = 1; i < count; i++) {
+
+            long zigzag;
+            if (!reader.readBit())
+                zigzag = 0;
+            else if (!reader.readBit())
+                zigzag = reader.read(7);
+            else if (!reader.readBit())
+                zigzag = reader.read(9);
+            else if (!reader.readBit())
+                zigzag = reader.read(12);
+            else
+                zigzag = reader.read(64);
+
+            delta += (zigzag >>> 1) ^ -(zigzag & 1);
+            timestamp += delta;
+
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.read(6);
+                    int meaningful = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - meaningful;
+                }
+                bits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+
+            if (timestamp > toTimestamp)
+                return;
+            if (timestamp >= fromTimestamp)
+                visitor.onSample(timestamp, Double.longBitsToDouble(bits));
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    int getSizeBytes() {
+        return words.length * Long.BYTES;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.wldt.demo.history;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process time series store keeping the recent history of the numeric DT State properties.
+ *
+ * Each property has its own series made of columnar chunks (long[] timestamps, double[] values) compressed when
+ * full with delta-of-delta timestamps and XOR values, plus 1s/1m/1h rollup tiers with min, max and avg updated
+ * for each recorded sample. Raw samples are retained for chunkSize * (retainedChunks + 1) samples per property,
+ * the rollups for the capacity of their {@link RollupResolution}.
+ */
+public class PropertyHistoryStore {
+
+    private final int chunkSize;
+
+    private final int retainedChunks;
+
+    private final ConcurrentHashMap<String, PropertySeries> seriesMap = new ConcurrentHashMap<>();
+
+    public PropertyHistoryStore() {
+        this(GlobalKeywords.HISTORY_CHUNK_SIZE, GlobalKeywords.HISTORY_RETAINED_CHUNKS);
+    }
+
+    public PropertyHistoryStore(int chunkSize, int retainedChunks) {
+        this.chunkSize = chunkSize;
+        this.retainedChunks = retainedChunks;
+    }
+
+    /**
+     * Records a sample of a property, creating its series on the first sample
+     */
+    public void record(String propertyKey, long timestamp, double value) {
+        PropertySeries propertySeries = seriesMap.get(propertyKey);
+        if (propertySeries == null)
+            propertySeries = seriesMap.computeIfAbsent(propertyKey, key -> new PropertySeries(chunkSize, retainedChunks));
+        propertySeries.record(timestamp, value);
+    }
+
+    /**
+     * Reads the retained raw samples of a property in [fromTimestamp, toTimestamp]
+     */
+    public SampleRange readRaw(String propertyKey, long fromTimestamp, long toTimestamp) {
+        SampleRange sampleRange = new SampleRange();
+        readRaw(propertyKey, fromTimestamp, toTimestamp, sampleRange);
+        return sampleRange;
+    }
+
+    /**
+     * Passes the retained raw samples of a property in [fromTimestamp, toTimestamp] to the visitor, without
+     * copying them
+     */
+    public void readRaw(String propertyKey, long fromTimestamp, long toTimestamp, SampleVisitor visitor) {
+        PropertySeries propertySeries = seriesMap.get(propertyKey);
+        if (propertySeries != null)
+            propertySeries.readRaw(fromTimestamp, toTimestamp, visitor);
+    }
+
+    /**
+     * Reads the rollup buckets of a property overlapping [fromTimestamp, toTimestamp]
+     */
+    public RollupRange readRollup(String propertyKey, RollupResolution resolution, long fromTimestamp, long toTimestamp) {
+        RollupRange rollupRange = new RollupRange(resolution);
+        PropertySeries propertySeries = seriesMap.get(propertyKey);
+        if (propertySeries != null)
+            propertySeries.readRollup(resolution, fromTimestamp, toTimestamp, rollupRange);
+        return rollupRange;
+    }
+
+    public Set<String> getPropertyKeys() {
+        return seriesMap.keySet();
+    }
+
+    public long getSampleCount(String propertyKey) {
+        PropertySeries propertySeries = seriesMap.get(propertyKey);
+        return propertySeries != null ? propertySeries.getSampleCount() : 0;
+    }
+
+    /**
+     * @return the number of samples of a property recorded with a timestamp older than the previous one, they are
+     * aggregated in the rollups but not retained as raw samples
+     */
+    public long getOutOfOrderSampleCount(String propertyKey) {
+        PropertySeries propertySeries = seriesMap.get(propertyKey);
+        return propertySeries != null ? propertySeries.getOutOfOrderSampleCount() : 0;
+    }
+
+    public int getRetainedSampleCount(String propertyKey) {
+        PropertySeries propertySeries = seriesMap.get(propertyKey);
+        return propertySeries != null ? propertySeries.getRetainedSampleCount() : 0;
+    }
+
+    public long getCompressedSizeBytes() {
+        long compressedSizeBytes = 0;
+        for (PropertySeries propertySeries : seriesMap.values())
+            compressedSizeBytes += propertySeries.getCompressedSizeBytes();
+        return compressedSizeBytes;
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.wldt.demo.history;
+
+import java.util.ArrayDeque;
+
+/**
+ * History of a single property: the most recent samples in an uncompressed head chunk of primitive columns, the
+ * older ones in compressed chunks (the oldest are dropped beyond the retention) and the rollup tiers.
+ *
+ * The series is guarded by its monitor, held only for array writes and reference swaps: a full head chunk is sealed
+ * under the monitor and compressed outside of it, and range reads take a snapshot of the chunks under the monitor
+ * and decode it outside. Head arrays are never written again once sealed, a new pair is allocated for the next head.
+ */
+class PropertySeries {
+
+    private final int chunkSize;
+
+    private final int retainedChunks;
+
+    private long[] headTimestamps;
+
+    private double[] headValues;
+
+    private int headSize = 0;
+
+    // Full head chunks waiting to be compressed, still visible to the range reads
+    private final ArrayDeque<SealedChunk> sealedChunks = new ArrayDeque<>();
+
+    private final ArrayDeque<CompressedChunk> compressedChunks = new ArrayDeque<>();
+
+    // Keeps the sealed chunks compressed in order when several threads record on the same series
+    private final Object compressionLock = new Object();
+
+    private final RollupTier[] rollupTiers;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private long sampleCount = 0;
+
+    private long outOfOrderSampleCount = 0;
+
+    private long compressedSizeBytes = 0;
+
+    PropertySeries(int chunkSize, int retainedChunks) {
+        this.chunkSize = Math.max(2, chunkSize);
+        this.retainedChunks = Math.max(0, retainedChunks);
+        this.headTimestamps = new long[this.chunkSize];
+        this.headValues = new double[this.chunkSize];
+
+        RollupResolution[] resolutions = RollupResolution.values();
+        this.rollupTiers = new RollupTier[resolutions.length];
+        for (int i = 0; i < resolutions.length; i++)
+            this.rollupTiers[i] = new RollupTier(resolutions[i]);
+    }
+
+    void record(long timestamp, double value) {
+
+        synchronized (this) {
+
+            sampleCount++;
+
+            for (RollupTier rollupTier : rollupTiers)
+                rollupTier.add(timestamp, value);
+
+            //The delta-of-delta encoding requires ordered timestamps, late samples are only kept in the rollups
+            if (timestamp < lastTimestamp) {
+                outOfOrderSampleCount++;
+                return;
+            }
+
+            headTimestamps[headSize] = timestamp;
+            headValues[headSize] = value;
+            headSize++;
+            lastTimestamp = timestamp;
+
+            if (headSize < chunkSize || !sealHeadChunk())
+                return;
+        }
+
+        compressSealedChunks();
+    }
+
+    /**
+     * Moves the full head chunk to the sealed chunks, must be called holding the monitor
+     *
+     * @return true if the chunk has to be compressed, false if it has been dropped (no retained chunks)
+     */
+    private boolean sealHeadChunk() {
+
+        headSize = 0;
+
+        if (retainedChunks == 0)
+            return false;
+
+        sealedChunks.addLast(new SealedChunk(headTimestamps, headValues));
+        headTimestamps = new long[chunkSize];
+        headValues = new double[chunkSize];
+        return true;
+    }
+
+    private void compressSealedChunks() {
+
+        synchronized (compressionLock) {
+            while (true) {
+
+                SealedChunk sealedChunk;
+                synchronized (this) {
+                    sealedChunk = sealedChunks.peekFirst();
+                }
+
+                //Already compressed by a concurrent recorder
+                if (sealedChunk == null)
+                    return;
+
+                CompressedChunk compressedChunk = CompressedChunk.compress(sealedChunk.timestamps, sealedChunk.values, chunkSize);
+
+                synchronized (this) {
+                    sealedChunks.removeFirst();
+                    compressedChunks.addLast(compressedChunk);
+                    compressedSizeBytes += compressedChunk.getSizeBytes();
+
+                    while (compressedChunks.size() > retainedChunks)
+                        compressedSizeBytes -= compressedChunks.removeFirst().getSizeBytes();
+                }
+            }
+        }
+    }
+
+    void readRaw(long fromTimestamp, long toTimestamp, SampleVisitor visitor) {
+
+        CompressedChunk[] compressedSnapshot;
+        SealedChunk[] sealedSnapshot;
+        long[] timestamps;
+        double[] values;
+        int size;
+
+        //The samples below the head size are never written again, they can be read after releasing the monitor
+        synchronized (this) {
+            compressedSnapshot = compressedChunks.toArray(new CompressedChunk[0]);
+            sealedSnapshot = sealedChunks.toArray(new SealedChunk[0]);
+            timestamps = headTimestamps;
+            values = headValues;
+            size = headSize;
+        }
+
+        for (CompressedChunk compressedChunk : compressedSnapshot)
+            if (compressedChunk.getLastTimestamp() >= fromTimestamp && compressedChunk.getFirstTimestamp() <= toTimestamp)
+                compressedChunk.visit(fromTimestamp, toTimestamp, visitor);
+
+        for (SealedChunk sealedChunk : sealedSnapshot)
+            visitSamples(sealedChunk.timestamps, sealedChunk.values, chunkSize, fromTimestamp, toTimestamp, visitor);
+
+        visitSamples(timestamps, values, size, fromTimestamp, toTimestamp, visitor);
+    }
+
+    private static void visitSamples(long[] timestamps, double[] values, int size, long fromTimestamp, long toTimestamp, SampleVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            long timestamp = timestamps[i];
+            if (timestamp > toTimestamp)
+                break;
+            if (timestamp >= fromTimestamp)
+                visitor.onSample(timestamp, values[i]);
+        }
+    }
+
+    synchronized void readRollup(RollupResolution resolution, long fromTimestamp, long toTimestamp, RollupRange rollupRange) {
+        rollupTiers[resolution.ordinal()].read(fromTimestamp, toTimestamp, rollupRange);
+    }
+
+    synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return the number of samples older than the last recorded one, kept in the rollups but not in the raw chunks
+     */
+    synchronized long getOutOfOrderSampleCount() {
+        return outOfOrderSampleCount;
+    }
+
+    synchronized long getCompressedSizeBytes() {
+        return compressedSizeBytes;
+    }
+
+    synchronized int getRetainedSampleCount() {
+        int count = headSize + sealedChunks.size() * chunkSize;
+        for (CompressedChunk compressedChunk : compressedChunks)
+            count += compressedChunk.getCount();
+        return count;
+    }
+
+    /**
+     * Full head chunk handed over for compression, its arrays are no longer written
+     */
+    private static final class SealedChunk {
+
+        private final long[] timestamps;
+
+        private final double[] values;
+
+        private SealedChunk(long[] timestamps, double[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+    }
+}
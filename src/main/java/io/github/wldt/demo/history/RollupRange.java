@@ -0,0 +1,81 @@
+package io.github.wldt.demo.history;
+
+import java.util.Arrays;
+
+/**
+ * Rollup buckets returned by a range read, as bucket start, min, max, avg and count columns
+ */
+public class RollupRange {
+
+    private final RollupResolution resolution;
+
+    private long[] bucketTimestamps = new long[16];
+
+    private double[] minValues = new double[16];
+
+    private double[] maxValues = new double[16];
+
+    private double[] avgValues = new double[16];
+
+    private long[] counts = new long[16];
+
+    private int size = 0;
+
+    public RollupRange(RollupResolution resolution) {
+        this.resolution = resolution;
+    }
+
+    void add(long bucketTimestamp, double min, double max, double avg, long count) {
+        if (size == bucketTimestamps.length) {
+            int capacity = size * 2;
+            bucketTimestamps = Arrays.copyOf(bucketTimestamps, capacity);
+            minValues = Arrays.copyOf(minValues, capacity);
+            maxValues = Arrays.copyOf(maxValues, capacity);
+            avgValues = Arrays.copyOf(avgValues, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        bucketTimestamps[size] = bucketTimestamp;
+        minValues[size] = min;
+        maxValues[size] = max;
+        avgValues[size] = avg;
+        counts[size] = count;
+        size++;
+    }
+
+    public RollupResolution getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getBucketTimestamp(int index) {
+        return bucketTimestamps[index];
+    }
+
+    public double getMin(int index) {
+        return minValues[index];
+    }
+
+    public double getMax(int index) {
+        return maxValues[index];
+    }
+
+    public double getAvg(int index) {
+        return avgValues[index];
+    }
+
+    public long getCount(int index) {
+        return counts[index];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("RollupRange{");
+        sb.append("resolution=").append(resolution);
+        sb.append(", size=").append(size);
+        sb.append('}');
+        return sb.toString();
+    }
+}
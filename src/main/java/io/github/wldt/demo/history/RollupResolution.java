@@ -0,0 +1,30 @@
+package io.github.wldt.demo.history;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+/**
+ * Resolutions of the rollup tiers kept for each property, with the number of buckets retained by each tier
+ */
+public enum RollupResolution {
+
+    SECOND(1000L, GlobalKeywords.HISTORY_SECOND_ROLLUP_CAPACITY),
+    MINUTE(60_000L, GlobalKeywords.HISTORY_MINUTE_ROLLUP_CAPACITY),
+    HOUR(3_600_000L, GlobalKeywords.HISTORY_HOUR_ROLLUP_CAPACITY);
+
+    private final long bucketMs;
+
+    private final int capacity;
+
+    RollupResolution(long bucketMs, int capacity) {
+        this.bucketMs = bucketMs;
+        this.capacity = capacity;
+    }
+
+    public long getBucketMs() {
+        return bucketMs;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
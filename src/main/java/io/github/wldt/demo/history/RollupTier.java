@@ -0,0 +1,90 @@
+package io.github.wldt.demo.history;
+
+import java.util.Arrays;
+
+/**
+ * Ring of fixed-duration buckets holding min, max, sum and count of the samples, stored in primitive columns.
+ * A bucket slot is reused when a sample of a more recent bucket mapped on the same slot arrives.
+ */
+class RollupTier {
+
+    private final RollupResolution resolution;
+
+    private final int capacity;
+
+    // Bucket number (timestamp / bucket duration) held by each slot, -1 if the slot is empty
+    private final long[] bucketNumbers;
+
+    private final double[] minValues;
+
+    private final double[] maxValues;
+
+    private final double[] sums;
+
+    private final long[] counts;
+
+    private long latestBucketNumber = Long.MIN_VALUE;
+
+    RollupTier(RollupResolution resolution) {
+        this.resolution = resolution;
+        this.capacity = resolution.getCapacity();
+        this.bucketNumbers = new long[capacity];
+        this.minValues = new double[capacity];
+        this.maxValues = new double[capacity];
+        this.sums = new double[capacity];
+        this.counts = new long[capacity];
+        Arrays.fill(bucketNumbers, -1L);
+    }
+
+    void add(long timestamp, double value) {
+
+        //NaN samples are kept in the raw chunks but would make min/max/avg of the whole bucket meaningless
+        if (Double.isNaN(value))
+            return;
+
+        long bucketNumber = Math.floorDiv(timestamp, resolution.getBucketMs());
+
+        //Samples older than the retained window are only kept in the raw chunks
+        if (latestBucketNumber != Long.MIN_VALUE && bucketNumber <= latestBucketNumber - capacity)
+            return;
+
+        int slot = (int) Math.floorMod(bucketNumber, (long) capacity);
+
+        if (bucketNumbers[slot] != bucketNumber) {
+            bucketNumbers[slot] = bucketNumber;
+            minValues[slot] = value;
+            maxValues[slot] = value;
+            sums[slot] = value;
+            counts[slot] = 1;
+        } else {
+            if (value < minValues[slot])
+                minValues[slot] = value;
+            if (value > maxValues[slot])
+                maxValues[slot] = value;
+            sums[slot] += value;
+            counts[slot]++;
+        }
+
+        if (bucketNumber > latestBucketNumber)
+            latestBucketNumber = bucketNumber;
+    }
+
+    /**
+     * Copies the non-empty buckets overlapping [fromTimestamp, toTimestamp] into the range
+     */
+    void read(long fromTimestamp, long toTimestamp, RollupRange rollupRange) {
+
+        if (latestBucketNumber == Long.MIN_VALUE)
+            return;
+
+        long bucketMs = resolution.getBucketMs();
+        long firstBucketNumber = Math.max(Math.floorDiv(fromTimestamp, bucketMs), latestBucketNumber - capacity + 1);
+        long lastBucketNumber = Math.min(Math.floorDiv(toTimestamp, bucketMs), latestBucketNumber);
+
+        for (long bucketNumber = firstBucketNumber; bucketNumber <= lastBucketNumber; bucketNumber++) {
+            int slot = (int) Math.floorMod(bucketNumber, (long) capacity);
+            if (bucketNumbers[slot] == bucketNumber)
+                rollupRange.add(bucketNumber * bucketMs, minValues[slot], maxValues[slot], sums[slot] / counts[slot], counts[slot]);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.wldt.demo.history;
+
+import java.util.Arrays;
+
+/**
+ * Raw samples returned by a range read, as timestamp and value columns
+ */
+public class SampleRange implements SampleVisitor {
+
+    private long[] timestamps;
+
+    private double[] values;
+
+    private int size = 0;
+
+    public SampleRange() {
+        this(64);
+    }
+
+    public SampleRange(int initialCapacity) {
+        this.timestamps = new long[Math.max(1, initialCapacity)];
+        this.values = new double[Math.max(1, initialCapacity)];
+    }
+
+    @Override
+    public void onSample(long timestamp, double value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public long[] getTimestamps() {
+        return Arrays.copyOf(timestamps, size);
+    }
+
+    public double[] getValues() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("SampleRange{");
+        sb.append("size=").append(size);
+        if (size > 0) {
+            sb.append(", from=").append(timestamps[0]);
+            sb.append(", to=").append(timestamps[size - 1]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+}
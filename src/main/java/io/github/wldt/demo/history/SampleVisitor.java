@@ -0,0 +1,9 @@
+package io.github.wldt.demo.history;
+
+/**
+ * Receives the raw samples of a range read, in timestamp order
+ */
+@FunctionalInterface
+public interface SampleVisitor {
+    void onSample(long timestamp, double value);
+}
@@ -0,0 +1,237 @@
+package io.github.wldt.demo.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Secondary indexes over the state of all the Digital Twins of the engine, fed by the {@link IndexingDigitalAdapter}s.
+ *
+ * Numeric properties are kept in sorted (skip list) indexes answering range and equality queries, relationship
+ * instances in inverted indexes from the target to the Digital Twins pointing to it. The adapters only enqueue the
+ * updates on a lock-free queue, a single worker thread applies them, so the DT State commits never wait for the
+ * index; queries are answered concurrently and reflect the updates applied so far.
+ *
+ * The relationship instances are also kept in a {@link RelationshipGraph} for multi-hop traversals and reverse
+ * lookups filtered by qualifier.
+ */
+public class FleetStateIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetStateIndex.class);
+
+    private static final FleetStateIndex instance = new FleetStateIndex();
+
+    private final ConcurrentHashMap<String, NumericPropertyIndex> propertyIndexes = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, RelationshipTargetIndex> relationshipIndexes = new ConcurrentHashMap<>();
+
+    private final RelationshipGraph relationshipGraph = new RelationshipGraph();
+
+    // Indexed property keys and relationship names of each Digital Twin, written only by the worker
+    private final Map<String, Set<String>> propertyKeysByTwinId = new HashMap<>();
+
+    private final Map<String, Set<String>> relationshipNamesByTwinId = new HashMap<>();
+
+    private final LinkedTransferQueue<IndexUpdate> pendingUpdates = new LinkedTransferQueue<>();
+
+    private final AtomicLong enqueuedCount = new AtomicLong(0);
+
+    private volatile long appliedCount = 0;
+
+    private final Object appliedMonitor = new Object();
+
+    public FleetStateIndex() {
+        Thread worker = new Thread(this::applyUpdates, "fleet-state-index");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public static FleetStateIndex getInstance() {
+        return instance;
+    }
+
+    void enqueue(IndexUpdate indexUpdate) {
+        enqueuedCount.incrementAndGet();
+        pendingUpdates.offer(indexUpdate);
+    }
+
+    private void applyUpdates() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+
+                IndexUpdate indexUpdate = pendingUpdates.take();
+                apply(indexUpdate);
+
+                //Drain what is already queued before notifying the waiting readers
+                while ((indexUpdate = pendingUpdates.poll()) != null)
+                    apply(indexUpdate);
+
+                synchronized (appliedMonitor) {
+                    appliedMonitor.notifyAll();
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("[FleetStateIndex] -> Error applying an index update: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void apply(IndexUpdate indexUpdate) {
+
+        try {
+            switch (indexUpdate.type) {
+                case PROPERTY_SET:
+                    propertyIndexes.computeIfAbsent(indexUpdate.key, key -> new NumericPropertyIndex()).set(indexUpdate.digitalTwinId, indexUpdate.value);
+                    propertyKeysByTwinId.computeIfAbsent(indexUpdate.digitalTwinId, id -> new HashSet<>()).add(indexUpdate.key);
+                    break;
+                case PROPERTY_REMOVE: {
+                    NumericPropertyIndex propertyIndex = propertyIndexes.get(indexUpdate.key);
+                    if (propertyIndex != null)
+                        propertyIndex.remove(indexUpdate.digitalTwinId);
+                    break;
+                }
+                case RELATIONSHIP_INSTANCE_ADD:
+                    relationshipIndexes.computeIfAbsent(indexUpdate.key, name -> new RelationshipTargetIndex()).add(indexUpdate.digitalTwinId, indexUpdate.instanceKey, indexUpdate.targetId);
+                    relationshipNamesByTwinId.computeIfAbsent(indexUpdate.digitalTwinId, id -> new HashSet<>()).add(indexUpdate.key);
+                    relationshipGraph.addEdge(indexUpdate.digitalTwinId, indexUpdate.key, indexUpdate.instanceKey, indexUpdate.targetId, indexUpdate.qualifier);
+                    break;
+                case RELATIONSHIP_INSTANCE_REMOVE: {
+                    RelationshipTargetIndex relationshipIndex = relationshipIndexes.get(indexUpdate.key);
+                    if (relationshipIndex != null)
+                        relationshipIndex.remove(indexUpdate.digitalTwinId, indexUpdate.instanceKey);
+                    relationshipGraph.removeEdge(indexUpdate.digitalTwinId, indexUpdate.key, indexUpdate.instanceKey);
+                    break;
+                }
+                case RELATIONSHIP_REMOVE: {
+                    RelationshipTargetIndex relationshipIndex = relationshipIndexes.get(indexUpdate.key);
+                    if (relationshipIndex != null)
+                        relationshipIndex.removeTwin(indexUpdate.digitalTwinId);
+                    relationshipGraph.removeOutgoingEdges(indexUpdate.digitalTwinId, indexUpdate.key);
+                    break;
+                }
+                case TWIN_REMOVE:
+                    removeTwin(indexUpdate.digitalTwinId);
+                    break;
+            }
+        } finally {
+            appliedCount++;
+        }
+    }
+
+    private void removeTwin(String digitalTwinId) {
+
+        Set<String> propertyKeys = propertyKeysByTwinId.remove(digitalTwinId);
+        if (propertyKeys != null)
+            for (String propertyKey : propertyKeys)
+                propertyIndexes.get(propertyKey).remove(digitalTwinId);
+
+        Set<String> relationshipNames = relationshipNamesByTwinId.remove(digitalTwinId);
+        if (relationshipNames != null)
+            for (String relationshipName : relationshipNames)
+                relationshipIndexes.get(relationshipName).removeTwin(digitalTwinId);
+
+        relationshipGraph.removeOutgoingEdges(digitalTwinId, null);
+    }
+
+    //// Queries ////
+
+    /**
+     * @return the ids of the Digital Twins with a value of the property in [minValue, maxValue]
+     */
+    public List<String> findByPropertyRange(String propertyKey, double minValue, double maxValue) {
+        return findByPropertyRange(propertyKey, minValue, true, maxValue, true);
+    }
+
+    public List<String> findByPropertyRange(String propertyKey, double minValue, boolean minInclusive, double maxValue, boolean maxInclusive) {
+        NumericPropertyIndex propertyIndex = propertyIndexes.get(propertyKey);
+        return propertyIndex != null ? propertyIndex.findInRange(minValue, minInclusive, maxValue, maxInclusive) : List.of();
+    }
+
+    /**
+     * @return the ids of the Digital Twins with a value of the property greater than minValue
+     */
+    public List<String> findByPropertyGreaterThan(String propertyKey, double minValue) {
+        return findByPropertyRange(propertyKey, minValue, false, Double.POSITIVE_INFINITY, true);
+    }
+
+    public List<String> findByPropertyLessThan(String propertyKey, double maxValue) {
+        return findByPropertyRange(propertyKey, Double.NEGATIVE_INFINITY, true, maxValue, false);
+    }
+
+    public Collection<String> findByPropertyValue(String propertyKey, double value) {
+        NumericPropertyIndex propertyIndex = propertyIndexes.get(propertyKey);
+        return propertyIndex != null ? propertyIndex.findEqual(value) : List.of();
+    }
+
+    /**
+     * @return the ids of the Digital Twins with an instance of the relationship pointing to the target
+     */
+    public List<String> findByRelationshipTarget(String relationshipName, String targetId) {
+        RelationshipTargetIndex relationshipIndex = relationshipIndexes.get(relationshipName);
+        return relationshipIndex != null ? relationshipIndex.findByTarget(targetId) : List.of();
+    }
+
+    public RelationshipGraph getRelationshipGraph() {
+        return relationshipGraph;
+    }
+
+    public Optional<Double> getPropertyValue(String digitalTwinId, String propertyKey) {
+        NumericPropertyIndex propertyIndex = propertyIndexes.get(propertyKey);
+        return propertyIndex != null ? Optional.ofNullable(propertyIndex.getValue(digitalTwinId)) : Optional.empty();
+    }
+
+    public Set<String> getIndexedPropertyKeys() {
+        return propertyIndexes.keySet();
+    }
+
+    public Set<String> getIndexedRelationshipNames() {
+        return relationshipIndexes.keySet();
+    }
+
+    public int getIndexedTwinCount(String propertyKey) {
+        NumericPropertyIndex propertyIndex = propertyIndexes.get(propertyKey);
+        return propertyIndex != null ? propertyIndex.size() : 0;
+    }
+
+    /**
+     * Waits until the updates enqueued before the call have been applied
+     *
+     * @return true if the updates have been applied before the timeout
+     */
+    public boolean awaitApplied(long timeoutMs) throws InterruptedException {
+
+        long target = enqueuedCount.get();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized (appliedMonitor) {
+            while (appliedCount < target) {
+                long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0)
+                    return false;
+                appliedMonitor.wait(remainingMs);
+            }
+        }
+
+        return true;
+    }
+
+    public long getPendingUpdateCount() {
+        return enqueuedCount.get() - appliedCount;
+    }
+
+    public long getAppliedUpdateCount() {
+        return appliedCount;
+    }
+}
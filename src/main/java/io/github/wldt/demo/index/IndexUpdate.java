@@ -0,0 +1,67 @@
+package io.github.wldt.demo.index;
+
+/**
+ * Change of the indexed values of a Digital Twin, queued by the indexing digital adapters and applied by the
+ * index worker
+ */
+class IndexUpdate {
+
+    enum Type {
+        PROPERTY_SET,
+        PROPERTY_REMOVE,
+        RELATIONSHIP_INSTANCE_ADD,
+        RELATIONSHIP_INSTANCE_REMOVE,
+        RELATIONSHIP_REMOVE,
+        TWIN_REMOVE
+    }
+
+    final Type type;
+
+    final String digitalTwinId;
+
+    // Property key or relationship name
+    final String key;
+
+    final double value;
+
+    final String targetId;
+
+    final String instanceKey;
+
+    // Qualifier of a relationship instance taken from its metadata (e.g. the floor), null if not available
+    final String qualifier;
+
+    private IndexUpdate(Type type, String digitalTwinId, String key, double value, String targetId, String instanceKey, String qualifier) {
+        this.type = type;
+        this.digitalTwinId = digitalTwinId;
+        this.key = key;
+        this.value = value;
+        this.targetId = targetId;
+        this.instanceKey = instanceKey;
+        this.qualifier = qualifier;
+    }
+
+    static IndexUpdate propertySet(String digitalTwinId, String propertyKey, double value) {
+        return new IndexUpdate(Type.PROPERTY_SET, digitalTwinId, propertyKey, value, null, null, null);
+    }
+
+    static IndexUpdate propertyRemove(String digitalTwinId, String propertyKey) {
+        return new IndexUpdate(Type.PROPERTY_REMOVE, digitalTwinId, propertyKey, 0, null, null, null);
+    }
+
+    static IndexUpdate relationshipInstanceAdd(String digitalTwinId, String relationshipName, String targetId, String instanceKey, String qualifier) {
+        return new IndexUpdate(Type.RELATIONSHIP_INSTANCE_ADD, digitalTwinId, relationshipName, 0, targetId, instanceKey, qualifier);
+    }
+
+    static IndexUpdate relationshipInstanceRemove(String digitalTwinId, String relationshipName, String instanceKey) {
+        return new IndexUpdate(Type.RELATIONSHIP_INSTANCE_REMOVE, digitalTwinId, relationshipName, 0, null, instanceKey, null);
+    }
+
+    static IndexUpdate relationshipRemove(String digitalTwinId, String relationshipName) {
+        return new IndexUpdate(Type.RELATIONSHIP_REMOVE, digitalTwinId, relationshipName, 0, null, null, null);
+    }
+
+    static IndexUpdate twinRemove(String digitalTwinId) {
+        return new IndexUpdate(Type.TWIN_REMOVE, digitalTwinId, null, 0, null, null, null);
+    }
+}
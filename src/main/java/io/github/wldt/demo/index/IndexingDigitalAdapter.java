@@ -0,0 +1,124 @@
+package io.github.wldt.demo.index;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+import it.wldt.adapter.digital.DigitalAdapter;
+import it.wldt.core.state.*;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Digital Adapter feeding the {@link FleetStateIndex} with the numeric properties and the relationship instances
+ * of its Digital Twin. The whole state is indexed when the Digital Twin is synced, then only the received changes.
+ */
+public class IndexingDigitalAdapter extends DigitalAdapter<IndexingDigitalAdapterConfiguration> {
+
+    public IndexingDigitalAdapter(String id, IndexingDigitalAdapterConfiguration configuration) {
+        super(id, configuration);
+    }
+
+    @Override
+    public void onAdapterStart() {
+    }
+
+    @Override
+    public void onAdapterStop() {
+    }
+
+    @Override
+    public void onDigitalTwinSync(DigitalTwinState currentDigitalTwinState) {
+
+        if (currentDigitalTwinState == null)
+            return;
+
+        currentDigitalTwinState.getPropertyList().ifPresent(propertyList -> propertyList.forEach(this::indexProperty));
+        currentDigitalTwinState.getRelationshipList().ifPresent(relationshipList -> relationshipList.forEach(relationship -> {
+            if (relationship.getInstances() != null)
+                relationship.getInstances().forEach(this::indexRelationshipInstance);
+        }));
+    }
+
+    @Override
+    protected void onStateUpdate(DigitalTwinState newDigitalTwinState, DigitalTwinState previousDigitalTwinState, ArrayList<DigitalTwinStateChange> digitalTwinStateChangeList) {
+
+        if (digitalTwinStateChangeList == null)
+            return;
+
+        FleetStateIndex fleetStateIndex = getConfiguration().getFleetStateIndex();
+        String digitalTwinId = getConfiguration().getDigitalTwinId();
+
+        for (int i = 0, size = digitalTwinStateChangeList.size(); i < size; i++) {
+
+            DigitalTwinStateChange stateChange = digitalTwinStateChangeList.get(i);
+            DigitalTwinStateResource resource = stateChange.getResource();
+            boolean remove = stateChange.getOperation() == DigitalTwinStateChange.Operation.OPERATION_REMOVE;
+
+            if (resource instanceof DigitalTwinStateProperty) {
+                DigitalTwinStateProperty<?> property = (DigitalTwinStateProperty<?>) resource;
+                if (remove)
+                    fleetStateIndex.enqueue(IndexUpdate.propertyRemove(digitalTwinId, property.getKey()));
+                else
+                    indexProperty(property);
+            } else if (resource instanceof DigitalTwinStateRelationshipInstance) {
+                DigitalTwinStateRelationshipInstance<?> instance = (DigitalTwinStateRelationshipInstance<?>) resource;
+                if (remove)
+                    fleetStateIndex.enqueue(IndexUpdate.relationshipInstanceRemove(digitalTwinId, instance.getRelationshipName(), instance.getKey()));
+                else
+                    indexRelationshipInstance(instance);
+            } else if (resource instanceof DigitalTwinStateRelationship && remove) {
+                fleetStateIndex.enqueue(IndexUpdate.relationshipRemove(digitalTwinId, ((DigitalTwinStateRelationship<?>) resource).getName()));
+            }
+        }
+    }
+
+    private void indexProperty(DigitalTwinStateProperty<?> property) {
+        //Only numeric properties have a sorted index
+        if (property.getValue() instanceof Number)
+            getConfiguration().getFleetStateIndex().enqueue(IndexUpdate.propertySet(
+                    getConfiguration().getDigitalTwinId(),
+                    property.getKey(),
+                    ((Number) property.getValue()).doubleValue()));
+    }
+
+    private void indexRelationshipInstance(DigitalTwinStateRelationshipInstance<?> instance) {
+
+        if (instance.getTargetId() == null)
+            return;
+
+        Map<String, Object> metadata = instance.getMetadata();
+        Object qualifier = metadata != null ? metadata.get(GlobalKeywords.RELATIONSHIP_QUALIFIER_METADATA_KEY) : null;
+
+        getConfiguration().getFleetStateIndex().enqueue(IndexUpdate.relationshipInstanceAdd(
+                getConfiguration().getDigitalTwinId(),
+                instance.getRelationshipName(),
+                instance.getTargetId().toString(),
+                instance.getKey(),
+                qualifier != null ? qualifier.toString() : null));
+    }
+
+    @Override
+    protected void onEventNotificationReceived(DigitalTwinStateEventNotification<?> digitalTwinStateEventNotification) {
+        //Event notifications are not part of the DT State and are not indexed
+    }
+
+    @Override
+    public void onDigitalTwinUnSync(DigitalTwinState currentDigitalTwinState) {
+    }
+
+    @Override
+    public void onDigitalTwinCreate() {
+    }
+
+    @Override
+    public void onDigitalTwinStart() {
+    }
+
+    @Override
+    public void onDigitalTwinStop() {
+    }
+
+    @Override
+    public void onDigitalTwinDestroy() {
+        getConfiguration().getFleetStateIndex().enqueue(IndexUpdate.twinRemove(getConfiguration().getDigitalTwinId()));
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.wldt.demo.index;
+
+public class IndexingDigitalAdapterConfiguration {
+
+    // Id of the Digital Twin whose state is indexed
+    private String digitalTwinId;
+
+    private FleetStateIndex fleetStateIndex = FleetStateIndex.getInstance();
+
+    public IndexingDigitalAdapterConfiguration(String digitalTwinId) {
+        this.digitalTwinId = digitalTwinId;
+    }
+
+    public IndexingDigitalAdapterConfiguration(String digitalTwinId, FleetStateIndex fleetStateIndex) {
+        this.digitalTwinId = digitalTwinId;
+        this.fleetStateIndex = fleetStateIndex;
+    }
+
+    public String getDigitalTwinId() {
+        return digitalTwinId;
+    }
+
+    public void setDigitalTwinId(String digitalTwinId) {
+        this.digitalTwinId = digitalTwinId;
+    }
+
+    public FleetStateIndex getFleetStateIndex() {
+        return fleetStateIndex;
+    }
+
+    public void setFleetStateIndex(FleetStateIndex fleetStateIndex) {
+        this.fleetStateIndex = fleetStateIndex;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("IndexingDigitalAdapterConfiguration{");
+        sb.append("digitalTwinId='").append(digitalTwinId).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
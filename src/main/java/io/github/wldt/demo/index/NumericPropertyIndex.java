@@ -0,0 +1,94 @@
+package io.github.wldt.demo.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted index of the values of a numeric property across the Digital Twins, backed by a skip list so that range
+ * and equality queries take O(log n + results) and never lock out the writer.
+ *
+ * Only the index worker writes, queries can run concurrently from any thread and see each update atomically per
+ * Digital Twin (a twin can be briefly missing while its value moves from a key to another).
+ *
+ * Values and query bounds are compared numerically: -0.0 is stored and queried as 0.0, since the skip list orders
+ * the keys with Double.compareTo, which distinguishes the two zeros.
+ */
+class NumericPropertyIndex {
+
+    private final ConcurrentSkipListMap<Double, Set<String>> twinIdsByValue = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<String, Double> valueByTwinId = new ConcurrentHashMap<>();
+
+    void set(String digitalTwinId, double value) {
+
+        //NaN has no position in a range, the twin is just removed from the index
+        if (Double.isNaN(value)) {
+            remove(digitalTwinId);
+            return;
+        }
+
+        value = normalize(value);
+        Double previousValue = valueByTwinId.put(digitalTwinId, value);
+
+        if (previousValue != null) {
+            if (previousValue == value)
+                return;
+            removeFromValue(previousValue, digitalTwinId);
+        }
+
+        twinIdsByValue.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(digitalTwinId);
+    }
+
+    void remove(String digitalTwinId) {
+        Double previousValue = valueByTwinId.remove(digitalTwinId);
+        if (previousValue != null)
+            removeFromValue(previousValue, digitalTwinId);
+    }
+
+    private void removeFromValue(Double value, String digitalTwinId) {
+        Set<String> twinIds = twinIdsByValue.get(value);
+        if (twinIds != null) {
+            twinIds.remove(digitalTwinId);
+            if (twinIds.isEmpty())
+                twinIdsByValue.remove(value, twinIds);
+        }
+    }
+
+    List<String> findInRange(double minValue, boolean minInclusive, double maxValue, boolean maxInclusive) {
+
+        List<String> twinIds = new ArrayList<>();
+
+        //NaN is never indexed, a NaN bound matches no value
+        if (Double.isNaN(minValue) || Double.isNaN(maxValue) || minValue > maxValue)
+            return twinIds;
+
+        ConcurrentNavigableMap<Double, Set<String>> range = twinIdsByValue.subMap(normalize(minValue), minInclusive, normalize(maxValue), maxInclusive);
+        for (Map.Entry<Double, Set<String>> entry : range.entrySet())
+            twinIds.addAll(entry.getValue());
+
+        return twinIds;
+    }
+
+    Collection<String> findEqual(double value) {
+        Set<String> twinIds = twinIdsByValue.get(normalize(value));
+        return twinIds != null ? List.copyOf(twinIds) : List.of();
+    }
+
+    private static double normalize(double value) {
+        return value == 0.0 ? 0.0 : value;
+    }
+
+    Double getValue(String digitalTwinId) {
+        return valueByTwinId.get(digitalTwinId);
+    }
+
+    int size() {
+        return valueByTwinId.size();
+    }
+}
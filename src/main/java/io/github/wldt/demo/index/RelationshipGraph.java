@@ -0,0 +1,383 @@
+package io.github.wldt.demo.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Graph of the relationship instances of all the Digital Twins, where the nodes are the Digital Twins and the
+ * relationship targets.
+ *
+ * Node ids, relationship names and qualifier values (a metadata entry of the instances, e.g. the floor) are interned
+ * to ints. Edges are stored in primitive columns indexed by edge id, and each node keeps int arrays with the ids of
+ * its outgoing and incoming edges; every edge also stores its position in both arrays, so deleting an edge is a
+ * swap-remove in O(1) even on targets with millions of incoming edges. Ids of the deleted edges are reused.
+ *
+ * Only the index worker updates the graph, traversals hold the read lock so they see a consistent graph.
+ */
+public class RelationshipGraph {
+
+    /**
+     * Direction of the traversals from a node
+     */
+    public enum Direction {
+        OUTGOING,
+        INCOMING
+    }
+
+    private static final int NONE = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> nodeIds = new HashMap<>();
+
+    private String[] nodeNames = new String[1024];
+
+    private final Map<String, Integer> relationshipIds = new HashMap<>();
+
+    private final List<String> relationshipNames = new ArrayList<>();
+
+    private final Map<String, Integer> qualifierIds = new HashMap<>();
+
+    // Edge id by source node, relationship name and instance key
+    private final Map<String, Integer> edgeIdsByInstance = new HashMap<>();
+
+    //// Edge columns ////
+
+    private int[] edgeSources = new int[1024];
+
+    private int[] edgeTargets = new int[1024];
+
+    private int[] edgeRelationships = new int[1024];
+
+    private int[] edgeQualifiers = new int[1024];
+
+    // Position of the edge in the outgoing array of its source and in the incoming array of its target
+    private int[] edgeOutPositions = new int[1024];
+
+    private int[] edgeInPositions = new int[1024];
+
+    private String[] edgeInstanceKeys = new String[1024];
+
+    private int edgeCapacityUsed = 0;
+
+    private int[] freeEdgeIds = new int[64];
+
+    private int freeEdgeCount = 0;
+
+    private int edgeCount = 0;
+
+    //// Adjacency arrays by node ////
+
+    private int[][] outEdges = new int[1024][];
+
+    private int[] outDegrees = new int[1024];
+
+    private int[][] inEdges = new int[1024][];
+
+    private int[] inDegrees = new int[1024];
+
+    //// Updates (index worker) ////
+
+    void addEdge(String sourceId, String relationshipName, String instanceKey, String targetId, String qualifier) {
+
+        lock.writeLock().lock();
+        try {
+
+            String instanceId = instanceId(sourceId, relationshipName, instanceKey);
+
+            //An instance added again with the same key replaces the previous edge
+            Integer previousEdgeId = edgeIdsByInstance.get(instanceId);
+            if (previousEdgeId != null)
+                removeEdge(previousEdgeId);
+
+            int source = internNode(sourceId);
+            int target = internNode(targetId);
+            int edgeId = allocateEdge();
+
+            edgeSources[edgeId] = source;
+            edgeTargets[edgeId] = target;
+            edgeRelationships[edgeId] = intern(relationshipIds, relationshipName, relationshipNames);
+            edgeQualifiers[edgeId] = qualifier != null ? qualifierIds.computeIfAbsent(qualifier, q -> qualifierIds.size()) : NONE;
+            edgeInstanceKeys[edgeId] = instanceId;
+
+            outEdges[source] = append(outEdges[source], outDegrees[source], edgeId);
+            edgeOutPositions[edgeId] = outDegrees[source]++;
+
+            inEdges[target] = append(inEdges[target], inDegrees[target], edgeId);
+            edgeInPositions[edgeId] = inDegrees[target]++;
+
+            edgeIdsByInstance.put(instanceId, edgeId);
+            edgeCount++;
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeEdge(String sourceId, String relationshipName, String instanceKey) {
+        lock.writeLock().lock();
+        try {
+            Integer edgeId = edgeIdsByInstance.get(instanceId(sourceId, relationshipName, instanceKey));
+            if (edgeId != null)
+                removeEdge(edgeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the outgoing edges of a node, only the ones of the given relationship if the name is not null
+     */
+    void removeOutgoingEdges(String sourceId, String relationshipName) {
+        lock.writeLock().lock();
+        try {
+
+            Integer source = nodeIds.get(sourceId);
+            Integer relationship = relationshipName != null ? relationshipIds.get(relationshipName) : null;
+            if (source == null || (relationshipName != null && relationship == null))
+                return;
+
+            for (int i = outDegrees[source] - 1; i >= 0; i--) {
+                int edgeId = outEdges[source][i];
+                if (relationship == null || edgeRelationships[edgeId] == relationship)
+                    removeEdge(edgeId);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeEdge(int edgeId) {
+
+        int source = edgeSources[edgeId];
+        int target = edgeTargets[edgeId];
+
+        int lastOutEdge = outEdges[source][--outDegrees[source]];
+        outEdges[source][edgeOutPositions[edgeId]] = lastOutEdge;
+        edgeOutPositions[lastOutEdge] = edgeOutPositions[edgeId];
+
+        int lastInEdge = inEdges[target][--inDegrees[target]];
+        inEdges[target][edgeInPositions[edgeId]] = lastInEdge;
+        edgeInPositions[lastInEdge] = edgeInPositions[edgeId];
+
+        edgeIdsByInstance.remove(edgeInstanceKeys[edgeId]);
+        edgeInstanceKeys[edgeId] = null;
+
+        if (freeEdgeCount == freeEdgeIds.length)
+            freeEdgeIds = Arrays.copyOf(freeEdgeIds, freeEdgeCount * 2);
+        freeEdgeIds[freeEdgeCount++] = edgeId;
+        edgeCount--;
+    }
+
+    private int allocateEdge() {
+
+        if (freeEdgeCount > 0)
+            return freeEdgeIds[--freeEdgeCount];
+
+        if (edgeCapacityUsed == edgeSources.length) {
+            int capacity = edgeCapacityUsed * 2;
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeRelationships = Arrays.copyOf(edgeRelationships, capacity);
+            edgeQualifiers = Arrays.copyOf(edgeQualifiers, capacity);
+            edgeOutPositions = Arrays.copyOf(edgeOutPositions, capacity);
+            edgeInPositions = Arrays.copyOf(edgeInPositions, capacity);
+            edgeInstanceKeys = Arrays.copyOf(edgeInstanceKeys, capacity);
+        }
+
+        return edgeCapacityUsed++;
+    }
+
+    private int internNode(String nodeName) {
+
+        Integer nodeId = nodeIds.get(nodeName);
+        if (nodeId != null)
+            return nodeId;
+
+        int newNodeId = nodeIds.size();
+
+        if (newNodeId == nodeNames.length) {
+            int capacity = newNodeId * 2;
+            nodeNames = Arrays.copyOf(nodeNames, capacity);
+            outEdges = Arrays.copyOf(outEdges, capacity);
+            outDegrees = Arrays.copyOf(outDegrees, capacity);
+            inEdges = Arrays.copyOf(inEdges, capacity);
+            inDegrees = Arrays.copyOf(inDegrees, capacity);
+        }
+
+        nodeNames[newNodeId] = nodeName;
+        nodeIds.put(nodeName, newNodeId);
+        return newNodeId;
+    }
+
+    private static int intern(Map<String, Integer> ids, String name, List<String> names) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    private static int[] append(int[] edges, int size, int edgeId) {
+        if (edges == null)
+            edges = new int[4];
+        else if (size == edges.length)
+            edges = Arrays.copyOf(edges, size * 2);
+        edges[size] = edgeId;
+        return edges;
+    }
+
+    private static String instanceId(String sourceId, String relationshipName, String instanceKey) {
+        return sourceId + '\u0000' + relationshipName + '\u0000' + instanceKey;
+    }
+
+    //// Queries ////
+
+    /**
+     * @return the nodes connected to the node by one edge of the relationship in the given direction
+     */
+    public List<String> getNeighbours(String nodeName, String relationshipName, Direction direction) {
+        return findNeighbours(nodeName, relationshipName, null, direction);
+    }
+
+    /**
+     * Reverse lookup: the nodes with an edge of the relationship pointing to the target, optionally only the ones
+     * with the given qualifier (e.g. everything insideIn building-hq on floor f0)
+     */
+    public List<String> findSources(String targetName, String relationshipName, String qualifier) {
+        return findNeighbours(targetName, relationshipName, qualifier, Direction.INCOMING);
+    }
+
+    private List<String> findNeighbours(String nodeName, String relationshipName, String qualifier, Direction direction) {
+
+        List<String> neighbours = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+
+            Integer node = nodeIds.get(nodeName);
+            int relationship = resolve(relationshipIds, relationshipName);
+            int qualifierId = resolve(qualifierIds, qualifier);
+            if (node == null || relationship == Integer.MIN_VALUE || qualifierId == Integer.MIN_VALUE)
+                return neighbours;
+
+            boolean outgoing = direction == Direction.OUTGOING;
+            int[] edges = outgoing ? outEdges[node] : inEdges[node];
+            int degree = outgoing ? outDegrees[node] : inDegrees[node];
+
+            for (int i = 0; i < degree; i++) {
+                int edgeId = edges[i];
+                if ((relationship == NONE || edgeRelationships[edgeId] == relationship) && (qualifierId == NONE || edgeQualifiers[edgeId] == qualifierId))
+                    neighbours.add(nodeNames[outgoing ? edgeTargets[edgeId] : edgeSources[edgeId]]);
+            }
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return neighbours;
+    }
+
+    /**
+     * Breadth-first traversal collecting the nodes reachable from the start node with 1 to maxHops edges of the
+     * relationship (any relationship if null) in the given direction
+     */
+    public List<String> traverse(String startNodeName, String relationshipName, Direction direction, int maxHops) {
+
+        List<String> reached = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+
+            Integer startNode = nodeIds.get(startNodeName);
+            int relationship = resolve(relationshipIds, relationshipName);
+            if (startNode == null || relationship == Integer.MIN_VALUE)
+                return reached;
+
+            boolean outgoing = direction == Direction.OUTGOING;
+
+            BitSet visited = new BitSet(nodeIds.size());
+            visited.set(startNode);
+
+            int[] frontier = {startNode};
+            int frontierSize = 1;
+            int[] nextFrontier = new int[16];
+
+            for (int hop = 0; hop < maxHops && frontierSize > 0; hop++) {
+
+                int nextFrontierSize = 0;
+
+                for (int f = 0; f < frontierSize; f++) {
+
+                    int node = frontier[f];
+                    int[] edges = outgoing ? outEdges[node] : inEdges[node];
+                    int degree = outgoing ? outDegrees[node] : inDegrees[node];
+
+                    for (int i = 0; i < degree; i++) {
+
+                        int edgeId = edges[i];
+                        if (relationship != NONE && edgeRelationships[edgeId] != relationship)
+                            continue;
+
+                        int neighbour = outgoing ? edgeTargets[edgeId] : edgeSources[edgeId];
+                        if (visited.get(neighbour))
+                            continue;
+
+                        visited.set(neighbour);
+                        reached.add(nodeNames[neighbour]);
+
+                        if (nextFrontierSize == nextFrontier.length)
+                            nextFrontier = Arrays.copyOf(nextFrontier, nextFrontierSize * 2);
+                        nextFrontier[nextFrontierSize++] = neighbour;
+                    }
+                }
+
+                int[] swap = frontier;
+                frontier = nextFrontier;
+                frontierSize = nextFrontierSize;
+                nextFrontier = swap.length >= 16 ? swap : new int[16];
+            }
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return reached;
+    }
+
+    /**
+     * @return NONE for a null name (no filter), Integer.MIN_VALUE for an unknown name (nothing can match)
+     */
+    private static int resolve(Map<String, Integer> ids, String name) {
+        if (name == null)
+            return NONE;
+        Integer id = ids.get(name);
+        return id != null ? id : Integer.MIN_VALUE;
+    }
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.wldt.demo.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index of the instances of a relationship: from each target to the Digital Twins having at least one
+ * instance pointing to it.
+ *
+ * Each twin keeps the target of each of its instances (by instance key), so that removing an instance only drops
+ * the twin from the target when no other instance of the twin points to it.
+ */
+class RelationshipTargetIndex {
+
+    private final ConcurrentHashMap<String, Set<String>> twinIdsByTarget = new ConcurrentHashMap<>();
+
+    // Written only by the index worker
+    private final Map<String, Map<String, String>> targetByInstanceKeyByTwinId = new HashMap<>();
+
+    void add(String digitalTwinId, String instanceKey, String targetId) {
+
+        Map<String, String> targetByInstanceKey = targetByInstanceKeyByTwinId.computeIfAbsent(digitalTwinId, id -> new HashMap<>());
+        String previousTargetId = targetByInstanceKey.put(instanceKey, targetId);
+
+        if (previousTargetId != null && !previousTargetId.equals(targetId))
+            removeIfUnreferenced(digitalTwinId, previousTargetId, targetByInstanceKey);
+
+        twinIdsByTarget.computeIfAbsent(targetId, id -> ConcurrentHashMap.newKeySet()).add(digitalTwinId);
+    }
+
+    void remove(String digitalTwinId, String instanceKey) {
+
+        Map<String, String> targetByInstanceKey = targetByInstanceKeyByTwinId.get(digitalTwinId);
+        if (targetByInstanceKey == null)
+            return;
+
+        String targetId = targetByInstanceKey.remove(instanceKey);
+        if (targetId != null)
+            removeIfUnreferenced(digitalTwinId, targetId, targetByInstanceKey);
+
+        if (targetByInstanceKey.isEmpty())
+            targetByInstanceKeyByTwinId.remove(digitalTwinId);
+    }
+
+    void removeTwin(String digitalTwinId) {
+
+        Map<String, String> targetByInstanceKey = targetByInstanceKeyByTwinId.remove(digitalTwinId);
+        if (targetByInstanceKey == null)
+            return;
+
+        for (String targetId : targetByInstanceKey.values())
+            removeFromTarget(targetId, digitalTwinId);
+    }
+
+    private void removeIfUnreferenced(String digitalTwinId, String targetId, Map<String, String> targetByInstanceKey) {
+        if (!targetByInstanceKey.containsValue(targetId))
+            removeFromTarget(targetId, digitalTwinId);
+    }
+
+    private void removeFromTarget(String targetId, String digitalTwinId) {
+        Set<String> twinIds = twinIdsByTarget.get(targetId);
+        if (twinIds != null) {
+            twinIds.remove(digitalTwinId);
+            if (twinIds.isEmpty())
+                twinIdsByTarget.remove(targetId, twinIds);
+        }
+    }
+
+    List<String> findByTarget(String targetId) {
+        Set<String> twinIds = twinIdsByTarget.get(targetId);
+        return twinIds != null ? List.copyOf(twinIds) : List.of();
+    }
+
+    Set<String> getTargets() {
+        return twinIdsByTarget.keySet();
+    }
+}
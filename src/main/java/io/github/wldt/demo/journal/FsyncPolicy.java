@@ -0,0 +1,10 @@
+package io.github.wldt.demo.journal;
+
+public enum FsyncPolicy {
+    // Never force the segments to disk, the OS writes them back (data of the last seconds can be lost on a crash)
+    NEVER,
+    // Force the written records to disk periodically from a background task (group commit over the interval)
+    INTERVAL,
+    // Force the records of each commit (all the changes of a DT State update) before returning
+    EVERY_COMMIT
+}
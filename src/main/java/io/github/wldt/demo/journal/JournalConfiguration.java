@@ -0,0 +1,117 @@
+package io.github.wldt.demo.journal;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+public class JournalConfiguration {
+
+    // Prefix of the segment files, usually the id of the Digital Twin
+    private String journalName;
+
+    private String directory = GlobalKeywords.JOURNAL_DIRECTORY;
+
+    private int segmentSizeBytes = GlobalKeywords.JOURNAL_SEGMENT_SIZE_BYTES;
+
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+
+    private int fsyncIntervalMs = GlobalKeywords.JOURNAL_FSYNC_INTERVAL_MS;
+
+    // Oldest segments beyond this number are deleted on rollover, once the latest snapshot follows all their changes
+    private int retainedSegments = GlobalKeywords.JOURNAL_RETAINED_SEGMENTS;
+
+    // Minimum time between two snapshots of the DT State, 0 to disable the snapshots
+    private int snapshotIntervalMs = GlobalKeywords.JOURNAL_SNAPSHOT_INTERVAL_MS;
+
+    private int retainedSnapshots = GlobalKeywords.JOURNAL_RETAINED_SNAPSHOTS;
+
+    public JournalConfiguration(String journalName) {
+        this.journalName = journalName;
+    }
+
+    public JournalConfiguration(String journalName, String directory, int segmentSizeBytes, FsyncPolicy fsyncPolicy, int fsyncIntervalMs, int retainedSegments) {
+        this.journalName = journalName;
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.retainedSegments = retainedSegments;
+    }
+
+    public String getJournalName() {
+        return journalName;
+    }
+
+    public void setJournalName(String journalName) {
+        this.journalName = journalName;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSizeBytes() {
+        return segmentSizeBytes;
+    }
+
+    public void setSegmentSizeBytes(int segmentSizeBytes) {
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public int getFsyncIntervalMs() {
+        return fsyncIntervalMs;
+    }
+
+    public void setFsyncIntervalMs(int fsyncIntervalMs) {
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    public int getRetainedSegments() {
+        return retainedSegments;
+    }
+
+    public void setRetainedSegments(int retainedSegments) {
+        this.retainedSegments = retainedSegments;
+    }
+
+    public int getSnapshotIntervalMs() {
+        return snapshotIntervalMs;
+    }
+
+    public void setSnapshotIntervalMs(int snapshotIntervalMs) {
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+
+    public int getRetainedSnapshots() {
+        return retainedSnapshots;
+    }
+
+    public void setRetainedSnapshots(int retainedSnapshots) {
+        this.retainedSnapshots = retainedSnapshots;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("JournalConfiguration{");
+        sb.append("journalName='").append(journalName).append('\'');
+        sb.append(", directory='").append(directory).append('\'');
+        sb.append(", segmentSizeBytes=").append(segmentSizeBytes);
+        sb.append(", fsyncPolicy=").append(fsyncPolicy);
+        sb.append(", fsyncIntervalMs=").append(fsyncIntervalMs);
+        sb.append(", retainedSegments=").append(retainedSegments);
+        sb.append(", snapshotIntervalMs=").append(snapshotIntervalMs);
+        sb.append(", retainedSnapshots=").append(retainedSnapshots);
+        sb.append('}');
+        return sb.toString();
+    }
+}
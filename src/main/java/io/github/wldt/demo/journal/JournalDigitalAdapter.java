@@ -0,0 +1,167 @@
+package io.github.wldt.demo.journal;
+
+import io.github.wldt.demo.executor.AdapterExecutors;
+import it.wldt.adapter.digital.DigitalAdapter;
+import it.wldt.core.state.DigitalTwinState;
+import it.wldt.core.state.DigitalTwinStateChange;
+import it.wldt.core.state.DigitalTwinStateEventNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Digital Adapter appending the DT State changes to a {@link StateChangeJournal}.
+ *
+ * The changes are received on the adapter thread, so the shadowing function never waits for the journal: all the
+ * changes of a state update are appended and then committed together (group commit).
+ *
+ * Every snapshot interval the adapter also writes a {@link StateSnapshots snapshot} of the new DT State on the shared
+ * executor, and a last one when it stops, so that a restart replays only the changes following it.
+ */
+public class JournalDigitalAdapter extends DigitalAdapter<JournalConfiguration> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalDigitalAdapter.class);
+
+    private StateChangeJournal stateChangeJournal;
+
+    // Last received DT State and the journal sequence following its changes, used for the final snapshot
+    private DigitalTwinState lastDigitalTwinState;
+
+    private long lastDigitalTwinStateSequence;
+
+    private long lastSnapshotTimestamp = 0;
+
+    // Avoids overlapping snapshots when writing one takes longer than the snapshot interval
+    private final AtomicBoolean snapshotInProgress = new AtomicBoolean(false);
+
+    public JournalDigitalAdapter(String id, JournalConfiguration configuration) {
+        super(id, configuration);
+    }
+
+    @Override
+    public void onAdapterStart() {
+        try {
+            stateChangeJournal = new StateChangeJournal(getConfiguration());
+            stateChangeJournal.open();
+        } catch (IOException e) {
+            logger.error("[JournalDigitalAdapter] -> Error opening the journal: {}", e.getMessage());
+            stateChangeJournal = null;
+        }
+    }
+
+    @Override
+    public void onAdapterStop() {
+        try {
+            //If a periodic snapshot is still being written the changes following it are replayed from the journal
+            if (lastDigitalTwinState != null && getConfiguration().getSnapshotIntervalMs() > 0 && snapshotInProgress.compareAndSet(false, true))
+                writeSnapshot(StateImage.of(lastDigitalTwinState, lastDigitalTwinStateSequence), System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.error("[JournalDigitalAdapter] -> Error writing the final snapshot: {}", e.getMessage());
+        }
+        try {
+            if (stateChangeJournal != null)
+                stateChangeJournal.close();
+        } catch (IOException e) {
+            logger.error("[JournalDigitalAdapter] -> Error closing the journal: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    protected void onStateUpdate(DigitalTwinState newDigitalTwinState, DigitalTwinState previousDigitalTwinState, ArrayList<DigitalTwinStateChange> digitalTwinStateChangeList) {
+
+        if (stateChangeJournal == null || digitalTwinStateChangeList == null || digitalTwinStateChangeList.isEmpty())
+            return;
+
+        long timestamp = newDigitalTwinState != null && newDigitalTwinState.getEvaluationInstant() != null
+                ? newDigitalTwinState.getEvaluationInstant().toEpochMilli()
+                : System.currentTimeMillis();
+
+        try {
+
+            for (int i = 0, size = digitalTwinStateChangeList.size(); i < size; i++)
+                stateChangeJournal.append(timestamp, digitalTwinStateChangeList.get(i));
+
+            stateChangeJournal.commit();
+
+        } catch (IOException e) {
+            logger.error("[JournalDigitalAdapter] -> Error appending to the journal: {}", e.getMessage());
+            return;
+        }
+
+        if (newDigitalTwinState == null)
+            return;
+
+        lastDigitalTwinState = newDigitalTwinState;
+        lastDigitalTwinStateSequence = stateChangeJournal.getNextSequence();
+
+        maybeWriteSnapshot(newDigitalTwinState, lastDigitalTwinStateSequence, timestamp);
+    }
+
+    private void maybeWriteSnapshot(DigitalTwinState digitalTwinState, long sequence, long timestamp) {
+
+        int snapshotIntervalMs = getConfiguration().getSnapshotIntervalMs();
+        if (snapshotIntervalMs <= 0 || timestamp - lastSnapshotTimestamp < snapshotIntervalMs || !snapshotInProgress.compareAndSet(false, true))
+            return;
+
+        lastSnapshotTimestamp = timestamp;
+
+        //The image only copies the references, the encoding and the fsync run on the shared executor
+        StateImage stateImage = StateImage.of(digitalTwinState, sequence);
+
+        AdapterExecutors.getExecutor().execute(() -> {
+            try {
+                writeSnapshot(stateImage, timestamp);
+            } catch (IOException e) {
+                logger.error("[JournalDigitalAdapter] -> Error writing the snapshot: {}", e.getMessage());
+            } finally {
+                snapshotInProgress.set(false);
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot and lets the journal delete the segments it makes unnecessary
+     */
+    private void writeSnapshot(StateImage stateImage, long timestamp) throws IOException {
+        StateSnapshots.write(getConfiguration(), stateImage, timestamp);
+        StateChangeJournal journal = stateChangeJournal;
+        if (journal != null)
+            journal.onSnapshotWritten(stateImage.getSequence());
+    }
+
+    @Override
+    protected void onEventNotificationReceived(DigitalTwinStateEventNotification<?> digitalTwinStateEventNotification) {
+        //Event notifications are not part of the DT State and are not journaled
+    }
+
+    @Override
+    public void onDigitalTwinSync(DigitalTwinState currentDigitalTwinState) {
+    }
+
+    @Override
+    public void onDigitalTwinUnSync(DigitalTwinState currentDigitalTwinState) {
+    }
+
+    @Override
+    public void onDigitalTwinCreate() {
+    }
+
+    @Override
+    public void onDigitalTwinStart() {
+    }
+
+    @Override
+    public void onDigitalTwinStop() {
+    }
+
+    @Override
+    public void onDigitalTwinDestroy() {
+    }
+
+    public StateChangeJournal getStateChangeJournal() {
+        return stateChangeJournal;
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.wldt.demo.journal;
+
+import it.wldt.core.state.DigitalTwinStateChange;
+import it.wldt.core.state.DigitalTwinStateResource;
+
+/**
+ * A DT State change read back from the journal
+ */
+public class JournalEntry {
+
+    private final long sequence;
+
+    private final long timestamp;
+
+    private final DigitalTwinStateChange.Operation operation;
+
+    private final DigitalTwinStateChange.ResourceType resourceType;
+
+    private final DigitalTwinStateResource resource;
+
+    public JournalEntry(long sequence, long timestamp, DigitalTwinStateChange.Operation operation, DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateResource resource) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.operation = operation;
+        this.resourceType = resourceType;
+        this.resource = resource;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public DigitalTwinStateChange.Operation getOperation() {
+        return operation;
+    }
+
+    public DigitalTwinStateChange.ResourceType getResourceType() {
+        return resourceType;
+    }
+
+    public DigitalTwinStateResource getResource() {
+        return resource;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("JournalEntry{");
+        sb.append("sequence=").append(sequence);
+        sb.append(", timestamp=").append(timestamp);
+        sb.append(", operation=").append(operation);
+        sb.append(", resourceType=").append(resourceType);
+        sb.append(", resource=").append(resource);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.wldt.demo.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed size journal file mapped in memory.
+ *
+ * The segment starts with a header (magic, version, sequence of the first record) followed by the records, each one
+ * prefixed by its length and the CRC32 of its content. The unused part of the file is zero-filled, so a zero length
+ * marks the end of the records; a record with a wrong CRC (e.g. torn by a crash) also ends the segment.
+ */
+class JournalSegment {
+
+    static final int MAGIC = 0x574A524E;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    static final int RECORD_HEADER_SIZE = 8;
+
+    interface RecordVisitor {
+        void onRecord(ByteBuffer record) throws IOException;
+    }
+
+    private final Path file;
+
+    private final long baseSequence;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer mappedBuffer;
+
+    // Written only by the journal writer
+    private volatile int writePosition;
+
+    // Guarded by the segment monitor
+    private int forcedPosition;
+
+    private boolean readOnly = false;
+
+    private JournalSegment(Path file, long baseSequence, FileChannel channel, MappedByteBuffer mappedBuffer, int writePosition) {
+        this.file = file;
+        this.baseSequence = baseSequence;
+        this.channel = channel;
+        this.mappedBuffer = mappedBuffer;
+        this.writePosition = writePosition;
+        this.forcedPosition = writePosition;
+    }
+
+    /**
+     * Creates and maps a new segment file of the given size
+     */
+    static JournalSegment create(Path file, long baseSequence, int segmentSizeBytes) throws IOException {
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSizeBytes);
+
+        mappedBuffer.putInt(0, MAGIC);
+        mappedBuffer.putInt(4, VERSION);
+        mappedBuffer.putLong(8, baseSequence);
+
+        JournalSegment segment = new JournalSegment(file, baseSequence, channel, mappedBuffer, HEADER_SIZE);
+        segment.forcedPosition = 0;
+        return segment;
+    }
+
+    /**
+     * Maps an existing segment file and positions the writer after its last valid record
+     *
+     * @param readOnly true to map the segment only to read its records
+     */
+    static JournalSegment open(Path file, boolean readOnly) throws IOException {
+
+        FileChannel channel = readOnly
+                ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mappedBuffer = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, channel.size());
+
+        if (mappedBuffer.capacity() < HEADER_SIZE || mappedBuffer.getInt(0) != MAGIC || mappedBuffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Invalid journal segment " + file);
+        }
+
+        JournalSegment segment = new JournalSegment(file, mappedBuffer.getLong(8), channel, mappedBuffer, HEADER_SIZE);
+        segment.writePosition = segment.scan(null);
+        segment.forcedPosition = segment.writePosition;
+        segment.readOnly = readOnly;
+        return segment;
+    }
+
+    /**
+     * Appends a record if the segment has enough free space
+     *
+     * @return false if the record does not fit in the segment
+     */
+    boolean append(byte[] record, int length, int crc) {
+
+        int position = writePosition;
+
+        if (position + RECORD_HEADER_SIZE + length > mappedBuffer.capacity())
+            return false;
+
+        mappedBuffer.put(position + RECORD_HEADER_SIZE, record, 0, length);
+        mappedBuffer.putInt(position + 4, crc);
+        mappedBuffer.putInt(position, length);
+
+        writePosition = position + RECORD_HEADER_SIZE + length;
+        return true;
+    }
+
+    /**
+     * Forces the records written since the previous call to the storage device
+     */
+    synchronized void force() {
+        if (readOnly)
+            return;
+        int position = writePosition;
+        if (position > forcedPosition) {
+            mappedBuffer.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+    }
+
+    /**
+     * Visits the valid records of the segment in order
+     *
+     * @return the position following the last valid record
+     */
+    int scan(RecordVisitor visitor) throws IOException {
+
+        ByteBuffer readBuffer = mappedBuffer.duplicate();
+        CRC32 crc32 = new CRC32();
+        int position = HEADER_SIZE;
+
+        while (position + RECORD_HEADER_SIZE <= readBuffer.capacity()) {
+
+            int length = readBuffer.getInt(position);
+            int crc = readBuffer.getInt(position + 4);
+
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > readBuffer.capacity())
+                break;
+
+            ByteBuffer record = readBuffer.slice(position + RECORD_HEADER_SIZE, length);
+
+            crc32.reset();
+            crc32.update(record.duplicate());
+            if ((int) crc32.getValue() != crc)
+                break;
+
+            if (visitor != null)
+                visitor.onRecord(record);
+
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        return position;
+    }
+
+    void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    boolean isEmpty() {
+        return writePosition == HEADER_SIZE;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getBaseSequence() {
+        return baseSequence;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.wldt.demo.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Rebuilds the last known DT State from the latest snapshot and the journal changes written after it
+ */
+public final class JournalStateRestorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalStateRestorer.class);
+
+    private JournalStateRestorer() {
+    }
+
+    /**
+     * @return the restored image, empty if neither snapshots nor journal segments are available
+     */
+    public static StateImage restore(JournalConfiguration configuration) throws IOException {
+
+        long startNanos = System.nanoTime();
+
+        StateImage snapshotImage = StateSnapshots.readLatest(configuration);
+        StateImage stateImage = snapshotImage != null ? snapshotImage : new StateImage(0);
+        long snapshotSequence = stateImage.getSequence();
+
+        long[] replayed = {0};
+        StateChangeJournal.replay(configuration, snapshotSequence, journalEntry -> {
+
+            //Segments deleted by the retention may leave a hole between the snapshot and the journal
+            if (replayed[0] == 0 && journalEntry.getSequence() > snapshotSequence)
+                logger.warn("[JournalStateRestorer] -> Journal {} changes {}..{} are not available, the restored state may be incomplete",
+                        configuration.getJournalName(), snapshotSequence, journalEntry.getSequence() - 1);
+
+            stateImage.apply(journalEntry);
+            replayed[0]++;
+        });
+
+        logger.info("[JournalStateRestorer] -> Restored {} from {} and {} journal changes in {} ms",
+                stateImage,
+                snapshotImage != null ? "the snapshot at sequence " + snapshotSequence : "no snapshot",
+                replayed[0],
+                (System.nanoTime() - startNanos) / 1_000_000.0);
+
+        return stateImage;
+    }
+}
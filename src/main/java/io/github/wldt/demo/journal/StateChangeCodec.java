@@ -0,0 +1,242 @@
+package io.github.wldt.demo.journal;
+
+import it.wldt.core.state.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary encoding of the DT State changes stored in the journal.
+ *
+ * A change is encoded as: long sequence, long timestamp, byte operation, byte resource type, byte resource kind and
+ * the fields of the resource. Enums are stored with their ordinal, so journals are bound to the WLDT version that
+ * wrote them. Values are stored with a type tag; values of other types are stored as their toString().
+ */
+public final class StateChangeCodec {
+
+    private static final byte RESOURCE_UNKNOWN = 0;
+    private static final byte RESOURCE_PROPERTY = 1;
+    private static final byte RESOURCE_EVENT = 2;
+    private static final byte RESOURCE_ACTION = 3;
+    private static final byte RESOURCE_RELATIONSHIP = 4;
+    private static final byte RESOURCE_RELATIONSHIP_INSTANCE = 5;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_BOOLEAN = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_FLOAT = 5;
+    private static final byte VALUE_STRING = 6;
+
+    private static final DigitalTwinStateChange.Operation[] OPERATIONS = DigitalTwinStateChange.Operation.values();
+
+    private static final DigitalTwinStateChange.ResourceType[] RESOURCE_TYPES = DigitalTwinStateChange.ResourceType.values();
+
+    private StateChangeCodec() {
+    }
+
+    /**
+     * Encodes a change at the current position of the buffer
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small, the caller can retry with a larger one
+     */
+    public static void encode(ByteBuffer buffer, long sequence, long timestamp, DigitalTwinStateChange stateChange) {
+        encode(buffer, sequence, timestamp, stateChange.getOperation(), stateChange.getResourceType(), stateChange.getResource());
+    }
+
+    /**
+     * Encodes a change given by its parts at the current position of the buffer
+     */
+    public static void encode(ByteBuffer buffer, long sequence, long timestamp, DigitalTwinStateChange.Operation operation,
+                              DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateResource resource) {
+
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp);
+        buffer.put((byte) operation.ordinal());
+        buffer.put((byte) resourceType.ordinal());
+
+        if (resource instanceof DigitalTwinStateProperty) {
+            DigitalTwinStateProperty<?> property = (DigitalTwinStateProperty<?>) resource;
+            buffer.put(RESOURCE_PROPERTY);
+            putString(buffer, property.getKey());
+            putValue(buffer, property.getValue());
+        } else if (resource instanceof DigitalTwinStateEvent) {
+            DigitalTwinStateEvent event = (DigitalTwinStateEvent) resource;
+            buffer.put(RESOURCE_EVENT);
+            putString(buffer, event.getKey());
+            putString(buffer, event.getType());
+        } else if (resource instanceof DigitalTwinStateAction) {
+            DigitalTwinStateAction action = (DigitalTwinStateAction) resource;
+            buffer.put(RESOURCE_ACTION);
+            putString(buffer, action.getKey());
+            putString(buffer, action.getType());
+            putString(buffer, action.getContentType());
+        } else if (resource instanceof DigitalTwinStateRelationshipInstance) {
+            DigitalTwinStateRelationshipInstance<?> instance = (DigitalTwinStateRelationshipInstance<?>) resource;
+            buffer.put(RESOURCE_RELATIONSHIP_INSTANCE);
+            putString(buffer, instance.getRelationshipName());
+            putValue(buffer, instance.getTargetId());
+            putString(buffer, instance.getKey());
+            Map<String, Object> metadata = instance.getMetadata();
+            buffer.putInt(metadata != null ? metadata.size() : 0);
+            if (metadata != null)
+                for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+                    putString(buffer, entry.getKey());
+                    putValue(buffer, entry.getValue());
+                }
+        } else if (resource instanceof DigitalTwinStateRelationship) {
+            DigitalTwinStateRelationship<?> relationship = (DigitalTwinStateRelationship<?>) resource;
+            buffer.put(RESOURCE_RELATIONSHIP);
+            putString(buffer, relationship.getName());
+            putString(buffer, relationship.getType());
+        } else {
+            buffer.put(RESOURCE_UNKNOWN);
+            putString(buffer, resource != null ? resource.toString() : null);
+        }
+    }
+
+    /**
+     * Decodes a change from the current position of the buffer
+     */
+    public static JournalEntry decode(ByteBuffer buffer) throws IOException {
+
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+
+        try {
+
+            DigitalTwinStateChange.Operation operation = OPERATIONS[buffer.get()];
+            DigitalTwinStateChange.ResourceType resourceType = RESOURCE_TYPES[buffer.get()];
+            byte resourceKind = buffer.get();
+
+            DigitalTwinStateResource resource;
+
+            switch (resourceKind) {
+                case RESOURCE_PROPERTY:
+                    resource = new DigitalTwinStateProperty<>(getString(buffer), getValue(buffer));
+                    break;
+                case RESOURCE_EVENT:
+                    resource = new DigitalTwinStateEvent(getString(buffer), getString(buffer));
+                    break;
+                case RESOURCE_ACTION:
+                    resource = new DigitalTwinStateAction(getString(buffer), getString(buffer), getString(buffer));
+                    break;
+                case RESOURCE_RELATIONSHIP:
+                    resource = new DigitalTwinStateRelationship<>(getString(buffer), getString(buffer));
+                    break;
+                case RESOURCE_RELATIONSHIP_INSTANCE: {
+                    String relationshipName = getString(buffer);
+                    Object targetId = getValue(buffer);
+                    String key = getString(buffer);
+                    int metadataSize = buffer.getInt();
+                    Map<String, Object> metadata = new HashMap<>();
+                    for (int i = 0; i < metadataSize; i++)
+                        metadata.put(getString(buffer), getValue(buffer));
+                    resource = new DigitalTwinStateRelationshipInstance<>(relationshipName, targetId, key, metadata);
+                    break;
+                }
+                default:
+                    //Unknown resources are kept only in the journal
+                    getString(buffer);
+                    resource = null;
+                    break;
+            }
+
+            return new JournalEntry(sequence, timestamp, operation, resourceType, resource);
+
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Invalid journal record " + sequence + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+
+        //ASCII strings (the common case for keys) are written without allocating the encoded bytes
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                buffer.position(lengthPosition);
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(encoded.length);
+                buffer.put(encoded);
+                return;
+            }
+            buffer.put((byte) c);
+        }
+
+        buffer.putInt(lengthPosition, buffer.position() - lengthPosition - Integer.BYTES);
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        if (length > buffer.remaining())
+            throw new IOException("Invalid string length " + length);
+
+        byte[] encoded = new byte[length];
+        buffer.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static void putValue(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(VALUE_NULL);
+        } else if (value instanceof Double) {
+            buffer.put(VALUE_DOUBLE);
+            buffer.putDouble((Double) value);
+        } else if (value instanceof Long) {
+            buffer.put(VALUE_LONG);
+            buffer.putLong((Long) value);
+        } else if (value instanceof Integer) {
+            buffer.put(VALUE_INT);
+            buffer.putInt((Integer) value);
+        } else if (value instanceof Float) {
+            buffer.put(VALUE_FLOAT);
+            buffer.putFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            buffer.put(VALUE_BOOLEAN);
+            buffer.put((byte) ((Boolean) value ? 1 : 0));
+        } else {
+            buffer.put(VALUE_STRING);
+            putString(buffer, value.toString());
+        }
+    }
+
+    private static Object getValue(ByteBuffer buffer) throws IOException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_BOOLEAN:
+                return buffer.get() != 0;
+            case VALUE_INT:
+                return buffer.getInt();
+            case VALUE_LONG:
+                return buffer.getLong();
+            case VALUE_DOUBLE:
+                return buffer.getDouble();
+            case VALUE_FLOAT:
+                return buffer.getFloat();
+            case VALUE_STRING:
+                return getString(buffer);
+            default:
+                throw new IOException("Invalid value tag " + tag);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package io.github.wldt.demo.journal;
+
+import io.github.wldt.demo.executor.AdapterExecutors;
+import it.wldt.core.state.DigitalTwinStateChange;
+import it.wldt.core.state.DigitalTwinStateResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of DT State changes made of memory-mapped, fixed size segment files.
+ *
+ * Records are appended by a single writer (the journal digital adapter) with a memory copy into the mapped segment,
+ * while the durability is handled according to the {@link FsyncPolicy}: with EVERY_COMMIT all the changes of a
+ * state update are forced together by {@link #commit()}, with INTERVAL a background task forces the records written
+ * since its previous run. When a segment is full a new one is created and the oldest segments beyond the retention
+ * limit are deleted, unless they hold changes following the latest valid snapshot: those are needed to restore the
+ * DT State, so without snapshots every segment is retained.
+ *
+ * Segment files are named &lt;journalName&gt;-&lt;sequence of the first record&gt;.journal.
+ */
+public class StateChangeJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateChangeJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final JournalConfiguration configuration;
+
+    private final Path directory;
+
+    // Segment files from the oldest to the newest, the last one is the current segment
+    private final ArrayDeque<Path> segmentFiles = new ArrayDeque<>();
+
+    private final CRC32 crc32 = new CRC32();
+
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(4096);
+
+    private JournalSegment currentSegment;
+
+    private long nextSequence = 0;
+
+    // Journal sequence of the latest valid snapshot, the segments holding changes from this sequence are retained
+    private long snapshotSequence = 0;
+
+    private ScheduledFuture<?> flushTask;
+
+    private volatile long appendedCount = 0;
+
+    private final AtomicLong forcedCount = new AtomicLong(0);
+
+    public StateChangeJournal(JournalConfiguration configuration) {
+        this.configuration = configuration;
+        this.directory = Paths.get(configuration.getDirectory());
+    }
+
+    /**
+     * Opens the journal, continuing the last segment found in the directory or creating the first one
+     */
+    public synchronized void open() throws IOException {
+
+        if (currentSegment != null)
+            return;
+
+        Files.createDirectories(directory);
+        segmentFiles.addAll(listSegmentFiles(directory, configuration.getJournalName()));
+
+        StateImage snapshotImage = StateSnapshots.readLatest(configuration);
+        snapshotSequence = snapshotImage != null ? snapshotImage.getSequence() : 0;
+
+        if (segmentFiles.isEmpty()) {
+            currentSegment = createSegment(0);
+        } else {
+            currentSegment = JournalSegment.open(segmentFiles.getLast(), false);
+            long[] lastSequence = {currentSegment.getBaseSequence() - 1};
+            currentSegment.scan(record -> lastSequence[0] = record.getLong(0));
+            nextSequence = lastSequence[0] + 1;
+        }
+
+        if (configuration.getFsyncPolicy() == FsyncPolicy.INTERVAL) {
+            long intervalMs = configuration.getFsyncIntervalMs();
+            flushTask = AdapterExecutors.getScheduler().scheduleAtFixedRate(
+                    () -> AdapterExecutors.getExecutor().execute(this::flush), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        logger.info("[StateChangeJournal] -> Journal {} opened at sequence {} with {} segments", configuration.getJournalName(), nextSequence, segmentFiles.size());
+    }
+
+    /**
+     * Appends a DT State change, the record becomes durable according to the fsync policy
+     *
+     * @return the sequence number assigned to the change
+     */
+    public long append(long timestamp, DigitalTwinStateChange stateChange) throws IOException {
+        return append(timestamp, stateChange.getOperation(), stateChange.getResourceType(), stateChange.getResource());
+    }
+
+    /**
+     * Appends a DT State change given by its parts
+     *
+     * @return the sequence number assigned to the change
+     */
+    public synchronized long append(long timestamp, DigitalTwinStateChange.Operation operation,
+                                    DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateResource resource) throws IOException {
+
+        if (currentSegment == null)
+            throw new IOException("Journal " + configuration.getJournalName() + " is not open");
+
+        long sequence = nextSequence;
+        int length = encode(sequence, timestamp, operation, resourceType, resource);
+
+        crc32.reset();
+        crc32.update(encodeBuffer.array(), 0, length);
+        int crc = (int) crc32.getValue();
+
+        if (!currentSegment.append(encodeBuffer.array(), length, crc)) {
+
+            if (currentSegment.isEmpty())
+                throw new IOException("Journal record of " + length + " bytes larger than the segment size");
+
+            rollover();
+
+            if (!currentSegment.append(encodeBuffer.array(), length, crc))
+                throw new IOException("Journal record of " + length + " bytes larger than the segment size");
+        }
+
+        nextSequence = sequence + 1;
+        appendedCount++;
+        return sequence;
+    }
+
+    /**
+     * Marks the end of a group of changes (e.g. all the changes of a DT State update)
+     */
+    public void commit() {
+        if (configuration.getFsyncPolicy() == FsyncPolicy.EVERY_COMMIT)
+            flush();
+    }
+
+    /**
+     * Notifies that a snapshot of the DT State up to a journal sequence has been written, so that the segments with
+     * only older changes can be deleted by the retention
+     */
+    public synchronized void onSnapshotWritten(long sequence) throws IOException {
+        if (sequence <= snapshotSequence)
+            return;
+        snapshotSequence = sequence;
+        deleteExpiredSegments();
+    }
+
+    /**
+     * Reads the retained records with a sequence greater or equal to fromSequence, from the oldest to the newest.
+     * The journal does not need to be open, the segments are mapped read-only.
+     */
+    public static void replay(JournalConfiguration configuration, long fromSequence, JournalEntryConsumer consumer) throws IOException {
+
+        Path directory = Paths.get(configuration.getDirectory());
+        if (!Files.isDirectory(directory))
+            return;
+
+        List<Path> segmentFiles = listSegmentFiles(directory, configuration.getJournalName());
+
+        for (int i = 0; i < segmentFiles.size(); i++) {
+
+            //Segments entirely before the requested sequence are skipped without mapping them
+            if (i + 1 < segmentFiles.size() && parseBaseSequence(segmentFiles.get(i + 1)) <= fromSequence)
+                continue;
+
+            JournalSegment segment = JournalSegment.open(segmentFiles.get(i), true);
+            try {
+                segment.scan(record -> {
+                    if (record.getLong(0) >= fromSequence)
+                        consumer.accept(StateChangeCodec.decode(record));
+                });
+            } finally {
+                segment.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface JournalEntryConsumer {
+        void accept(JournalEntry journalEntry) throws IOException;
+    }
+
+    private int encode(long sequence, long timestamp, DigitalTwinStateChange.Operation operation,
+                       DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateResource resource) {
+        while (true) {
+            try {
+                encodeBuffer.clear();
+                StateChangeCodec.encode(encodeBuffer, sequence, timestamp, operation, resourceType, resource);
+                return encodeBuffer.position();
+            } catch (BufferOverflowException e) {
+                //Large resources are rare, the buffer keeps the grown size for the next records
+                encodeBuffer = ByteBuffer.allocate(encodeBuffer.capacity() * 2);
+            }
+        }
+    }
+
+    private void rollover() throws IOException {
+
+        currentSegment.close();
+        currentSegment = createSegment(nextSequence);
+
+        deleteExpiredSegments();
+    }
+
+    /**
+     * Deletes the oldest segments beyond the retention limit whose changes all precede the latest snapshot
+     */
+    private void deleteExpiredSegments() throws IOException {
+
+        while (segmentFiles.size() > Math.max(1, configuration.getRetainedSegments())) {
+
+            //The oldest segment ends right before the first sequence of the following one
+            Iterator<Path> segmentIterator = segmentFiles.iterator();
+            Path oldestSegment = segmentIterator.next();
+            if (parseBaseSequence(segmentIterator.next()) > snapshotSequence)
+                break;
+
+            segmentFiles.removeFirst();
+            Files.deleteIfExists(oldestSegment);
+            logger.info("[StateChangeJournal] -> Deleted journal segment {}", oldestSegment);
+        }
+    }
+
+    private JournalSegment createSegment(long baseSequence) throws IOException {
+        Path segmentFile = directory.resolve(String.format("%s-%020d%s", configuration.getJournalName(), baseSequence, SEGMENT_SUFFIX));
+        JournalSegment segment = JournalSegment.create(segmentFile, baseSequence, configuration.getSegmentSizeBytes());
+        segmentFiles.addLast(segmentFile);
+        return segment;
+    }
+
+    private static long parseBaseSequence(Path segmentFile) {
+        String fileName = segmentFile.getFileName().toString();
+        return Long.parseLong(fileName.substring(fileName.lastIndexOf('-') + 1, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static List<Path> listSegmentFiles(Path directory, String journalName) throws IOException {
+        String prefix = journalName + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            //The zero padded sequence keeps the lexicographic order equal to the sequence order
+            return files.filter(file -> {
+                        String fileName = file.getFileName().toString();
+                        return fileName.startsWith(prefix) && fileName.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Forces the current segment outside the journal lock, so that appends are not blocked by the fsync
+     */
+    private void flush() {
+
+        JournalSegment segment;
+        synchronized (this) {
+            segment = currentSegment;
+        }
+
+        if (segment != null) {
+            segment.force();
+            forcedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+
+        if (currentSegment != null) {
+            currentSegment.close();
+            currentSegment = null;
+        }
+
+        segmentFiles.clear();
+        logger.info("[StateChangeJournal] -> Journal {} closed at sequence {}", configuration.getJournalName(), nextSequence);
+    }
+
+    public synchronized long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    public long getAppendedCount() {
+        return appendedCount;
+    }
+
+    public long getForcedCount() {
+        return forcedCount.get();
+    }
+
+    public synchronized List<Path> getSegmentFiles() {
+        return new ArrayList<>(segmentFiles);
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.wldt.demo.journal;
+
+import it.wldt.core.state.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory image of the resources of a DT State, used to write the snapshots and to rebuild the state from a
+ * snapshot and the journal changes that follow it.
+ *
+ * The sequence is the one of the first journal change not included in the image.
+ */
+public class StateImage {
+
+    private final Map<String, DigitalTwinStateProperty<?>> properties = new LinkedHashMap<>();
+
+    private final Map<String, DigitalTwinStateEvent> events = new LinkedHashMap<>();
+
+    private final Map<String, DigitalTwinStateAction> actions = new LinkedHashMap<>();
+
+    private final Map<String, DigitalTwinStateRelationship<?>> relationships = new LinkedHashMap<>();
+
+    // Relationship instances by relationship name and instance key
+    private final Map<String, Map<String, DigitalTwinStateRelationshipInstance<?>>> relationshipInstances = new LinkedHashMap<>();
+
+    private long sequence;
+
+    public StateImage(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Copies the references to the resources of the DT State, the resources are not modified by the DT after a
+     * state update so the image can be encoded by another thread
+     */
+    public static StateImage of(DigitalTwinState digitalTwinState, long sequence) {
+
+        StateImage stateImage = new StateImage(sequence);
+
+        digitalTwinState.getPropertyList().ifPresent(propertyList -> propertyList.forEach(property -> stateImage.properties.put(property.getKey(), property)));
+        digitalTwinState.getEventList().ifPresent(eventList -> eventList.forEach(event -> stateImage.events.put(event.getKey(), event)));
+        digitalTwinState.getActionList().ifPresent(actionList -> actionList.forEach(action -> stateImage.actions.put(action.getKey(), action)));
+        digitalTwinState.getRelationshipList().ifPresent(relationshipList -> relationshipList.forEach(relationship -> {
+            stateImage.relationships.put(relationship.getName(), relationship);
+            if (relationship.getInstances() != null)
+                relationship.getInstances().forEach(stateImage::putRelationshipInstance);
+        }));
+
+        return stateImage;
+    }
+
+    /**
+     * Applies a change read from the journal
+     */
+    public void apply(JournalEntry journalEntry) {
+        applyResource(journalEntry.getResource(), journalEntry.getOperation() == DigitalTwinStateChange.Operation.OPERATION_REMOVE);
+        sequence = Math.max(sequence, journalEntry.getSequence() + 1);
+    }
+
+    /**
+     * Adds a resource read from a snapshot, the sequence of the image stays the one of the snapshot
+     */
+    void addResource(DigitalTwinStateResource resource) {
+        applyResource(resource, false);
+    }
+
+    private void applyResource(DigitalTwinStateResource resource, boolean remove) {
+
+        if (resource instanceof DigitalTwinStateProperty) {
+            DigitalTwinStateProperty<?> property = (DigitalTwinStateProperty<?>) resource;
+            if (remove)
+                properties.remove(property.getKey());
+            else
+                properties.put(property.getKey(), property);
+        } else if (resource instanceof DigitalTwinStateEvent) {
+            DigitalTwinStateEvent event = (DigitalTwinStateEvent) resource;
+            if (remove)
+                events.remove(event.getKey());
+            else
+                events.put(event.getKey(), event);
+        } else if (resource instanceof DigitalTwinStateAction) {
+            DigitalTwinStateAction action = (DigitalTwinStateAction) resource;
+            if (remove)
+                actions.remove(action.getKey());
+            else
+                actions.put(action.getKey(), action);
+        } else if (resource instanceof DigitalTwinStateRelationshipInstance) {
+            DigitalTwinStateRelationshipInstance<?> instance = (DigitalTwinStateRelationshipInstance<?>) resource;
+            if (remove) {
+                Map<String, DigitalTwinStateRelationshipInstance<?>> instances = relationshipInstances.get(instance.getRelationshipName());
+                if (instances != null)
+                    instances.remove(instance.getKey());
+            } else {
+                putRelationshipInstance(instance);
+            }
+        } else if (resource instanceof DigitalTwinStateRelationship) {
+            DigitalTwinStateRelationship<?> relationship = (DigitalTwinStateRelationship<?>) resource;
+            if (remove) {
+                relationships.remove(relationship.getName());
+                relationshipInstances.remove(relationship.getName());
+            } else {
+                relationships.put(relationship.getName(), relationship);
+            }
+        }
+    }
+
+    private void putRelationshipInstance(DigitalTwinStateRelationshipInstance<?> instance) {
+        relationshipInstances.computeIfAbsent(instance.getRelationshipName(), name -> new LinkedHashMap<>()).put(instance.getKey(), instance);
+    }
+
+    /**
+     * @return all the resources of the image, in an order that can be used to recreate them (relationships before
+     * their instances)
+     */
+    public List<DigitalTwinStateResource> getResources() {
+        List<DigitalTwinStateResource> resources = new ArrayList<>(properties.size() + events.size() + actions.size() + relationships.size());
+        resources.addAll(properties.values());
+        resources.addAll(events.values());
+        resources.addAll(actions.values());
+        resources.addAll(relationships.values());
+        relationshipInstances.values().forEach(instances -> resources.addAll(instances.values()));
+        return resources;
+    }
+
+    public boolean isEmpty() {
+        return properties.isEmpty() && events.isEmpty() && actions.isEmpty() && relationships.isEmpty();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Collection<DigitalTwinStateProperty<?>> getProperties() {
+        return properties.values();
+    }
+
+    public Collection<DigitalTwinStateEvent> getEvents() {
+        return events.values();
+    }
+
+    public Collection<DigitalTwinStateAction> getActions() {
+        return actions.values();
+    }
+
+    public Collection<DigitalTwinStateRelationship<?>> getRelationships() {
+        return relationships.values();
+    }
+
+    public Collection<DigitalTwinStateRelationshipInstance<?>> getRelationshipInstances(String relationshipName) {
+        Map<String, DigitalTwinStateRelationshipInstance<?>> instances = relationshipInstances.get(relationshipName);
+        return instances != null ? instances.values() : List.of();
+    }
+
+    public boolean containsProperty(String key) {
+        return properties.containsKey(key);
+    }
+
+    public boolean containsEvent(String key) {
+        return events.containsKey(key);
+    }
+
+    public boolean containsAction(String key) {
+        return actions.containsKey(key);
+    }
+
+    public boolean containsRelationship(String name) {
+        return relationships.containsKey(name);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("StateImage{");
+        sb.append("sequence=").append(sequence);
+        sb.append(", properties=").append(properties.size());
+        sb.append(", events=").append(events.size());
+        sb.append(", actions=").append(actions.size());
+        sb.append(", relationships=").append(relationships.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
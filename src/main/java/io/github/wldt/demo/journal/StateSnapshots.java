@@ -0,0 +1,190 @@
+package io.github.wldt.demo.journal;
+
+import it.wldt.core.state.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Compact snapshots of the DT State stored next to the journal segments.
+ *
+ * A snapshot has a header (magic, version, journal sequence, resource count, CRC32 of the records) followed by one
+ * record per resource, encoded with the {@link StateChangeCodec} as an ADD change and prefixed by its length. The
+ * snapshot is written to a temporary file that is then atomically renamed, so a crash never leaves a partial
+ * snapshot with a valid name; snapshots failing the validation are skipped in favour of the previous ones.
+ *
+ * Snapshot files are named &lt;journalName&gt;-&lt;journal sequence&gt;.snapshot.
+ */
+public final class StateSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateSnapshots.class);
+
+    static final int MAGIC = 0x57534E50;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private StateSnapshots() {
+    }
+
+    /**
+     * Writes a snapshot of the image and deletes the oldest snapshots beyond the retention limit
+     *
+     * @return the path of the written snapshot
+     */
+    public static Path write(JournalConfiguration configuration, StateImage stateImage, long timestamp) throws IOException {
+
+        Path directory = Paths.get(configuration.getDirectory());
+        Files.createDirectories(directory);
+
+        List<DigitalTwinStateResource> resources = stateImage.getResources();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(4096, resources.size() * 64));
+
+        while (true) {
+            try {
+                buffer.clear();
+                buffer.position(HEADER_SIZE);
+                for (int i = 0, size = resources.size(); i < size; i++) {
+                    int lengthPosition = buffer.position();
+                    buffer.putInt(0);
+                    DigitalTwinStateResource resource = resources.get(i);
+                    StateChangeCodec.encode(buffer, stateImage.getSequence(), timestamp,
+                            DigitalTwinStateChange.Operation.OPERATION_ADD, resourceTypeOf(resource), resource);
+                    buffer.putInt(lengthPosition, buffer.position() - lengthPosition - Integer.BYTES);
+                }
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), HEADER_SIZE, buffer.position() - HEADER_SIZE);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, stateImage.getSequence());
+        buffer.putInt(16, resources.size());
+        buffer.putInt(20, (int) crc32.getValue());
+        buffer.flip();
+
+        String fileName = String.format("%s-%020d%s", configuration.getJournalName(), stateImage.getSequence(), SNAPSHOT_SUFFIX);
+        Path snapshotFile = directory.resolve(fileName);
+        Path temporaryFile = directory.resolve(fileName + TEMPORARY_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+        }
+
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Path> snapshotFiles = listSnapshotFiles(directory, configuration.getJournalName());
+        for (int i = 0; i < snapshotFiles.size() - Math.max(1, configuration.getRetainedSnapshots()); i++)
+            Files.deleteIfExists(snapshotFiles.get(i));
+
+        return snapshotFile;
+    }
+
+    /**
+     * Reads the most recent valid snapshot
+     *
+     * @return the image of the snapshot or null if there is no valid snapshot
+     */
+    public static StateImage readLatest(JournalConfiguration configuration) throws IOException {
+
+        Path directory = Paths.get(configuration.getDirectory());
+        if (!Files.isDirectory(directory))
+            return null;
+
+        List<Path> snapshotFiles = listSnapshotFiles(directory, configuration.getJournalName());
+        snapshotFiles.sort(Comparator.reverseOrder());
+
+        for (Path snapshotFile : snapshotFiles) {
+            try {
+                return read(snapshotFile);
+            } catch (IOException e) {
+                logger.warn("[StateSnapshots] -> Skipping invalid snapshot {}: {}", snapshotFile, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads a snapshot file
+     */
+    public static StateImage read(Path snapshotFile) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Invalid snapshot header");
+
+        long sequence = buffer.getLong(8);
+        int resourceCount = buffer.getInt(16);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+        if ((int) crc32.getValue() != buffer.getInt(20))
+            throw new IOException("Invalid snapshot checksum");
+
+        StateImage stateImage = new StateImage(sequence);
+        buffer.position(HEADER_SIZE);
+
+        for (int i = 0; i < resourceCount; i++) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining())
+                throw new IOException("Invalid snapshot record length " + length);
+            stateImage.addResource(StateChangeCodec.decode(buffer.slice(buffer.position(), length)).getResource());
+            buffer.position(buffer.position() + length);
+        }
+
+        return stateImage;
+    }
+
+    private static DigitalTwinStateChange.ResourceType resourceTypeOf(DigitalTwinStateResource resource) {
+        if (resource instanceof DigitalTwinStateProperty)
+            return DigitalTwinStateChange.ResourceType.PROPERTY;
+        if (resource instanceof DigitalTwinStateEvent)
+            return DigitalTwinStateChange.ResourceType.EVENT;
+        if (resource instanceof DigitalTwinStateAction)
+            return DigitalTwinStateChange.ResourceType.ACTION;
+        if (resource instanceof DigitalTwinStateRelationshipInstance)
+            return DigitalTwinStateChange.ResourceType.RELATIONSHIP_INSTANCE;
+        return DigitalTwinStateChange.ResourceType.RELATIONSHIP;
+    }
+
+    private static List<Path> listSnapshotFiles(Path directory, String journalName) throws IOException {
+        String prefix = journalName + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            //The zero padded sequence keeps the lexicographic order equal to the sequence order
+            return files.filter(file -> {
+                        String fileName = file.getFileName().toString();
+                        return fileName.startsWith(prefix) && fileName.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
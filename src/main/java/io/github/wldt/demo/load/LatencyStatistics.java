@@ -0,0 +1,92 @@
+package io.github.wldt.demo.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency accumulator based on power-of-two buckets. Percentiles are estimated with the upper bound of
+ * the bucket containing the requested rank, so they are accurate within a factor of two.
+ */
+public class LatencyStatistics {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    // Bucket i counts the latencies in [2^(i-1), 2^i) nanoseconds, bucket 0 the latencies <= 0
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long latencyNanos) {
+
+        count.increment();
+        sumNanos.add(latencyNanos);
+
+        long currentMax;
+        while (latencyNanos > (currentMax = maxNanos.get()))
+            if (maxNanos.compareAndSet(currentMax, latencyNanos))
+                break;
+
+        buckets.incrementAndGet(latencyNanos <= 0 ? 0 : BUCKET_COUNT - Long.numberOfLeadingZeros(latencyNanos));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getAverageNanos() {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0.0 : (double) sumNanos.sum() / currentCount;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param percentile the requested percentile in [0, 100]
+     * @return the estimated latency in nanoseconds
+     */
+    public long getPercentileNanos(double percentile) {
+
+        long currentCount = count.sum();
+        if (currentCount == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(currentCount * percentile / 100.0);
+        long cumulative = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets.get(i);
+            if (cumulative >= rank)
+                return i == 0 ? 0 : Math.min(maxNanos.get(), (1L << i) - 1);
+        }
+
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        count.reset();
+        sumNanos.reset();
+        maxNanos.set(0);
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            buckets.set(i, 0);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LatencyStatistics{");
+        sb.append("count=").append(getCount());
+        sb.append(", avgMs=").append(String.format("%.3f", getAverageNanos() / 1_000_000.0));
+        sb.append(", p50Ms=").append(String.format("%.3f", getPercentileNanos(50) / 1_000_000.0));
+        sb.append(", p99Ms=").append(String.format("%.3f", getPercentileNanos(99) / 1_000_000.0));
+        sb.append(", p999Ms=").append(String.format("%.3f", getPercentileNanos(99.9) / 1_000_000.0));
+        sb.append(", maxMs=").append(String.format("%.3f", getMaxNanos() / 1_000_000.0));
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.wldt.demo.load;
+
+public enum LoadProfile {
+    // Always generate at the base rate
+    CONSTANT,
+    // Linear increase from the base rate to the peak rate over the ramp duration, then hold the peak rate
+    RAMP,
+    // Base rate with periodic bursts at the peak rate
+    BURST,
+    // Poisson arrivals with the base rate as mean rate
+    POISSON
+}
@@ -0,0 +1,111 @@
+package io.github.wldt.demo.load;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes how many messages have to be generated at each tick of a load generator according to a {@link LoadProfile}.
+ *
+ * Deterministic profiles accumulate the fractional number of messages of each tick, so that the average rate is
+ * respected also when it is lower than one message per tick. The POISSON profile draws the number of arrivals of
+ * each tick from a Poisson distribution.
+ *
+ * Not thread safe: it is meant to be used by the ticks of a single generator, that never run concurrently.
+ */
+public class LoadRateController {
+
+    private final LoadProfile loadProfile;
+
+    private final double baseRate;
+
+    private final double peakRate;
+
+    private final long rampDurationNanos;
+
+    private final long burstPeriodNanos;
+
+    private final long burstDurationNanos;
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    private double pendingMessages = 0.0;
+
+    /**
+     * @param loadProfile the load profile
+     * @param baseRate base rate in messages per second
+     * @param peakRate peak rate in messages per second (RAMP and BURST)
+     * @param rampDurationMs duration of the ramp (RAMP)
+     * @param burstPeriodMs time between the start of two bursts (BURST)
+     * @param burstDurationMs duration of each burst (BURST)
+     */
+    public LoadRateController(LoadProfile loadProfile, double baseRate, double peakRate, long rampDurationMs, long burstPeriodMs, long burstDurationMs) {
+        this.loadProfile = loadProfile;
+        this.baseRate = baseRate;
+        this.peakRate = peakRate;
+        this.rampDurationNanos = TimeUnit.MILLISECONDS.toNanos(rampDurationMs);
+        this.burstPeriodNanos = TimeUnit.MILLISECONDS.toNanos(burstPeriodMs);
+        this.burstDurationNanos = TimeUnit.MILLISECONDS.toNanos(burstDurationMs);
+    }
+
+    /**
+     * Returns the target rate (messages per second) at the given time since the start of the load
+     */
+    public double rateAt(long elapsedNanos) {
+        switch (loadProfile) {
+            case RAMP:
+                if (rampDurationNanos <= 0 || elapsedNanos >= rampDurationNanos)
+                    return peakRate;
+                return baseRate + (peakRate - baseRate) * ((double) elapsedNanos / rampDurationNanos);
+            case BURST:
+                if (burstPeriodNanos > 0 && (elapsedNanos % burstPeriodNanos) < burstDurationNanos)
+                    return peakRate;
+                return baseRate;
+            case CONSTANT:
+            case POISSON:
+            default:
+                return baseRate;
+        }
+    }
+
+    /**
+     * Returns the number of messages to generate in the tick starting at the given time
+     *
+     * @param elapsedNanos time since the start of the load
+     * @param tickNanos duration of the tick
+     */
+    public int messagesForTick(long elapsedNanos, long tickNanos) {
+
+        double expectedMessages = rateAt(elapsedNanos) * tickNanos / 1_000_000_000.0;
+
+        if (loadProfile == LoadProfile.POISSON)
+            return nextPoisson(expectedMessages);
+
+        pendingMessages += expectedMessages;
+        int messages = (int) pendingMessages;
+        pendingMessages -= messages;
+        return messages;
+    }
+
+    private int nextPoisson(double mean) {
+
+        if (mean <= 0)
+            return 0;
+
+        //Normal approximation for large means, Knuth's multiplication method otherwise
+        if (mean > 30) {
+            double gaussian = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble())) * Math.cos(2.0 * Math.PI * random.nextDouble());
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * gaussian));
+        }
+
+        double threshold = Math.exp(-mean);
+        double product = random.nextDouble();
+        int arrivals = 0;
+
+        while (product > threshold) {
+            product *= random.nextDouble();
+            arrivals++;
+        }
+
+        return arrivals;
+    }
+}
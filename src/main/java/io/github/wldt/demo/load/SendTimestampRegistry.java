@@ -0,0 +1,146 @@
+package io.github.wldt.demo.load;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the send timestamp of the property samples generated by the load generators, so that the end-to-end latency
+ * can be measured when the corresponding update reaches a Digital Adapter.
+ *
+ * The value of each generated sample is its sequence number on the property, and the send timestamp
+ * ({@link System#nanoTime()}) is stored in a per-property ring indexed by that sequence number, next to the sequence
+ * number itself. The Digital Adapter resolves the timestamp from the property key and value it receives, without any
+ * allocation on both sides. A delivered sample whose slot has already been reused by a later sample (the backlog
+ * exceeds the ring capacity) is counted as untracked instead of being matched with the timestamp of another sample.
+ *
+ * Generated events carry their send timestamp in the body, their latency is recorded in separate statistics.
+ */
+public class SendTimestampRegistry {
+
+    private static final SendTimestampRegistry instance = new SendTimestampRegistry(4096);
+
+    private final int ringCapacity;
+
+    // Each slot takes two entries: the sequence number (0 while the slot is being written) and the send timestamp
+    private final ConcurrentHashMap<String, AtomicLongArray> sendTimestamps = new ConcurrentHashMap<>();
+
+    private final Set<String> eventKeys = ConcurrentHashMap.newKeySet();
+
+    private final LatencyStatistics latencyStatistics = new LatencyStatistics();
+
+    private final LatencyStatistics eventLatencyStatistics = new LatencyStatistics();
+
+    private final LongAdder untrackedDeliveryCount = new LongAdder();
+
+    public SendTimestampRegistry(int ringCapacity) {
+        // Power of two capacity to index the ring with a mask
+        this.ringCapacity = Integer.highestOneBit(Math.max(2, ringCapacity - 1) << 1);
+    }
+
+    public static SendTimestampRegistry getInstance() {
+        return instance;
+    }
+
+    public void registerProperty(String propertyKey) {
+        sendTimestamps.computeIfAbsent(propertyKey, key -> new AtomicLongArray(ringCapacity * 2));
+    }
+
+    public boolean isRegistered(String propertyKey) {
+        return sendTimestamps.containsKey(propertyKey);
+    }
+
+    public void registerEvent(String eventKey) {
+        eventKeys.add(eventKey);
+    }
+
+    /**
+     * @param sequenceNumber the sequence number of the sample on the property, starting from 1
+     */
+    public void recordSend(String propertyKey, long sequenceNumber, long sendNanos) {
+
+        AtomicLongArray ring = sendTimestamps.get(propertyKey);
+        if (ring == null)
+            return;
+
+        int slot = (int) (sequenceNumber & (ringCapacity - 1)) << 1;
+
+        //The slot is invalidated first, so that a concurrent delivery never pairs the old sequence with the new timestamp
+        ring.set(slot, 0L);
+        ring.set(slot + 1, sendNanos);
+        ring.set(slot, sequenceNumber);
+    }
+
+    /**
+     * Resolves the send timestamp of a delivered sample and records its end-to-end latency
+     *
+     * @param propertyKey the key of the delivered property
+     * @param value the delivered value, expected to be the sequence number of the sample
+     * @return the measured latency in nanoseconds or -1 if the sample is not tracked
+     */
+    public long recordDelivery(String propertyKey, Object value) {
+
+        AtomicLongArray ring = sendTimestamps.get(propertyKey);
+
+        if (ring == null)
+            return -1;
+
+        if (!(value instanceof Number)) {
+            untrackedDeliveryCount.increment();
+            return -1;
+        }
+
+        long sequenceNumber = ((Number) value).longValue();
+        int slot = (int) (sequenceNumber & (ringCapacity - 1)) << 1;
+
+        long sendNanos = ring.get(slot + 1);
+
+        //The slot must still hold the delivered sample after the timestamp has been read
+        if (sequenceNumber <= 0 || ring.get(slot) != sequenceNumber) {
+            untrackedDeliveryCount.increment();
+            return -1;
+        }
+
+        long latencyNanos = System.nanoTime() - sendNanos;
+        latencyStatistics.record(latencyNanos);
+        return latencyNanos;
+    }
+
+    /**
+     * Records the end-to-end latency of a delivered event generated by a load generator
+     *
+     * @param eventKey the key of the delivered event
+     * @param body the delivered body, expected to be the send timestamp ({@link System#nanoTime()}) of the event
+     * @return the measured latency in nanoseconds or -1 if the event is not tracked
+     */
+    public long recordEventDelivery(String eventKey, Object body) {
+
+        if (!eventKeys.contains(eventKey))
+            return -1;
+
+        if (!(body instanceof Number)) {
+            untrackedDeliveryCount.increment();
+            return -1;
+        }
+
+        long latencyNanos = System.nanoTime() - ((Number) body).longValue();
+        eventLatencyStatistics.record(latencyNanos);
+        return latencyNanos;
+    }
+
+    public LatencyStatistics getLatencyStatistics() {
+        return latencyStatistics;
+    }
+
+    public LatencyStatistics getEventLatencyStatistics() {
+        return eventLatencyStatistics;
+    }
+
+    /**
+     * @return the number of deliveries of generated samples and events whose send timestamp could not be resolved
+     */
+    public long getUntrackedDeliveryCount() {
+        return untrackedDeliveryCount.sum();
+    }
+}
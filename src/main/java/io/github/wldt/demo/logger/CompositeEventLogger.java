@@ -0,0 +1,41 @@
+package io.github.wldt.demo.logger;
+
+import it.wldt.core.event.IWldtEventLogger;
+import it.wldt.core.event.WldtEvent;
+
+/**
+ * WLDT Event Logger forwarding every notification to a list of loggers, since the event bus accepts a single
+ * event logger. Loggers are called in order on the publishing thread.
+ */
+public class CompositeEventLogger implements IWldtEventLogger {
+
+    private final IWldtEventLogger[] eventLoggers;
+
+    public CompositeEventLogger(IWldtEventLogger... eventLoggers) {
+        this.eventLoggers = eventLoggers.clone();
+    }
+
+    @Override
+    public void logEventPublished(String publisherId, WldtEvent<?> wldtEvent) {
+        for (IWldtEventLogger eventLogger : eventLoggers)
+            eventLogger.logEventPublished(publisherId, wldtEvent);
+    }
+
+    @Override
+    public void logEventForwarded(String publisherId, String subscriberId, WldtEvent<?> wldtEvent) {
+        for (IWldtEventLogger eventLogger : eventLoggers)
+            eventLogger.logEventForwarded(publisherId, subscriberId, wldtEvent);
+    }
+
+    @Override
+    public void logClientSubscription(String eventType, String subscriberId) {
+        for (IWldtEventLogger eventLogger : eventLoggers)
+            eventLogger.logClientSubscription(eventType, subscriberId);
+    }
+
+    @Override
+    public void logClientUnSubscription(String eventType, String subscriberId) {
+        for (IWldtEventLogger eventLogger : eventLoggers)
+            eventLogger.logClientUnSubscription(eventType, subscriberId);
+    }
+}
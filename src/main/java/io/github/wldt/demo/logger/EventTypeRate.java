@@ -0,0 +1,58 @@
+package io.github.wldt.demo.logger;
+
+/**
+ * Publish and forward rates of a WLDT event type computed by the {@link RingBufferEventRecorder} between two
+ * consecutive rate snapshots
+ */
+public class EventTypeRate {
+
+    private final String eventType;
+
+    private final long publishedCount;
+
+    private final long forwardedCount;
+
+    private final double publishedPerSecond;
+
+    private final double forwardedPerSecond;
+
+    public EventTypeRate(String eventType, long publishedCount, long forwardedCount, double publishedPerSecond, double forwardedPerSecond) {
+        this.eventType = eventType;
+        this.publishedCount = publishedCount;
+        this.forwardedCount = forwardedCount;
+        this.publishedPerSecond = publishedPerSecond;
+        this.forwardedPerSecond = forwardedPerSecond;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    public long getForwardedCount() {
+        return forwardedCount;
+    }
+
+    public double getPublishedPerSecond() {
+        return publishedPerSecond;
+    }
+
+    public double getForwardedPerSecond() {
+        return forwardedPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("EventTypeRate{");
+        sb.append("eventType='").append(eventType).append('\'');
+        sb.append(", publishedCount=").append(publishedCount);
+        sb.append(", forwardedCount=").append(forwardedCount);
+        sb.append(", publishedPerSecond=").append(String.format("%.1f", publishedPerSecond));
+        sb.append(", forwardedPerSecond=").append(String.format("%.1f", forwardedPerSecond));
+        sb.append('}');
+        return sb.toString();
+    }
+}
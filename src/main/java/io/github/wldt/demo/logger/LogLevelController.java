@@ -0,0 +1,78 @@
+package io.github.wldt.demo.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import io.github.wldt.demo.utils.GlobalKeywords;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Runtime control of the log levels of the demo subsystems.
+ *
+ * Levels can be changed from code, from the system properties wldt.demo.log.level.&lt;subsystem&gt; (e.g.
+ * -Dwldt.demo.log.level.shadowing=DEBUG) applied at startup, or through JMX thanks to the jmxConfigurator of
+ * logback.xml.
+ */
+public final class LogLevelController {
+
+    public enum Subsystem {
+        SHADOWING("io.github.wldt.demo.DemoShadowingFunction", "io.github.wldt.demo.shadowing"),
+        PHYSICAL("io.github.wldt.demo.physical"),
+        DIGITAL("io.github.wldt.demo.digital"),
+        MONITORING("io.github.wldt.demo.monitoring"),
+        LOAD("io.github.wldt.demo.load"),
+        FLEET("io.github.wldt.demo.DemoDigitalTwinFleet"),
+        WLDT("it.wldt");
+
+        private final String[] loggerNames;
+
+        Subsystem(String... loggerNames) {
+            this.loggerNames = loggerNames;
+        }
+
+        public String[] getLoggerNames() {
+            return loggerNames;
+        }
+    }
+
+    private LogLevelController() {
+    }
+
+    /**
+     * Sets the level of all the loggers of the subsystem
+     *
+     * @param level the new level, null to inherit the level of the parent loggers
+     */
+    public static void setLevel(Subsystem subsystem, Level level) {
+        LoggerContext loggerContext = getLoggerContext();
+        if (loggerContext == null)
+            return;
+        for (String loggerName : subsystem.getLoggerNames())
+            loggerContext.getLogger(loggerName).setLevel(level);
+    }
+
+    public static Level getLevel(Subsystem subsystem) {
+        LoggerContext loggerContext = getLoggerContext();
+        if (loggerContext == null)
+            return null;
+        return loggerContext.getLogger(subsystem.getLoggerNames()[0]).getEffectiveLevel();
+    }
+
+    /**
+     * Applies the levels configured through the wldt.demo.log.level.&lt;subsystem&gt; system properties
+     */
+    public static void applySystemProperties() {
+        for (Subsystem subsystem : Subsystem.values()) {
+            String value = System.getProperty(GlobalKeywords.LOG_LEVEL_PROPERTY_PREFIX + subsystem.name().toLowerCase(Locale.ROOT));
+            if (value != null)
+                setLevel(subsystem, Level.toLevel(value, null));
+        }
+    }
+
+    private static LoggerContext getLoggerContext() {
+        ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+        return loggerFactory instanceof LoggerContext ? (LoggerContext) loggerFactory : null;
+    }
+}
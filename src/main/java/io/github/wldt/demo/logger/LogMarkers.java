@@ -0,0 +1,17 @@
+package io.github.wldt.demo.logger;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Markers used to classify the log messages of the demo
+ */
+public final class LogMarkers {
+
+    // Messages logged for every single event flowing through the DT (property variations, state updates, ...)
+    // They are rate limited by the PerEventRateLimitFilter
+    public static final Marker PER_EVENT = MarkerFactory.getMarker("PER_EVENT");
+
+    private LogMarkers() {
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.wldt.demo.logger;
+
+import io.github.wldt.demo.monitoring.DoubleHistogramHandle;
+import io.github.wldt.demo.monitoring.OpenTelemetryWLDTMonitoring;
+import io.github.wldt.demo.utils.GlobalKeywords;
+import it.wldt.core.event.IWldtEventLogger;
+import it.wldt.core.event.WldtEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WLDT Event Logger producing metrics about the traffic of the event bus:
+ *
+ * - published events for each event type
+ * - forwarded events for each event type and for each subscriber
+ * - fan-out factor of each event type (forwarded / published) and active subscriptions
+ * - publish-to-forward lag, as histogram and as average for each subscriber to spot the slow ones
+ *
+ * Counters are LongAdders so that concurrent publishers update different cells instead of contending on the same
+ * value. The metrics are exported through {@link OpenTelemetryWLDTMonitoring} and computed only at collection time.
+ */
+public class MetricsEventLogger implements IWldtEventLogger {
+
+    public static final String PUBLISHED_METRIC = "wldt.eventbus.published";
+    public static final String FORWARDED_METRIC = "wldt.eventbus.forwarded";
+    public static final String SUBSCRIBER_FORWARDED_METRIC = "wldt.eventbus.subscriber.forwarded";
+    public static final String FAN_OUT_METRIC = "wldt.eventbus.fanout";
+    public static final String SUBSCRIPTIONS_METRIC = "wldt.eventbus.subscriptions";
+    public static final String FORWARD_LAG_METRIC = "wldt.eventbus.forward.lag";
+    public static final String SUBSCRIBER_FORWARD_LAG_METRIC = "wldt.eventbus.subscriber.forward.lag";
+
+    public static final String EVENT_TYPE_ATTRIBUTE = "event.type";
+    public static final String SUBSCRIBER_ATTRIBUTE = "subscriber.id";
+
+    private final ConcurrentHashMap<String, LongAdder> publishedByType = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LongAdder> forwardedByType = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LongAdder> forwardedBySubscriber = new ConcurrentHashMap<>();
+
+    // Sum of the publish-to-forward lag (ms) for each subscriber, to compute the average lag
+    private final ConcurrentHashMap<String, LongAdder> forwardLagBySubscriber = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LongAdder> subscriptionsByType = new ConcurrentHashMap<>();
+
+    private final DoubleHistogramHandle forwardLagHistogram;
+
+    public MetricsEventLogger() {
+        this(new OpenTelemetryWLDTMonitoring());
+    }
+
+    public MetricsEventLogger(OpenTelemetryWLDTMonitoring otMetricExporter) {
+
+        this.forwardLagHistogram = otMetricExporter.registerDoubleHistogram(FORWARD_LAG_METRIC, "ms", GlobalKeywords.LATENCY_HISTOGRAM_BUCKETS_MS);
+
+        otMetricExporter.addObservableLongCounter(PUBLISHED_METRIC, EVENT_TYPE_ATTRIBUTE, () -> sums(publishedByType));
+        otMetricExporter.addObservableLongCounter(FORWARDED_METRIC, EVENT_TYPE_ATTRIBUTE, () -> sums(forwardedByType));
+        otMetricExporter.addObservableLongCounter(SUBSCRIBER_FORWARDED_METRIC, SUBSCRIBER_ATTRIBUTE, () -> sums(forwardedBySubscriber));
+        otMetricExporter.addObservableDoubleGauge(FAN_OUT_METRIC, EVENT_TYPE_ATTRIBUTE, this::getFanOutFactors);
+        otMetricExporter.addObservableDoubleGauge(SUBSCRIPTIONS_METRIC, EVENT_TYPE_ATTRIBUTE, () -> toDoubles(sums(subscriptionsByType)));
+        otMetricExporter.addObservableDoubleGauge(SUBSCRIBER_FORWARD_LAG_METRIC, SUBSCRIBER_ATTRIBUTE, this::getAverageForwardLags);
+    }
+
+    @Override
+    public void logEventPublished(String publisherId, WldtEvent<?> wldtEvent) {
+        counter(publishedByType, wldtEvent.getType()).increment();
+    }
+
+    @Override
+    public void logEventForwarded(String publisherId, String subscriberId, WldtEvent<?> wldtEvent) {
+
+        long lagMs = Math.max(0, System.currentTimeMillis() - wldtEvent.getCreationTimestamp());
+
+        counter(forwardedByType, wldtEvent.getType()).increment();
+        counter(forwardedBySubscriber, subscriberId).increment();
+        counter(forwardLagBySubscriber, subscriberId).add(lagMs);
+
+        forwardLagHistogram.record(lagMs);
+    }
+
+    @Override
+    public void logClientSubscription(String eventType, String subscriberId) {
+        counter(subscriptionsByType, eventType).increment();
+    }
+
+    @Override
+    public void logClientUnSubscription(String eventType, String subscriberId) {
+        counter(subscriptionsByType, eventType).decrement();
+    }
+
+    private static LongAdder counter(ConcurrentHashMap<String, LongAdder> counters, String key) {
+        //The mapping function does not capture anything, so hits on existing keys do not allocate
+        return counters.computeIfAbsent(key != null ? key : "", k -> new LongAdder());
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> values = new HashMap<>(counters.size() * 2);
+        counters.forEach((key, counter) -> values.put(key, counter.sum()));
+        return values;
+    }
+
+    private static Map<String, Double> toDoubles(Map<String, Long> values) {
+        Map<String, Double> doubles = new HashMap<>(values.size() * 2);
+        values.forEach((key, value) -> doubles.put(key, value.doubleValue()));
+        return doubles;
+    }
+
+    /**
+     * @return the average number of subscribers receiving each published event, for each event type
+     */
+    public Map<String, Double> getFanOutFactors() {
+        Map<String, Double> fanOutFactors = new HashMap<>();
+        publishedByType.forEach((eventType, published) -> {
+            long publishedCount = published.sum();
+            LongAdder forwarded = forwardedByType.get(eventType);
+            if (publishedCount > 0 && forwarded != null)
+                fanOutFactors.put(eventType, (double) forwarded.sum() / publishedCount);
+        });
+        return fanOutFactors;
+    }
+
+    /**
+     * @return the average publish-to-forward lag in ms, for each subscriber
+     */
+    public Map<String, Double> getAverageForwardLags() {
+        Map<String, Double> averageLags = new HashMap<>();
+        forwardLagBySubscriber.forEach((subscriberId, lag) -> {
+            LongAdder forwarded = forwardedBySubscriber.get(subscriberId);
+            long forwardedCount = forwarded != null ? forwarded.sum() : 0;
+            if (forwardedCount > 0)
+                averageLags.put(subscriberId, (double) lag.sum() / forwardedCount);
+        });
+        return averageLags;
+    }
+
+    public long getPublishedCount(String eventType) {
+        LongAdder published = publishedByType.get(eventType);
+        return published != null ? published.sum() : 0;
+    }
+
+    public long getForwardedCount(String subscriberId) {
+        LongAdder forwarded = forwardedBySubscriber.get(subscriberId);
+        return forwarded != null ? forwarded.sum() : 0;
+    }
+}
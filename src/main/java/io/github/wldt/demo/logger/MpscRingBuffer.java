@@ -0,0 +1,112 @@
+package io.github.wldt.demo.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring buffer with multiple producers and a single consumer.
+ *
+ * Each slot has a sequence number telling whether it is free for the producer of a given position or filled for the
+ * consumer: producers claim a position with a CAS on the tail and publish the element by advancing the slot
+ * sequence, the consumer releases the slot by moving its sequence one lap ahead. No locks are taken and offers on a
+ * full buffer fail immediately, leaving the overflow policy to the caller.
+ *
+ * @param <E> the type of the buffered elements
+ */
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+
+    private final Object[] elements;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong(0);
+
+    // Written only by the consumer thread, volatile to read the size from other threads
+    private volatile long head = 0;
+
+    /**
+     * @param capacity requested capacity, rounded up to the next power of two
+     */
+    public MpscRingBuffer(int capacity) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Ring buffer capacity must be positive: " + capacity);
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * Adds an element to the buffer, can be called by any thread
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+
+        while (true) {
+
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                //The slot has not been released by the consumer yet
+                return false;
+            }
+            //Otherwise another producer claimed the position, retry with the new tail
+        }
+    }
+
+    /**
+     * Removes the oldest element, must be called only by the consumer thread
+     *
+     * @return the element or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+
+        long position = head;
+        int index = (int) (position & mask);
+
+        if (sequences.get(index) != position + 1)
+            return null;
+
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, position + elements.length);
+        head = position + 1;
+
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of buffered elements (approximated while producers are active)
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head, elements.length));
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.wldt.demo.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turbo filter limiting the messages marked with {@link LogMarkers#PER_EVENT}.
+ *
+ * Each logger can emit up to maxEventsPerSecond marked messages per second. Beyond the limit the messages are
+ * denied before being formatted, except one every sampleEvery messages (0 disables the sampling) so that a trace of
+ * the activity is kept under load. Messages without the marker are not affected.
+ */
+public class PerEventRateLimitFilter extends TurboFilter {
+
+    public static final int DEFAULT_MAX_EVENTS_PER_SECOND = 100;
+
+    public static final int DEFAULT_SAMPLE_EVERY = 1000;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, RateWindow> rateWindows = new ConcurrentHashMap<>();
+
+    private final LongAdder suppressedCount = new LongAdder();
+
+    private int maxEventsPerSecond = DEFAULT_MAX_EVENTS_PER_SECOND;
+
+    private int sampleEvery = DEFAULT_SAMPLE_EVERY;
+
+    private static final class RateWindow {
+
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+        private final AtomicLong count = new AtomicLong(0);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+
+        if (!isStarted() || marker == null || !marker.contains(LogMarkers.PER_EVENT))
+            return FilterReply.NEUTRAL;
+
+        //Disabled messages are discarded by the level check and must not consume the rate of the logger
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel()))
+            return FilterReply.NEUTRAL;
+
+        RateWindow rateWindow = rateWindows.computeIfAbsent(logger.getName(), name -> new RateWindow());
+
+        long now = System.nanoTime();
+        long windowStart = rateWindow.windowStart.get();
+        if (now - windowStart >= WINDOW_NANOS && rateWindow.windowStart.compareAndSet(windowStart, now))
+            rateWindow.count.set(0);
+
+        long count = rateWindow.count.incrementAndGet();
+
+        if (count <= maxEventsPerSecond)
+            return FilterReply.NEUTRAL;
+
+        if (sampleEvery > 0 && (count - maxEventsPerSecond) % sampleEvery == 0)
+            return FilterReply.NEUTRAL;
+
+        suppressedCount.increment();
+        return FilterReply.DENY;
+    }
+
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    public int getMaxEventsPerSecond() {
+        return maxEventsPerSecond;
+    }
+
+    public void setMaxEventsPerSecond(int maxEventsPerSecond) {
+        this.maxEventsPerSecond = maxEventsPerSecond;
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+}
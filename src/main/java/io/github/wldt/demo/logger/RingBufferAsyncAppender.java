@@ -0,0 +1,260 @@
+package io.github.wldt.demo.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logback appender decoupling the logging threads from the attached appenders through a {@link MpscRingBuffer}.
+ *
+ * Logging threads only prepare the event for deferred processing and put it in the ring buffer, a single drain
+ * thread forwards the buffered events to the attached appenders in batches. When the buffer is full the events
+ * below WARN are dropped (and counted), while WARN and ERROR events wait for free space unless neverBlock is set.
+ *
+ * Example configuration:
+ *
+ *     &lt;appender name="ASYNC" class="io.github.wldt.demo.logger.RingBufferAsyncAppender"&gt;
+ *         &lt;bufferSize&gt;8192&lt;/bufferSize&gt;
+ *         &lt;appender-ref ref="STDOUT"/&gt;
+ *     &lt;/appender&gt;
+ */
+public class RingBufferAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    public static final int DEFAULT_MAX_FLUSH_TIME_MS = 1000;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long FULL_BUFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int maxFlushTimeMs = DEFAULT_MAX_FLUSH_TIME_MS;
+
+    private boolean neverBlock = false;
+
+    private boolean includeCallerData = false;
+
+    private MpscRingBuffer<ILoggingEvent> ringBuffer;
+
+    private Thread drainThread;
+
+    private volatile boolean running = false;
+
+    private volatile boolean drainWaiting = false;
+
+    private int appenderCount = 0;
+
+    @Override
+    public void start() {
+
+        if (isStarted())
+            return;
+
+        if (appenderCount == 0) {
+            addError("No attached appenders found for the appender named [" + name + "]");
+            return;
+        }
+
+        if (bufferSize < 1 || batchSize < 1) {
+            addError("Invalid bufferSize " + bufferSize + " or batchSize " + batchSize);
+            return;
+        }
+
+        ringBuffer = new MpscRingBuffer<>(bufferSize);
+        running = true;
+
+        drainThread = new Thread(this::drain, "logback-ring-buffer-" + getName());
+        drainThread.setDaemon(true);
+        drainThread.start();
+
+        addInfo("Ring buffer of " + ringBuffer.capacity() + " events started for the appender named [" + name + "]");
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+
+        if (!isStarted())
+            return;
+
+        super.stop();
+
+        //Let the drain thread forward the buffered events before stopping the attached appenders
+        running = false;
+        LockSupport.unpark(drainThread);
+
+        try {
+            drainThread.join(maxFlushTimeMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (drainThread.isAlive())
+            addWarn("Drain thread still running after " + maxFlushTimeMs + " ms, " + ringBuffer.size() + " events discarded");
+
+        if (droppedCount.sum() > 0)
+            addInfo(droppedCount.sum() + " events dropped by the appender named [" + name + "] on full ring buffer");
+
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+
+        //Message formatting, MDC and thread name must be captured on the logging thread
+        event.prepareForDeferredProcessing();
+        if (includeCallerData)
+            event.getCallerData();
+
+        if (!ringBuffer.offer(event)) {
+
+            if (neverBlock || !event.getLevel().isGreaterOrEqual(Level.WARN)) {
+                droppedCount.increment();
+                return;
+            }
+
+            while (!ringBuffer.offer(event)) {
+                if (!running) {
+                    droppedCount.increment();
+                    return;
+                }
+                LockSupport.unpark(drainThread);
+                LockSupport.parkNanos(FULL_BUFFER_PARK_NANOS);
+            }
+        }
+
+        if (drainWaiting)
+            LockSupport.unpark(drainThread);
+    }
+
+    private void drain() {
+
+        while (running || !ringBuffer.isEmpty()) {
+
+            int forwarded = 0;
+            ILoggingEvent event;
+
+            while (forwarded < batchSize && (event = ringBuffer.poll()) != null) {
+                try {
+                    appenders.appendLoopOnAppenders(event);
+                } catch (RuntimeException e) {
+                    addError("Error forwarding the event to the attached appenders", e);
+                }
+                forwarded++;
+            }
+
+            if (forwarded == 0) {
+                //The timeout bounds the delay of a wake up missed between the check and the park
+                drainWaiting = true;
+                if (running && ringBuffer.isEmpty())
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                else if (!running)
+                    Thread.onSpinWait();
+                drainWaiting = false;
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public int getBufferedCount() {
+        return ringBuffer != null ? ringBuffer.size() : 0;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxFlushTimeMs() {
+        return maxFlushTimeMs;
+    }
+
+    public void setMaxFlushTimeMs(int maxFlushTimeMs) {
+        this.maxFlushTimeMs = maxFlushTimeMs;
+    }
+
+    public boolean isNeverBlock() {
+        return neverBlock;
+    }
+
+    public void setNeverBlock(boolean neverBlock) {
+        this.neverBlock = neverBlock;
+    }
+
+    public boolean isIncludeCallerData() {
+        return includeCallerData;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        addInfo("Attaching appender named [" + newAppender.getName() + "] to " + this);
+        appenderCount++;
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,396 @@
+package io.github.wldt.demo.logger;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+import it.wldt.core.event.IWldtEventLogger;
+import it.wldt.core.event.WldtEvent;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * WLDT Event Logger recording the traffic of the event bus as fixed size binary records in a preallocated off-heap
+ * ring buffer.
+ *
+ * Each record is RECORD_SIZE bytes long:
+ *
+ *     offset  0  long  timestamp (System.nanoTime())
+ *     offset  8  int   publisher id
+ *     offset 12  int   subscriber id (0 if not applicable)
+ *     offset 16  int   event type id
+ *     offset 20  int   payload size in bytes (-1 if unknown)
+ *     offset 24  int   low 32 bits of the record sequence, written last to mark the record as complete
+ *     offset 28  byte  record kind (published, forwarded, subscription, unsubscription)
+ *
+ * Publisher, subscriber and event type strings are interned to int ids the first time they are seen. Recording
+ * claims a slot with a single atomic increment and overwrites the oldest records when the buffer is full, so the
+ * publishing threads never block and do not allocate once the ids are known.
+ *
+ * The buffer can be dumped to a file on demand ({@link #dump(Path)}) or when an uncaught exception terminates a
+ * thread ({@link #dumpOnUncaughtException(Path)}).
+ */
+public class RingBufferEventRecorder implements IWldtEventLogger {
+
+    public static final int RECORD_SIZE = 32;
+
+    public static final byte KIND_PUBLISHED = 1;
+    public static final byte KIND_FORWARDED = 2;
+    public static final byte KIND_SUBSCRIPTION = 3;
+    public static final byte KIND_UNSUBSCRIPTION = 4;
+
+    // Ids beyond the limit are recorded as OVERFLOW_ID, 0 is used for the missing values
+    public static final int MAX_INTERNED_IDS = 65536;
+    public static final int NO_ID = 0;
+    public static final int OVERFLOW_ID = 1;
+
+    private static final byte[] DUMP_MAGIC = "WLDTEVR1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int TIMESTAMP_OFFSET = 0;
+    private static final int PUBLISHER_OFFSET = 8;
+    private static final int SUBSCRIBER_OFFSET = 12;
+    private static final int EVENT_TYPE_OFFSET = 16;
+    private static final int PAYLOAD_SIZE_OFFSET = 20;
+    private static final int SEQUENCE_OFFSET = 24;
+    private static final int KIND_OFFSET = 28;
+
+    private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final AtomicLong nextSequence = new AtomicLong(0);
+
+    private final ConcurrentHashMap<String, Integer> internedIds = new ConcurrentHashMap<>();
+
+    private volatile String[] idNames = new String[256];
+
+    private int nextId = OVERFLOW_ID + 1;
+
+    // Counters per event type id, used to compute the publish and forward rates
+    private final AtomicLongArray publishedCounts = new AtomicLongArray(MAX_INTERNED_IDS);
+    private final AtomicLongArray forwardedCounts = new AtomicLongArray(MAX_INTERNED_IDS);
+
+    private long[] previousPublishedCounts = new long[0];
+    private long[] previousForwardedCounts = new long[0];
+    private long previousRateSnapshotNanos = System.nanoTime();
+
+    // Reference to convert the recorded nanoTime values to wall clock instants
+    private final long startEpochMillis = System.currentTimeMillis();
+    private final long startNanoTime = System.nanoTime();
+
+    public RingBufferEventRecorder() {
+        this(GlobalKeywords.EVENT_RECORDER_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of records of the ring buffer, rounded up to the next power of two
+     */
+    public RingBufferEventRecorder(int capacity) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Recorder capacity must be positive: " + capacity);
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = ByteBuffer.allocateDirect(size * RECORD_SIZE).order(ByteOrder.nativeOrder());
+
+        //Sequence 0 must not look like a complete record
+        for (int i = 0; i < size; i++)
+            INT_VIEW.set(buffer, i * RECORD_SIZE + SEQUENCE_OFFSET, -1);
+
+        idNames[NO_ID] = "";
+        idNames[OVERFLOW_ID] = "<overflow>";
+    }
+
+    @Override
+    public void logEventPublished(String publisherId, WldtEvent<?> wldtEvent) {
+        int eventTypeId = internId(wldtEvent.getType());
+        if (eventTypeId > OVERFLOW_ID)
+            publishedCounts.incrementAndGet(eventTypeId);
+        record(KIND_PUBLISHED, internId(publisherId), NO_ID, eventTypeId, payloadSize(wldtEvent.getBody()));
+    }
+
+    @Override
+    public void logEventForwarded(String publisherId, String subscriberId, WldtEvent<?> wldtEvent) {
+        int eventTypeId = internId(wldtEvent.getType());
+        if (eventTypeId > OVERFLOW_ID)
+            forwardedCounts.incrementAndGet(eventTypeId);
+        record(KIND_FORWARDED, internId(publisherId), internId(subscriberId), eventTypeId, payloadSize(wldtEvent.getBody()));
+    }
+
+    @Override
+    public void logClientSubscription(String eventType, String subscriberId) {
+        record(KIND_SUBSCRIPTION, NO_ID, internId(subscriberId), internId(eventType), -1);
+    }
+
+    @Override
+    public void logClientUnSubscription(String eventType, String subscriberId) {
+        record(KIND_UNSUBSCRIPTION, NO_ID, internId(subscriberId), internId(eventType), -1);
+    }
+
+    private void record(byte kind, int publisherId, int subscriberId, int eventTypeId, int payloadSize) {
+
+        long sequence = nextSequence.getAndIncrement();
+        int offset = (int) (sequence & mask) * RECORD_SIZE;
+
+        //Invalidate the slot while it is rewritten, then publish the new sequence once the record is complete
+        INT_VIEW.setRelease(buffer, offset + SEQUENCE_OFFSET, -1);
+
+        buffer.putLong(offset + TIMESTAMP_OFFSET, System.nanoTime());
+        buffer.putInt(offset + PUBLISHER_OFFSET, publisherId);
+        buffer.putInt(offset + SUBSCRIBER_OFFSET, subscriberId);
+        buffer.putInt(offset + EVENT_TYPE_OFFSET, eventTypeId);
+        buffer.putInt(offset + PAYLOAD_SIZE_OFFSET, payloadSize);
+        buffer.put(offset + KIND_OFFSET, kind);
+
+        INT_VIEW.setRelease(buffer, offset + SEQUENCE_OFFSET, (int) sequence);
+    }
+
+    private int internId(String name) {
+
+        if (name == null)
+            return NO_ID;
+
+        Integer id = internedIds.get(name);
+        if (id != null)
+            return id;
+
+        return internNewId(name);
+    }
+
+    private synchronized int internNewId(String name) {
+
+        Integer id = internedIds.get(name);
+        if (id != null)
+            return id;
+
+        if (nextId >= MAX_INTERNED_IDS)
+            return OVERFLOW_ID;
+
+        int newId = nextId++;
+
+        String[] names = idNames;
+        if (newId >= names.length)
+            names = Arrays.copyOf(names, Math.min(names.length * 2, MAX_INTERNED_IDS));
+        names[newId] = name;
+        idNames = names;
+
+        internedIds.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * Size in bytes of the most common payloads, -1 when it can not be estimated without serializing the body
+     */
+    private static int payloadSize(Object body) {
+        if (body == null)
+            return 0;
+        if (body instanceof byte[])
+            return ((byte[]) body).length;
+        if (body instanceof CharSequence)
+            return ((CharSequence) body).length();
+        if (body instanceof Long || body instanceof Double)
+            return Long.BYTES;
+        if (body instanceof Integer || body instanceof Float)
+            return Integer.BYTES;
+        if (body instanceof Short)
+            return Short.BYTES;
+        if (body instanceof Byte || body instanceof Boolean)
+            return Byte.BYTES;
+        return -1;
+    }
+
+    /**
+     * Returns the name associated to an interned id
+     */
+    public String getName(int id) {
+        String[] names = idNames;
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    public long getRecordedCount() {
+        return nextSequence.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Computes the publish and forward rate of each event type since the previous call
+     */
+    public synchronized List<EventTypeRate> snapshotRates() {
+
+        long now = System.nanoTime();
+        double elapsedSeconds = Math.max(1, now - previousRateSnapshotNanos) / 1_000_000_000.0;
+
+        List<EventTypeRate> rates = new ArrayList<>();
+
+        //Interning is guarded by the same lock
+        int idCount = nextId;
+
+        long[] currentPublished = new long[idCount];
+        long[] currentForwarded = new long[idCount];
+
+        for (int id = OVERFLOW_ID + 1; id < idCount; id++) {
+
+            currentPublished[id] = publishedCounts.get(id);
+            currentForwarded[id] = forwardedCounts.get(id);
+
+            if (currentPublished[id] == 0 && currentForwarded[id] == 0)
+                continue;
+
+            long previousPublished = id < previousPublishedCounts.length ? previousPublishedCounts[id] : 0;
+            long previousForwarded = id < previousForwardedCounts.length ? previousForwardedCounts[id] : 0;
+
+            rates.add(new EventTypeRate(getName(id),
+                    currentPublished[id],
+                    currentForwarded[id],
+                    (currentPublished[id] - previousPublished) / elapsedSeconds,
+                    (currentForwarded[id] - previousForwarded) / elapsedSeconds));
+        }
+
+        previousPublishedCounts = currentPublished;
+        previousForwardedCounts = currentForwarded;
+        previousRateSnapshotNanos = now;
+
+        return rates;
+    }
+
+    /**
+     * Writes the records currently available in the ring buffer to a file, from the oldest to the newest.
+     *
+     * The file starts with the magic "WLDTEVR1", the record size, the number of records, the wall clock and
+     * nanoTime reference instants and the table of the interned names (count followed by id, length and UTF-8 bytes
+     * of each name), followed by the records in the in-memory layout. Records overwritten while dumping are skipped.
+     *
+     * @return the number of dumped records
+     */
+    public int dump(Path file) throws IOException {
+
+        long lastSequence = nextSequence.get();
+        long firstSequence = Math.max(0, lastSequence - capacity);
+
+        ByteBuffer records = ByteBuffer.allocate((int) (lastSequence - firstSequence) * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer source = buffer.duplicate().order(ByteOrder.nativeOrder());
+
+        int recordCount = 0;
+
+        for (long sequence = firstSequence; sequence < lastSequence; sequence++) {
+
+            int offset = (int) (sequence & mask) * RECORD_SIZE;
+
+            if ((int) INT_VIEW.getAcquire(buffer, offset + SEQUENCE_OFFSET) != (int) sequence)
+                continue;
+
+            source.get(offset, record);
+
+            //The slot may have been rewritten while copying it
+            if ((int) INT_VIEW.getAcquire(buffer, offset + SEQUENCE_OFFSET) != (int) sequence)
+                continue;
+
+            records.put(record);
+            recordCount++;
+        }
+
+        records.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(createDumpHeader(recordCount));
+            while (records.hasRemaining())
+                channel.write(records);
+        }
+
+        return recordCount;
+    }
+
+    private ByteBuffer createDumpHeader(int recordCount) {
+
+        Collection<Map.Entry<String, Integer>> names = new ArrayList<>(internedIds.entrySet());
+
+        int namesSize = Integer.BYTES;
+        List<byte[]> encodedNames = new ArrayList<>(names.size());
+        for (Map.Entry<String, Integer> name : names) {
+            byte[] encodedName = name.getKey().getBytes(StandardCharsets.UTF_8);
+            encodedNames.add(encodedName);
+            namesSize += 2 * Integer.BYTES + encodedName.length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(DUMP_MAGIC.length + 2 * Integer.BYTES + 2 * Long.BYTES + namesSize).order(ByteOrder.nativeOrder());
+        header.put(DUMP_MAGIC);
+        header.putInt(RECORD_SIZE);
+        header.putInt(recordCount);
+        header.putLong(startEpochMillis);
+        header.putLong(startNanoTime);
+        header.putInt(names.size());
+
+        int index = 0;
+        for (Map.Entry<String, Integer> name : names) {
+            byte[] encodedName = encodedNames.get(index++);
+            header.putInt(name.getValue());
+            header.putInt(encodedName.length);
+            header.put(encodedName);
+        }
+
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Dumps the ring buffer to a new file of the directory when an uncaught exception terminates a thread,
+     * then delegates to the previous default handler
+     */
+    public void dumpOnUncaughtException(Path directory) {
+
+        Thread.UncaughtExceptionHandler previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
+            dumpOnError(directory);
+            if (previousHandler != null)
+                previousHandler.uncaughtException(thread, throwable);
+            else
+                throwable.printStackTrace();
+        });
+    }
+
+    /**
+     * Dumps the ring buffer to a new timestamped file of the directory, errors are only reported on stderr
+     *
+     * @return the dump file or null if the dump failed
+     */
+    public Path dumpOnError(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(String.format("wldt-events-%d.bin", System.currentTimeMillis()));
+            int recordCount = dump(file);
+            System.err.println("[RingBufferEventRecorder] -> Dumped " + recordCount + " records to " + file);
+            return file;
+        } catch (IOException e) {
+            System.err.println("[RingBufferEventRecorder] -> Error dumping the records: " + e.getMessage());
+            return null;
+        }
+    }
+}
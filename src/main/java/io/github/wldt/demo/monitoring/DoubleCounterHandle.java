@@ -0,0 +1,35 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleCounter;
+
+/**
+ * Pre-resolved handle of a DoubleCounter metric. Recording through the handle takes a primitive value and does not
+ * require any lookup by metric name, so it can be used on hot paths without allocations.
+ */
+public final class DoubleCounterHandle {
+
+    private final String metricName;
+
+    private final DoubleCounter doubleCounter;
+
+    // Attributes of the monitoring scope (e.g. the twin id), recorded with every value
+    private final Attributes attributes;
+
+    DoubleCounterHandle(String metricName, DoubleCounter doubleCounter, Attributes attributes) {
+        this.metricName = metricName;
+        this.doubleCounter = doubleCounter;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Adds the given amount to the counter
+     */
+    public void add(double value) {
+        doubleCounter.add(value, attributes);
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
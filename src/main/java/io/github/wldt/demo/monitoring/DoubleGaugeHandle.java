@@ -0,0 +1,35 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleGauge;
+
+/**
+ * Pre-resolved handle of a DoubleGauge metric. Recording through the handle takes a primitive value and does not
+ * require any lookup by metric name, so it can be used on hot paths without allocations.
+ */
+public final class DoubleGaugeHandle {
+
+    private final String metricName;
+
+    private final DoubleGauge doubleGauge;
+
+    // Attributes of the monitoring scope (e.g. the twin id), recorded with every value
+    private final Attributes attributes;
+
+    DoubleGaugeHandle(String metricName, DoubleGauge doubleGauge, Attributes attributes) {
+        this.metricName = metricName;
+        this.doubleGauge = doubleGauge;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Sets the current value of the gauge
+     */
+    public void set(double value) {
+        doubleGauge.set(value, attributes);
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
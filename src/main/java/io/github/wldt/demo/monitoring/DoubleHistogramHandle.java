@@ -0,0 +1,79 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+
+/**
+ * Pre-resolved handle of a DoubleHistogram metric. Recording through the handle takes a primitive value and does not
+ * require any lookup by metric name, so it can be used on hot paths without allocations.
+ *
+ * The timing helpers record durations in milliseconds: a timer is started with {@link #startTimer()} and stopped with
+ * {@link #recordElapsedSince(long)}, passing the value returned by startTimer().
+ */
+public final class DoubleHistogramHandle {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String metricName;
+
+    private final DoubleHistogram doubleHistogram;
+
+    // Attributes of the monitoring scope (e.g. the twin id), recorded with every value
+    private final Attributes attributes;
+
+    DoubleHistogramHandle(String metricName, DoubleHistogram doubleHistogram, Attributes attributes) {
+        this.metricName = metricName;
+        this.doubleHistogram = doubleHistogram;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Records a new value in the histogram
+     */
+    public void record(double value) {
+        doubleHistogram.record(value, attributes);
+    }
+
+    /**
+     * Starts a new timer
+     *
+     * @return the start time to pass to {@link #recordElapsedSince(long)}
+     */
+    public long startTimer() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the milliseconds elapsed since the timer start
+     *
+     * @param startNanos the value returned by {@link #startTimer()}
+     */
+    public void recordElapsedSince(long startNanos) {
+        doubleHistogram.record((System.nanoTime() - startNanos) / NANOS_PER_MILLI, attributes);
+    }
+
+    /**
+     * Records the milliseconds elapsed since the given wall clock instant (e.g. the creation timestamp of an event)
+     *
+     * @param startEpochMillis the start instant in milliseconds since the epoch
+     */
+    public void recordElapsedSinceEpochMillis(long startEpochMillis) {
+        doubleHistogram.record(System.currentTimeMillis() - startEpochMillis, attributes);
+    }
+
+    /**
+     * Runs the task and records its duration in milliseconds
+     */
+    public void time(Runnable task) {
+        long startNanos = startTimer();
+        try {
+            task.run();
+        } finally {
+            recordElapsedSince(startNanos);
+        }
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
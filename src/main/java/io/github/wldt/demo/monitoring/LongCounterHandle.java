@@ -0,0 +1,35 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+
+/**
+ * Pre-resolved handle of a LongCounter metric. Recording through the handle takes a primitive value and does not
+ * require any lookup by metric name, so it can be used on hot paths without allocations.
+ */
+public final class LongCounterHandle {
+
+    private final String metricName;
+
+    private final LongCounter longCounter;
+
+    // Attributes of the monitoring scope (e.g. the twin id), recorded with every value
+    private final Attributes attributes;
+
+    LongCounterHandle(String metricName, LongCounter longCounter, Attributes attributes) {
+        this.metricName = metricName;
+        this.longCounter = longCounter;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Adds the given amount to the counter
+     */
+    public void add(long value) {
+        longCounter.add(value, attributes);
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongGauge;
+
+/**
+ * Pre-resolved handle of a LongGauge metric. Recording through the handle takes a primitive value and does not
+ * require any lookup by metric name, so it can be used on hot paths without allocations.
+ */
+public final class LongGaugeHandle {
+
+    private final String metricName;
+
+    private final LongGauge longGauge;
+
+    // Attributes of the monitoring scope (e.g. the twin id), recorded with every value
+    private final Attributes attributes;
+
+    LongGaugeHandle(String metricName, LongGauge longGauge, Attributes attributes) {
+        this.metricName = metricName;
+        this.longGauge = longGauge;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Sets the current value of the gauge
+     */
+    public void set(long value) {
+        longGauge.set(value, attributes);
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
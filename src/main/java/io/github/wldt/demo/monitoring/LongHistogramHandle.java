@@ -0,0 +1,35 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongHistogram;
+
+/**
+ * Pre-resolved handle of a LongHistogram metric. Recording through the handle takes a primitive value and does not
+ * require any lookup by metric name, so it can be used on hot paths without allocations.
+ */
+public final class LongHistogramHandle {
+
+    private final String metricName;
+
+    private final LongHistogram longHistogram;
+
+    // Attributes of the monitoring scope (e.g. the twin id), recorded with every value
+    private final Attributes attributes;
+
+    LongHistogramHandle(String metricName, LongHistogram longHistogram, Attributes attributes) {
+        this.metricName = metricName;
+        this.longHistogram = longHistogram;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Records a new value in the histogram
+     */
+    public void record(long value) {
+        longHistogram.record(value, attributes);
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
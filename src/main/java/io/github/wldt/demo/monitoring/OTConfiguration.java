@@ -10,20 +10,35 @@ import io.opentelemetry.exporter.prometheus.PrometheusHttpServer;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.logs.SdkLoggerProvider;
 import io.opentelemetry.sdk.logs.export.BatchLogRecordProcessor;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentSelector;
+import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.View;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
 import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
 
 public class OTConfiguration {
+
+    // Histograms created by meters with this name use base-2 exponential buckets instead of the explicit ones
+    public static final String EXPONENTIAL_HISTOGRAM_METER_NAME = "io.github.wldt.demo.exponential";
+
+    // The SDK is registered as global instance and bound to the prometheus port, so it is shared by all the DTs in the JVM
+    private static OpenTelemetry openTelemetryInstance = null;
+
     /**
      * Initializes the OpenTelemetry SDK and configures the prometheus collector with all default
-     * settings.
+     * settings. The SDK is created only once, following calls return the already initialized instance.
      *
      * @param prometheusPort the port to open up for scraping.
      * @return a ready-to-use {@link OpenTelemetry} instance.
      */
-    static OpenTelemetry initOpenTelemetry(int prometheusPort) {
+    static synchronized OpenTelemetry initOpenTelemetry(int prometheusPort) {
+
+        if (openTelemetryInstance != null)
+            return openTelemetryInstance;
+
         // Include required service.name resource attribute on all spans and metrics
         Resource resource = Resource.getDefault().merge( Resource.builder().put(SERVICE_NAME, "PrometheusMetricsExporter").build() );
 
@@ -52,6 +67,14 @@ public class OTConfiguration {
                         .setMeterProvider(
                                 SdkMeterProvider.builder()
                                         .setResource(resource)
+                                        .registerView(
+                                                InstrumentSelector.builder()
+                                                        .setType(InstrumentType.HISTOGRAM)
+                                                        .setMeterName(EXPONENTIAL_HISTOGRAM_METER_NAME)
+                                                        .build(),
+                                                View.builder()
+                                                        .setAggregation(Aggregation.base2ExponentialBucketHistogram())
+                                                        .build())
                                         .registerMetricReader(
                                                 PrometheusHttpServer.builder().setPort(prometheusPort).build())
                                         .build())
@@ -60,6 +83,8 @@ public class OTConfiguration {
 
         Runtime.getRuntime().addShutdownHook(new Thread(openTelemetrySdk::close));
 
+        openTelemetryInstance = openTelemetrySdk;
+
         return openTelemetrySdk;
     }
 }
@@ -2,22 +2,40 @@ package io.github.wldt.demo.monitoring;
 
 import com.sun.jdi.InvalidTypeException;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.*;
 import io.opentelemetry.api.trace.Tracer;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
+import it.wldt.core.state.DigitalTwinState;
 import it.wldt.core.state.DigitalTwinStateManager;
 import it.wldt.exception.WldtDigitalTwinStatePropertyException;
 
 public class OpenTelemetryWLDTMonitoring extends WLDTMonitoring {
 
+    // Attribute identifying the twin of the metrics when several twins share the same instruments (e.g. a fleet)
+    public static final String TWIN_ID_ATTRIBUTE = "twin.id";
+
     DigitalTwinStateManager stateManager;
+    // Recorded with every value of the metrics registered by this instance
+    Attributes attributes = Attributes.empty();
     int prometheusPort = 19090; // Default value
     Meter meter;
+    // Histograms created from this meter are aggregated with base-2 exponential buckets (see OTConfiguration)
+    Meter exponentialHistogramMeter;
     Tracer tracer;
 
-    public OpenTelemetryWLDTMonitoring() {}
+    public OpenTelemetryWLDTMonitoring() {
+        // Monitoring of general purpose metrics only, properties can not be watched without a state manager
+        setBasicOpenTelemetryObjects();
+    }
 
     public OpenTelemetryWLDTMonitoring(DigitalTwinStateManager digitalTwinStateManager) {
         this.stateManager = digitalTwinStateManager;
@@ -30,126 +48,141 @@ public class OpenTelemetryWLDTMonitoring extends WLDTMonitoring {
         setBasicOpenTelemetryObjects();
     }
 
+    public OpenTelemetryWLDTMonitoring(DigitalTwinStateManager digitalTwinStateManager, OpenTelemetry openTelemetry) {
+        this.stateManager = digitalTwinStateManager;
+        setBasicOpenTelemetryObjects(openTelemetry);
+    }
+
+    /**
+     * Monitoring scoped to a twin: all the values are recorded with the twin.id attribute, so that the twins of a
+     * fleet registering the same metric names export separate series
+     *
+     * @param twinId the id of the twin, null to record the values without attributes
+     */
+    public OpenTelemetryWLDTMonitoring(DigitalTwinStateManager digitalTwinStateManager, String twinId) {
+        this.stateManager = digitalTwinStateManager;
+        if (twinId != null)
+            this.attributes = Attributes.of(AttributeKey.stringKey(TWIN_ID_ATTRIBUTE), twinId);
+        setBasicOpenTelemetryObjects();
+    }
+
     void setBasicOpenTelemetryObjects() {
-        OpenTelemetry openTelemetry = OTConfiguration.initOpenTelemetry(this.prometheusPort);
+        setBasicOpenTelemetryObjects(OTConfiguration.initOpenTelemetry(this.prometheusPort));
+    }
+
+    void setBasicOpenTelemetryObjects(OpenTelemetry openTelemetry) {
         this.tracer = openTelemetry.getTracer("io.opentelemetry.example.prometheus");
         this.meter = openTelemetry.getMeter("io.opentelemetry.example.prometheus");
+        this.exponentialHistogramMeter = openTelemetry.getMeter(OTConfiguration.EXPONENTIAL_HISTOGRAM_METER_NAME);
         io.opentelemetry.instrumentation.logback.appender.v1_0.OpenTelemetryAppender.install(openTelemetry);
     }
 
 
     // PROPERTIES METRICS
     // ------------------
+    // All the watched properties are recorded by a single batch callback. Values are taken from a cache that is
+    // invalidated by invalidateWatchedProperties() when a state transaction is committed, whatever changed the
+    // properties: the first collection after a commit refreshes the whole cache from a single DT State snapshot.
+
+    private static final Set<String> LONG_PROPERTY_TYPES = Set.of("int", "long", "uint", "unsigned integer", "integer", "java.lang.int", "java.lang.integer", "java.lang.long", "java.lang.short");
+
+    private static final Set<String> DOUBLE_PROPERTY_TYPES = Set.of("double", "float", "java.lang.double", "java.lang.float");
 
     @Override
     public void watchPropertyLongCounter(String propertyId) throws WldtDigitalTwinStatePropertyException, InvalidTypeException {
-        if ( this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent() ) {
-
-            Set<String> validTypes = Set.of("int", "long", "uint", "unsigned integer", "integer");
-            String type = this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getType().toLowerCase();
-
-            if ( !validTypes.contains(type) ) {
-                throw new InvalidTypeException("Invalid type: " + type + ". Expected one a Long or Int equivalent");
-
-            } else {
-
-                ObservableLongCounter longCounter = meter.counterBuilder(propertyId).buildWithCallback(
-                        observableMeasurement -> {
-                            try {
-                                if (this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent()) {
-                                    Integer value = (Integer) this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getValue();
-                                    observableMeasurement.record(value);
-                                }
-                            } catch (WldtDigitalTwinStatePropertyException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-                longPropertyCounters.putIfAbsent(propertyId, longCounter);
-            }
+        var property = this.stateManager.getDigitalTwinState().getProperty(propertyId);
+        if ( property.isPresent() ) {
+            checkPropertyType(property.get().getType(), LONG_PROPERTY_TYPES, "a Long or Int equivalent");
+            addWatchedProperty(new WatchedProperty(propertyId, WatchedProperty.Kind.LONG_COUNTER,
+                    meter.counterBuilder(propertyId).buildObserver(), attributes), property.get().getValue());
         }
     }
 
     @Override
     public void watchPropertyDoubleCounter(String propertyId) throws WldtDigitalTwinStatePropertyException, InvalidTypeException {
-        if ( this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent() ) {
-
-            Set<String> validTypes = Set.of("double", "float", "java.lang.double", "java.lang.float");
-            String type = this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getType().toLowerCase();
-
-            if ( !validTypes.contains(type) ) {
-                throw new InvalidTypeException("Invalid type: " + type + ". Expected one a Long or Int equivalent");
-
-            } else {
-
-                ObservableDoubleCounter doubleCounter = meter.counterBuilder(propertyId).ofDoubles().buildWithCallback(
-                        observableMeasurement -> {
-                            try {
-                                if (this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent()) {
-                                    Double value = (Double) this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getValue();
-                                    observableMeasurement.record(value);
-                                }
-                            } catch (WldtDigitalTwinStatePropertyException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-                doublePropertyCounters.putIfAbsent(propertyId, doubleCounter);
-            }
+        var property = this.stateManager.getDigitalTwinState().getProperty(propertyId);
+        if ( property.isPresent() ) {
+            checkPropertyType(property.get().getType(), DOUBLE_PROPERTY_TYPES, "a Double or Float equivalent");
+            addWatchedProperty(new WatchedProperty(propertyId, WatchedProperty.Kind.DOUBLE_COUNTER,
+                    meter.counterBuilder(propertyId).ofDoubles().buildObserver(), attributes), property.get().getValue());
         }
     }
 
     @Override
     public void watchPropertyLongGauge(String propertyId) throws InvalidTypeException, WldtDigitalTwinStatePropertyException {
-        if ( this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent() ) {
-
-            Set<String> validTypes = Set.of("int", "long", "uint", "unsigned integer", "integer", "java.lang.int", "java.lang.long", "java.lang.short");
-            String type = this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getType().toLowerCase();
-
-            if ( !validTypes.contains(type) ) {
-                throw new InvalidTypeException("Invalid type: " + type + ". Expected one a Long or Int equivalent");
-
-            } else {
-
-                ObservableLongGauge longGauge = meter.gaugeBuilder(propertyId).ofLongs().buildWithCallback(
-                        observableMeasurement -> {
-                            try {
-                                if ( this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent() ) {
-                                    Integer value = (Integer) this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getValue();
-                                    observableMeasurement.record(value);
-                                }
-                            } catch (WldtDigitalTwinStatePropertyException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-                longPropertyGauges.putIfAbsent(propertyId, longGauge);
-            }
+        var property = this.stateManager.getDigitalTwinState().getProperty(propertyId);
+        if ( property.isPresent() ) {
+            checkPropertyType(property.get().getType(), LONG_PROPERTY_TYPES, "a Long or Int equivalent");
+            addWatchedProperty(new WatchedProperty(propertyId, WatchedProperty.Kind.LONG_GAUGE,
+                    meter.gaugeBuilder(propertyId).ofLongs().buildObserver(), attributes), property.get().getValue());
         }
     }
 
     @Override
     public void watchPropertyDoubleGauge(String propertyId) throws WldtDigitalTwinStatePropertyException, InvalidTypeException {
-        if ( this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent() ) {
-
-            Set<String> validTypes = Set.of("double", "float", "java.lang.double", "java.lang.float");
-            String type = this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getType().toLowerCase();
-
-            if ( !validTypes.contains(type) ) {
-                throw new InvalidTypeException("Invalid type: " + type + ". Expected one a Long or Int equivalent");
-
-            } else {
-
-                ObservableDoubleGauge doubleGauge = meter.gaugeBuilder(propertyId).buildWithCallback(
-                        observableMeasurement -> {
-                            try {
-                                if (this.stateManager.getDigitalTwinState().getProperty(propertyId).isPresent()) {
-                                    Double value = (Double) this.stateManager.getDigitalTwinState().getProperty(propertyId).get().getValue();
-                                    observableMeasurement.record(value);
-                                }
-                            } catch (WldtDigitalTwinStatePropertyException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-                doublePropertyGauges.putIfAbsent(propertyId, doubleGauge);
+        var property = this.stateManager.getDigitalTwinState().getProperty(propertyId);
+        if ( property.isPresent() ) {
+            checkPropertyType(property.get().getType(), DOUBLE_PROPERTY_TYPES, "a Double or Float equivalent");
+            addWatchedProperty(new WatchedProperty(propertyId, WatchedProperty.Kind.DOUBLE_GAUGE,
+                    meter.gaugeBuilder(propertyId).buildObserver(), attributes), property.get().getValue());
+        }
+    }
+
+    @Override
+    public void invalidateWatchedProperties() {
+        watchedPropertiesStale = true;
+    }
+
+    private void checkPropertyType(String propertyType, Set<String> validTypes, String expectedType) throws InvalidTypeException {
+        String type = propertyType.toLowerCase();
+        if ( !validTypes.contains(type) )
+            throw new InvalidTypeException("Invalid type: " + type + ". Expected " + expectedType);
+    }
+
+    private synchronized void addWatchedProperty(WatchedProperty watchedProperty, Object currentValue) {
+
+        if (watchedProperties.putIfAbsent(watchedProperty.getPropertyId(), watchedProperty) != null)
+            return;
+
+        watchedProperty.update(currentValue);
+
+        //The batch callback has to be registered again to include the measurement of the new property
+        if (watchedPropertiesCallback != null)
+            watchedPropertiesCallback.close();
+
+        ObservableMeasurement[] measurements = watchedProperties.values().stream()
+                .map(wp -> wp.getLongMeasurement() != null ? wp.getLongMeasurement() : wp.getDoubleMeasurement())
+                .toArray(ObservableMeasurement[]::new);
+
+        watchedPropertiesCallback = meter.batchCallback(
+                this::recordWatchedProperties,
+                measurements[0],
+                Arrays.copyOfRange(measurements, 1, measurements.length));
+    }
+
+    private void recordWatchedProperties() {
+
+        //Cleared before the snapshot is taken, a commit that follows the snapshot invalidates the cache again
+        boolean refresh = watchedPropertiesStale && this.stateManager != null;
+        if (refresh)
+            watchedPropertiesStale = false;
+
+        DigitalTwinState stateSnapshot = null;
+
+        for (WatchedProperty watchedProperty : watchedProperties.values()) {
+
+            if ((refresh || !watchedProperty.hasValue()) && this.stateManager != null) {
+                try {
+                    if (stateSnapshot == null)
+                        stateSnapshot = this.stateManager.getDigitalTwinState();
+                    stateSnapshot.getProperty(watchedProperty.getPropertyId()).ifPresent(property -> watchedProperty.update(property.getValue()));
+                } catch (WldtDigitalTwinStatePropertyException e) {
+                    // The property is recorded at the next collection
+                    watchedPropertiesStale = true;
+                }
             }
+
+            watchedProperty.record();
         }
     }
 
@@ -173,7 +206,7 @@ public class OpenTelemetryWLDTMonitoring extends WLDTMonitoring {
     public void incrementLongCounter(String metricName, Long amount) {
         LongCounter counter = longCounters.get(metricName);
         if (counter != null) {
-            counter.add(amount);
+            counter.add(amount, attributes);
         } else {
             throw new IllegalArgumentException("LongCounter for metric '" + metricName + "' does not exist.");
         }
@@ -196,7 +229,7 @@ public class OpenTelemetryWLDTMonitoring extends WLDTMonitoring {
     public void incrementDoubleCounter(String metricName, Double amount) {
         DoubleCounter counter = doubleCounters.get(metricName);
         if (counter != null) {
-            counter.add(amount);
+            counter.add(amount, attributes);
         } else {
             throw new IllegalArgumentException("DoubleCounter for metric '" + metricName + "' does not exist.");
         }
@@ -220,7 +253,7 @@ public class OpenTelemetryWLDTMonitoring extends WLDTMonitoring {
     public void setLongGauge(String metricName, Long value) {
         LongGauge gauge = longGauges.get(metricName);
         if (gauge != null) {
-            longGauges.get(metricName).set(value);
+            gauge.set(value, attributes);
         } else {
             throw new IllegalArgumentException("LongGauge for metric '" + metricName + "' does not exist.");
         }
@@ -244,39 +277,220 @@ public class OpenTelemetryWLDTMonitoring extends WLDTMonitoring {
     public void setDoubleGauge(String metricName, Double value) {
         DoubleGauge gauge = doubleGauges.get(metricName);
         if (gauge != null) {
-            doubleGauges.get(metricName).set(value);
+            gauge.set(value, attributes);
         } else {
             throw new IllegalArgumentException("DoubleGauge for metric '" + metricName + "' does not exist.");
         }
     }
 
 
-    /*
+    // Long Up Down Counter
+    @Override
+    public void addLongUpDownCounter(String metricName) {
+        LongUpDownCounter counter = meter.upDownCounterBuilder(metricName).build();
+        longUpDownCounters.put(metricName, counter);
+    }
+
+    @Override
+    public void removeLongUpDownCounter(String metricName) {
+        longUpDownCounters.remove(metricName);
+    }
+
+    @Override
+    public void addToLongUpDownCounter(String metricName, Long amount) {
+        LongUpDownCounter counter = longUpDownCounters.get(metricName);
+        if (counter != null) {
+            counter.add(amount, attributes);
+        } else {
+            throw new IllegalArgumentException("LongUpDownCounter for metric '" + metricName + "' does not exist.");
+        }
+    }
+
+
+    // Double Up Down Counter
+    @Override
+    public void addDoubleUpDownCounter(String metricName) {
+        DoubleUpDownCounter counter = meter.upDownCounterBuilder(metricName).ofDoubles().build();
+        doubleUpDownCounters.put(metricName, counter);
+    }
+
+    @Override
+    public void removeDoubleUpDownCounter(String metricName) {
+        doubleUpDownCounters.remove(metricName);
+    }
+
+    @Override
+    public void addToDoubleUpDownCounter(String metricName, Double amount) {
+        DoubleUpDownCounter counter = doubleUpDownCounters.get(metricName);
+        if (counter != null) {
+            counter.add(amount, attributes);
+        } else {
+            throw new IllegalArgumentException("DoubleUpDownCounter for metric '" + metricName + "' does not exist.");
+        }
+    }
+
+
+    // Long Histogram
     @Override
-    public void addLongUpDownCounter(String id, String propertyId) {
-        LongUpDownCounter longUpDownCounter = meter.upDownCounterBuilder(id).build();
-        longUpDownCounters.putIfAbsent(id, longUpDownCounter);
+    public void addLongHistogram(String metricName, String unit) {
+        addLongHistogram(metricName, unit, null);
     }
 
     @Override
-    public void addDoubleUpDownCounter(String id, String propertyId) {
-        DoubleUpDownCounter doubleUpDownCounter = meter.upDownCounterBuilder(id).ofDoubles().build();
-        doubleUpDownCounters.putIfAbsent(id, doubleUpDownCounter);
-    }*/
+    public void addLongHistogram(String metricName, String unit, List<Long> bucketBoundaries) {
+        LongHistogramBuilder builder = meter.histogramBuilder(metricName).ofLongs().setUnit(unit);
+        if (bucketBoundaries != null)
+            builder.setExplicitBucketBoundariesAdvice(bucketBoundaries);
+        longHistograms.put(metricName, builder.build());
+    }
+
+    @Override
+    public void removeLongHistogram(String metricName) {
+        longHistograms.remove(metricName);
+    }
+
+    @Override
+    public void recordLongHistogram(String metricName, Long value) {
+        LongHistogram histogram = longHistograms.get(metricName);
+        if (histogram != null) {
+            histogram.record(value, attributes);
+        } else {
+            throw new IllegalArgumentException("LongHistogram for metric '" + metricName + "' does not exist.");
+        }
+    }
+
+
+    // Double Histogram
+    @Override
+    public void addDoubleHistogram(String metricName, String unit, List<Double> bucketBoundaries) {
+        DoubleHistogramBuilder builder = meter.histogramBuilder(metricName).setUnit(unit);
+        if (bucketBoundaries != null)
+            builder.setExplicitBucketBoundariesAdvice(bucketBoundaries);
+        doubleHistograms.put(metricName, builder.build());
+    }
+
+    @Override
+    public void addExponentialDoubleHistogram(String metricName, String unit) {
+        DoubleHistogram histogram = exponentialHistogramMeter.histogramBuilder(metricName).setUnit(unit).build();
+        doubleHistograms.put(metricName, histogram);
+    }
 
-    /*
     @Override
-    public void addLongHistogram(String id, String name) {
-        LongHistogram longHistogram = meter.histogramBuilder(id).ofLongs().build();
-        longHistograms.putIfAbsent(id, longHistogram);
+    public void removeDoubleHistogram(String metricName) {
+        doubleHistograms.remove(metricName);
     }
 
     @Override
-    public void addDoubleHistogram(String id, String name) {
-        LongHistogram histogram = meter.histogramBuilder("super.timer").ofLongs().setUnit("ms").build();
+    public void recordDoubleHistogram(String metricName, Double value) {
+        DoubleHistogram histogram = doubleHistograms.get(metricName);
+        if (histogram != null) {
+            histogram.record(value, attributes);
+        } else {
+            throw new IllegalArgumentException("DoubleHistogram for metric '" + metricName + "' does not exist.");
+        }
+    }
+
+
+    // Observable Long Gauge
+    @Override
+    public void addObservableLongGauge(String metricName, LongSupplier valueSupplier) {
+        ObservableLongGauge gauge = meter.gaugeBuilder(metricName).ofLongs().buildWithCallback(
+                observableMeasurement -> observableMeasurement.record(valueSupplier.getAsLong(), attributes));
+        observableLongGauges.put(metricName, gauge);
+    }
+
+    @Override
+    public void removeObservableLongGauge(String metricName) {
+        ObservableLongGauge gauge = observableLongGauges.remove(metricName);
+        if (gauge != null)
+            gauge.close();
+    }
+
+    // Observable Long Counter
+    @Override
+    public void addObservableLongCounter(String metricName, LongSupplier valueSupplier) {
+        ObservableLongCounter counter = meter.counterBuilder(metricName).buildWithCallback(
+                observableMeasurement -> observableMeasurement.record(valueSupplier.getAsLong(), attributes));
+        observableLongCounters.put(metricName, counter);
+    }
 
-        DoubleHistogram doubleHistogram = meter.histogramBuilder(id).build();
-        doubleHistograms.putIfAbsent(id, doubleHistogram);
+    @Override
+    public void addObservableLongCounter(String metricName, String attributeKey, Supplier<Map<String, Long>> valuesSupplier) {
+        AttributeKey<String> key = AttributeKey.stringKey(attributeKey);
+        ObservableLongCounter counter = meter.counterBuilder(metricName).buildWithCallback(
+                observableMeasurement -> valuesSupplier.get().forEach(
+                        (attributeValue, value) -> observableMeasurement.record(value, attributes.toBuilder().put(key, attributeValue).build())));
+        observableLongCounters.put(metricName, counter);
     }
-    */
+
+    @Override
+    public void removeObservableLongCounter(String metricName) {
+        ObservableLongCounter counter = observableLongCounters.remove(metricName);
+        if (counter != null)
+            counter.close();
+    }
+
+    // Observable Double Gauge
+    @Override
+    public void addObservableDoubleGauge(String metricName, String attributeKey, Supplier<Map<String, Double>> valuesSupplier) {
+        AttributeKey<String> key = AttributeKey.stringKey(attributeKey);
+        ObservableDoubleGauge gauge = meter.gaugeBuilder(metricName).buildWithCallback(
+                observableMeasurement -> valuesSupplier.get().forEach(
+                        (attributeValue, value) -> observableMeasurement.record(value, attributes.toBuilder().put(key, attributeValue).build())));
+        observableDoubleGauges.put(metricName, gauge);
+    }
+
+    @Override
+    public void removeObservableDoubleGauge(String metricName) {
+        ObservableDoubleGauge gauge = observableDoubleGauges.remove(metricName);
+        if (gauge != null)
+            gauge.close();
+    }
+
+
+    // METRIC HANDLES
+    // --------------
+
+    @Override
+    public LongCounterHandle registerLongCounter(String metricName) {
+        addLongCounter(metricName, 0L);
+        return new LongCounterHandle(metricName, longCounters.get(metricName), attributes);
+    }
+
+    @Override
+    public DoubleCounterHandle registerDoubleCounter(String metricName) {
+        addDoubleCounter(metricName, 0.0);
+        return new DoubleCounterHandle(metricName, doubleCounters.get(metricName), attributes);
+    }
+
+    @Override
+    public LongGaugeHandle registerLongGauge(String metricName) {
+        addLongGauge(metricName, 0L);
+        return new LongGaugeHandle(metricName, longGauges.get(metricName), attributes);
+    }
+
+    @Override
+    public DoubleGaugeHandle registerDoubleGauge(String metricName) {
+        addDoubleGauge(metricName, 0.0);
+        return new DoubleGaugeHandle(metricName, doubleGauges.get(metricName), attributes);
+    }
+
+    @Override
+    public LongHistogramHandle registerLongHistogram(String metricName, String unit) {
+        addLongHistogram(metricName, unit);
+        return new LongHistogramHandle(metricName, longHistograms.get(metricName), attributes);
+    }
+
+    @Override
+    public DoubleHistogramHandle registerDoubleHistogram(String metricName, String unit, List<Double> bucketBoundaries) {
+        addDoubleHistogram(metricName, unit, bucketBoundaries);
+        return new DoubleHistogramHandle(metricName, doubleHistograms.get(metricName), attributes);
+    }
+
+    @Override
+    public DoubleHistogramHandle registerExponentialDoubleHistogram(String metricName, String unit) {
+        addExponentialDoubleHistogram(metricName, unit);
+        return new DoubleHistogramHandle(metricName, doubleHistograms.get(metricName), attributes);
+    }
+
 }
@@ -3,13 +3,14 @@ package io.github.wldt.demo.monitoring;
 import io.opentelemetry.api.metrics.*;
 
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class WLDTMonitoring implements WLDTMonitoringInterface {
-    // List of wldt property metrics
-    HashMap<String, ObservableLongCounter> longPropertyCounters = new HashMap<>();
-    HashMap<String, ObservableDoubleCounter> doublePropertyCounters = new HashMap<>();
-    HashMap<String, ObservableLongGauge> longPropertyGauges = new HashMap<>();
-    HashMap<String, ObservableDoubleGauge> doublePropertyGauges = new HashMap<>();
+    // List of wldt property metrics, recorded together by a single batch callback
+    ConcurrentHashMap<String, WatchedProperty> watchedProperties = new ConcurrentHashMap<>();
+    BatchCallback watchedPropertiesCallback = null;
+    // Set when a state transaction is committed, the cached values are refreshed by the next collection
+    volatile boolean watchedPropertiesStale = false;
 
     // List of general purpose metrics
     HashMap<String, LongCounter> longCounters = new HashMap<>();
@@ -20,4 +21,7 @@ public abstract class WLDTMonitoring implements WLDTMonitoringInterface {
     HashMap<String, DoubleUpDownCounter> doubleUpDownCounters = new HashMap<>();
     HashMap<String, LongHistogram> longHistograms = new HashMap<>();
     HashMap<String, DoubleHistogram> doubleHistograms = new HashMap<>();
+    HashMap<String, ObservableLongGauge> observableLongGauges = new HashMap<>();
+    HashMap<String, ObservableLongCounter> observableLongCounters = new HashMap<>();
+    HashMap<String, ObservableDoubleGauge> observableDoubleGauges = new HashMap<>();
 }
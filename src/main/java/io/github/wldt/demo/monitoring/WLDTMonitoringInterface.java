@@ -5,6 +5,10 @@ import io.opentelemetry.api.metrics.*;
 import it.wldt.exception.WldtDigitalTwinStatePropertyException;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 public interface WLDTMonitoringInterface {
 
@@ -27,6 +31,9 @@ public interface WLDTMonitoringInterface {
 
     // void addPropertyDoubleHistogram(String id, String name);
 
+    // Invalidates the cached values of the watched properties, to be called when a state transaction is committed
+    void invalidateWatchedProperties();
+
 
     // GENERAL PURPOSE METRICS
     // -----------------------
@@ -58,4 +65,75 @@ public interface WLDTMonitoringInterface {
     void removeDoubleGauge(String metricName);
 
     void setDoubleGauge(String metricName, Double value);
+
+    // Long Up Down Counter
+    void addLongUpDownCounter(String metricName);
+
+    void removeLongUpDownCounter(String metricName);
+
+    void addToLongUpDownCounter(String metricName, Long amount);
+
+    // Double Up Down Counter
+    void addDoubleUpDownCounter(String metricName);
+
+    void removeDoubleUpDownCounter(String metricName);
+
+    void addToDoubleUpDownCounter(String metricName, Double amount);
+
+    // Long Histogram (bucket boundaries can be null to use the default ones)
+    void addLongHistogram(String metricName, String unit);
+
+    void addLongHistogram(String metricName, String unit, List<Long> bucketBoundaries);
+
+    void removeLongHistogram(String metricName);
+
+    void recordLongHistogram(String metricName, Long value);
+
+    // Double Histogram with explicit buckets (bucket boundaries can be null to use the default ones)
+    void addDoubleHistogram(String metricName, String unit, List<Double> bucketBoundaries);
+
+    // Double Histogram with base-2 exponential buckets adapting to the range of the recorded values
+    void addExponentialDoubleHistogram(String metricName, String unit);
+
+    void removeDoubleHistogram(String metricName);
+
+    void recordDoubleHistogram(String metricName, Double value);
+
+    // Observable Long Gauge (value read from the supplier at every collection)
+    void addObservableLongGauge(String metricName, LongSupplier valueSupplier);
+
+    void removeObservableLongGauge(String metricName);
+
+    // Observable Long Counter (cumulative value read from the supplier at every collection)
+    void addObservableLongCounter(String metricName, LongSupplier valueSupplier);
+
+    // One cumulative value for each value of the attribute, e.g. a counter for each event type
+    void addObservableLongCounter(String metricName, String attributeKey, Supplier<Map<String, Long>> valuesSupplier);
+
+    void removeObservableLongCounter(String metricName);
+
+    // Observable Double Gauge with one value for each value of the attribute
+    void addObservableDoubleGauge(String metricName, String attributeKey, Supplier<Map<String, Double>> valuesSupplier);
+
+    void removeObservableDoubleGauge(String metricName);
+
+
+    // METRIC HANDLES
+    // --------------
+    // Register the metric (as the corresponding add method) and return a pre-resolved handle recording primitive
+    // values without any lookup by name, to be used on the hot paths
+
+    LongCounterHandle registerLongCounter(String metricName);
+
+    DoubleCounterHandle registerDoubleCounter(String metricName);
+
+    LongGaugeHandle registerLongGauge(String metricName);
+
+    DoubleGaugeHandle registerDoubleGauge(String metricName);
+
+    LongHistogramHandle registerLongHistogram(String metricName, String unit);
+
+    DoubleHistogramHandle registerDoubleHistogram(String metricName, String unit, List<Double> bucketBoundaries);
+
+    DoubleHistogramHandle registerExponentialDoubleHistogram(String metricName, String unit);
 }
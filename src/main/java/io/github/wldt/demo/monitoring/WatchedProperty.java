@@ -0,0 +1,93 @@
+package io.github.wldt.demo.monitoring;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+
+/**
+ * A DT State property exported as metric, together with the last known value of the property. The value is
+ * refreshed from the DT State only by the collections that follow a committed state transaction.
+ */
+class WatchedProperty {
+
+    enum Kind {
+        LONG_COUNTER,
+        DOUBLE_COUNTER,
+        LONG_GAUGE,
+        DOUBLE_GAUGE
+    }
+
+    private final String propertyId;
+
+    private final Kind kind;
+
+    // Only one of the two measurements is available according to the kind
+    private final ObservableLongMeasurement longMeasurement;
+
+    private final ObservableDoubleMeasurement doubleMeasurement;
+
+    private final Attributes attributes;
+
+    private volatile boolean hasValue = false;
+
+    private volatile long longValue;
+
+    private volatile double doubleValue;
+
+    WatchedProperty(String propertyId, Kind kind, ObservableLongMeasurement longMeasurement, Attributes attributes) {
+        this.propertyId = propertyId;
+        this.kind = kind;
+        this.longMeasurement = longMeasurement;
+        this.doubleMeasurement = null;
+        this.attributes = attributes;
+    }
+
+    WatchedProperty(String propertyId, Kind kind, ObservableDoubleMeasurement doubleMeasurement, Attributes attributes) {
+        this.propertyId = propertyId;
+        this.kind = kind;
+        this.longMeasurement = null;
+        this.doubleMeasurement = doubleMeasurement;
+        this.attributes = attributes;
+    }
+
+    void update(Object value) {
+        if (!(value instanceof Number))
+            return;
+        Number number = (Number) value;
+        longValue = number.longValue();
+        doubleValue = number.doubleValue();
+        hasValue = true;
+    }
+
+    /**
+     * Records the cached value on the associated measurement (nothing is recorded if the value is not yet known)
+     */
+    void record() {
+        if (!hasValue)
+            return;
+        if (longMeasurement != null)
+            longMeasurement.record(longValue, attributes);
+        else
+            doubleMeasurement.record(doubleValue, attributes);
+    }
+
+    String getPropertyId() {
+        return propertyId;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    boolean hasValue() {
+        return hasValue;
+    }
+
+    ObservableLongMeasurement getLongMeasurement() {
+        return longMeasurement;
+    }
+
+    ObservableDoubleMeasurement getDoubleMeasurement() {
+        return doubleMeasurement;
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.wldt.demo.physical;
+
+import it.wldt.adapter.physical.PhysicalAssetProperty;
+
+/**
+ * Physical Asset Property declaring in the PAD how much its value has to change before a new sample is worth a
+ * DT State update. The Shadowing Function reads the deadband when the DT is bound and filters the samples of the
+ * property accordingly (see {@link io.github.wldt.demo.shadowing.DeadbandFilter}).
+ *
+ * Any parameter <= 0 is disabled. With both deltas disabled every change of the value is forwarded.
+ */
+public class DeadbandPhysicalAssetProperty<T> extends PhysicalAssetProperty<T> {
+
+    // Minimum absolute change from the last forwarded value
+    private final double absoluteDeadband;
+
+    // Minimum change from the last forwarded value as percentage of its magnitude
+    private final double percentDeadband;
+
+    // Minimum time (ms) between two forwarded samples
+    private final long minIntervalMs;
+
+    // Maximum time (ms) without forwarded samples, the first sample after it is forwarded as heartbeat
+    private final long maxSilenceMs;
+
+    public DeadbandPhysicalAssetProperty(String key, T initialValue, double absoluteDeadband, double percentDeadband, long minIntervalMs, long maxSilenceMs) {
+        super(key, initialValue);
+        this.absoluteDeadband = absoluteDeadband;
+        this.percentDeadband = percentDeadband;
+        this.minIntervalMs = minIntervalMs;
+        this.maxSilenceMs = maxSilenceMs;
+    }
+
+    public double getAbsoluteDeadband() {
+        return absoluteDeadband;
+    }
+
+    public double getPercentDeadband() {
+        return percentDeadband;
+    }
+
+    public long getMinIntervalMs() {
+        return minIntervalMs;
+    }
+
+    public long getMaxSilenceMs() {
+        return maxSilenceMs;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DeadbandPhysicalAssetProperty{");
+        sb.append("key='").append(getKey()).append('\'');
+        sb.append(", initialValue=").append(getInitialValue());
+        sb.append(", absoluteDeadband=").append(absoluteDeadband);
+        sb.append(", percentDeadband=").append(percentDeadband);
+        sb.append(", minIntervalMs=").append(minIntervalMs);
+        sb.append(", maxSilenceMs=").append(maxSilenceMs);
+        sb.append('}');
+        return sb.toString();
+    }
+}
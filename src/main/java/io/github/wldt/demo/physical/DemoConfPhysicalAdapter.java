@@ -1,5 +1,9 @@
 package io.github.wldt.demo.physical;
 
+import io.github.wldt.demo.executor.AdapterTaskRunner;
+import io.github.wldt.demo.logger.LogMarkers;
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.shadowing.ActionRequest;
 import io.github.wldt.demo.utils.GlobalKeywords;
 import it.wldt.adapter.physical.*;
 import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
@@ -7,10 +11,15 @@ import it.wldt.adapter.physical.event.PhysicalAssetEventWldtEvent;
 import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
 import it.wldt.adapter.physical.event.PhysicalAssetRelationshipInstanceCreatedWldtEvent;
 import it.wldt.exception.EventBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Authors:
@@ -20,28 +29,96 @@ import java.util.Random;
  */
 public class DemoConfPhysicalAdapter extends ConfigurablePhysicalAdapter<DemoPhysicalAdapterConfiguration> {
 
+    private static final Logger logger = LoggerFactory.getLogger(DemoConfPhysicalAdapter.class);
+
     private PhysicalAssetRelationship<String> insideInRelationship = null;
 
+    // Scheduled background tasks of the adapter, cancelled when the adapter is stopped
+    private final AdapterTaskRunner taskRunner = new AdapterTaskRunner();
+
+    // Emulated device ticks, scheduled on the shared emulation scheduler or on the shard of the twin
+    private final DeviceEmulation deviceEmulation;
+
+    // Handler of each declared action key, built once so that incoming actions are dispatched with a single lookup
+    private final Map<String, Consumer<ActionRequest>> actionHandlers = new HashMap<>();
+
+    // Action receiving the batched requests of this adapter
+    private final String batchActionKey;
+
     public DemoConfPhysicalAdapter(String id, DemoPhysicalAdapterConfiguration configuration) {
+        this(id, configuration, new DeviceEmulation());
+    }
+
+    public DemoConfPhysicalAdapter(String id, DemoPhysicalAdapterConfiguration configuration, DeviceEmulation deviceEmulation) {
         super(id, configuration);
+        this.deviceEmulation = deviceEmulation;
+        this.batchActionKey = ActionRequest.batchActionKey(id);
+        actionHandlers.put(GlobalKeywords.SET_TEMPERATURE_ACTION_KEY, this::onSetTemperatureAction);
+        actionHandlers.put(GlobalKeywords.EMERGENCY_STOP_ACTION_KEY, this::onEmergencyStopAction);
     }
 
     @Override
     public void onIncomingPhysicalAction(PhysicalAssetActionWldtEvent<?> physicalAssetActionWldtEvent) {
         try{
 
-            if(physicalAssetActionWldtEvent != null
-                    && physicalAssetActionWldtEvent.getActionKey().equals(GlobalKeywords.SET_TEMPERATURE_ACTION_KEY)
-                    && physicalAssetActionWldtEvent.getBody() instanceof Double) {
-
-                System.out.println("[DemoPhysicalAdapter] -> Received Action Request: " + physicalAssetActionWldtEvent.getActionKey()
-                        + " with Body: " + physicalAssetActionWldtEvent.getBody());
+            Object body = physicalAssetActionWldtEvent != null ? physicalAssetActionWldtEvent.getBody() : null;
+
+            if(body instanceof ActionRequest)
+                onActionRequest((ActionRequest) body);
+            else if(body instanceof List && batchActionKey.equals(physicalAssetActionWldtEvent.getActionKey())) {
+                //The requests of a batch are executed in the order they have been dispatched
+                List<?> actionRequests = (List<?>) body;
+                logger.info(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Received Action Batch of {} Requests", actionRequests.size());
+                for (Object actionRequest : actionRequests)
+                    if (actionRequest instanceof ActionRequest)
+                        onActionRequest((ActionRequest) actionRequest);
             }
             else
-                System.err.println("[DemoPhysicalAdapter] -> Wrong Action Received !");
+                logger.warn(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Wrong Action Received !");
 
         }catch (Exception e){
-            e.printStackTrace();
+            logger.error(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Error handling the incoming action: {}", e.getMessage());
+        }
+    }
+
+    private void onActionRequest(ActionRequest actionRequest) {
+
+        Consumer<ActionRequest> actionHandler = actionHandlers.get(actionRequest.getActionKey());
+
+        if(actionHandler != null)
+            actionHandler.accept(actionRequest);
+        else
+            logger.warn(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Wrong Action Received !");
+    }
+
+    private void onSetTemperatureAction(ActionRequest actionRequest) {
+
+        if(!(actionRequest.getBody() instanceof Double)) {
+            logger.warn(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Wrong Action Received !");
+            return;
+        }
+
+        logger.info(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Received Action Request: {} with Body: {}",
+                actionRequest.getActionKey(), actionRequest.getBody());
+
+        publishActionAck(actionRequest);
+    }
+
+    private void onEmergencyStopAction(ActionRequest actionRequest) {
+
+        logger.warn(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Received Emergency Stop with Body: {}", actionRequest.getBody());
+
+        publishActionAck(actionRequest);
+    }
+
+    /**
+     * Acknowledges an executed action, the body of the event is the id of the request
+     */
+    private void publishActionAck(ActionRequest actionRequest) {
+        try {
+            publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.ACTION_ACK_EVENT_KEY, actionRequest.getRequestId()));
+        } catch (EventBusException e) {
+            logger.error("[DemoPhysicalAdapter] -> Error publishing the acknowledgement of {}: {}", actionRequest.getActionKey(), e.getMessage());
         }
     }
 
@@ -49,38 +126,44 @@ public class DemoConfPhysicalAdapter extends ConfigurablePhysicalAdapter<DemoPhy
     public void onAdapterStart() {
         try {
 
-            //Start Physical Asset Description Publication
-            new Thread(publishPhysicalAssetDescription()).start();
+            logger.info("[DemoPhysicalAdapter] -> Sleeping before Publishing Physical Asset Description ...");
+
+            //Start Physical Asset Description Publication after a Startup delay of 5 seconds to emulate device startup
+            taskRunner.schedule(publishPhysicalAssetDescription(), 5000, TimeUnit.MILLISECONDS);
 
             //Start Device Emulation
-            new Thread(deviceEmulation()).start();
+            startDeviceEmulation();
 
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("[DemoPhysicalAdapter] -> Error starting the adapter: {}", e.getMessage());
         }
     }
 
     @Override
     public void onAdapterStop() {
-
+        //Cancel the PAD publication if still pending and stop the device emulation
+        taskRunner.shutdown();
+        deviceEmulation.stop();
     }
 
     private Runnable publishPhysicalAssetDescription(){
         return () -> {
             try {
 
-                System.out.println("[DemoPhysicalAdapter] -> Sleeping before Publishing Physical Asset Description ...");
-
-                //Emulate a Startup delay of 5 seconds to emulate device startup
-                Thread.sleep(5000);
-
-                System.out.println("[DemoPhysicalAdapter] -> Publishing Physical Asset Description ...");
+                logger.info("[DemoPhysicalAdapter] -> Publishing Physical Asset Description ...");
 
                 //Create an empty PAD
                 PhysicalAssetDescription pad = new PhysicalAssetDescription();
 
-                //Add a new Property associated to the target PAD with a key and a default value
-                PhysicalAssetProperty<Double> temperatureProperty = new PhysicalAssetProperty<Double>(GlobalKeywords.TEMPERATURE_PROPERTY_KEY, 0.0);
+                //Add a new Property associated to the target PAD with a key, a default value and the change that is
+                //worth a DT State update
+                PhysicalAssetProperty<Double> temperatureProperty = new DeadbandPhysicalAssetProperty<Double>(
+                        GlobalKeywords.TEMPERATURE_PROPERTY_KEY,
+                        0.0,
+                        getConfiguration().getTemperatureAbsoluteDeadband(),
+                        getConfiguration().getTemperaturePercentDeadband(),
+                        getConfiguration().getTemperatureMinIntervalMs(),
+                        getConfiguration().getTemperatureMaxSilenceMs());
                 pad.getProperties().add(temperatureProperty);
 
                 //Add the declaration of a new type of generated event associated to a event key
@@ -88,11 +171,20 @@ public class DemoConfPhysicalAdapter extends ConfigurablePhysicalAdapter<DemoPhy
                 PhysicalAssetEvent overheatingEvent = new PhysicalAssetEvent(GlobalKeywords.OVERHEATING_EVENT_KEY, "text/plain");
                 pad.getEvents().add(overheatingEvent);
 
+                //Declare the event acknowledging the executed actions
+                pad.getEvents().add(new PhysicalAssetEvent(GlobalKeywords.ACTION_ACK_EVENT_KEY, "text/plain"));
+
                 //Declare the availability of a target action characterized by a Key, an action type
                 // and the expected content type and the request body
                 PhysicalAssetAction setTemperatureAction = new PhysicalAssetAction(GlobalKeywords.SET_TEMPERATURE_ACTION_KEY, "temperature.actuation", "text/plain");
                 pad.getActions().add(setTemperatureAction);
 
+                //Declare the safety action stopping the device
+                pad.getActions().add(new PhysicalAssetAction(GlobalKeywords.EMERGENCY_STOP_ACTION_KEY, "safety.stop", "text/plain"));
+
+                //Declare the action receiving the batched requests, so that a batch reaches the device in one event
+                pad.getActions().add(new PhysicalAssetAction(batchActionKey, "action.batch", "text/plain"));
+
                 //Create Test Relationship to describe that the Physical Device is inside a building
                 this.insideInRelationship = new PhysicalAssetRelationship<>(GlobalKeywords.INSIDE_IN_RELATIONSHIP_NAME, GlobalKeywords.INSIDE_IN_RELATIONSHIP_TYPE);
                 pad.getRelationships().add(insideInRelationship);
@@ -101,58 +193,57 @@ public class DemoConfPhysicalAdapter extends ConfigurablePhysicalAdapter<DemoPhy
                 this.notifyPhysicalAdapterBound(pad);
 
             } catch (Exception e) {
-                e.printStackTrace();
+                logger.error("[DemoPhysicalAdapter] -> Error publishing the Physical Asset Description: {}", e.getMessage());
             }
         };
     }
 
-    private Runnable deviceEmulation(){
-        return () -> {
-            try {
-
-
-                System.out.println("[DemoPhysicalAdapter] -> Sleeping before Starting Physical Device Emulation ...");
-
-                //Sleep 5 seconds to emulate device startup
-                Thread.sleep(10000);
+    /**
+     * Schedules the device emulation on the shared emulation scheduler: no thread is tied up while waiting
+     * and the temperature measurements are generated at a fixed rate
+     */
+    private void startDeviceEmulation(){
 
-                System.out.println("[DemoPhysicalAdapter] -> Starting Physical Device Emulation ...");
+        logger.info("[DemoPhysicalAdapter] -> Sleeping before Starting Physical Device Emulation ...");
 
-                //Create a new random object to emulate temperature variations
-                Random r = new Random();
+        //Create a new random object to emulate temperature variations
+        Random random = new Random();
 
-                //Publish an initial Event for a normal condition
-                publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "normal"));
+        //Wait 10 seconds to emulate device startup and then publish an initial Event for a normal condition
+        deviceEmulation.schedule(TimeUnit.SECONDS.toNanos(10), tickIndex -> {
+            logger.info("[DemoPhysicalAdapter] -> Starting Physical Device Emulation ...");
+            publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "normal"));
+        });
 
-                //Sleep 5 seconds to emulate device startup
-                Thread.sleep(10000);
+        //Emulate Relationship Instance Creation after 10 more seconds
+        deviceEmulation.schedule(TimeUnit.SECONDS.toNanos(20), tickIndex -> publishPhysicalRelationshipInstance());
 
-                //Emulate Relationship Instance Creation
-                publishPhysicalRelationshipInstance();
+        //Emulate the generation on 'n' temperature measurements, one every update period
+        long updatePeriodNanos = getConfiguration().getMessageUpdatePeriodNanos();
 
-                //Emulate the generation on 'n' temperature measurements
-                for(int i = 0; i < getConfiguration().getMessageUpdateNumber(); i++){
+        deviceEmulation.scheduleAtFixedRate(
+                TimeUnit.SECONDS.toNanos(20) + updatePeriodNanos,
+                updatePeriodNanos,
+                getConfiguration().getMessageUpdateNumber(),
+                tickIndex -> {
 
-                    //Sleep to emulate sensor measurement
-                    Thread.sleep(getConfiguration().getMessageUpdateTime());
-
-                    //Update the
-                    double randomTemperature = getConfiguration().getTemperatureMinValue() + (getConfiguration().getTemperatureMaxValue() - getConfiguration().getTemperatureMinValue()) * r.nextDouble();
+                    //Update the temperature
+                    double randomTemperature = getConfiguration().getTemperatureMinValue() + (getConfiguration().getTemperatureMaxValue() - getConfiguration().getTemperatureMinValue()) * random.nextDouble();
 
                     //Create a new event to notify the variation of a Physical Property
                     PhysicalAssetPropertyWldtEvent<Double> newPhysicalPropertyEvent = new PhysicalAssetPropertyWldtEvent<>(GlobalKeywords.TEMPERATURE_PROPERTY_KEY, randomTemperature);
 
                     //Publish the WLDTEvent associated to the Physical Property Variation
                     publishPhysicalAssetPropertyWldtEvent(newPhysicalPropertyEvent);
-                }
-
-                //Publish a demo Physical Event associated to a 'critical' overheating condition
-                publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "critical"));
-
-            } catch (EventBusException | InterruptedException e) {
-                e.printStackTrace();
-            }
-        };
+                },
+                () -> {
+                    try {
+                        //Publish a demo Physical Event associated to a 'critical' overheating condition
+                        publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "critical"));
+                    } catch (EventBusException e) {
+                        logger.error("[DemoPhysicalAdapter] -> Error publishing the critical overheating event: {}", e.getMessage());
+                    }
+                });
     }
 
     private void publishPhysicalRelationshipInstance() {
@@ -170,7 +261,7 @@ public class DemoConfPhysicalAdapter extends ConfigurablePhysicalAdapter<DemoPhy
             publishPhysicalAssetRelationshipCreatedWldtEvent(relInstanceEvent);
 
         }catch (Exception e){
-            e.printStackTrace();
+            logger.error("[DemoPhysicalAdapter] -> Error publishing the relationship instance: {}", e.getMessage());
         }
     }
 }
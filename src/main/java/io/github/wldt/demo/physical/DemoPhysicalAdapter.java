@@ -1,5 +1,9 @@
 package io.github.wldt.demo.physical;
 
+import io.github.wldt.demo.executor.AdapterTaskRunner;
+import io.github.wldt.demo.logger.LogMarkers;
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.shadowing.ActionRequest;
 import io.github.wldt.demo.utils.GlobalKeywords;
 import it.wldt.adapter.physical.*;
 import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
@@ -7,10 +11,13 @@ import it.wldt.adapter.physical.event.PhysicalAssetEventWldtEvent;
 import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
 import it.wldt.adapter.physical.event.PhysicalAssetRelationshipInstanceCreatedWldtEvent;
 import it.wldt.exception.EventBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Authors:
@@ -20,8 +27,16 @@ import java.util.Random;
  */
 public class DemoPhysicalAdapter extends PhysicalAdapter {
 
+    private static final Logger logger = LoggerFactory.getLogger(DemoPhysicalAdapter.class);
+
     private PhysicalAssetRelationship<String> insideInRelationship = null;
 
+    // Scheduled background tasks of the adapter, cancelled when the adapter is stopped
+    private final AdapterTaskRunner taskRunner = new AdapterTaskRunner();
+
+    // Emulated device ticks scheduled on the shared emulation scheduler
+    private final DeviceEmulation deviceEmulation = new DeviceEmulation();
+
     public DemoPhysicalAdapter(String id) {
         super(id);
     }
@@ -30,15 +45,21 @@ public class DemoPhysicalAdapter extends PhysicalAdapter {
     public void onIncomingPhysicalAction(PhysicalAssetActionWldtEvent<?> physicalAssetActionWldtEvent) {
         try{
 
+            Object body = physicalAssetActionWldtEvent != null ? physicalAssetActionWldtEvent.getBody() : null;
+
+            //The demo shadowing function wraps the request body in an ActionRequest
+            if(body instanceof ActionRequest)
+                body = ((ActionRequest) body).getBody();
+
             if(physicalAssetActionWldtEvent != null
                     && physicalAssetActionWldtEvent.getActionKey().equals(GlobalKeywords.SET_TEMPERATURE_ACTION_KEY)
-                    && physicalAssetActionWldtEvent.getBody() instanceof Double) {
+                    && body instanceof Double) {
 
-                System.out.println("[DemoPhysicalAdapter] -> Received Action Request: " + physicalAssetActionWldtEvent.getActionKey()
-                        + " with Body: " + physicalAssetActionWldtEvent.getBody());
+                logger.info(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Received Action Request: {} with Body: {}",
+                        physicalAssetActionWldtEvent.getActionKey(), body);
             }
             else
-                System.err.println("[DemoPhysicalAdapter] -> Wrong Action Received !");
+                logger.warn(LogMarkers.PER_EVENT, "[DemoPhysicalAdapter] -> Wrong Action Received !");
 
         }catch (Exception e){
             e.printStackTrace();
@@ -49,11 +70,13 @@ public class DemoPhysicalAdapter extends PhysicalAdapter {
     public void onAdapterStart() {
         try {
 
-            //Start Physical Asset Description Publication
-            new Thread(publishPhysicalAssetDescription()).start();
+            System.out.println("[DemoPhysicalAdapter] -> Sleeping before Publishing Physical Asset Description ...");
+
+            //Start Physical Asset Description Publication after a Startup delay of 5 seconds to emulate device startup
+            taskRunner.schedule(publishPhysicalAssetDescription(), 5000, TimeUnit.MILLISECONDS);
 
             //Start Device Emulation
-            new Thread(deviceEmulation()).start();
+            startDeviceEmulation();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -62,18 +85,15 @@ public class DemoPhysicalAdapter extends PhysicalAdapter {
 
     @Override
     public void onAdapterStop() {
-
+        //Cancel the PAD publication if still pending and stop the device emulation
+        taskRunner.shutdown();
+        deviceEmulation.stop();
     }
 
     private Runnable publishPhysicalAssetDescription(){
         return () -> {
             try {
 
-                System.out.println("[DemoPhysicalAdapter] -> Sleeping before Publishing Physical Asset Description ...");
-
-                //Emulate a Startup delay of 5 seconds to emulate device startup
-                Thread.sleep(5000);
-
                 System.out.println("[DemoPhysicalAdapter] -> Publishing Physical Asset Description ...");
 
                 //Create an empty PAD
@@ -106,52 +126,52 @@ public class DemoPhysicalAdapter extends PhysicalAdapter {
         };
     }
 
-    private Runnable deviceEmulation() {
-        return () -> {
-            try {
-
-                System.out.println("[DemoPhysicalAdapter] -> Sleeping before Starting Physical Device Emulation ...");
-
-                //Sleep 5 seconds to emulate device startup
-                Thread.sleep(10000);
+    /**
+     * Schedules the device emulation on the shared emulation scheduler: no thread is tied up while waiting
+     * and the temperature measurements are generated at a fixed rate
+     */
+    private void startDeviceEmulation(){
 
-                System.out.println("[DemoPhysicalAdapter] -> Starting Physical Device Emulation ...");
+        System.out.println("[DemoPhysicalAdapter] -> Sleeping before Starting Physical Device Emulation ...");
 
-                //Create a new random object to emulate temperature variations
-                Random r = new Random();
+        //Create a new random object to emulate temperature variations
+        Random random = new Random();
 
-                //Publish an initial Event for a normal condition
-                publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "normal"));
+        //Wait 10 seconds to emulate device startup and then publish an initial Event for a normal condition
+        deviceEmulation.schedule(TimeUnit.SECONDS.toNanos(10), tickIndex -> {
+            System.out.println("[DemoPhysicalAdapter] -> Starting Physical Device Emulation ...");
+            publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "normal"));
+        });
 
-                //Sleep 5 seconds to emulate device startup
-                Thread.sleep(10000);
+        //Emulate Relationship Instance Creation after 10 more seconds
+        deviceEmulation.schedule(TimeUnit.SECONDS.toNanos(20), tickIndex -> publishPhysicalRelationshipInstance());
 
-                //Emulate Relationship Instance Creation
-                publishPhysicalRelationshipInstance();
+        //Emulate the generation on 'n' temperature measurements, one every update period
+        long updatePeriodNanos = TimeUnit.MILLISECONDS.toNanos(GlobalKeywords.MESSAGE_UPDATE_TIME);
 
-                //Emulate the generation on 'n' temperature measurements
-                for ( int i = 0; i < GlobalKeywords.MESSAGE_UPDATE_NUMBER; i++ ) {
-
-                    //Sleep to emulate sensor measurement
-                    Thread.sleep(GlobalKeywords.MESSAGE_UPDATE_TIME);
+        deviceEmulation.scheduleAtFixedRate(
+                TimeUnit.SECONDS.toNanos(20) + updatePeriodNanos,
+                updatePeriodNanos,
+                GlobalKeywords.MESSAGE_UPDATE_NUMBER,
+                tickIndex -> {
 
                     //Update the temperature
-                    double randomTemperature = GlobalKeywords.TEMPERATURE_MIN_VALUE + (GlobalKeywords.TEMPERATURE_MAX_VALUE - GlobalKeywords.TEMPERATURE_MIN_VALUE) * r.nextDouble();
+                    double randomTemperature = GlobalKeywords.TEMPERATURE_MIN_VALUE + (GlobalKeywords.TEMPERATURE_MAX_VALUE - GlobalKeywords.TEMPERATURE_MIN_VALUE) * random.nextDouble();
 
                     //Create a new event to notify the variation of a Physical Property
                     PhysicalAssetPropertyWldtEvent<Double> newPhysicalPropertyEvent = new PhysicalAssetPropertyWldtEvent<>(GlobalKeywords.TEMPERATURE_PROPERTY_KEY, randomTemperature);
 
                     //Publish the WLDTEvent associated to the Physical Property Variation
                     publishPhysicalAssetPropertyWldtEvent(newPhysicalPropertyEvent);
-                }
-
-                //Publish a demo Physical Event associated to a 'critical' overheating condition
-                publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "critical"));
-
-            } catch (EventBusException | InterruptedException e) {
-                e.printStackTrace();
-            }
-        };
+                },
+                () -> {
+                    try {
+                        //Publish a demo Physical Event associated to a 'critical' overheating condition
+                        publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(GlobalKeywords.OVERHEATING_EVENT_KEY, "critical"));
+                    } catch (EventBusException e) {
+                        e.printStackTrace();
+                    }
+                });
     }
 
     private void publishPhysicalRelationshipInstance() {
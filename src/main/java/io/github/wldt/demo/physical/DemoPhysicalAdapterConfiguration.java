@@ -8,10 +8,22 @@ public class DemoPhysicalAdapterConfiguration {
 
     private int messageUpdateNumber = GlobalKeywords.MESSAGE_UPDATE_NUMBER;
 
+    // Optional update period in nanoseconds for sub-millisecond emulation, if <= 0 messageUpdateTime is used
+    private long messageUpdatePeriodNanos = 0;
+
     private double temperatureMinValue = GlobalKeywords.TEMPERATURE_MIN_VALUE;
 
     private double temperatureMaxValue = GlobalKeywords.TEMPERATURE_MAX_VALUE;
 
+    // Deadband declared in the PAD for the temperature property, any value <= 0 disables the parameter
+    private double temperatureAbsoluteDeadband = GlobalKeywords.TEMPERATURE_ABSOLUTE_DEADBAND;
+
+    private double temperaturePercentDeadband = GlobalKeywords.TEMPERATURE_PERCENT_DEADBAND;
+
+    private long temperatureMinIntervalMs = GlobalKeywords.TEMPERATURE_MIN_INTERVAL_MS;
+
+    private long temperatureMaxSilenceMs = GlobalKeywords.TEMPERATURE_MAX_SILENCE_MS;
+
     public DemoPhysicalAdapterConfiguration() {
     }
 
@@ -30,6 +42,14 @@ public class DemoPhysicalAdapterConfiguration {
         this.messageUpdateTime = messageUpdateTime;
     }
 
+    public long getMessageUpdatePeriodNanos() {
+        return messageUpdatePeriodNanos > 0 ? messageUpdatePeriodNanos : messageUpdateTime * 1_000_000L;
+    }
+
+    public void setMessageUpdatePeriodNanos(long messageUpdatePeriodNanos) {
+        this.messageUpdatePeriodNanos = messageUpdatePeriodNanos;
+    }
+
     public int getMessageUpdateNumber() {
         return messageUpdateNumber;
     }
@@ -54,13 +74,50 @@ public class DemoPhysicalAdapterConfiguration {
         this.temperatureMaxValue = temperatureMaxValue;
     }
 
+    public double getTemperatureAbsoluteDeadband() {
+        return temperatureAbsoluteDeadband;
+    }
+
+    public void setTemperatureAbsoluteDeadband(double temperatureAbsoluteDeadband) {
+        this.temperatureAbsoluteDeadband = temperatureAbsoluteDeadband;
+    }
+
+    public double getTemperaturePercentDeadband() {
+        return temperaturePercentDeadband;
+    }
+
+    public void setTemperaturePercentDeadband(double temperaturePercentDeadband) {
+        this.temperaturePercentDeadband = temperaturePercentDeadband;
+    }
+
+    public long getTemperatureMinIntervalMs() {
+        return temperatureMinIntervalMs;
+    }
+
+    public void setTemperatureMinIntervalMs(long temperatureMinIntervalMs) {
+        this.temperatureMinIntervalMs = temperatureMinIntervalMs;
+    }
+
+    public long getTemperatureMaxSilenceMs() {
+        return temperatureMaxSilenceMs;
+    }
+
+    public void setTemperatureMaxSilenceMs(long temperatureMaxSilenceMs) {
+        this.temperatureMaxSilenceMs = temperatureMaxSilenceMs;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("DemoPhysicalAdapterConfiguration{");
         sb.append("messageUpdateTime=").append(messageUpdateTime);
+        sb.append(", messageUpdatePeriodNanos=").append(messageUpdatePeriodNanos);
         sb.append(", messageUpdateNumber=").append(messageUpdateNumber);
         sb.append(", temperatureMinValue=").append(temperatureMinValue);
         sb.append(", temperatureMaxValue=").append(temperatureMaxValue);
+        sb.append(", temperatureAbsoluteDeadband=").append(temperatureAbsoluteDeadband);
+        sb.append(", temperaturePercentDeadband=").append(temperaturePercentDeadband);
+        sb.append(", temperatureMinIntervalMs=").append(temperatureMinIntervalMs);
+        sb.append(", temperatureMaxSilenceMs=").append(temperatureMaxSilenceMs);
         sb.append('}');
         return sb.toString();
     }
@@ -0,0 +1,196 @@
+package io.github.wldt.demo.physical;
+
+import io.github.wldt.demo.load.LoadRateController;
+import io.github.wldt.demo.load.SendTimestampRegistry;
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.utils.GlobalKeywords;
+import it.wldt.adapter.physical.*;
+import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
+import it.wldt.adapter.physical.event.PhysicalAssetEventWldtEvent;
+import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
+import it.wldt.adapter.physical.event.PhysicalAssetRelationshipInstanceCreatedWldtEvent;
+import it.wldt.exception.EventBusException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Physical Adapter generating synthetic load to measure how many property updates per second a Digital Twin can
+ * absorb. Messages are generated across many property keys and event keys according to the configured
+ * {@link io.github.wldt.demo.load.LoadProfile} and a set of relationship instances is created before the load starts.
+ *
+ * The value of each generated property sample is its sequence number on the property and its send timestamp is
+ * stored in the {@link SendTimestampRegistry}, so that Digital Adapters can measure the end-to-end latency when
+ * the update is delivered through onStateUpdate. The body of each generated event is its send timestamp, used to
+ * measure the latency of the event notifications.
+ */
+public class LoadGeneratorPhysicalAdapter extends ConfigurablePhysicalAdapter<LoadGeneratorPhysicalAdapterConfiguration> {
+
+    private final DeviceEmulation deviceEmulation = new DeviceEmulation();
+
+    private final SendTimestampRegistry sendTimestampRegistry = SendTimestampRegistry.getInstance();
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    private PhysicalAssetRelationship<String> insideInRelationship = null;
+
+    private String[] propertyKeys;
+
+    private long[] propertySequenceNumbers;
+
+    private String[] eventKeys;
+
+    private LoadRateController rateController;
+
+    private long tickPeriodNanos;
+
+    private int nextPropertyIndex = 0;
+
+    private volatile long generatedPropertyCount = 0;
+
+    private volatile long generatedEventCount = 0;
+
+    public LoadGeneratorPhysicalAdapter(String id, LoadGeneratorPhysicalAdapterConfiguration configuration) {
+        super(id, configuration);
+    }
+
+    @Override
+    public void onIncomingPhysicalAction(PhysicalAssetActionWldtEvent<?> physicalAssetActionWldtEvent) {
+        // Actions are accepted and ignored, the load generator only produces traffic
+    }
+
+    @Override
+    public void onAdapterStart() {
+        try {
+
+            LoadGeneratorPhysicalAdapterConfiguration configuration = getConfiguration();
+
+            propertyKeys = new String[Math.max(1, configuration.getPropertyCount())];
+            propertySequenceNumbers = new long[propertyKeys.length];
+            for (int i = 0; i < propertyKeys.length; i++) {
+                //Keys include the adapter id to keep the send timestamps of different generators apart
+                propertyKeys[i] = String.format("%s.%s-%d", getId(), GlobalKeywords.LOAD_PROPERTY_KEY_PREFIX, i);
+                sendTimestampRegistry.registerProperty(propertyKeys[i]);
+            }
+
+            eventKeys = new String[Math.max(0, configuration.getEventKeyCount())];
+            for (int i = 0; i < eventKeys.length; i++) {
+                eventKeys[i] = String.format("%s.%s-%d", getId(), GlobalKeywords.LOAD_EVENT_KEY_PREFIX, i);
+                sendTimestampRegistry.registerEvent(eventKeys[i]);
+            }
+
+            rateController = new LoadRateController(
+                    configuration.getLoadProfile(),
+                    configuration.getBaseRate(),
+                    configuration.getPeakRate(),
+                    configuration.getRampDurationMs(),
+                    configuration.getBurstPeriodMs(),
+                    configuration.getBurstDurationMs());
+
+            tickPeriodNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, configuration.getTickPeriodMicros()));
+
+            //Publish the PAD as soon as the adapter starts
+            deviceEmulation.schedule(0, tickIndex -> publishPhysicalAssetDescription());
+
+            //Create the relationship instances and then start the load after the startup delay
+            long startupDelayNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getStartupDelayMs());
+
+            deviceEmulation.schedule(startupDelayNanos, tickIndex -> publishRelationshipInstances());
+
+            deviceEmulation.scheduleAtFixedRate(
+                    startupDelayNanos + tickPeriodNanos,
+                    tickPeriodNanos,
+                    TimeUnit.MILLISECONDS.toNanos(configuration.getDurationMs()) / tickPeriodNanos,
+                    this::generateLoad,
+                    this::printLoadSummary);
+
+            System.out.println("[LoadGeneratorPhysicalAdapter] -> Load Generation scheduled: " + configuration);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onAdapterStop() {
+        deviceEmulation.stop();
+    }
+
+    public long getGeneratedPropertyCount() {
+        return generatedPropertyCount;
+    }
+
+    public long getGeneratedEventCount() {
+        return generatedEventCount;
+    }
+
+    private void publishPhysicalAssetDescription() throws Exception {
+
+        PhysicalAssetDescription pad = new PhysicalAssetDescription();
+
+        for (String propertyKey : propertyKeys)
+            pad.getProperties().add(new PhysicalAssetProperty<Double>(propertyKey, 0.0));
+
+        for (String eventKey : eventKeys)
+            pad.getEvents().add(new PhysicalAssetEvent(eventKey, "text/plain"));
+
+        pad.getActions().add(new PhysicalAssetAction(GlobalKeywords.SET_TEMPERATURE_ACTION_KEY, "temperature.actuation", "text/plain"));
+
+        this.insideInRelationship = new PhysicalAssetRelationship<>(GlobalKeywords.INSIDE_IN_RELATIONSHIP_NAME, GlobalKeywords.INSIDE_IN_RELATIONSHIP_TYPE);
+        pad.getRelationships().add(insideInRelationship);
+
+        this.notifyPhysicalAdapterBound(pad);
+    }
+
+    private void publishRelationshipInstances() throws EventBusException {
+
+        for (int i = 0; i < getConfiguration().getRelationshipInstanceCount(); i++) {
+
+            Map<String, Object> relationshipMetadata = new HashMap<>();
+            relationshipMetadata.put("floor", String.format("f%d", i % 10));
+            relationshipMetadata.put("room", String.format("r%d", i));
+
+            PhysicalAssetRelationshipInstance<String> relInstance = this.insideInRelationship.createRelationshipInstance(String.format("building-%d", i), relationshipMetadata);
+
+            publishPhysicalAssetRelationshipCreatedWldtEvent(new PhysicalAssetRelationshipInstanceCreatedWldtEvent<>(relInstance));
+        }
+    }
+
+    private void generateLoad(long tickIndex) throws EventBusException {
+
+        int messageCount = rateController.messagesForTick(tickIndex * tickPeriodNanos, tickPeriodNanos);
+
+        double eventRatio = getConfiguration().getEventRatio();
+
+        for (int i = 0; i < messageCount; i++) {
+
+            if (eventKeys.length > 0 && random.nextDouble() < eventRatio) {
+                String eventKey = eventKeys[random.nextInt(eventKeys.length)];
+                publishPhysicalAssetEventWldtEvent(new PhysicalAssetEventWldtEvent<>(eventKey, System.nanoTime()));
+                generatedEventCount++;
+                continue;
+            }
+
+            int propertyIndex = nextPropertyIndex;
+            nextPropertyIndex = (nextPropertyIndex + 1) % propertyKeys.length;
+
+            long sequenceNumber = ++propertySequenceNumbers[propertyIndex];
+
+            //The timestamp is stored before publishing since the update could be delivered before the publish returns
+            sendTimestampRegistry.recordSend(propertyKeys[propertyIndex], sequenceNumber, System.nanoTime());
+
+            publishPhysicalAssetPropertyWldtEvent(new PhysicalAssetPropertyWldtEvent<>(propertyKeys[propertyIndex], (double) sequenceNumber));
+            generatedPropertyCount++;
+        }
+    }
+
+    private void printLoadSummary() {
+        System.out.println("[LoadGeneratorPhysicalAdapter] -> Load Generation completed - Properties: " + generatedPropertyCount
+                + " Events: " + generatedEventCount
+                + " End-to-End Latency: " + sendTimestampRegistry.getLatencyStatistics()
+                + " Event Latency: " + sendTimestampRegistry.getEventLatencyStatistics()
+                + " Untracked Deliveries: " + sendTimestampRegistry.getUntrackedDeliveryCount());
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.wldt.demo.physical;
+
+import io.github.wldt.demo.load.LoadProfile;
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+public class LoadGeneratorPhysicalAdapterConfiguration {
+
+    private LoadProfile loadProfile = LoadProfile.CONSTANT;
+
+    // Rates are expressed in messages per second across all the generated properties and events
+    private double baseRate = GlobalKeywords.LOAD_BASE_RATE;
+
+    private double peakRate = GlobalKeywords.LOAD_PEAK_RATE;
+
+    private int rampDurationMs = GlobalKeywords.LOAD_DURATION_MS / 2;
+
+    private int burstPeriodMs = 10000;
+
+    private int burstDurationMs = 1000;
+
+    private int durationMs = GlobalKeywords.LOAD_DURATION_MS;
+
+    private int startupDelayMs = 5000;
+
+    private int tickPeriodMicros = GlobalKeywords.LOAD_TICK_PERIOD_MICROS;
+
+    private int propertyCount = GlobalKeywords.LOAD_PROPERTY_COUNT;
+
+    private int eventKeyCount = GlobalKeywords.LOAD_EVENT_KEY_COUNT;
+
+    // Fraction of the generated messages that are events instead of property variations
+    private double eventRatio = 0.01;
+
+    private int relationshipInstanceCount = GlobalKeywords.LOAD_RELATIONSHIP_INSTANCE_COUNT;
+
+    public LoadGeneratorPhysicalAdapterConfiguration() {
+    }
+
+    public LoadGeneratorPhysicalAdapterConfiguration(LoadProfile loadProfile, double baseRate, double peakRate, int durationMs, int propertyCount) {
+        this.loadProfile = loadProfile;
+        this.baseRate = baseRate;
+        this.peakRate = peakRate;
+        this.durationMs = durationMs;
+        this.propertyCount = propertyCount;
+    }
+
+    public LoadProfile getLoadProfile() {
+        return loadProfile;
+    }
+
+    public void setLoadProfile(LoadProfile loadProfile) {
+        this.loadProfile = loadProfile;
+    }
+
+    public double getBaseRate() {
+        return baseRate;
+    }
+
+    public void setBaseRate(double baseRate) {
+        this.baseRate = baseRate;
+    }
+
+    public double getPeakRate() {
+        return peakRate;
+    }
+
+    public void setPeakRate(double peakRate) {
+        this.peakRate = peakRate;
+    }
+
+    public int getRampDurationMs() {
+        return rampDurationMs;
+    }
+
+    public void setRampDurationMs(int rampDurationMs) {
+        this.rampDurationMs = rampDurationMs;
+    }
+
+    public int getBurstPeriodMs() {
+        return burstPeriodMs;
+    }
+
+    public void setBurstPeriodMs(int burstPeriodMs) {
+        this.burstPeriodMs = burstPeriodMs;
+    }
+
+    public int getBurstDurationMs() {
+        return burstDurationMs;
+    }
+
+    public void setBurstDurationMs(int burstDurationMs) {
+        this.burstDurationMs = burstDurationMs;
+    }
+
+    public int getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(int durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public int getStartupDelayMs() {
+        return startupDelayMs;
+    }
+
+    public void setStartupDelayMs(int startupDelayMs) {
+        this.startupDelayMs = startupDelayMs;
+    }
+
+    public int getTickPeriodMicros() {
+        return tickPeriodMicros;
+    }
+
+    public void setTickPeriodMicros(int tickPeriodMicros) {
+        this.tickPeriodMicros = tickPeriodMicros;
+    }
+
+    public int getPropertyCount() {
+        return propertyCount;
+    }
+
+    public void setPropertyCount(int propertyCount) {
+        this.propertyCount = propertyCount;
+    }
+
+    public int getEventKeyCount() {
+        return eventKeyCount;
+    }
+
+    public void setEventKeyCount(int eventKeyCount) {
+        this.eventKeyCount = eventKeyCount;
+    }
+
+    public double getEventRatio() {
+        return eventRatio;
+    }
+
+    public void setEventRatio(double eventRatio) {
+        this.eventRatio = eventRatio;
+    }
+
+    public int getRelationshipInstanceCount() {
+        return relationshipInstanceCount;
+    }
+
+    public void setRelationshipInstanceCount(int relationshipInstanceCount) {
+        this.relationshipInstanceCount = relationshipInstanceCount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LoadGeneratorPhysicalAdapterConfiguration{");
+        sb.append("loadProfile=").append(loadProfile);
+        sb.append(", baseRate=").append(baseRate);
+        sb.append(", peakRate=").append(peakRate);
+        sb.append(", rampDurationMs=").append(rampDurationMs);
+        sb.append(", burstPeriodMs=").append(burstPeriodMs);
+        sb.append(", burstDurationMs=").append(burstDurationMs);
+        sb.append(", durationMs=").append(durationMs);
+        sb.append(", startupDelayMs=").append(startupDelayMs);
+        sb.append(", tickPeriodMicros=").append(tickPeriodMicros);
+        sb.append(", propertyCount=").append(propertyCount);
+        sb.append(", eventKeyCount=").append(eventKeyCount);
+        sb.append(", eventRatio=").append(eventRatio);
+        sb.append(", relationshipInstanceCount=").append(relationshipInstanceCount);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.wldt.demo.physical.emulation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Groups the actions scheduled by a single emulated device on the shared {@link DeviceEmulationScheduler}, so that
+ * the whole emulation can be stopped at once when its adapter is stopped, or moved to another scheduler.
+ *
+ * The emulation also counts its executed ticks and the time spent in them, used to measure the load of the device.
+ */
+public class DeviceEmulation {
+
+    private volatile DeviceEmulationScheduler scheduler;
+
+    private final Queue<EmulationHandle> handles = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder tickCount = new LongAdder();
+
+    private final LongAdder busyNanos = new LongAdder();
+
+    public DeviceEmulation() {
+        this(DeviceEmulationScheduler.getInstance());
+    }
+
+    public DeviceEmulation(DeviceEmulationScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public synchronized EmulationHandle schedule(long delayNanos, DeviceTick action) {
+        handles.removeIf(EmulationHandle::isCompleted);
+        EmulationHandle handle = scheduler.schedule(delayNanos, measured(action));
+        handles.add(handle);
+        return handle;
+    }
+
+    public synchronized EmulationHandle scheduleAtFixedRate(long initialDelayNanos, long periodNanos, long maxTicks, DeviceTick tick, Runnable onComplete) {
+        handles.removeIf(EmulationHandle::isCompleted);
+        EmulationHandle handle = scheduler.scheduleAtFixedRate(initialDelayNanos, periodNanos, maxTicks, measured(tick), onComplete);
+        handles.add(handle);
+        return handle;
+    }
+
+    /**
+     * Moves the pending and periodic actions to another scheduler, keeping the time of their next tick
+     */
+    public synchronized void moveTo(DeviceEmulationScheduler targetScheduler) {
+
+        if (targetScheduler == scheduler)
+            return;
+
+        scheduler = targetScheduler;
+        handles.removeIf(EmulationHandle::isCompleted);
+
+        for (EmulationHandle handle : handles) {
+            long delayNanos = handle.detach();
+            if (delayNanos >= 0)
+                targetScheduler.reschedule(handle, delayNanos);
+        }
+    }
+
+    /**
+     * Cancels all the pending and periodic actions of the emulated device
+     */
+    public void stop() {
+        EmulationHandle handle;
+        while ((handle = handles.poll()) != null)
+            handle.cancel();
+    }
+
+    public DeviceEmulationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public long getTickCount() {
+        return tickCount.sum();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    private DeviceTick measured(DeviceTick tick) {
+        return tickIndex -> {
+            long startNanos = System.nanoTime();
+            try {
+                tick.onTick(tickIndex);
+            } finally {
+                busyNanos.add(System.nanoTime() - startNanos);
+                tickCount.increment();
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.wldt.demo.physical.emulation;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared scheduler driving all the emulated devices of the JVM. Instead of dedicating a sleeping thread to each
+ * device, every emulated device registers its periodic tick on a small pool of timer threads.
+ *
+ * Periodic ticks are scheduled at a fixed rate: the scheduled time of each tick is computed from the start time
+ * and not from the end of the previous tick, so the inter-arrival times do not drift. Periods are expressed in
+ * nanoseconds to allow sub-millisecond rates in stress tests (the effective resolution depends on the OS timer).
+ */
+public class DeviceEmulationScheduler {
+
+    private static DeviceEmulationScheduler instance = null;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public DeviceEmulationScheduler(int threadCount) {
+        this(threadCount, "wldt-device-emulation-");
+    }
+
+    public DeviceEmulationScheduler(int threadCount, String threadNamePrefix) {
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, threadCount), runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Cancelled ticks are removed immediately, otherwise stopped devices would stay in the queue
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public static synchronized DeviceEmulationScheduler getInstance() {
+        if (instance == null)
+            instance = new DeviceEmulationScheduler(Integer.getInteger(
+                    GlobalKeywords.EMULATION_SCHEDULER_THREADS_PROPERTY,
+                    Runtime.getRuntime().availableProcessors()));
+        return instance;
+    }
+
+    /**
+     * Schedules a one-shot action (e.g. an emulated startup delay)
+     *
+     * @param delayNanos delay before the execution
+     * @param action the action to execute
+     * @return the handle that can be used to cancel the action
+     */
+    public EmulationHandle schedule(long delayNanos, DeviceTick action) {
+        EmulationHandle handle = new EmulationHandle(1, 0, action, null);
+        handle.setFuture(executor.schedule(handle, delayNanos, TimeUnit.NANOSECONDS));
+        return handle;
+    }
+
+    /**
+     * Schedules a periodic tick at a fixed rate
+     *
+     * @param initialDelayNanos delay before the first tick
+     * @param periodNanos period between two consecutive ticks
+     * @param maxTicks number of ticks after which the emulation is completed, a negative value for unbounded emulation
+     * @param tick the action executed at each tick
+     * @param onComplete optional action executed once after the last tick
+     * @return the handle that can be used to cancel the emulation
+     */
+    public EmulationHandle scheduleAtFixedRate(long initialDelayNanos, long periodNanos, long maxTicks, DeviceTick tick, Runnable onComplete) {
+        EmulationHandle handle = new EmulationHandle(maxTicks, Math.max(1, periodNanos), tick, onComplete);
+        handle.setFuture(executor.scheduleAtFixedRate(handle, initialDelayNanos, Math.max(1, periodNanos), TimeUnit.NANOSECONDS));
+        return handle;
+    }
+
+    /**
+     * Schedules on this scheduler a handle detached from another one, keeping its period and its tick count
+     */
+    void reschedule(EmulationHandle handle, long delayNanos) {
+        if (handle.getPeriodNanos() > 0)
+            handle.setFuture(executor.scheduleAtFixedRate(handle, delayNanos, handle.getPeriodNanos(), TimeUnit.NANOSECONDS));
+        else
+            handle.setFuture(executor.schedule(handle, delayNanos, TimeUnit.NANOSECONDS));
+    }
+
+    public int getScheduledTaskCount() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
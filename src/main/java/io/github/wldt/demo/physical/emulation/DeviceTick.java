@@ -0,0 +1,12 @@
+package io.github.wldt.demo.physical.emulation;
+
+/**
+ * Action executed by the {@link DeviceEmulationScheduler} at each tick of an emulated device
+ */
+public interface DeviceTick {
+
+    /**
+     * @param tickIndex the index of the current tick, starting from 0
+     */
+    void onTick(long tickIndex) throws Exception;
+}
@@ -0,0 +1,124 @@
+package io.github.wldt.demo.physical.emulation;
+
+import io.github.wldt.demo.logger.LogMarkers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle of an action scheduled on the {@link DeviceEmulationScheduler}, counting the executed ticks and allowing
+ * the emulation to be cancelled when the adapter is stopped
+ */
+public class EmulationHandle implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmulationHandle.class);
+
+    private final long maxTicks;
+
+    // Period of the ticks, 0 for a one-shot action
+    private final long periodNanos;
+
+    private final DeviceTick tick;
+
+    private final Runnable onComplete;
+
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private volatile ScheduledFuture<?> future;
+
+    // Written only by the tick being executed, ticks of the same handle never run concurrently (also while the
+    // handle is moved to another scheduler, see run())
+    private volatile long tickCount = 0;
+
+    EmulationHandle(long maxTicks, long periodNanos, DeviceTick tick, Runnable onComplete) {
+        this.maxTicks = maxTicks;
+        this.periodNanos = periodNanos;
+        this.tick = tick;
+        this.onComplete = onComplete;
+    }
+
+    void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+        //The emulation could have been cancelled or completed before the future was available
+        if (completed.get())
+            future.cancel(false);
+    }
+
+    /**
+     * Synchronized only to keep the ticks sequential when the handle is moved: the last tick on the previous
+     * scheduler can still be running when the first one on the new scheduler starts
+     */
+    @Override
+    public synchronized void run() {
+
+        if (completed.get())
+            return;
+
+        //Checked before the tick, an emulation with no ticks completes without running any
+        if (maxTicks >= 0 && tickCount >= maxTicks) {
+            complete();
+            return;
+        }
+
+        try {
+            tick.onTick(tickCount);
+        } catch (Exception e) {
+            logger.error(LogMarkers.PER_EVENT, "[EmulationHandle] -> Error running tick {}: {}", tickCount, e.getMessage(), e);
+        }
+
+        tickCount++;
+
+        if (maxTicks >= 0 && tickCount >= maxTicks)
+            complete();
+    }
+
+    private void complete() {
+        if (completed.compareAndSet(false, true)) {
+            stopFuture();
+            if (onComplete != null)
+                onComplete.run();
+        }
+    }
+
+    /**
+     * Stops the emulation without executing the completion action
+     */
+    public void cancel() {
+        completed.set(true);
+        stopFuture();
+    }
+
+    /**
+     * Stops the ticks on the current scheduler without completing the emulation, so that it can be scheduled on
+     * another one
+     *
+     * @return the delay (ns) before the next tick, -1 if the emulation is already completed
+     */
+    long detach() {
+        ScheduledFuture<?> currentFuture = future;
+        if (completed.get() || currentFuture == null || !currentFuture.cancel(false))
+            return -1;
+        return Math.max(0L, currentFuture.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    private void stopFuture() {
+        ScheduledFuture<?> currentFuture = future;
+        if (currentFuture != null)
+            currentFuture.cancel(false);
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.wldt.demo.rules;
+
+/**
+ * Definition of a rule deriving a DT event from the samples of a numeric property.
+ *
+ * A rule is raised when its signal (the value, the rate of change or the window average) crosses the raise
+ * threshold and cleared when it crosses back the clear threshold, an event is notified on each raise (and on each
+ * clear if a clear event body is set). With below set, the rule is raised when the signal goes below the threshold.
+ */
+public class RuleDefinition {
+
+    private String ruleId;
+
+    private RuleType ruleType;
+
+    private String propertyKey;
+
+    private String eventKey;
+
+    private double raiseThreshold;
+
+    private double clearThreshold;
+
+    private boolean below = false;
+
+    // Number of samples of the WINDOW_AVERAGE rules
+    private int windowSize = 1;
+
+    private String eventBody = "critical";
+
+    // Body of the event notified when the rule is cleared, null to notify only the raise
+    private String clearEventBody = null;
+
+    public RuleDefinition(String ruleId, RuleType ruleType, String propertyKey, String eventKey, double raiseThreshold, double clearThreshold) {
+        this.ruleId = ruleId;
+        this.ruleType = ruleType;
+        this.propertyKey = propertyKey;
+        this.eventKey = eventKey;
+        this.raiseThreshold = raiseThreshold;
+        this.clearThreshold = clearThreshold;
+    }
+
+    public static RuleDefinition threshold(String ruleId, String propertyKey, String eventKey, double threshold) {
+        return new RuleDefinition(ruleId, RuleType.THRESHOLD, propertyKey, eventKey, threshold, threshold);
+    }
+
+    public static RuleDefinition hysteresis(String ruleId, String propertyKey, String eventKey, double raiseThreshold, double clearThreshold) {
+        RuleDefinition ruleDefinition = new RuleDefinition(ruleId, RuleType.HYSTERESIS, propertyKey, eventKey, raiseThreshold, clearThreshold);
+        ruleDefinition.setBelow(raiseThreshold < clearThreshold);
+        return ruleDefinition;
+    }
+
+    public static RuleDefinition rateOfChange(String ruleId, String propertyKey, String eventKey, double maxRatePerSecond) {
+        return new RuleDefinition(ruleId, RuleType.RATE_OF_CHANGE, propertyKey, eventKey, maxRatePerSecond, maxRatePerSecond);
+    }
+
+    public static RuleDefinition windowAverage(String ruleId, String propertyKey, String eventKey, int windowSize, double threshold) {
+        RuleDefinition ruleDefinition = new RuleDefinition(ruleId, RuleType.WINDOW_AVERAGE, propertyKey, eventKey, threshold, threshold);
+        ruleDefinition.setWindowSize(windowSize);
+        return ruleDefinition;
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public void setRuleId(String ruleId) {
+        this.ruleId = ruleId;
+    }
+
+    public RuleType getRuleType() {
+        return ruleType;
+    }
+
+    public void setRuleType(RuleType ruleType) {
+        this.ruleType = ruleType;
+    }
+
+    public String getPropertyKey() {
+        return propertyKey;
+    }
+
+    public void setPropertyKey(String propertyKey) {
+        this.propertyKey = propertyKey;
+    }
+
+    public String getEventKey() {
+        return eventKey;
+    }
+
+    public void setEventKey(String eventKey) {
+        this.eventKey = eventKey;
+    }
+
+    public double getRaiseThreshold() {
+        return raiseThreshold;
+    }
+
+    public void setRaiseThreshold(double raiseThreshold) {
+        this.raiseThreshold = raiseThreshold;
+    }
+
+    public double getClearThreshold() {
+        return clearThreshold;
+    }
+
+    public void setClearThreshold(double clearThreshold) {
+        this.clearThreshold = clearThreshold;
+    }
+
+    public boolean isBelow() {
+        return below;
+    }
+
+    public void setBelow(boolean below) {
+        this.below = below;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public String getEventBody() {
+        return eventBody;
+    }
+
+    public void setEventBody(String eventBody) {
+        this.eventBody = eventBody;
+    }
+
+    public String getClearEventBody() {
+        return clearEventBody;
+    }
+
+    public void setClearEventBody(String clearEventBody) {
+        this.clearEventBody = clearEventBody;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("RuleDefinition{");
+        sb.append("ruleId='").append(ruleId).append('\'');
+        sb.append(", ruleType=").append(ruleType);
+        sb.append(", propertyKey='").append(propertyKey).append('\'');
+        sb.append(", eventKey='").append(eventKey).append('\'');
+        sb.append(", raiseThreshold=").append(raiseThreshold);
+        sb.append(", clearThreshold=").append(clearThreshold);
+        sb.append(", below=").append(below);
+        sb.append(", windowSize=").append(windowSize);
+        sb.append(", eventBody='").append(eventBody).append('\'');
+        sb.append(", clearEventBody='").append(clearEventBody).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.wldt.demo.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming evaluation of the {@link RuleDefinition}s over the property samples.
+ *
+ * The definitions are compiled once into primitive columns indexed by rule (thresholds, state, previous sample,
+ * window ring buffers and running sums) and into the list of rule indexes of each property, so evaluating a sample
+ * is a map lookup plus O(1) work per rule of the property, without allocations. Thresholds of the "below" rules
+ * are negated together with their signal, so all the rules share the same "above" comparison.
+ *
+ * The engine is not thread safe, samples must be evaluated by a single thread (the shadowing function one).
+ */
+public class RuleEngine {
+
+    private static final int[] NO_RULES = new int[0];
+
+    private final RuleDefinition[] ruleDefinitions;
+
+    private final Map<String, int[]> ruleIndexesByProperty = new HashMap<>();
+
+    private final RuleType[] ruleTypes;
+
+    // -1 for the "below" rules, 1 otherwise
+    private final double[] signs;
+
+    private final double[] raiseThresholds;
+
+    private final double[] clearThresholds;
+
+    private final boolean[] raised;
+
+    private final boolean[] hasPreviousSample;
+
+    private final double[] previousValues;
+
+    private final long[] previousTimestamps;
+
+    private final double[][] windows;
+
+    private final int[] windowPositions;
+
+    private final int[] windowCounts;
+
+    private final double[] windowSums;
+
+    private final long[] raiseCounts;
+
+    public RuleEngine(List<RuleDefinition> definitions) {
+
+        int ruleCount = definitions.size();
+
+        this.ruleDefinitions = definitions.toArray(new RuleDefinition[0]);
+        this.ruleTypes = new RuleType[ruleCount];
+        this.signs = new double[ruleCount];
+        this.raiseThresholds = new double[ruleCount];
+        this.clearThresholds = new double[ruleCount];
+        this.raised = new boolean[ruleCount];
+        this.hasPreviousSample = new boolean[ruleCount];
+        this.previousValues = new double[ruleCount];
+        this.previousTimestamps = new long[ruleCount];
+        this.windows = new double[ruleCount][];
+        this.windowPositions = new int[ruleCount];
+        this.windowCounts = new int[ruleCount];
+        this.windowSums = new double[ruleCount];
+        this.raiseCounts = new long[ruleCount];
+
+        Map<String, List<Integer>> indexes = new HashMap<>();
+
+        for (int r = 0; r < ruleCount; r++) {
+
+            RuleDefinition definition = ruleDefinitions[r];
+
+            ruleTypes[r] = definition.getRuleType();
+            signs[r] = definition.isBelow() ? -1.0 : 1.0;
+            raiseThresholds[r] = signs[r] * definition.getRaiseThreshold();
+            //The clear threshold can not be beyond the raise one, otherwise the rule would never be re-armed
+            clearThresholds[r] = Math.min(signs[r] * definition.getClearThreshold(), raiseThresholds[r]);
+
+            if (definition.getRuleType() == RuleType.WINDOW_AVERAGE)
+                windows[r] = new double[Math.max(1, definition.getWindowSize())];
+
+            indexes.computeIfAbsent(definition.getPropertyKey(), key -> new ArrayList<>()).add(r);
+        }
+
+        indexes.forEach((propertyKey, ruleIndexes) -> ruleIndexesByProperty.put(propertyKey, ruleIndexes.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Evaluates a sample of a property against all its rules, notifying the listener of the raise/clear transitions
+     */
+    public void evaluate(String propertyKey, long timestamp, double value, RuleEventListener listener) {
+
+        int[] ruleIndexes = ruleIndexesByProperty.getOrDefault(propertyKey, NO_RULES);
+
+        for (int i = 0; i < ruleIndexes.length; i++) {
+
+            int r = ruleIndexes[i];
+            double signal;
+
+            switch (ruleTypes[r]) {
+                case RATE_OF_CHANGE: {
+                    boolean first = !hasPreviousSample[r];
+                    long elapsedMs = timestamp - previousTimestamps[r];
+                    double previousValue = previousValues[r];
+                    hasPreviousSample[r] = true;
+                    previousValues[r] = value;
+                    previousTimestamps[r] = timestamp;
+                    if (first || elapsedMs <= 0)
+                        continue;
+                    signal = Math.abs(value - previousValue) * 1000.0 / elapsedMs;
+                    break;
+                }
+                case WINDOW_AVERAGE: {
+                    double[] window = windows[r];
+                    int position = windowPositions[r];
+                    if (windowCounts[r] == window.length)
+                        windowSums[r] -= window[position];
+                    else
+                        windowCounts[r]++;
+                    window[position] = value;
+                    windowSums[r] += value;
+                    position = position + 1 == window.length ? 0 : position + 1;
+                    windowPositions[r] = position;
+                    //Recomputing the sum once per window keeps the floating point drift bounded (amortized O(1))
+                    if (position == 0) {
+                        double sum = 0;
+                        for (int w = 0; w < window.length; w++)
+                            sum += window[w];
+                        windowSums[r] = sum;
+                    }
+                    if (windowCounts[r] < window.length)
+                        continue;
+                    signal = windowSums[r] / window.length;
+                    break;
+                }
+                default:
+                    signal = value;
+                    break;
+            }
+
+            double signedSignal = signs[r] * signal;
+
+            if (!raised[r] && signedSignal > raiseThresholds[r]) {
+                raised[r] = true;
+                raiseCounts[r]++;
+                listener.onRuleEvent(ruleDefinitions[r], true, timestamp, signal);
+            } else if (raised[r] && signedSignal <= clearThresholds[r]) {
+                raised[r] = false;
+                listener.onRuleEvent(ruleDefinitions[r], false, timestamp, signal);
+            }
+        }
+    }
+
+    public boolean hasRules(String propertyKey) {
+        return ruleIndexesByProperty.containsKey(propertyKey);
+    }
+
+    public List<RuleDefinition> getRuleDefinitions() {
+        return List.of(ruleDefinitions);
+    }
+
+    public boolean isRaised(String ruleId) {
+        for (int r = 0; r < ruleDefinitions.length; r++)
+            if (ruleDefinitions[r].getRuleId().equals(ruleId))
+                return raised[r];
+        return false;
+    }
+
+    public long getRaiseCount(String ruleId) {
+        for (int r = 0; r < ruleDefinitions.length; r++)
+            if (ruleDefinitions[r].getRuleId().equals(ruleId))
+                return raiseCounts[r];
+        return 0;
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.wldt.demo.rules;
+
+/**
+ * Receives the raise and clear transitions of the rules
+ */
+@FunctionalInterface
+public interface RuleEventListener {
+    void onRuleEvent(RuleDefinition ruleDefinition, boolean raised, long timestamp, double signal);
+}
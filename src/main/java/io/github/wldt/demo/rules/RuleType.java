@@ -0,0 +1,12 @@
+package io.github.wldt.demo.rules;
+
+public enum RuleType {
+    // The value crosses a threshold
+    THRESHOLD,
+    // The value crosses the raise threshold and is re-armed only when it crosses back the clear threshold
+    HYSTERESIS,
+    // The absolute variation per second between two consecutive samples exceeds a limit
+    RATE_OF_CHANGE,
+    // The average of the last samples crosses a threshold
+    WINDOW_AVERAGE
+}
@@ -0,0 +1,131 @@
+package io.github.wldt.demo.shadowing;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Matches the acknowledgements published by the physical adapters with the dispatched action requests.
+ *
+ * Each dispatched request gets an id, carried by the {@link ActionRequest} and echoed by the acknowledgement, so an
+ * acknowledgement completes the request it refers to whatever the order the physical adapter executes them. The
+ * pending requests of each action key are bounded: when a physical adapter does not acknowledge its actions the
+ * oldest pending requests are counted as expired instead of growing without limits.
+ */
+public class ActionAckTracker {
+
+    private final int maxPendingPerAction;
+
+    // Action key -> request id -> creation time (ms) of the unacknowledged requests, in dispatch order
+    private final Map<String, LinkedHashMap<Long, Long>> pendingByAction = new HashMap<>();
+
+    // Action key of each unacknowledged request
+    private final Map<Long, String> pendingActionKeys = new HashMap<>();
+
+    private long nextRequestId = 1;
+
+    private long dispatchedCount = 0;
+
+    private long ackedCount = 0;
+
+    private long unmatchedAckCount = 0;
+
+    private long expiredCount = 0;
+
+    public ActionAckTracker(int maxPendingPerAction) {
+        this.maxPendingPerAction = Math.max(1, maxPendingPerAction);
+    }
+
+    /**
+     * Records an action request forwarded to the physical adapter
+     *
+     * @param creationTimestamp the creation time (ms) of the digital action request
+     * @return the id of the request, to be echoed by its acknowledgement
+     */
+    public synchronized long onDispatched(String actionKey, long creationTimestamp) {
+
+        LinkedHashMap<Long, Long> pending = pendingByAction.computeIfAbsent(actionKey, key -> new LinkedHashMap<>());
+
+        if (pending.size() == maxPendingPerAction) {
+            Iterator<Long> oldestRequestIds = pending.keySet().iterator();
+            pendingActionKeys.remove(oldestRequestIds.next());
+            oldestRequestIds.remove();
+            expiredCount++;
+        }
+
+        long requestId = nextRequestId++;
+        pending.put(requestId, creationTimestamp);
+        pendingActionKeys.put(requestId, actionKey);
+        dispatchedCount++;
+        return requestId;
+    }
+
+    /**
+     * Forgets a request that could not be published to the physical adapter, it is not counted as dispatched
+     */
+    public synchronized void onPublishFailed(long requestId) {
+        if (removePending(requestId) >= 0)
+            dispatchedCount--;
+    }
+
+    /**
+     * Completes the acknowledged request
+     *
+     * @return the creation time (ms) of the acknowledged request, -1 if the request is not pending
+     */
+    public synchronized long onAck(long requestId) {
+
+        long creationTimestamp = removePending(requestId);
+
+        if (creationTimestamp < 0) {
+            unmatchedAckCount++;
+            return -1;
+        }
+
+        ackedCount++;
+        return creationTimestamp;
+    }
+
+    private long removePending(long requestId) {
+
+        String actionKey = pendingActionKeys.remove(requestId);
+        if (actionKey == null)
+            return -1;
+
+        Long creationTimestamp = pendingByAction.get(actionKey).remove(requestId);
+        return creationTimestamp != null ? creationTimestamp : -1;
+    }
+
+    public synchronized long getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    public synchronized long getAckedCount() {
+        return ackedCount;
+    }
+
+    public synchronized long getUnmatchedAckCount() {
+        return unmatchedAckCount;
+    }
+
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public synchronized long getPendingCount() {
+        return pendingActionKeys.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder("ActionAckTracker{");
+        sb.append("dispatched=").append(dispatchedCount);
+        sb.append(", acked=").append(ackedCount);
+        sb.append(", pending=").append(getPendingCount());
+        sb.append(", expired=").append(expiredCount);
+        sb.append(", unmatchedAcks=").append(unmatchedAckCount);
+        sb.append('}');
+        return sb.toString();
+    }
+}
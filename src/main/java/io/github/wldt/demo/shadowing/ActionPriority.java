@@ -0,0 +1,11 @@
+package io.github.wldt.demo.shadowing;
+
+/**
+ * Priority classes of the rate limited actions, from the highest to the lowest
+ */
+public enum ActionPriority {
+    // Protective actions (e.g. an emergency stop), never queued behind routine actions and taking the shared budget first
+    SAFETY,
+    // Setpoints and other actions that can wait for the available rate
+    ROUTINE
+}
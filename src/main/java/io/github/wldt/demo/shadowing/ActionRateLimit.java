@@ -0,0 +1,66 @@
+package io.github.wldt.demo.shadowing;
+
+/**
+ * Rate limit of the requests of an action key: a token bucket refilled at ratePerSecond and holding at most burst
+ * tokens, and the priority class of the requests
+ */
+public class ActionRateLimit {
+
+    private String actionKey;
+
+    private double ratePerSecond;
+
+    private int burst;
+
+    private ActionPriority priority;
+
+    public ActionRateLimit(String actionKey, double ratePerSecond, int burst, ActionPriority priority) {
+        this.actionKey = actionKey;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.priority = priority;
+    }
+
+    public String getActionKey() {
+        return actionKey;
+    }
+
+    public void setActionKey(String actionKey) {
+        this.actionKey = actionKey;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public ActionPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(ActionPriority priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ActionRateLimit{");
+        sb.append("actionKey='").append(actionKey).append('\'');
+        sb.append(", ratePerSecond=").append(ratePerSecond);
+        sb.append(", burst=").append(burst);
+        sb.append(", priority=").append(priority);
+        sb.append('}');
+        return sb.toString();
+    }
+}
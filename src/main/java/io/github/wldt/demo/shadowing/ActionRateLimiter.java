@@ -0,0 +1,349 @@
+package io.github.wldt.demo.shadowing;
+
+import io.github.wldt.demo.executor.AdapterExecutors;
+import it.wldt.adapter.digital.event.DigitalActionWldtEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limiter of the actions forwarded by a twin to its physical adapters.
+ *
+ * Each limited action key has its own {@link TokenBucket}, and an optional twin bucket is shared by all the
+ * actions of the twin. A request with a token available is dispatched on the calling thread, otherwise it waits
+ * in the FIFO of its action key and is dispatched by a drain task on the shared adapter executor as soon as the rate
+ * allows it. Each {@link ActionPriority} class has a bounded number of queued requests, when it is reached the
+ * request is rejected.
+ *
+ * Keys are queued separately so that a key waiting for its own bucket never holds back the other keys: the drain
+ * dispatches the first request that conforms, visiting the classes from the highest one and the keys of a class in
+ * round robin. Safety actions preempt the routine ones: their keys are visited first and they take the twin budget
+ * even when it is exhausted, so that the routine requests wait for them.
+ *
+ * Buckets, queues and counters are lock-free, only one drain task runs at a time.
+ */
+public class ActionRateLimiter {
+
+    private static final ActionPriority[] PRIORITIES = ActionPriority.values();
+
+    /**
+     * Forwards the conforming action requests to the physical adapters
+     */
+    public interface ActionDispatcher {
+        void dispatch(DigitalActionWldtEvent<?> actionEvent, long queueWaitNanos);
+    }
+
+    private static final class PendingAction {
+
+        final DigitalActionWldtEvent<?> actionEvent;
+        final long enqueueNanos;
+
+        PendingAction(DigitalActionWldtEvent<?> actionEvent, long enqueueNanos) {
+            this.actionEvent = actionEvent;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    private static final class ActionQueue {
+
+        final ActionPriority priority;
+
+        // Null if the action key is not limited
+        final TokenBucket bucket;
+
+        final ConcurrentLinkedQueue<PendingAction> pendingActions = new ConcurrentLinkedQueue<>();
+
+        ActionQueue(ActionPriority priority, TokenBucket bucket) {
+            this.priority = priority;
+            this.bucket = bucket;
+        }
+    }
+
+    private final ActionDispatcher dispatcher;
+
+    private final int queueCapacity;
+
+    // Action key -> queue, the keys without a configured limit are added as routine keys when first received
+    private final ConcurrentHashMap<String, ActionQueue> actionQueues = new ConcurrentHashMap<>();
+
+    // Shared by all the actions of the twin (null if not limited)
+    private final TokenBucket twinBucket;
+
+    // Indexed by priority ordinal
+    private final List<ActionQueue>[] classActionQueues;
+
+    // Key visited first by the next drain pass of each class, accessed only by the drain task
+    private final int[] classCursors;
+
+    private final AtomicInteger[] queueSizes;
+
+    private final LongAdder[] rejectedCounts;
+
+    private final LongAdder[] delayedCounts;
+
+    // Set while a drain task is running, a drain waiting for the next token does not hold it
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    // Incremented by every queued request, tells a drain pass whether requests have been queued since it started
+    private final AtomicLong queuedSequence = new AtomicLong();
+
+    private volatile boolean running = false;
+
+    /**
+     * @param twinRatePerSecond rate shared by all the actions of the twin, <= 0 to limit only the single action keys
+     * @param queueCapacity maximum number of queued requests of each priority class
+     */
+    @SuppressWarnings("unchecked")
+    public ActionRateLimiter(List<ActionRateLimit> actionRateLimits, double twinRatePerSecond, int twinBurst, int queueCapacity, ActionDispatcher dispatcher) {
+
+        this.dispatcher = dispatcher;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.twinBucket = twinRatePerSecond > 0 ? new TokenBucket(twinRatePerSecond, twinBurst) : null;
+
+        this.classActionQueues = new List[PRIORITIES.length];
+        this.classCursors = new int[PRIORITIES.length];
+        this.queueSizes = new AtomicInteger[PRIORITIES.length];
+        this.rejectedCounts = new LongAdder[PRIORITIES.length];
+        this.delayedCounts = new LongAdder[PRIORITIES.length];
+
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            classActionQueues[i] = new CopyOnWriteArrayList<>();
+            queueSizes[i] = new AtomicInteger();
+            rejectedCounts[i] = new LongAdder();
+            delayedCounts[i] = new LongAdder();
+        }
+
+        for (ActionRateLimit actionRateLimit : actionRateLimits)
+            actionQueues.computeIfAbsent(actionRateLimit.getActionKey(), actionKey -> newActionQueue(
+                    actionRateLimit.getPriority(),
+                    actionRateLimit.getRatePerSecond() > 0 ? new TokenBucket(actionRateLimit.getRatePerSecond(), actionRateLimit.getBurst()) : null));
+    }
+
+    private ActionQueue newActionQueue(ActionPriority priority, TokenBucket bucket) {
+        ActionQueue actionQueue = new ActionQueue(priority, bucket);
+        classActionQueues[priority.ordinal()].add(actionQueue);
+        return actionQueue;
+    }
+
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Stops the drain, the queued requests are discarded and the following ones are rejected
+     */
+    public void stop() {
+        running = false;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            for (ActionQueue actionQueue : classActionQueues[i])
+                actionQueue.pendingActions.clear();
+            queueSizes[i].set(0);
+        }
+    }
+
+    /**
+     * Dispatches the request if it conforms to the rate limits, otherwise queues or rejects it
+     *
+     * @return false if the request has been rejected
+     */
+    public boolean submit(DigitalActionWldtEvent<?> actionEvent) {
+        return submit(actionEvent, dispatcher);
+    }
+
+    /**
+     * Same as {@link #submit(DigitalActionWldtEvent)}, a conforming request is handed to the given dispatcher instead
+     * of the one of the limiter (e.g. to collect the conforming requests of a batch). Queued requests are dispatched
+     * by the dispatcher of the limiter.
+     */
+    public boolean submit(DigitalActionWldtEvent<?> actionEvent, ActionDispatcher conformingDispatcher) {
+
+        ActionQueue actionQueue = actionQueues.computeIfAbsent(actionEvent.getActionKey(), actionKey -> newActionQueue(ActionPriority.ROUTINE, null));
+        int ordinal = actionQueue.priority.ordinal();
+
+        if (!running) {
+            rejectedCounts[ordinal].increment();
+            return false;
+        }
+
+        long nowNanos = System.nanoTime();
+
+        //A request never overtakes the queued requests of its own key, nor the ones of its class waiting for the
+        //twin budget
+        if (actionQueue.pendingActions.isEmpty() && !waitsForTwinBudget(actionQueue.priority) && tryAcquire(actionQueue, nowNanos)) {
+            conformingDispatcher.dispatch(actionEvent, 0L);
+            return true;
+        }
+
+        if (queueSizes[ordinal].incrementAndGet() > queueCapacity) {
+            queueSizes[ordinal].decrementAndGet();
+            rejectedCounts[ordinal].increment();
+            return false;
+        }
+
+        actionQueue.pendingActions.add(new PendingAction(actionEvent, nowNanos));
+        delayedCounts[ordinal].increment();
+        queuedSequence.incrementAndGet();
+
+        startDrain();
+
+        return true;
+    }
+
+    private void startDrain() {
+        if (drainScheduled.compareAndSet(false, true))
+            AdapterExecutors.getExecutor().execute(this::drain);
+    }
+
+    /**
+     * @return true if requests of the class could be queued waiting for the shared twin budget
+     */
+    private boolean waitsForTwinBudget(ActionPriority priority) {
+        return twinBucket != null && priority != ActionPriority.SAFETY && queueSizes[priority.ordinal()].get() > 0;
+    }
+
+    private boolean tryAcquire(ActionQueue actionQueue, long nowNanos) {
+
+        TokenBucket actionBucket = actionQueue.bucket;
+        if (actionBucket != null && !actionBucket.tryAcquire(nowNanos))
+            return false;
+
+        if (twinBucket == null)
+            return true;
+
+        if (actionQueue.priority == ActionPriority.SAFETY) {
+            twinBucket.forceAcquire(nowNanos);
+            return true;
+        }
+
+        if (twinBucket.tryAcquire(nowNanos))
+            return true;
+
+        if (actionBucket != null)
+            actionBucket.release();
+        return false;
+    }
+
+    private long nanosUntilAvailable(ActionQueue actionQueue, long nowNanos) {
+
+        long waitNanos = actionQueue.bucket != null ? actionQueue.bucket.nanosUntilAvailable(nowNanos) : 0L;
+
+        if (twinBucket != null && actionQueue.priority != ActionPriority.SAFETY)
+            waitNanos = Math.max(waitNanos, twinBucket.nanosUntilAvailable(nowNanos));
+
+        return waitNanos;
+    }
+
+    /**
+     * Dispatches the queued requests one at a time, each pass dispatching the first head request that conforms
+     * starting from the highest class. When no head request conforms the drain is rescheduled when the first token
+     * is expected to be available, a request queued in the meantime starts a new drain right away.
+     */
+    private void drain() {
+
+        while (running) {
+
+            long passSequence = queuedSequence.get();
+            long nowNanos = System.nanoTime();
+            long waitNanos = Long.MAX_VALUE;
+            boolean dispatched = false;
+
+            for (int ordinal = 0; ordinal < PRIORITIES.length && !dispatched; ordinal++) {
+
+                List<ActionQueue> actionQueueList = classActionQueues[ordinal];
+                int keyCount = actionQueueList.size();
+
+                for (int k = 0; k < keyCount; k++) {
+
+                    int index = (classCursors[ordinal] + k) % keyCount;
+                    ActionQueue actionQueue = actionQueueList.get(index);
+
+                    PendingAction pendingAction = actionQueue.pendingActions.peek();
+                    if (pendingAction == null)
+                        continue;
+
+                    if (!tryAcquire(actionQueue, nowNanos)) {
+                        waitNanos = Math.min(waitNanos, nanosUntilAvailable(actionQueue, nowNanos));
+                        continue;
+                    }
+
+                    actionQueue.pendingActions.poll();
+                    queueSizes[ordinal].decrementAndGet();
+                    //The next pass starts from the following key, so that the keys of a class share the twin budget
+                    classCursors[ordinal] = (index + 1) % keyCount;
+
+                    dispatcher.dispatch(pendingAction.actionEvent, nowNanos - pendingAction.enqueueNanos);
+                    dispatched = true;
+                    break;
+                }
+            }
+
+            if (dispatched)
+                continue;
+
+            //Released before scheduling the wake up, so that the wake up always finds the drain released
+            drainScheduled.set(false);
+
+            if (waitNanos != Long.MAX_VALUE)
+                AdapterExecutors.getScheduler().schedule(this::startDrain, Math.max(1L, waitNanos), TimeUnit.NANOSECONDS);
+
+            //A request queued after its key has been visited by the pass above would otherwise wait for a token
+            //computed without it
+            if (queuedSequence.get() != passSequence && drainScheduled.compareAndSet(false, true))
+                continue;
+            return;
+        }
+
+        drainScheduled.set(false);
+    }
+
+    /**
+     * @return the number of rejected requests for each priority class
+     */
+    public Map<String, Long> getRejectedCounts() {
+        Map<String, Long> values = new HashMap<>(PRIORITIES.length * 2);
+        for (int i = 0; i < PRIORITIES.length; i++)
+            values.put(PRIORITIES[i].name(), rejectedCounts[i].sum());
+        return values;
+    }
+
+    /**
+     * @return the number of requests that have been queued for each priority class
+     */
+    public Map<String, Long> getDelayedCounts() {
+        Map<String, Long> values = new HashMap<>(PRIORITIES.length * 2);
+        for (int i = 0; i < PRIORITIES.length; i++)
+            values.put(PRIORITIES[i].name(), delayedCounts[i].sum());
+        return values;
+    }
+
+    /**
+     * @return the number of requests currently queued for each priority class
+     */
+    public Map<String, Double> getQueueDepths() {
+        Map<String, Double> values = new HashMap<>(PRIORITIES.length * 2);
+        for (int i = 0; i < PRIORITIES.length; i++)
+            values.put(PRIORITIES[i].name(), (double) queueSizes[i].get());
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ActionRateLimiter{");
+        sb.append("actionKeys=").append(actionQueues.keySet());
+        sb.append(", twinLimited=").append(twinBucket != null);
+        sb.append(", queueCapacity=").append(queueCapacity);
+        sb.append(", queueDepths=").append(getQueueDepths());
+        sb.append(", rejected=").append(getRejectedCounts());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.wldt.demo.shadowing;
+
+import io.github.wldt.demo.utils.GlobalKeywords;
+
+/**
+ * Body of the actions forwarded by the shadowing function to the physical adapters: the original request body
+ * together with the id assigned by the {@link ActionAckTracker}. The physical adapter echoes the request id in the
+ * acknowledgement, so that the acknowledgement completes exactly the request it refers to.
+ *
+ * A physical adapter declaring {@link #batchActionKey(String)} in its PAD receives the requests of an action batch
+ * in a single action event, whose body is the list of the requests in dispatch order.
+ */
+public final class ActionRequest {
+
+    private final long requestId;
+
+    private final String actionKey;
+
+    private final Object body;
+
+    public ActionRequest(long requestId, String actionKey, Object body) {
+        this.requestId = requestId;
+        this.actionKey = actionKey;
+        this.body = body;
+    }
+
+    /**
+     * @return the key of the action receiving the batched requests of the physical adapter
+     */
+    public static String batchActionKey(String physicalAdapterId) {
+        return physicalAdapterId + "." + GlobalKeywords.ACTION_BATCH_ACTION_KEY_SUFFIX;
+    }
+
+    public static boolean isBatchActionKey(String actionKey) {
+        return actionKey.endsWith("." + GlobalKeywords.ACTION_BATCH_ACTION_KEY_SUFFIX);
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public String getActionKey() {
+        return actionKey;
+    }
+
+    public Object getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ActionRequest{");
+        sb.append("requestId=").append(requestId);
+        sb.append(", actionKey='").append(actionKey).append('\'');
+        sb.append(", body=").append(body);
+        sb.append('}');
+        return sb.toString();
+    }
+}
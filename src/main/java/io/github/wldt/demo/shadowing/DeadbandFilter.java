@@ -0,0 +1,166 @@
+package io.github.wldt.demo.shadowing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-property deadband filter placed in front of the DT State updates, so that samples that do not change the
+ * property in a meaningful way do not cost a state transaction and the notification of all the digital adapters.
+ *
+ * A numeric sample is forwarded if it differs from the last forwarded value by at least the absolute or the
+ * percentage delta and at least the minimum interval elapsed since the last forwarded sample. Independently from
+ * its value, the first sample after the maximum silence is forwarded as heartbeat, so that a steady property is
+ * still refreshed and a drift smaller than the deadband is eventually reported.
+ *
+ * Properties without a configured deadband and non numeric samples are always forwarded. The filter is used by the
+ * single thread delivering the property variations, the counters can be read by any thread.
+ */
+public class DeadbandFilter {
+
+    private static final class Slot {
+
+        final double absoluteDeadband;
+        final double percentDeadband;
+        final long minIntervalMs;
+        final long maxSilenceMs;
+
+        boolean hasValue = false;
+        double lastValue;
+        long lastTimestamp;
+
+        // Single writer, volatile to be read by the metric collection
+        volatile long passedCount = 0;
+        volatile long suppressedCount = 0;
+        volatile long heartbeatCount = 0;
+
+        Slot(double absoluteDeadband, double percentDeadband, long minIntervalMs, long maxSilenceMs) {
+            this.absoluteDeadband = absoluteDeadband;
+            this.percentDeadband = percentDeadband;
+            this.minIntervalMs = minIntervalMs;
+            this.maxSilenceMs = maxSilenceMs;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Configures the deadband of a property, resetting its last forwarded value and its counters.
+     * Any parameter <= 0 is disabled.
+     */
+    public void configure(String propertyKey, double absoluteDeadband, double percentDeadband, long minIntervalMs, long maxSilenceMs) {
+        slots.put(propertyKey, new Slot(absoluteDeadband, percentDeadband, minIntervalMs, maxSilenceMs));
+    }
+
+    public boolean isConfigured(String propertyKey) {
+        return slots.containsKey(propertyKey);
+    }
+
+    /**
+     * @param timestamp the creation time (ms) of the sample
+     * @return true if the sample has to be applied on the DT State, false if it is suppressed
+     */
+    public boolean accept(String propertyKey, long timestamp, Object value) {
+
+        Slot slot = slots.get(propertyKey);
+        if (slot == null || !(value instanceof Number))
+            return true;
+
+        double doubleValue = ((Number) value).doubleValue();
+
+        if (!slot.hasValue)
+            return pass(slot, timestamp, doubleValue);
+
+        long elapsedMs = timestamp - slot.lastTimestamp;
+
+        if (slot.maxSilenceMs > 0 && elapsedMs >= slot.maxSilenceMs) {
+            slot.heartbeatCount++;
+            return pass(slot, timestamp, doubleValue);
+        }
+
+        if (slot.minIntervalMs > 0 && elapsedMs < slot.minIntervalMs) {
+            slot.suppressedCount++;
+            return false;
+        }
+
+        if (exceedsDeadband(slot, doubleValue))
+            return pass(slot, timestamp, doubleValue);
+
+        slot.suppressedCount++;
+        return false;
+    }
+
+    private static boolean exceedsDeadband(Slot slot, double value) {
+
+        double delta = Math.abs(value - slot.lastValue);
+
+        if (slot.absoluteDeadband <= 0 && slot.percentDeadband <= 0)
+            return delta != 0 || Double.isNaN(delta);
+
+        //NaN deltas (e.g. a sensor reporting NaN) always pass, the comparisons below would be false
+        if (Double.isNaN(delta))
+            return true;
+
+        return (slot.absoluteDeadband > 0 && delta >= slot.absoluteDeadband)
+                || (slot.percentDeadband > 0 && delta >= Math.abs(slot.lastValue) * slot.percentDeadband / 100.0 && delta != 0);
+    }
+
+    private static boolean pass(Slot slot, long timestamp, double value) {
+        slot.hasValue = true;
+        slot.lastValue = value;
+        slot.lastTimestamp = timestamp;
+        slot.passedCount++;
+        return true;
+    }
+
+    /**
+     * @return the number of forwarded samples (heartbeats included) for each configured property
+     */
+    public Map<String, Long> getPassedCounts() {
+        Map<String, Long> values = new HashMap<>(slots.size() * 2);
+        slots.forEach((key, slot) -> values.put(key, slot.passedCount));
+        return values;
+    }
+
+    /**
+     * @return the number of suppressed samples for each configured property
+     */
+    public Map<String, Long> getSuppressedCounts() {
+        Map<String, Long> values = new HashMap<>(slots.size() * 2);
+        slots.forEach((key, slot) -> values.put(key, slot.suppressedCount));
+        return values;
+    }
+
+    /**
+     * @return the number of samples forwarded only because of the maximum silence for each configured property
+     */
+    public Map<String, Long> getHeartbeatCounts() {
+        Map<String, Long> values = new HashMap<>(slots.size() * 2);
+        slots.forEach((key, slot) -> values.put(key, slot.heartbeatCount));
+        return values;
+    }
+
+    /**
+     * @return the fraction of the received samples that have been suppressed for each configured property
+     */
+    public Map<String, Double> getSuppressionRatios() {
+        Map<String, Double> values = new HashMap<>(slots.size() * 2);
+        slots.forEach((key, slot) -> {
+            long suppressed = slot.suppressedCount;
+            long total = suppressed + slot.passedCount;
+            values.put(key, total > 0 ? (double) suppressed / total : 0.0);
+        });
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DeadbandFilter{");
+        sb.append("properties=").append(slots.keySet());
+        sb.append(", passed=").append(getPassedCounts());
+        sb.append(", suppressed=").append(getSuppressedCounts());
+        sb.append(", heartbeats=").append(getHeartbeatCounts());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.wldt.demo.shadowing;
+
+import io.github.wldt.demo.executor.AdapterExecutors;
+import it.wldt.adapter.digital.event.DigitalActionWldtEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the digital action requests and hands them over in batches grouped by the physical adapter declaring
+ * each action, either when the batch window expires or when the maximum number of requests has been reached.
+ * Within a batch only the latest request for each action key is kept (last setpoint wins), while the request
+ * count reported to the consumer is the number of received requests.
+ *
+ * The physical adapter of each action key is set when the DT is bound, requests for an action key without a known
+ * adapter are grouped under {@link #UNKNOWN_ADAPTER_ID}.
+ */
+public class DigitalActionBatcher {
+
+    public static final String UNKNOWN_ADAPTER_ID = "unknown";
+
+    /**
+     * Receives the deduplicated action requests of a closed batch
+     */
+    public interface BatchConsumer {
+        void onBatch(Map<String, List<DigitalActionWldtEvent<?>>> actionsByAdapter, int requestCount);
+    }
+
+    private final long batchWindowMs;
+
+    private final int batchMaxSize;
+
+    private final BatchConsumer batchConsumer;
+
+    // Guards the pending batch, held only for short map operations
+    private final Object pendingLock = new Object();
+
+    // Serializes batch delivery so that batches are dispatched in the same order they have been closed
+    private final Object deliveryLock = new Object();
+
+    private LinkedHashMap<String, DigitalActionWldtEvent<?>> pendingActions = new LinkedHashMap<>();
+
+    private int pendingRequestCount = 0;
+
+    private boolean started = false;
+
+    private ScheduledFuture<?> windowTimer;
+
+    // Action key -> id of the physical adapter declaring it, replaced as a whole when the DT is bound
+    private volatile Map<String, String> actionAdapterIds = Collections.emptyMap();
+
+    public DigitalActionBatcher(long batchWindowMs, int batchMaxSize, BatchConsumer batchConsumer) {
+        this.batchWindowMs = batchWindowMs;
+        this.batchMaxSize = Math.max(1, batchMaxSize);
+        this.batchConsumer = batchConsumer;
+    }
+
+    public void setActionAdapterIds(Map<String, String> actionAdapterIds) {
+        this.actionAdapterIds = actionAdapterIds;
+    }
+
+    public void start() {
+        synchronized (pendingLock) {
+            started = true;
+        }
+    }
+
+    public void stop() {
+        synchronized (pendingLock) {
+            started = false;
+        }
+        flush();
+    }
+
+    /**
+     * Adds an action request to the current batch, replacing the pending request with the same action key and
+     * closing the batch if the maximum size has been reached
+     */
+    public void offer(DigitalActionWldtEvent<?> actionEvent) {
+
+        boolean batchFull;
+
+        synchronized (pendingLock) {
+
+            pendingActions.put(actionEvent.getActionKey(), actionEvent);
+            pendingRequestCount++;
+
+            batchFull = pendingRequestCount >= batchMaxSize;
+
+            if (!batchFull && windowTimer == null && started)
+                windowTimer = AdapterExecutors.getScheduler().schedule(
+                        () -> AdapterExecutors.getExecutor().execute(this::flush),
+                        batchWindowMs,
+                        TimeUnit.MILLISECONDS);
+        }
+
+        if (batchFull)
+            flush();
+    }
+
+    /**
+     * Closes the current batch (if not empty) and delivers it to the consumer
+     */
+    public void flush() {
+        synchronized (deliveryLock) {
+
+            LinkedHashMap<String, DigitalActionWldtEvent<?>> batch;
+            int requestCount;
+
+            synchronized (pendingLock) {
+
+                if (windowTimer != null) {
+                    windowTimer.cancel(false);
+                    windowTimer = null;
+                }
+
+                if (pendingRequestCount == 0)
+                    return;
+
+                batch = pendingActions;
+                requestCount = pendingRequestCount;
+                pendingActions = new LinkedHashMap<>();
+                pendingRequestCount = 0;
+            }
+
+            batchConsumer.onBatch(groupByAdapter(batch), requestCount);
+        }
+    }
+
+    private Map<String, List<DigitalActionWldtEvent<?>>> groupByAdapter(LinkedHashMap<String, DigitalActionWldtEvent<?>> batch) {
+
+        Map<String, String> adapterIds = this.actionAdapterIds;
+        Map<String, List<DigitalActionWldtEvent<?>>> actionsByAdapter = new LinkedHashMap<>();
+
+        for (DigitalActionWldtEvent<?> actionEvent : batch.values())
+            actionsByAdapter.computeIfAbsent(adapterIds.getOrDefault(actionEvent.getActionKey(), UNKNOWN_ADAPTER_ID), adapterId -> new ArrayList<>())
+                    .add(actionEvent);
+
+        return actionsByAdapter;
+    }
+}
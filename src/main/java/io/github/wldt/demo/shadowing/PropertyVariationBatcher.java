@@ -0,0 +1,121 @@
+package io.github.wldt.demo.shadowing;
+
+import io.github.wldt.demo.executor.AdapterExecutors;
+import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects physical property variations and hands them over in batches, either when the batch window expires or
+ * when the maximum number of samples has been reached. Within a batch only the latest sample for each property
+ * key is kept (latest-value-wins), while the batch size reported to the consumer is the number of received samples.
+ */
+public class PropertyVariationBatcher {
+
+    /**
+     * Receives the coalesced property variations of a closed batch
+     */
+    public interface BatchConsumer {
+        void onBatch(Collection<PhysicalAssetPropertyWldtEvent<?>> propertyEvents, int sampleCount);
+    }
+
+    private final long batchWindowMs;
+
+    private final int batchMaxSize;
+
+    private final BatchConsumer batchConsumer;
+
+    // Guards the pending batch, held only for short map operations
+    private final Object pendingLock = new Object();
+
+    // Serializes batch delivery so that batches are applied in the same order they have been closed
+    private final Object deliveryLock = new Object();
+
+    private LinkedHashMap<String, PhysicalAssetPropertyWldtEvent<?>> pendingEvents = new LinkedHashMap<>();
+
+    private int pendingSampleCount = 0;
+
+    private boolean started = false;
+
+    private ScheduledFuture<?> windowTimer;
+
+    public PropertyVariationBatcher(long batchWindowMs, int batchMaxSize, BatchConsumer batchConsumer) {
+        this.batchWindowMs = batchWindowMs;
+        this.batchMaxSize = Math.max(1, batchMaxSize);
+        this.batchConsumer = batchConsumer;
+    }
+
+    public void start() {
+        synchronized (pendingLock) {
+            started = true;
+        }
+    }
+
+    public void stop() {
+        synchronized (pendingLock) {
+            started = false;
+        }
+        flush();
+    }
+
+    /**
+     * Adds a new property variation to the current batch, closing the batch if the maximum size has been reached
+     *
+     * @param propertyEvent the received physical property variation
+     */
+    public void offer(PhysicalAssetPropertyWldtEvent<?> propertyEvent) {
+
+        boolean batchFull;
+
+        synchronized (pendingLock) {
+
+            pendingEvents.put(propertyEvent.getPhysicalPropertyId(), propertyEvent);
+            pendingSampleCount++;
+
+            batchFull = pendingSampleCount >= batchMaxSize;
+
+            //The first sample of a batch opens the time window, the shared scheduler only triggers the flush
+            //that is then executed on the adapter executor
+            if (!batchFull && windowTimer == null && started)
+                windowTimer = AdapterExecutors.getScheduler().schedule(
+                        () -> AdapterExecutors.getExecutor().execute(this::flush),
+                        batchWindowMs,
+                        TimeUnit.MILLISECONDS);
+        }
+
+        if (batchFull)
+            flush();
+    }
+
+    /**
+     * Closes the current batch (if not empty) and delivers it to the consumer
+     */
+    public void flush() {
+        synchronized (deliveryLock) {
+
+            LinkedHashMap<String, PhysicalAssetPropertyWldtEvent<?>> batch;
+            int sampleCount;
+
+            synchronized (pendingLock) {
+
+                if (windowTimer != null) {
+                    windowTimer.cancel(false);
+                    windowTimer = null;
+                }
+
+                if (pendingSampleCount == 0)
+                    return;
+
+                batch = pendingEvents;
+                sampleCount = pendingSampleCount;
+                pendingEvents = new LinkedHashMap<>();
+                pendingSampleCount = 0;
+            }
+
+            batchConsumer.onBatch(batch.values(), sampleCount);
+        }
+    }
+}
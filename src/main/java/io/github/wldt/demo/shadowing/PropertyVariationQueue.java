@@ -0,0 +1,304 @@
+package io.github.wldt.demo.shadowing;
+
+import io.github.wldt.demo.executor.AdapterTaskRunner;
+import io.github.wldt.demo.utils.GlobalKeywords;
+import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue placed in front of the Shadowing Function property processing. Incoming physical property
+ * variations are enqueued by the publishing thread and consumed by a drain task started on the shared adapter
+ * executor when the first sample is queued, so that a flooding physical adapter can not make the processing fall
+ * behind without limits. The drain task hands over the queued samples and completes as soon as the queue is empty,
+ * it never waits for new samples and can run on the bounded pool of platform threads.
+ *
+ * The behaviour when samples arrive faster than they are processed depends on the configured {@link OverflowPolicy}.
+ *
+ * Once stopped the queue rejects new samples and wakes up the waiting publishers, while the samples already queued
+ * are still handed to the handler before {@link #stop()} returns.
+ */
+public class PropertyVariationQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyVariationQueue.class);
+
+    public enum OverflowPolicy {
+        // A single pending sample for each property, stale samples are overwritten by newer ones
+        COALESCE,
+        // FIFO of samples, the oldest pending sample is dropped when the queue is full
+        DROP_OLDEST,
+        // FIFO of samples, the publisher waits until there is space in the queue
+        BLOCK
+    }
+
+    /**
+     * Processes the property variations taken from the queue
+     */
+    public interface PropertyVariationHandler {
+        void onPropertyVariation(PhysicalAssetPropertyWldtEvent<?> propertyEvent);
+    }
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final PropertyVariationHandler handler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    // Signalled when a drain task completes, used by stop() to wait for the queued samples to be handed over
+    private final Condition drainCompleted = lock.newCondition();
+
+    // Used by COALESCE: one slot per property id, kept in order of first arrival
+    private final LinkedHashMap<String, PhysicalAssetPropertyWldtEvent<?>> coalescingSlots = new LinkedHashMap<>();
+
+    // Used by DROP_OLDEST and BLOCK
+    private final ArrayDeque<PhysicalAssetPropertyWldtEvent<?>> fifo = new ArrayDeque<>();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private volatile int depth = 0;
+
+    private volatile boolean running = false;
+
+    private final AdapterTaskRunner drainTaskRunner = new AdapterTaskRunner();
+
+    // Set while a drain task is submitted or running, so that a single task drains the queue
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    public PropertyVariationQueue(int capacity, OverflowPolicy overflowPolicy, PropertyVariationHandler handler) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        running = true;
+    }
+
+    /**
+     * Rejects the new samples and waits for the drain task to hand the queued ones to the handler. If the drain task
+     * does not complete in time it is interrupted and the samples still queued are counted as dropped.
+     */
+    public synchronized void stop() {
+
+        if (!running)
+            return;
+
+        lock.lock();
+        try {
+            running = false;
+            //Wake up the publishers waiting for a free slot
+            notFull.signalAll();
+
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(GlobalKeywords.PROPERTY_QUEUE_STOP_TIMEOUT_MS);
+            while ((drainScheduled.get() || !isEmpty()) && remainingNanos > 0)
+                remainingNanos = drainCompleted.awaitNanos(remainingNanos);
+
+            if (remainingNanos <= 0)
+                logger.warn("[PropertyVariationQueue] -> Drain not completed on stop");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+
+        drainTaskRunner.shutdown();
+
+        int discardedCount = clear();
+        if (discardedCount > 0) {
+            droppedCount.addAndGet(discardedCount);
+            logger.warn("[PropertyVariationQueue] -> {} queued samples discarded on stop", discardedCount);
+        }
+    }
+
+    /**
+     * Enqueues a property variation applying the configured overflow policy
+     *
+     * @param propertyEvent the received physical property variation
+     * @return false if the sample has been dropped
+     */
+    public boolean offer(PhysicalAssetPropertyWldtEvent<?> propertyEvent) {
+        if (!enqueue(propertyEvent))
+            return false;
+        startDrain();
+        return true;
+    }
+
+    /**
+     * @return false if the sample has been dropped
+     */
+    private boolean enqueue(PhysicalAssetPropertyWldtEvent<?> propertyEvent) {
+        lock.lock();
+        try {
+            if (!running) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            switch (overflowPolicy) {
+                case COALESCE:
+                    if (coalescingSlots.containsKey(propertyEvent.getPhysicalPropertyId())) {
+                        //Overwrite the stale sample keeping its position in the queue
+                        coalescingSlots.put(propertyEvent.getPhysicalPropertyId(), propertyEvent);
+                        coalescedCount.incrementAndGet();
+                        return true;
+                    }
+                    //A new property id can only be added when there is a free slot
+                    while (running && coalescingSlots.size() >= capacity)
+                        notFull.await();
+                    if (!running) {
+                        droppedCount.incrementAndGet();
+                        return false;
+                    }
+                    coalescingSlots.put(propertyEvent.getPhysicalPropertyId(), propertyEvent);
+                    depth = coalescingSlots.size();
+                    break;
+                case DROP_OLDEST:
+                    if (fifo.size() >= capacity) {
+                        fifo.pollFirst();
+                        droppedCount.incrementAndGet();
+                    }
+                    fifo.addLast(propertyEvent);
+                    depth = fifo.size();
+                    break;
+                case BLOCK:
+                    while (running && fifo.size() >= capacity)
+                        notFull.await();
+                    if (!running) {
+                        droppedCount.incrementAndGet();
+                        return false;
+                    }
+                    fifo.addLast(propertyEvent);
+                    depth = fifo.size();
+                    break;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCount.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the oldest queued sample, null if the queue is empty
+     */
+    private PhysicalAssetPropertyWldtEvent<?> poll() {
+        lock.lock();
+        try {
+            PhysicalAssetPropertyWldtEvent<?> propertyEvent;
+            if (overflowPolicy == OverflowPolicy.COALESCE) {
+                if (coalescingSlots.isEmpty())
+                    return null;
+                Iterator<Map.Entry<String, PhysicalAssetPropertyWldtEvent<?>>> iterator = coalescingSlots.entrySet().iterator();
+                propertyEvent = iterator.next().getValue();
+                iterator.remove();
+                depth = coalescingSlots.size();
+            } else {
+                propertyEvent = fifo.pollFirst();
+                if (propertyEvent == null)
+                    return null;
+                depth = fifo.size();
+            }
+            notFull.signal();
+            return propertyEvent;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isEmpty() {
+        lock.lock();
+        try {
+            return coalescingSlots.isEmpty() && fifo.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int clear() {
+        lock.lock();
+        try {
+            int discardedCount = coalescingSlots.size() + fifo.size();
+            coalescingSlots.clear();
+            fifo.clear();
+            depth = 0;
+            return discardedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startDrain() {
+        if (drainScheduled.compareAndSet(false, true))
+            drainTaskRunner.submit(this::drain);
+    }
+
+    /**
+     * Hands the queued samples to the handler until the queue is empty
+     */
+    private void drain() {
+        try {
+            while (true) {
+
+                PhysicalAssetPropertyWldtEvent<?> propertyEvent;
+                while (!Thread.currentThread().isInterrupted() && (propertyEvent = poll()) != null) {
+                    try {
+                        handler.onPropertyVariation(propertyEvent);
+                    } catch (Exception e) {
+                        logger.error("[PropertyVariationQueue] -> Error processing a property variation: {}", e.getMessage(), e);
+                    }
+                }
+
+                drainScheduled.set(false);
+
+                //A sample queued after the last poll found the drain still scheduled and did not start a new one
+                if (Thread.currentThread().isInterrupted() || isEmpty() || !drainScheduled.compareAndSet(false, true))
+                    return;
+            }
+        } finally {
+            lock.lock();
+            try {
+                drainCompleted.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.wldt.demo.shadowing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the whole state is the theoretical arrival
+ * time (ns) of the next request, updated with a compare-and-set, so that concurrent requests never block.
+ *
+ * A request conforms if, after adding its emission interval, the theoretical arrival time is not further in the
+ * future than the burst allows.
+ */
+class TokenBucket {
+
+    private final long emissionIntervalNanos;
+
+    private final long burstNanos;
+
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(double ratePerSecond, int burst) {
+        this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = emissionIntervalNanos * Math.max(1, burst);
+        //The bucket starts full
+        this.theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token if available
+     */
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long arrivalNanos = theoreticalArrivalNanos.get();
+            long nextArrivalNanos = Math.max(arrivalNanos - nowNanos, 0) + nowNanos + emissionIntervalNanos;
+            if (nextArrivalNanos - nowNanos > burstNanos)
+                return false;
+            if (theoreticalArrivalNanos.compareAndSet(arrivalNanos, nextArrivalNanos))
+                return true;
+        }
+    }
+
+    /**
+     * Takes a token even if the bucket is empty, the following requests wait for the debt to be paid back
+     */
+    void forceAcquire(long nowNanos) {
+        while (true) {
+            long arrivalNanos = theoreticalArrivalNanos.get();
+            long nextArrivalNanos = Math.max(arrivalNanos - nowNanos, 0) + nowNanos + emissionIntervalNanos;
+            if (theoreticalArrivalNanos.compareAndSet(arrivalNanos, nextArrivalNanos))
+                return;
+        }
+    }
+
+    /**
+     * Gives back a token taken by a request that has not been dispatched
+     */
+    void release() {
+        theoreticalArrivalNanos.addAndGet(-emissionIntervalNanos);
+    }
+
+    /**
+     * @return the time (ns) to wait before a token is available, 0 if a token is available now
+     */
+    long nanosUntilAvailable(long nowNanos) {
+        return Math.max(0L, theoreticalArrivalNanos.get() + emissionIntervalNanos - burstNanos - nowNanos);
+    }
+}
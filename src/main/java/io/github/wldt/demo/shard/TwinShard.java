@@ -0,0 +1,107 @@
+package io.github.wldt.demo.shard;
+
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.physical.emulation.DeviceEmulationScheduler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A shard of the fleet: a single emulation thread running the device ticks of the twins assigned to it, so that the
+ * ticks of a twin always run on the same thread and the shards do not contend on a shared timer queue
+ */
+public class TwinShard {
+
+    private static final class Assignment {
+
+        final DeviceEmulation deviceEmulation;
+
+        // Busy time (ns) of the twin when it has been assigned to the shard, the time spent before on another
+        // shard is not counted
+        final long baselineBusyNanos;
+
+        Assignment(DeviceEmulation deviceEmulation) {
+            this.deviceEmulation = deviceEmulation;
+            this.baselineBusyNanos = deviceEmulation.getBusyNanos();
+        }
+
+        long getBusyNanos() {
+            return deviceEmulation.getBusyNanos() - baselineBusyNanos;
+        }
+    }
+
+    private final int shardIndex;
+
+    private final DeviceEmulationScheduler scheduler;
+
+    // Twin id -> emulation of the twins currently assigned to the shard
+    private final ConcurrentHashMap<String, Assignment> assignments = new ConcurrentHashMap<>();
+
+    // Busy time (ns) of the twins that left the shard, kept so that the shard busy time never goes back
+    private long departedBusyNanos = 0;
+
+    TwinShard(int shardIndex) {
+        this.shardIndex = shardIndex;
+        this.scheduler = new DeviceEmulationScheduler(1, String.format("wldt-shard-%d-", shardIndex));
+    }
+
+    synchronized void addTwin(String twinId, DeviceEmulation deviceEmulation) {
+        assignments.put(twinId, new Assignment(deviceEmulation));
+    }
+
+    synchronized DeviceEmulation removeTwin(String twinId) {
+        Assignment assignment = assignments.remove(twinId);
+        if (assignment == null)
+            return null;
+        departedBusyNanos += assignment.getBusyNanos();
+        return assignment.deviceEmulation;
+    }
+
+    /**
+     * @return the time (ns) spent by the shard thread in device ticks since the shard creation
+     */
+    synchronized long getBusyNanos() {
+        long busyNanos = departedBusyNanos;
+        for (Assignment assignment : assignments.values())
+            busyNanos += assignment.getBusyNanos();
+        return busyNanos;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public String getShardId() {
+        return String.valueOf(shardIndex);
+    }
+
+    public int getTwinCount() {
+        return assignments.size();
+    }
+
+    public Set<String> getTwinIds() {
+        return assignments.keySet();
+    }
+
+    DeviceEmulation getDeviceEmulation(String twinId) {
+        Assignment assignment = assignments.get(twinId);
+        return assignment != null ? assignment.deviceEmulation : null;
+    }
+
+    DeviceEmulationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("TwinShard{");
+        sb.append("shardIndex=").append(shardIndex);
+        sb.append(", twinCount=").append(assignments.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,272 @@
+package io.github.wldt.demo.shard;
+
+import io.github.wldt.demo.executor.AdapterExecutors;
+import io.github.wldt.demo.monitoring.OpenTelemetryWLDTMonitoring;
+import io.github.wldt.demo.physical.emulation.DeviceEmulation;
+import io.github.wldt.demo.utils.GlobalKeywords;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partitions the twins of a fleet on N {@link TwinShard}s, each one with its own emulation thread.
+ *
+ * A twin is assigned to a shard hashing its id, so the assignment does not depend on the creation order. The load
+ * of each twin is the time spent in its device ticks, the only work running on the shard threads: the shadowing of
+ * the generated samples runs on the WLDT threads and does not depend on the shard of the twin. The periodic
+ * rebalancing compares the load of the shards since the previous run and moves the hottest twins that reduce the gap
+ * from the most loaded shard to the least loaded one. A moved twin keeps the time of its next tick and is not moved
+ * again by the following rebalancing.
+ *
+ * The utilization of the shards is measured since the previous rebalancing, reading it does not move the baseline.
+ */
+public class TwinShardManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwinShardManager.class);
+
+    public static final String SHARD_UTILIZATION_METRIC = "wldt.shard.utilization";
+    public static final String SHARD_TWINS_METRIC = "wldt.shard.twins";
+    public static final String SHARD_MOVED_TWINS_METRIC = "wldt.shard.moved.twins";
+    public static final String SHARD_ATTRIBUTE = "shard.id";
+
+    private final TwinShard[] shards;
+
+    // Current shard of each twin
+    private final ConcurrentHashMap<String, TwinShard> twinShards = new ConcurrentHashMap<>();
+
+    // Busy time (ns) of each twin at the previous rebalancing, guarded by the manager monitor
+    private final Map<String, Long> rebalanceBusyNanos = new HashMap<>();
+
+    // Twins moved by the previous rebalancing, their load has been measured partly on the previous shard so they are
+    // not moved again until a full interval has been measured on the new one, guarded by the manager monitor
+    private Set<String> movedTwinIds = new HashSet<>();
+
+    // Busy time (ns) of each shard thread and wall time at the previous rebalancing, guarded by the manager monitor
+    private final long[] rebalanceShardBusyNanos;
+
+    private long rebalanceNanos;
+
+    private volatile long movedTwinCount = 0;
+
+    private ScheduledFuture<?> rebalanceTask;
+
+    public TwinShardManager(int shardCount) {
+
+        this.shards = new TwinShard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new TwinShard(i);
+
+        this.rebalanceShardBusyNanos = new long[shards.length];
+        this.rebalanceNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the shard index assigned to a twin id before any rebalancing
+     */
+    public static int shardIndexOf(String twinId, int shardCount) {
+        int hash = twinId.hashCode();
+        //Spread the high bits, twin ids often differ only in their last characters
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    /**
+     * Assigns a twin to its shard and creates the emulation running its device ticks on the shard thread
+     */
+    public synchronized DeviceEmulation createDeviceEmulation(String twinId) {
+
+        TwinShard shard = shards[shardIndexOf(twinId, shards.length)];
+        DeviceEmulation deviceEmulation = new DeviceEmulation(shard.getScheduler());
+
+        shard.addTwin(twinId, deviceEmulation);
+        twinShards.put(twinId, shard);
+
+        return deviceEmulation;
+    }
+
+    /**
+     * Starts the periodic rebalancing, triggered by the shared scheduler and executed on the adapter executor
+     */
+    public synchronized void startRebalancing(long intervalMs) {
+        if (rebalanceTask != null || intervalMs <= 0)
+            return;
+        rebalanceTask = AdapterExecutors.getScheduler().scheduleAtFixedRate(
+                () -> AdapterExecutors.getExecutor().execute(this::rebalance), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Moves the hottest twins from the most loaded shards to the least loaded ones, according to the load measured
+     * since the previous rebalancing
+     *
+     * @return the number of moved twins
+     */
+    public synchronized int rebalance() {
+
+        //Load of each twin and of each shard since the previous rebalancing
+        Map<String, Long> twinLoads = new HashMap<>(twinShards.size() * 2);
+        long[] shardLoads = new long[shards.length];
+        long totalLoad = 0;
+
+        for (TwinShard shard : shards) {
+            for (String twinId : shard.getTwinIds()) {
+                DeviceEmulation deviceEmulation = shard.getDeviceEmulation(twinId);
+                if (deviceEmulation == null)
+                    continue;
+                long busyNanos = deviceEmulation.getBusyNanos();
+                Long previousBusyNanos = rebalanceBusyNanos.put(twinId, busyNanos);
+                long load = busyNanos - (previousBusyNanos != null ? previousBusyNanos : 0L);
+                twinLoads.put(twinId, load);
+                shardLoads[shard.getShardIndex()] += load;
+                totalLoad += load;
+            }
+        }
+
+        rebalanceNanos = System.nanoTime();
+        for (TwinShard shard : shards)
+            rebalanceShardBusyNanos[shard.getShardIndex()] = shard.getBusyNanos();
+
+        Set<String> previouslyMovedTwinIds = movedTwinIds;
+        movedTwinIds = new HashSet<>();
+
+        if (shards.length < 2 || totalLoad == 0)
+            return 0;
+
+        long tolerance = (long) (totalLoad / shards.length * GlobalKeywords.SHARD_REBALANCE_TOLERANCE);
+        int moves = 0;
+
+        while (moves < GlobalKeywords.SHARD_REBALANCE_MAX_MOVES) {
+
+            int hottest = 0;
+            int coolest = 0;
+            for (int i = 1; i < shards.length; i++) {
+                if (shardLoads[i] > shardLoads[hottest])
+                    hottest = i;
+                if (shardLoads[i] < shardLoads[coolest])
+                    coolest = i;
+            }
+
+            long gap = shardLoads[hottest] - shardLoads[coolest];
+            if (gap <= tolerance)
+                break;
+
+            //Moving a twin with a load smaller than the gap always reduces the load of the hottest shard pair
+            String candidateTwinId = null;
+            long candidateLoad = 0;
+            for (String twinId : shards[hottest].getTwinIds()) {
+                if (previouslyMovedTwinIds.contains(twinId) || movedTwinIds.contains(twinId))
+                    continue;
+                long load = twinLoads.getOrDefault(twinId, 0L);
+                if (load > candidateLoad && load < gap) {
+                    candidateTwinId = twinId;
+                    candidateLoad = load;
+                }
+            }
+
+            if (candidateTwinId == null)
+                break;
+
+            moveTwin(candidateTwinId, shards[hottest], shards[coolest]);
+            movedTwinIds.add(candidateTwinId);
+            shardLoads[hottest] -= candidateLoad;
+            shardLoads[coolest] += candidateLoad;
+            moves++;
+        }
+
+        if (moves > 0)
+            logger.info("[TwinShardManager] -> Rebalanced {} twins, shard loads (ms): {}", moves, toMillis(shardLoads));
+
+        return moves;
+    }
+
+    private void moveTwin(String twinId, TwinShard sourceShard, TwinShard targetShard) {
+
+        DeviceEmulation deviceEmulation = sourceShard.removeTwin(twinId);
+        if (deviceEmulation == null)
+            return;
+
+        targetShard.addTwin(twinId, deviceEmulation);
+        deviceEmulation.moveTo(targetShard.getScheduler());
+        twinShards.put(twinId, targetShard);
+        movedTwinCount++;
+
+        logger.debug("[TwinShardManager] -> Twin {} moved from shard {} to shard {}", twinId, sourceShard.getShardIndex(), targetShard.getShardIndex());
+    }
+
+    /**
+     * @return the fraction of time spent by each shard thread in device ticks since the previous rebalancing (since
+     * the creation of the manager if the rebalancing is not running)
+     */
+    public synchronized Map<String, Double> getShardUtilizations() {
+
+        long elapsedNanos = Math.max(1L, System.nanoTime() - rebalanceNanos);
+
+        Map<String, Double> utilizations = new LinkedHashMap<>(shards.length * 2);
+        for (TwinShard shard : shards)
+            utilizations.put(shard.getShardId(), (double) (shard.getBusyNanos() - rebalanceShardBusyNanos[shard.getShardIndex()]) / elapsedNanos);
+        return utilizations;
+    }
+
+    /**
+     * @return the number of twins assigned to each shard
+     */
+    public Map<String, Double> getShardTwinCounts() {
+        Map<String, Double> twinCounts = new LinkedHashMap<>(shards.length * 2);
+        for (TwinShard shard : shards)
+            twinCounts.put(shard.getShardId(), (double) shard.getTwinCount());
+        return twinCounts;
+    }
+
+    public void registerMetrics(OpenTelemetryWLDTMonitoring otMetricExporter) {
+        otMetricExporter.addObservableDoubleGauge(SHARD_UTILIZATION_METRIC, SHARD_ATTRIBUTE, this::getShardUtilizations);
+        otMetricExporter.addObservableDoubleGauge(SHARD_TWINS_METRIC, SHARD_ATTRIBUTE, this::getShardTwinCounts);
+        otMetricExporter.addObservableLongCounter(SHARD_MOVED_TWINS_METRIC, () -> movedTwinCount);
+    }
+
+    public TwinShard getShard(String twinId) {
+        return twinShards.get(twinId);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public long getMovedTwinCount() {
+        return movedTwinCount;
+    }
+
+    /**
+     * Stops the rebalancing and the shard threads, the emulations of the twins are not completed
+     */
+    public synchronized void shutdown() {
+        if (rebalanceTask != null) {
+            rebalanceTask.cancel(false);
+            rebalanceTask = null;
+        }
+        for (TwinShard shard : shards)
+            shard.shutdown();
+    }
+
+    private static Map<Integer, Long> toMillis(long[] nanos) {
+        Map<Integer, Long> millis = new LinkedHashMap<>(nanos.length * 2);
+        for (int i = 0; i < nanos.length; i++)
+            millis.put(i, TimeUnit.NANOSECONDS.toMillis(nanos[i]));
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("TwinShardManager{");
+        sb.append("shardCount=").append(shards.length);
+        sb.append(", twinCounts=").append(getShardTwinCounts());
+        sb.append(", movedTwinCount=").append(movedTwinCount);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.wldt.demo.utils;
 
+import java.util.List;
+
 /**
  * @author Marco Picone, Ph.D. - picone.m@gmail.com
  * @project wldt-demo-digital-twin
@@ -10,6 +12,10 @@ public class GlobalKeywords {
     public final static String TEMPERATURE_PROPERTY_KEY = "temperature-property-key";
     public final static String OVERHEATING_EVENT_KEY = "overheating-event-key";
     public final static String SET_TEMPERATURE_ACTION_KEY = "set-temperature-action-key";
+    public final static String ACTION_ACK_EVENT_KEY = "action-ack-event-key";
+    public final static String EMERGENCY_STOP_ACTION_KEY = "emergency-stop-action-key";
+    // Suffix of the action receiving the batched requests of a physical adapter, prefixed by the adapter id
+    public final static String ACTION_BATCH_ACTION_KEY_SUFFIX = "action-batch";
 
     public final static int MESSAGE_UPDATE_TIME = 2000;
     public final static int MESSAGE_UPDATE_NUMBER = 100;
@@ -17,10 +23,102 @@ public class GlobalKeywords {
     public final static double TEMPERATURE_MIN_VALUE = 15;
     public final static double TEMPERATURE_MAX_VALUE = 35;
 
+    // Events derived by the shadowing function rules from the temperature samples
+    public final static String TEMPERATURE_HIGH_EVENT_KEY = "temperature-high-event-key";
+    public final static String TEMPERATURE_SPIKE_EVENT_KEY = "temperature-spike-event-key";
+    public final static String TEMPERATURE_TREND_EVENT_KEY = "temperature-trend-event-key";
+    public final static double TEMPERATURE_HIGH_RAISE_VALUE = 32;
+    public final static double TEMPERATURE_HIGH_CLEAR_VALUE = 30;
+    public final static double TEMPERATURE_SPIKE_RATE_PER_SECOND = 5;
+    public final static int TEMPERATURE_TREND_WINDOW_SIZE = 10;
+    public final static double TEMPERATURE_TREND_AVERAGE_VALUE = 28;
+    public final static double TEMPERATURE_ABSOLUTE_DEADBAND = 0.1;
+    public final static double TEMPERATURE_PERCENT_DEADBAND = 0;
+    public final static long TEMPERATURE_MIN_INTERVAL_MS = 0;
+    public final static long TEMPERATURE_MAX_SILENCE_MS = 10000;
+
     public static final String INSIDE_IN_RELATIONSHIP_NAME = "insideIn";
     public static final String INSIDE_IN_RELATIONSHIP_TYPE = "inside_in_rel";
+    // Metadata entry of the relationship instances used to qualify the reverse lookups of the relationship graph
+    public static final String RELATIONSHIP_QUALIFIER_METADATA_KEY = "floor";
 
     public static final int ACTION_SLEEP_TIME_MS = 1000;
     public static final int EMULATED_ACTION_COUNT = 5;
 
+    public static final boolean STATE_BATCHING_ENABLED = false;
+    public static final int STATE_BATCH_WINDOW_MS = 50;
+    public static final int STATE_BATCH_MAX_SIZE = 256;
+
+    public static final boolean ACTION_BATCHING_ENABLED = false;
+    public static final int ACTION_BATCH_WINDOW_MS = 50;
+    public static final int ACTION_BATCH_MAX_SIZE = 256;
+    public static final int ACTION_MAX_PENDING_ACKS = 1024;
+    public static final int ACTION_QUEUE_CAPACITY = 64;
+    public static final double TWIN_ACTION_RATE_PER_SECOND = 0;
+    public static final int TWIN_ACTION_BURST = 10;
+    public static final double SET_TEMPERATURE_ACTION_RATE_PER_SECOND = 2;
+    public static final int SET_TEMPERATURE_ACTION_BURST = 5;
+    public static final double EMERGENCY_STOP_ACTION_RATE_PER_SECOND = 10;
+    public static final int EMERGENCY_STOP_ACTION_BURST = 1;
+
+    public static final boolean DIGITAL_DELTA_ONLY_ENABLED = false;
+
+    public static final boolean PROPERTY_QUEUE_ENABLED = false;
+    public static final int PROPERTY_QUEUE_CAPACITY = 1024;
+    // Time given to the queue drain to process the queued samples when the shadowing function is stopped
+    public static final int PROPERTY_QUEUE_STOP_TIMEOUT_MS = 5000;
+
+    public static final int FLEET_TWIN_COUNT = 100;
+    public static final int FLEET_STARTUP_STAGGER_MS = 10;
+    public static final int FLEET_STARTUP_TIMEOUT_MS = 120000;
+
+    // 0 to run the device emulations on the shared emulation scheduler
+    public static final int FLEET_SHARD_COUNT = 0;
+    public static final int SHARD_REBALANCE_INTERVAL_MS = 10000;
+    // Load gap between the most and the least loaded shard tolerated by the rebalancing, as a fraction of the average shard load
+    public static final double SHARD_REBALANCE_TOLERANCE = 0.25;
+    public static final int SHARD_REBALANCE_MAX_MOVES = 8;
+
+    public static final String ADAPTER_EXECUTION_MODE_PROPERTY = "wldt.demo.adapter.execution.mode";
+    public static final String ADAPTER_PLATFORM_POOL_SIZE_PROPERTY = "wldt.demo.adapter.platform.pool.size";
+    public static final int ADAPTER_PLATFORM_POOL_SIZE = 64;
+
+    public static final String EMULATION_SCHEDULER_THREADS_PROPERTY = "wldt.demo.emulation.scheduler.threads";
+
+    public static final String LOG_LEVEL_PROPERTY_PREFIX = "wldt.demo.log.level.";
+
+    public static final int EVENT_RECORDER_CAPACITY = 65536;
+    public static final String EVENT_RECORDER_DUMP_DIRECTORY = "event-dumps";
+
+    public static final String JOURNAL_DIRECTORY = "journal";
+    public static final int JOURNAL_SEGMENT_SIZE_BYTES = 64 * 1024 * 1024;
+    public static final int JOURNAL_FSYNC_INTERVAL_MS = 100;
+    public static final int JOURNAL_RETAINED_SEGMENTS = 8;
+    public static final int JOURNAL_SNAPSHOT_INTERVAL_MS = 60000;
+    public static final int JOURNAL_RETAINED_SNAPSHOTS = 2;
+
+    public static final boolean PROPERTY_HISTORY_ENABLED = false;
+    public static final int HISTORY_CHUNK_SIZE = 1024;
+    public static final int HISTORY_RETAINED_CHUNKS = 64;
+    public static final int HISTORY_SECOND_ROLLUP_CAPACITY = 600;
+    public static final int HISTORY_MINUTE_ROLLUP_CAPACITY = 1440;
+    public static final int HISTORY_HOUR_ROLLUP_CAPACITY = 168;
+
+    public static final int AGGREGATION_WINDOW_SIZE = 60;
+    public static final double AGGREGATION_EWMA_ALPHA = 0.1;
+    public static final int AGGREGATION_HISTOGRAM_BIN_COUNT = 200;
+
+    public static final String LOAD_PROPERTY_KEY_PREFIX = "load-property-key";
+    public static final String LOAD_EVENT_KEY_PREFIX = "load-event-key";
+    public static final int LOAD_PROPERTY_COUNT = 100;
+    public static final int LOAD_EVENT_KEY_COUNT = 10;
+    public static final int LOAD_RELATIONSHIP_INSTANCE_COUNT = 10;
+    public static final double LOAD_BASE_RATE = 1000.0;
+    public static final double LOAD_PEAK_RATE = 10000.0;
+    public static final int LOAD_DURATION_MS = 60000;
+    public static final int LOAD_TICK_PERIOD_MICROS = 1000;
+
+    // Bucket boundaries (ms) of the latency histograms, from sub-millisecond to a few seconds
+    public static final List<Double> LATENCY_HISTOGRAM_BUCKETS_MS = List.of(0.5, 1.0, 2.5, 5.0, 10.0, 25.0, 50.0, 100.0, 250.0, 500.0, 1000.0, 2500.0, 5000.0);
+
 }
@@ -0,0 +1,56 @@
+package io.github.wldt.demo.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingDerivedValuesTest {
+
+    private static Map<String, Double> drain(PendingDerivedValues pendingDerivedValues) {
+        Map<String, Double> drainedValues = new LinkedHashMap<>();
+        pendingDerivedValues.drainTo(drainedValues::put);
+        return drainedValues;
+    }
+
+    @Test
+    void keepsTheLatestValueOfEachKeyInOrderOfFirstUpdate() {
+
+        PendingDerivedValues pendingDerivedValues = new PendingDerivedValues();
+
+        pendingDerivedValues.onDerivedValue("a", 1.0);
+        pendingDerivedValues.onDerivedValue("b", 2.0);
+        pendingDerivedValues.onDerivedValue("a", 3.0);
+
+        assertEquals(2, pendingDerivedValues.size());
+
+        Map<String, Double> drainedValues = drain(pendingDerivedValues);
+
+        assertEquals(List.of("a", "b"), List.copyOf(drainedValues.keySet()));
+        assertEquals(3.0, drainedValues.get("a").doubleValue());
+        assertEquals(2.0, drainedValues.get("b").doubleValue());
+        assertEquals(0, pendingDerivedValues.size());
+        assertTrue(drain(pendingDerivedValues).isEmpty());
+    }
+
+    @Test
+    void batchedSamplesAreAllAggregated() {
+
+        AggregationEngine aggregationEngine = new AggregationEngine(List.of(
+                new AggregationDefinition("temperature", null, 8, 0.5, new double[]{50.0}, 0.0, 100.0, 100)));
+        PendingDerivedValues pendingDerivedValues = new PendingDerivedValues();
+
+        //Samples of a single batch, that commits only the latest one
+        for (double value : new double[]{20.0, 40.0, 30.0})
+            aggregationEngine.update("temperature", value, pendingDerivedValues);
+
+        Map<String, Double> drainedValues = drain(pendingDerivedValues);
+
+        assertEquals(20.0, drainedValues.get("temperature.min").doubleValue());
+        assertEquals(40.0, drainedValues.get("temperature.max").doubleValue());
+        assertEquals(30.0, drainedValues.get("temperature.mean").doubleValue(), 1e-9);
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.wldt.demo.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowAggregatorTest {
+
+    private static WindowAggregator aggregator(int windowSize) {
+        return new WindowAggregator(new AggregationDefinition("temperature", null, windowSize, 0.5, new double[]{50.0}, 0.0, 100.0, 100));
+    }
+
+    @Test
+    void emptyWindowHasNoStatistics() {
+
+        WindowAggregator aggregator = aggregator(4);
+
+        assertEquals(0, aggregator.getCount());
+        assertTrue(Double.isNaN(aggregator.getMin()));
+        assertTrue(Double.isNaN(aggregator.getMax()));
+        assertTrue(Double.isNaN(aggregator.getMean()));
+    }
+
+    @Test
+    void evictsTheMinAndMaxLeavingTheWindow() {
+
+        WindowAggregator aggregator = aggregator(3);
+
+        //Decreasing then increasing samples keep the extremes at the head of the deques until they are evicted
+        double[] values = {50, 40, 30, 35, 45, 60, 20};
+        double[] expectedMin = {50, 40, 30, 30, 30, 35, 20};
+        double[] expectedMax = {50, 50, 50, 40, 45, 60, 60};
+
+        for (int i = 0; i < values.length; i++) {
+            aggregator.add(values[i]);
+            assertEquals(expectedMin[i], aggregator.getMin(), "min after sample " + i);
+            assertEquals(expectedMax[i], aggregator.getMax(), "max after sample " + i);
+        }
+    }
+
+    @Test
+    void minAndMaxMatchABruteForceScan() {
+
+        Random random = new Random(42);
+
+        for (int windowSize : new int[]{1, 2, 5, 16}) {
+
+            WindowAggregator aggregator = aggregator(windowSize);
+            double[] samples = new double[500];
+
+            for (int i = 0; i < samples.length; i++) {
+
+                //Few distinct values, so that equal samples are frequent
+                samples[i] = random.nextInt(10);
+                aggregator.add(samples[i]);
+
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int j = Math.max(0, i - windowSize + 1); j <= i; j++) {
+                    min = Math.min(min, samples[j]);
+                    max = Math.max(max, samples[j]);
+                }
+
+                assertEquals(min, aggregator.getMin(), "window " + windowSize + " sample " + i);
+                assertEquals(max, aggregator.getMax(), "window " + windowSize + " sample " + i);
+            }
+
+            assertEquals(windowSize, aggregator.getCount());
+        }
+    }
+
+    @Test
+    void meanAndStdDevCoverOnlyTheWindow() {
+
+        WindowAggregator aggregator = aggregator(4);
+
+        for (double value : new double[]{100, 100, 2, 4, 4, 6})
+            aggregator.add(value);
+
+        assertEquals(4.0, aggregator.getMean(), 1e-9);
+        assertEquals(Math.sqrt(2.0), aggregator.getStdDev(), 1e-9);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.wldt.demo.digital;
+
+import it.wldt.core.state.DigitalTwinStateChange;
+import it.wldt.core.state.DigitalTwinStateProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.wldt.core.state.DigitalTwinStateChange.Operation.*;
+import static it.wldt.core.state.DigitalTwinStateChange.ResourceType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateChangeDispatcherTest {
+
+    private final StateChangeDispatcher stateChangeDispatcher = new StateChangeDispatcher();
+
+    private static DigitalTwinStateChange change(DigitalTwinStateChange.Operation operation, DigitalTwinStateChange.ResourceType resourceType) throws Exception {
+        return new DigitalTwinStateChange(operation, resourceType, new DigitalTwinStateProperty<>("temperature", 20.0));
+    }
+
+    @Test
+    void routesEachChangeToItsHandler() throws Exception {
+
+        List<DigitalTwinStateChange> updatedValues = new ArrayList<>();
+        List<DigitalTwinStateChange> addedProperties = new ArrayList<>();
+
+        stateChangeDispatcher
+                .register(PROPERTY_VALUE, OPERATION_UPDATE, updatedValues::add)
+                .register(PROPERTY, OPERATION_ADD, addedProperties::add);
+
+        DigitalTwinStateChange updatedValue = change(OPERATION_UPDATE, PROPERTY_VALUE);
+        DigitalTwinStateChange addedProperty = change(OPERATION_ADD, PROPERTY);
+
+        stateChangeDispatcher.dispatchAll(List.of(updatedValue, addedProperty, change(OPERATION_REMOVE, PROPERTY), updatedValue));
+
+        assertEquals(List.of(updatedValue, updatedValue), updatedValues);
+        assertEquals(List.of(addedProperty), addedProperties);
+    }
+
+    @Test
+    void unhandledChangesAreOnlyCounted() throws Exception {
+
+        stateChangeDispatcher.dispatch(change(OPERATION_ADD, EVENT));
+        stateChangeDispatcher.dispatch(change(OPERATION_ADD, EVENT));
+        stateChangeDispatcher.dispatch(change(OPERATION_REMOVE, EVENT));
+
+        assertEquals(2, stateChangeDispatcher.getChangeCount(EVENT, OPERATION_ADD));
+        assertEquals(1, stateChangeDispatcher.getChangeCount(EVENT, OPERATION_REMOVE));
+        assertEquals(0, stateChangeDispatcher.getChangeCount(PROPERTY, OPERATION_ADD));
+    }
+
+    @Test
+    void resourceTypeHandlerCoversAllTheOperations() throws Exception {
+
+        List<DigitalTwinStateChange.Operation> operations = new ArrayList<>();
+        stateChangeDispatcher.register(RELATIONSHIP_INSTANCE, stateChange -> operations.add(stateChange.getOperation()));
+
+        for (DigitalTwinStateChange.Operation operation : DigitalTwinStateChange.Operation.values())
+            stateChangeDispatcher.dispatch(change(operation, RELATIONSHIP_INSTANCE));
+        stateChangeDispatcher.dispatch(change(OPERATION_ADD, RELATIONSHIP));
+
+        assertEquals(List.of(DigitalTwinStateChange.Operation.values()), operations);
+    }
+
+    @Test
+    void nullHandlerUnregisters() throws Exception {
+
+        List<DigitalTwinStateChange> updatedValues = new ArrayList<>();
+        stateChangeDispatcher.register(PROPERTY_VALUE, OPERATION_UPDATE, updatedValues::add);
+        stateChangeDispatcher.register(PROPERTY_VALUE, OPERATION_UPDATE, null);
+
+        stateChangeDispatcher.dispatch(change(OPERATION_UPDATE, PROPERTY_VALUE));
+        stateChangeDispatcher.dispatchAll(null);
+
+        assertTrue(updatedValues.isEmpty());
+        assertEquals(1, stateChangeDispatcher.getChangeCount(PROPERTY_VALUE, OPERATION_UPDATE));
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.wldt.demo.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedChunkTest {
+
+    @Test
+    void bitsAreReadBackAcrossWordBoundaries() {
+
+        int[] widths = {1, 7, 64, 3, 12, 64, 1, 63, 9, 2, 64};
+        long[] values = new long[widths.length];
+        Random random = new Random(7);
+
+        BitWriter writer = new BitWriter(1);
+        for (int i = 0; i < widths.length; i++) {
+            values[i] = widths[i] == 64 ? random.nextLong() : random.nextLong() & ((1L << widths[i]) - 1);
+            writer.write(values[i], widths[i]);
+        }
+
+        BitReader reader = new BitReader(writer.toWords());
+        for (int i = 0; i < widths.length; i++)
+            assertEquals(values[i], reader.read(widths[i]), "value " + i);
+    }
+
+    @Test
+    void samplesAreDecodedBitExact() {
+
+        //Irregular deltas exercise every delta-of-delta prefix, special values every XOR case
+        long[] timestamps = {1_000L, 2_000L, 3_000L, 3_050L, 3_100L, 3_400L, 5_000L, 5_000L, 900_000L, 900_001L, 900_002L};
+        double[] values = {20.5, 20.5, 20.75, -0.0, 0.0, Double.NaN, Double.POSITIVE_INFINITY, 1e-300, -123456.789, Double.MIN_VALUE, 20.5};
+
+        SampleRange sampleRange = decode(CompressedChunk.compress(timestamps, values, timestamps.length));
+
+        assertEquals(timestamps.length, sampleRange.size());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], sampleRange.getTimestamp(i), "timestamp " + i);
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(sampleRange.getValue(i)), "value " + i);
+        }
+    }
+
+    @Test
+    void randomWalkRoundTrip() {
+
+        Random random = new Random(42);
+        int count = 1000;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+
+        long timestamp = 1_700_000_000_000L;
+        double value = 21.0;
+        for (int i = 0; i < count; i++) {
+            timestamp += 1000 + random.nextInt(21) - 10;
+            value += random.nextGaussian() * 0.1;
+            timestamps[i] = timestamp;
+            values[i] = value;
+        }
+
+        CompressedChunk compressedChunk = CompressedChunk.compress(timestamps, values, count);
+        SampleRange sampleRange = decode(compressedChunk);
+
+        assertEquals(count, compressedChunk.getCount());
+        assertEquals(timestamps[0], compressedChunk.getFirstTimestamp());
+        assertEquals(timestamps[count - 1], compressedChunk.getLastTimestamp());
+        assertArrayEquals(timestamps, sampleRange.getTimestamps());
+        assertArrayEquals(values, sampleRange.getValues());
+        assertTrue(compressedChunk.getSizeBytes() < count * 16);
+    }
+
+    @Test
+    void visitFiltersTheRange() {
+
+        long[] timestamps = {10L, 20L, 30L, 40L, 50L};
+        double[] values = {1.0, 2.0, 3.0, 4.0, 5.0};
+
+        SampleRange sampleRange = new SampleRange();
+        CompressedChunk.compress(timestamps, values, timestamps.length).visit(20L, 40L, sampleRange);
+
+        assertArrayEquals(new long[]{20L, 30L, 40L}, sampleRange.getTimestamps());
+        assertArrayEquals(new double[]{2.0, 3.0, 4.0}, sampleRange.getValues());
+    }
+
+    private static SampleRange decode(CompressedChunk compressedChunk) {
+        SampleRange sampleRange = new SampleRange();
+        compressedChunk.visit(Long.MIN_VALUE, Long.MAX_VALUE, sampleRange);
+        return sampleRange;
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.wldt.demo.history;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyHistoryStoreTest {
+
+    private static final String PROPERTY_KEY = "temperature-property-key";
+
+    @Test
+    void rawReadSpansCompressedAndHeadChunks() {
+
+        PropertyHistoryStore propertyHistoryStore = new PropertyHistoryStore(4, 8);
+        for (int i = 0; i < 10; i++)
+            propertyHistoryStore.record(PROPERTY_KEY, 1000L * i, i);
+
+        SampleRange sampleRange = propertyHistoryStore.readRaw(PROPERTY_KEY, 1000L, 8000L);
+
+        assertEquals(8, sampleRange.size());
+        for (int i = 0; i < sampleRange.size(); i++) {
+            assertEquals(1000L * (i + 1), sampleRange.getTimestamp(i));
+            assertEquals(i + 1, sampleRange.getValue(i));
+        }
+        assertEquals(10, propertyHistoryStore.getRetainedSampleCount(PROPERTY_KEY));
+        assertTrue(propertyHistoryStore.getCompressedSizeBytes() > 0);
+    }
+
+    @Test
+    void oldestChunksAreDroppedBeyondTheRetention() {
+
+        PropertyHistoryStore propertyHistoryStore = new PropertyHistoryStore(4, 2);
+        for (int i = 0; i < 20; i++)
+            propertyHistoryStore.record(PROPERTY_KEY, 1000L * i, i);
+
+        SampleRange sampleRange = propertyHistoryStore.readRaw(PROPERTY_KEY, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        //Two compressed chunks and an empty head
+        assertEquals(8, sampleRange.size());
+        assertEquals(12000L, sampleRange.getTimestamp(0));
+        assertEquals(20, propertyHistoryStore.getSampleCount(PROPERTY_KEY));
+    }
+
+    @Test
+    void lateSamplesAreCountedAndOnlyAggregated() {
+
+        PropertyHistoryStore propertyHistoryStore = new PropertyHistoryStore(4, 2);
+        propertyHistoryStore.record(PROPERTY_KEY, 2000L, 1.0);
+        propertyHistoryStore.record(PROPERTY_KEY, 3000L, 2.0);
+        propertyHistoryStore.record(PROPERTY_KEY, 1500L, 10.0);
+
+        SampleRange sampleRange = propertyHistoryStore.readRaw(PROPERTY_KEY, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertArrayEquals(new long[]{2000L, 3000L}, sampleRange.getTimestamps());
+        assertEquals(1, propertyHistoryStore.getOutOfOrderSampleCount(PROPERTY_KEY));
+        assertEquals(3, propertyHistoryStore.getSampleCount(PROPERTY_KEY));
+
+        //The late sample is aggregated in the bucket of its own timestamp
+        RollupRange rollupRange = propertyHistoryStore.readRollup(PROPERTY_KEY, RollupResolution.SECOND, 1000L, 1999L);
+        assertEquals(1, rollupRange.size());
+        assertEquals(10.0, rollupRange.getMax(0));
+    }
+
+    @Test
+    void samplesWithTheSameTimestampAreRetained() {
+
+        PropertyHistoryStore propertyHistoryStore = new PropertyHistoryStore(2, 2);
+        for (int i = 0; i < 5; i++)
+            propertyHistoryStore.record(PROPERTY_KEY, 1000L, i);
+
+        assertEquals(5, propertyHistoryStore.readRaw(PROPERTY_KEY, 1000L, 1000L).size());
+        assertEquals(0, propertyHistoryStore.getOutOfOrderSampleCount(PROPERTY_KEY));
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.wldt.demo.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericPropertyIndexTest {
+
+    @Test
+    void rangeBoundsAreInclusiveOrExclusive() {
+
+        NumericPropertyIndex numericPropertyIndex = new NumericPropertyIndex();
+        for (int i = 0; i < 10; i++)
+            numericPropertyIndex.set(String.format("dt-%d", i), i);
+
+        assertEquals(Set.of("dt-2", "dt-3", "dt-4"), Set.copyOf(numericPropertyIndex.findInRange(2.0, true, 4.0, true)));
+        assertEquals(Set.of("dt-3"), Set.copyOf(numericPropertyIndex.findInRange(2.0, false, 4.0, false)));
+        assertTrue(numericPropertyIndex.findInRange(5.0, true, 4.0, true).isEmpty());
+    }
+
+    @Test
+    void updatedValueMovesTheTwin() {
+
+        NumericPropertyIndex numericPropertyIndex = new NumericPropertyIndex();
+        numericPropertyIndex.set("dt-1", 20.0);
+        numericPropertyIndex.set("dt-2", 20.0);
+        numericPropertyIndex.set("dt-1", 25.0);
+
+        assertEquals(List.of("dt-2"), List.copyOf(numericPropertyIndex.findEqual(20.0)));
+        assertEquals(List.of("dt-1"), List.copyOf(numericPropertyIndex.findEqual(25.0)));
+        assertEquals(25.0, numericPropertyIndex.getValue("dt-1").doubleValue());
+        assertEquals(2, numericPropertyIndex.size());
+    }
+
+    @Test
+    void negativeZeroIsIndexedAsZero() {
+
+        NumericPropertyIndex numericPropertyIndex = new NumericPropertyIndex();
+        numericPropertyIndex.set("dt-1", 0.0);
+        numericPropertyIndex.set("dt-1", -0.0);
+        numericPropertyIndex.set("dt-2", -0.0);
+
+        assertEquals(Set.of("dt-1", "dt-2"), Set.copyOf(numericPropertyIndex.findEqual(0.0)));
+        assertEquals(Set.of("dt-1", "dt-2"), Set.copyOf(numericPropertyIndex.findEqual(-0.0)));
+        assertEquals(Set.of("dt-1", "dt-2"), Set.copyOf(numericPropertyIndex.findInRange(0.0, true, 0.0, true)));
+        assertEquals(Set.of("dt-1", "dt-2"), Set.copyOf(numericPropertyIndex.findInRange(-1.0, false, -0.0, true)));
+
+        //The twin moved away from zero is no longer found there
+        numericPropertyIndex.set("dt-1", 1.0);
+        numericPropertyIndex.remove("dt-2");
+
+        assertTrue(numericPropertyIndex.findEqual(0.0).isEmpty());
+        assertTrue(numericPropertyIndex.findInRange(-1.0, true, 0.5, true).isEmpty());
+    }
+
+    @Test
+    void nanBoundMatchesNoTwin() {
+
+        NumericPropertyIndex numericPropertyIndex = new NumericPropertyIndex();
+        for (int i = 0; i < 10; i++)
+            numericPropertyIndex.set(String.format("dt-%d", i), i);
+
+        assertTrue(numericPropertyIndex.findInRange(Double.NaN, true, 5.0, true).isEmpty());
+        assertTrue(numericPropertyIndex.findInRange(5.0, true, Double.NaN, true).isEmpty());
+        assertTrue(numericPropertyIndex.findEqual(Double.NaN).isEmpty());
+    }
+
+    @Test
+    void nanRemovesTheTwin() {
+
+        NumericPropertyIndex numericPropertyIndex = new NumericPropertyIndex();
+        numericPropertyIndex.set("dt-1", 3.0);
+        numericPropertyIndex.set("dt-1", Double.NaN);
+
+        assertNull(numericPropertyIndex.getValue("dt-1"));
+        assertTrue(numericPropertyIndex.findEqual(3.0).isEmpty());
+        assertEquals(0, numericPropertyIndex.size());
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.wldt.demo.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelationshipGraphTest {
+
+    private final RelationshipGraph relationshipGraph = new RelationshipGraph();
+
+    private static List<String> sorted(List<String> nodes) {
+        List<String> sortedNodes = new ArrayList<>(nodes);
+        Collections.sort(sortedNodes);
+        return sortedNodes;
+    }
+
+    @Test
+    void removingAnEdgeKeepsTheOtherEdgesOfTheTarget() {
+
+        for (int i = 0; i < 5; i++)
+            relationshipGraph.addEdge("sensor-" + i, "insideIn", "hq", "building-hq", null);
+
+        //First, middle and last position of the incoming array
+        relationshipGraph.removeEdge("sensor-0", "insideIn", "hq");
+        relationshipGraph.removeEdge("sensor-2", "insideIn", "hq");
+        relationshipGraph.removeEdge("sensor-4", "insideIn", "hq");
+
+        assertEquals(List.of("sensor-1", "sensor-3"), sorted(relationshipGraph.findSources("building-hq", "insideIn", null)));
+        assertEquals(2, relationshipGraph.getEdgeCount());
+
+        relationshipGraph.removeEdge("sensor-3", "insideIn", "hq");
+        relationshipGraph.removeEdge("sensor-1", "insideIn", "hq");
+
+        assertTrue(relationshipGraph.findSources("building-hq", "insideIn", null).isEmpty());
+        assertEquals(0, relationshipGraph.getEdgeCount());
+    }
+
+    @Test
+    void reusedEdgeIdsKeepConsistentPositions() {
+
+        relationshipGraph.addEdge("a", "linkedTo", "1", "b", null);
+        relationshipGraph.addEdge("a", "linkedTo", "2", "c", null);
+        relationshipGraph.addEdge("a", "linkedTo", "3", "d", null);
+
+        relationshipGraph.removeEdge("a", "linkedTo", "1");
+        //Reuses the id of the removed edge, at the end of the adjacency arrays
+        relationshipGraph.addEdge("c", "linkedTo", "1", "b", null);
+        relationshipGraph.removeEdge("a", "linkedTo", "3");
+
+        assertEquals(List.of("c"), relationshipGraph.getNeighbours("a", "linkedTo", RelationshipGraph.Direction.OUTGOING));
+        assertEquals(List.of("c"), relationshipGraph.getNeighbours("b", "linkedTo", RelationshipGraph.Direction.INCOMING));
+        assertEquals(List.of("c", "b"), relationshipGraph.traverse("a", "linkedTo", RelationshipGraph.Direction.OUTGOING, 3));
+    }
+
+    @Test
+    void replacedInstanceMovesTheEdge() {
+
+        relationshipGraph.addEdge("sensor-1", "insideIn", "room", "room-1", "f0");
+        relationshipGraph.addEdge("sensor-1", "insideIn", "room", "room-2", "f1");
+
+        assertTrue(relationshipGraph.findSources("room-1", "insideIn", null).isEmpty());
+        assertEquals(List.of("sensor-1"), relationshipGraph.findSources("room-2", "insideIn", "f1"));
+        assertTrue(relationshipGraph.findSources("room-2", "insideIn", "f0").isEmpty());
+        assertEquals(1, relationshipGraph.getEdgeCount());
+    }
+
+    @Test
+    void removeOutgoingEdgesFiltersByRelationship() {
+
+        relationshipGraph.addEdge("sensor-1", "insideIn", "hq", "building-hq", null);
+        relationshipGraph.addEdge("sensor-1", "monitors", "pump", "pump-1", null);
+        relationshipGraph.addEdge("sensor-1", "monitors", "valve", "valve-1", null);
+
+        relationshipGraph.removeOutgoingEdges("sensor-1", "monitors");
+
+        assertEquals(List.of("building-hq"), relationshipGraph.getNeighbours("sensor-1", null, RelationshipGraph.Direction.OUTGOING));
+        assertTrue(relationshipGraph.findSources("pump-1", "monitors", null).isEmpty());
+
+        relationshipGraph.removeOutgoingEdges("sensor-1", null);
+        assertEquals(0, relationshipGraph.getEdgeCount());
+    }
+
+    @Test
+    void randomUpdatesMatchAReferenceModel() {
+
+        Random random = new Random(7);
+
+        // Target of each live instance, by "source/instance key"
+        Map<String, String> instances = new HashMap<>();
+
+        for (int step = 0; step < 5000; step++) {
+
+            String source = "dt-" + random.nextInt(20);
+            String instanceKey = Integer.toString(random.nextInt(10));
+            String instance = source + "/" + instanceKey;
+
+            if (random.nextInt(3) == 0) {
+                relationshipGraph.removeEdge(source, "linkedTo", instanceKey);
+                instances.remove(instance);
+            } else {
+                String target = "target-" + random.nextInt(5);
+                relationshipGraph.addEdge(source, "linkedTo", instanceKey, target, null);
+                instances.put(instance, target);
+            }
+        }
+
+        assertEquals(instances.size(), relationshipGraph.getEdgeCount());
+
+        for (int t = 0; t < 5; t++) {
+            String target = "target-" + t;
+            List<String> expectedSources = new ArrayList<>();
+            instances.forEach((instance, instanceTarget) -> {
+                if (instanceTarget.equals(target))
+                    expectedSources.add(instance.substring(0, instance.indexOf('/')));
+            });
+            assertEquals(sorted(expectedSources), sorted(relationshipGraph.findSources(target, "linkedTo", null)), target);
+        }
+
+        for (int s = 0; s < 20; s++) {
+            String source = "dt-" + s;
+            List<String> expectedTargets = new ArrayList<>();
+            instances.forEach((instance, instanceTarget) -> {
+                if (instance.startsWith(source + "/"))
+                    expectedTargets.add(instanceTarget);
+            });
+            assertEquals(sorted(expectedTargets), sorted(relationshipGraph.getNeighbours(source, "linkedTo", RelationshipGraph.Direction.OUTGOING)), source);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.wldt.demo.journal;
+
+import it.wldt.core.state.DigitalTwinStateChange;
+import it.wldt.core.state.DigitalTwinStateProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateChangeJournalTest {
+
+    private Path directory;
+
+    private JournalConfiguration configuration;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal-test");
+        configuration = new JournalConfiguration("test-dt", directory.toString(), 256, FsyncPolicy.EVERY_COMMIT, 0, 1);
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new))
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void reopenedJournalContinuesTheSequence() throws Exception {
+
+        configuration.setSegmentSizeBytes(4096);
+        appendProperties(0, 3);
+        appendProperties(3, 2);
+
+        List<JournalEntry> journalEntries = replay(0);
+
+        assertEquals(5, journalEntries.size());
+        for (int i = 0; i < journalEntries.size(); i++) {
+            assertEquals(i, journalEntries.get(i).getSequence());
+            assertEquals((double) i, ((DigitalTwinStateProperty<?>) journalEntries.get(i).getResource()).getValue());
+        }
+    }
+
+    @Test
+    void corruptedRecordEndsTheScan() throws Exception {
+
+        configuration.setSegmentSizeBytes(4096);
+        appendProperties(0, 3);
+
+        //Flip a byte in the content of the last record, as a write torn by a crash
+        Path segmentFile = segmentFiles().get(0);
+        List<Integer> recordPositions = recordPositions(segmentFile);
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = recordPositions.get(2) + JournalSegment.RECORD_HEADER_SIZE + 4;
+            ByteBuffer content = ByteBuffer.allocate(1);
+            channel.read(content, position);
+            content.put(0, (byte) ~content.get(0)).rewind();
+            channel.write(content, position);
+        }
+
+        assertEquals(2, replay(0).size());
+
+        //The writer resumes after the last valid record, overwriting the corrupted one
+        StateChangeJournal stateChangeJournal = new StateChangeJournal(configuration);
+        stateChangeJournal.open();
+        assertEquals(2, stateChangeJournal.getNextSequence());
+        append(stateChangeJournal, 42.0);
+        stateChangeJournal.commit();
+        stateChangeJournal.close();
+
+        List<JournalEntry> journalEntries = replay(0);
+        assertEquals(3, journalEntries.size());
+        assertEquals(42.0, ((DigitalTwinStateProperty<?>) journalEntries.get(2).getResource()).getValue());
+    }
+
+    @Test
+    void segmentsAfterTheLatestSnapshotAreRetained() throws Exception {
+
+        StateChangeJournal stateChangeJournal = new StateChangeJournal(configuration);
+        stateChangeJournal.open();
+        for (int i = 0; i < 40; i++)
+            append(stateChangeJournal, i);
+
+        //Without snapshots the journal is the only copy of the changes
+        int segmentCount = stateChangeJournal.getSegmentFiles().size();
+        assertTrue(segmentCount > 3);
+
+        StateImage stateImage = new StateImage(0);
+        replay(0).forEach(stateImage::apply);
+        StateSnapshots.write(configuration, stateImage, 0L);
+        stateChangeJournal.onSnapshotWritten(stateImage.getSequence());
+
+        //Only the current segment remains, it holds the changes from the snapshot sequence
+        assertEquals(1, stateChangeJournal.getSegmentFiles().size());
+
+        for (int i = 40; i < 60; i++)
+            append(stateChangeJournal, i);
+        stateChangeJournal.close();
+
+        StateImage restoredImage = JournalStateRestorer.restore(configuration);
+        assertEquals(60, restoredImage.getSequence());
+    }
+
+    @Test
+    void retentionNeverDeletesChangesFollowingTheSnapshot() throws Exception {
+
+        StateChangeJournal stateChangeJournal = new StateChangeJournal(configuration);
+        stateChangeJournal.open();
+        for (int i = 0; i < 10; i++)
+            append(stateChangeJournal, i);
+
+        stateChangeJournal.onSnapshotWritten(5);
+        for (int i = 10; i < 40; i++)
+            append(stateChangeJournal, i);
+        stateChangeJournal.close();
+
+        List<JournalEntry> journalEntries = replay(5);
+        assertEquals(5, journalEntries.get(0).getSequence());
+        assertEquals(35, journalEntries.size());
+    }
+
+    private void appendProperties(int firstValue, int count) throws Exception {
+        StateChangeJournal stateChangeJournal = new StateChangeJournal(configuration);
+        stateChangeJournal.open();
+        for (int i = 0; i < count; i++)
+            append(stateChangeJournal, firstValue + i);
+        stateChangeJournal.commit();
+        stateChangeJournal.close();
+    }
+
+    private List<JournalEntry> replay(long fromSequence) throws IOException {
+        List<JournalEntry> journalEntries = new ArrayList<>();
+        StateChangeJournal.replay(configuration, fromSequence, journalEntries::add);
+        return journalEntries;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static List<Integer> recordPositions(Path segmentFile) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentFile));
+        List<Integer> positions = new ArrayList<>();
+        int position = JournalSegment.HEADER_SIZE;
+        while (buffer.getInt(position) > 0) {
+            positions.add(position);
+            position += JournalSegment.RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+        return positions;
+    }
+
+    private static void append(StateChangeJournal stateChangeJournal, double value) throws Exception {
+        stateChangeJournal.append(0L, DigitalTwinStateChange.Operation.OPERATION_UPDATE,
+                DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("temperature-property-key", value));
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.wldt.demo.journal;
+
+import it.wldt.core.state.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateSnapshotsTest {
+
+    private Path directory;
+
+    private JournalConfiguration configuration;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        configuration = new JournalConfiguration("test-dt");
+        configuration.setDirectory(directory.toString());
+        configuration.setRetainedSnapshots(2);
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new))
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+
+        StateImage stateImage = new StateImage(0);
+        add(stateImage, 0, DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("temperature", 21.5));
+        add(stateImage, 1, DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("counter", 7L));
+        add(stateImage, 2, DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("label", "kitchen-\u00e8"));
+        add(stateImage, 3, DigitalTwinStateChange.ResourceType.EVENT, new DigitalTwinStateEvent("overheating", "text/plain"));
+        add(stateImage, 4, DigitalTwinStateChange.ResourceType.ACTION, new DigitalTwinStateAction("switch-off", "switch.off", "text/plain"));
+        add(stateImage, 5, DigitalTwinStateChange.ResourceType.RELATIONSHIP, new DigitalTwinStateRelationship<>("insideIn", "insideIn"));
+        add(stateImage, 6, DigitalTwinStateChange.ResourceType.RELATIONSHIP_INSTANCE,
+                new DigitalTwinStateRelationshipInstance<>("insideIn", "building-hq", "insideIn-building-hq", Map.of("floor", 2)));
+
+        StateSnapshots.write(configuration, stateImage, 1000L);
+        StateImage snapshotImage = StateSnapshots.readLatest(configuration);
+
+        assertNotNull(snapshotImage);
+        assertEquals(7, snapshotImage.getSequence());
+        assertEquals(stateImage.getResources().size(), snapshotImage.getResources().size());
+
+        List<DigitalTwinStateProperty<?>> properties = List.copyOf(snapshotImage.getProperties());
+        assertEquals(21.5, properties.get(0).getValue());
+        assertEquals(7L, properties.get(1).getValue());
+        assertEquals("kitchen-\u00e8", properties.get(2).getValue());
+        assertTrue(snapshotImage.containsEvent("overheating"));
+        assertEquals("switch.off", snapshotImage.getActions().iterator().next().getType());
+
+        DigitalTwinStateRelationshipInstance<?> instance = snapshotImage.getRelationshipInstances("insideIn").iterator().next();
+        assertEquals("building-hq", instance.getTargetId());
+        assertEquals(2, instance.getMetadata().get("floor"));
+    }
+
+    @Test
+    void corruptedSnapshotFallsBackToThePreviousOne() throws Exception {
+
+        StateImage stateImage = new StateImage(0);
+        add(stateImage, 0, DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("temperature", 20.0));
+        StateSnapshots.write(configuration, stateImage, 1000L);
+
+        add(stateImage, 1, DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("temperature", 22.0));
+        Path latestSnapshot = StateSnapshots.write(configuration, stateImage, 2000L);
+
+        byte[] content = Files.readAllBytes(latestSnapshot);
+        content[content.length - 1] ^= 0x01;
+        Files.write(latestSnapshot, content);
+
+        assertThrows(IOException.class, () -> StateSnapshots.read(latestSnapshot));
+
+        StateImage snapshotImage = StateSnapshots.readLatest(configuration);
+        assertNotNull(snapshotImage);
+        assertEquals(1, snapshotImage.getSequence());
+        assertEquals(20.0, snapshotImage.getProperties().iterator().next().getValue());
+    }
+
+    @Test
+    void oldestSnapshotsBeyondTheRetentionAreDeleted() throws Exception {
+
+        StateImage stateImage = new StateImage(0);
+        for (int i = 0; i < 4; i++) {
+            add(stateImage, i, DigitalTwinStateChange.ResourceType.PROPERTY, new DigitalTwinStateProperty<>("temperature", 20.0 + i));
+            StateSnapshots.write(configuration, stateImage, i);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(file -> file.toString().endsWith(".snapshot")).count());
+        }
+        assertEquals(4, StateSnapshots.readLatest(configuration).getSequence());
+    }
+
+    private static void add(StateImage stateImage, long sequence, DigitalTwinStateChange.ResourceType resourceType, DigitalTwinStateResource resource) {
+        stateImage.apply(new JournalEntry(sequence, 0L, DigitalTwinStateChange.Operation.OPERATION_ADD, resourceType, resource));
+    }
+}
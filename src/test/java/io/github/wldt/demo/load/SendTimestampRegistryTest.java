@@ -0,0 +1,87 @@
+package io.github.wldt.demo.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SendTimestampRegistryTest {
+
+    private static final String PROPERTY_KEY = "generator.load-property-key-0";
+
+    @Test
+    void deliveryResolvesItsOwnSendTimestamp() {
+
+        SendTimestampRegistry registry = new SendTimestampRegistry(8);
+        registry.registerProperty(PROPERTY_KEY);
+
+        long sendNanos = System.nanoTime();
+        registry.recordSend(PROPERTY_KEY, 1, sendNanos);
+
+        long latencyNanos = registry.recordDelivery(PROPERTY_KEY, 1.0);
+
+        assertTrue(latencyNanos >= 0);
+        assertTrue(latencyNanos <= System.nanoTime() - sendNanos);
+        assertEquals(1, registry.getLatencyStatistics().getCount());
+        assertEquals(0, registry.getUntrackedDeliveryCount());
+    }
+
+    @Test
+    void overwrittenSlotIsUntracked() {
+
+        SendTimestampRegistry registry = new SendTimestampRegistry(8);
+        registry.registerProperty(PROPERTY_KEY);
+
+        //Sample 9 reuses the slot of sample 1 in a ring of 8 slots
+        for (long sequenceNumber = 1; sequenceNumber <= 9; sequenceNumber++)
+            registry.recordSend(PROPERTY_KEY, sequenceNumber, System.nanoTime());
+
+        assertEquals(-1, registry.recordDelivery(PROPERTY_KEY, 1.0));
+        assertEquals(1, registry.getUntrackedDeliveryCount());
+
+        assertTrue(registry.recordDelivery(PROPERTY_KEY, 9.0) >= 0);
+        assertTrue(registry.recordDelivery(PROPERTY_KEY, 2.0) >= 0);
+        assertEquals(2, registry.getLatencyStatistics().getCount());
+    }
+
+    @Test
+    void neverSentSampleIsUntracked() {
+
+        SendTimestampRegistry registry = new SendTimestampRegistry(8);
+        registry.registerProperty(PROPERTY_KEY);
+
+        assertEquals(-1, registry.recordDelivery(PROPERTY_KEY, 3.0));
+        assertEquals(-1, registry.recordDelivery(PROPERTY_KEY, 0.0));
+        assertEquals(-1, registry.recordDelivery(PROPERTY_KEY, "not-a-sequence"));
+        assertEquals(3, registry.getUntrackedDeliveryCount());
+        assertEquals(0, registry.getLatencyStatistics().getCount());
+    }
+
+    @Test
+    void unregisteredKeysAreIgnored() {
+
+        SendTimestampRegistry registry = new SendTimestampRegistry(8);
+
+        registry.recordSend("other-property", 1, System.nanoTime());
+
+        assertEquals(-1, registry.recordDelivery("other-property", 1.0));
+        assertEquals(-1, registry.recordEventDelivery("other-event", System.nanoTime()));
+        assertEquals(0, registry.getUntrackedDeliveryCount());
+    }
+
+    @Test
+    void eventLatencyIsMeasuredFromTheBody() {
+
+        SendTimestampRegistry registry = new SendTimestampRegistry(8);
+        registry.registerEvent("generator.load-event-key-0");
+
+        long sendNanos = System.nanoTime();
+        long latencyNanos = registry.recordEventDelivery("generator.load-event-key-0", sendNanos);
+
+        assertTrue(latencyNanos >= 0);
+        assertEquals(1, registry.getEventLatencyStatistics().getCount());
+        assertEquals(0, registry.getLatencyStatistics().getCount());
+
+        assertEquals(-1, registry.recordEventDelivery("generator.load-event-key-0", "no-timestamp"));
+        assertEquals(1, registry.getUntrackedDeliveryCount());
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.wldt.demo.logger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new MpscRingBuffer<Integer>(5).capacity());
+        assertEquals(8, new MpscRingBuffer<Integer>(8).capacity());
+        assertEquals(1, new MpscRingBuffer<Integer>(1).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<Integer>(0));
+    }
+
+    @Test
+    void offerFailsWhenFull() {
+
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++)
+            assertTrue(ringBuffer.offer(i));
+
+        assertFalse(ringBuffer.offer(4));
+        assertEquals(4, ringBuffer.size());
+
+        assertEquals(0, ringBuffer.poll().intValue());
+        assertTrue(ringBuffer.offer(4));
+    }
+
+    @Test
+    void keepsFifoOrderAcrossWrapAround() {
+
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(4);
+
+        //Ten laps of the buffer with a varying fill level
+        int next = 0;
+        int expected = 0;
+        for (int lap = 0; lap < 10; lap++) {
+            for (int i = 0; i < 1 + lap % 4; i++)
+                assertTrue(ringBuffer.offer(next++));
+            while (!ringBuffer.isEmpty())
+                assertEquals(expected++, ringBuffer.poll().intValue());
+        }
+
+        assertEquals(next, expected);
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+
+        int producerCount = 4;
+        int perProducer = 20_000;
+
+        MpscRingBuffer<long[]> ringBuffer = new MpscRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++)
+                    while (!ringBuffer.offer(new long[]{producer, i}))
+                        Thread.onSpinWait();
+            });
+            producers[p].start();
+        }
+
+        start.countDown();
+
+        //Each producer offers in order, the consumer must see its elements in the same order
+        long[] nextExpected = new long[producerCount];
+        int received = 0;
+        while (received < producerCount * perProducer) {
+            long[] element = ringBuffer.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertEquals(nextExpected[(int) element[0]]++, element[1]);
+            received++;
+        }
+
+        for (Thread producer : producers)
+            producer.join();
+
+        assertNull(ringBuffer.poll());
+        for (long count : nextExpected)
+            assertEquals(perProducer, count);
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.wldt.demo.logger;
+
+import it.wldt.core.event.WldtEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferEventRecorderTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("wldt-recorder-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void dumpsOnlyTheNewestRecordsAfterWrapAround() throws IOException {
+
+        RingBufferEventRecorder recorder = new RingBufferEventRecorder(3);
+        assertEquals(4, recorder.getCapacity());
+
+        for (int i = 0; i < 10; i++)
+            recorder.logClientSubscription("type-" + i, "subscriber");
+
+        assertEquals(10, recorder.getRecordedCount());
+
+        Path file = directory.resolve("events.bin");
+        assertEquals(4, recorder.dump(file));
+
+        Dump dump = Dump.read(file);
+        assertEquals(4, dump.recordCount);
+
+        //Oldest first, the first six records have been overwritten
+        for (int i = 0; i < 4; i++) {
+            ByteBuffer record = dump.record(i);
+            assertEquals(6 + i, record.getInt(24));
+            assertEquals(RingBufferEventRecorder.KIND_SUBSCRIPTION, record.get(28));
+            assertEquals("type-" + (6 + i), dump.names.get(record.getInt(16)));
+            assertEquals("subscriber", dump.names.get(record.getInt(12)));
+        }
+    }
+
+    @Test
+    void dumpsPartiallyFilledBuffer() throws Exception {
+
+        RingBufferEventRecorder recorder = new RingBufferEventRecorder(8);
+
+        recorder.logEventPublished("publisher", new WldtEvent<>("temperature", 21.5));
+        recorder.logEventForwarded("publisher", "subscriber", new WldtEvent<>("temperature", "21.5"));
+
+        Path file = directory.resolve("events.bin");
+        assertEquals(2, recorder.dump(file));
+
+        Dump dump = Dump.read(file);
+
+        ByteBuffer published = dump.record(0);
+        assertEquals(RingBufferEventRecorder.KIND_PUBLISHED, published.get(28));
+        assertEquals("publisher", dump.names.get(published.getInt(8)));
+        assertEquals(RingBufferEventRecorder.NO_ID, published.getInt(12));
+        assertEquals(Long.BYTES, published.getInt(20));
+
+        ByteBuffer forwarded = dump.record(1);
+        assertEquals(RingBufferEventRecorder.KIND_FORWARDED, forwarded.get(28));
+        assertEquals("subscriber", dump.names.get(forwarded.getInt(12)));
+        assertEquals(4, forwarded.getInt(20));
+        assertEquals(1, forwarded.getInt(24));
+    }
+
+    @Test
+    void emptyRecorderDumpsNoRecords() throws IOException {
+
+        RingBufferEventRecorder recorder = new RingBufferEventRecorder(4);
+
+        Path file = directory.resolve("events.bin");
+        assertEquals(0, recorder.dump(file));
+        assertEquals(0, Dump.read(file).recordCount);
+    }
+
+    /**
+     * Parsed dump file, see {@link RingBufferEventRecorder#dump(Path)} for the layout
+     */
+    private static final class Dump {
+
+        private final Map<Integer, String> names = new HashMap<>();
+
+        private int recordCount;
+
+        private ByteBuffer records;
+
+        static Dump read(Path file) throws IOException {
+
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.nativeOrder());
+
+            byte[] magic = new byte[8];
+            buffer.get(magic);
+            assertEquals("WLDTEVR1", new String(magic, StandardCharsets.US_ASCII));
+            assertEquals(RingBufferEventRecorder.RECORD_SIZE, buffer.getInt());
+
+            Dump dump = new Dump();
+            dump.recordCount = buffer.getInt();
+
+            //Wall clock and nanoTime references
+            buffer.getLong();
+            buffer.getLong();
+
+            int nameCount = buffer.getInt();
+            for (int i = 0; i < nameCount; i++) {
+                int id = buffer.getInt();
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                dump.names.put(id, new String(name, StandardCharsets.UTF_8));
+            }
+
+            assertEquals(dump.recordCount * RingBufferEventRecorder.RECORD_SIZE, buffer.remaining());
+            dump.records = buffer.slice().order(ByteOrder.nativeOrder());
+            return dump;
+        }
+
+        ByteBuffer record(int index) {
+            return records.slice(index * RingBufferEventRecorder.RECORD_SIZE, RingBufferEventRecorder.RECORD_SIZE).order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.wldt.demo.physical.emulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmulationHandleTest {
+
+    private final AtomicInteger executedTicks = new AtomicInteger();
+
+    private final AtomicInteger completions = new AtomicInteger();
+
+    @Test
+    void zeroTicksCompletesWithoutTicking() {
+
+        EmulationHandle handle = new EmulationHandle(0, 1, tickIndex -> executedTicks.incrementAndGet(), completions::incrementAndGet);
+
+        handle.run();
+        handle.run();
+
+        assertEquals(0, executedTicks.get());
+        assertEquals(0, handle.getTickCount());
+        assertEquals(1, completions.get());
+        assertTrue(handle.isCompleted());
+    }
+
+    @Test
+    void completesRightAfterTheLastTick() {
+
+        EmulationHandle handle = new EmulationHandle(3, 1, tickIndex -> executedTicks.incrementAndGet(), completions::incrementAndGet);
+
+        for (int i = 0; i < 3; i++)
+            handle.run();
+
+        assertTrue(handle.isCompleted());
+        assertEquals(1, completions.get());
+
+        handle.run();
+
+        assertEquals(3, executedTicks.get());
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    void failingTickIsCounted() {
+
+        EmulationHandle handle = new EmulationHandle(2, 1, tickIndex -> {
+            executedTicks.incrementAndGet();
+            throw new IllegalStateException("tick " + tickIndex);
+        }, completions::incrementAndGet);
+
+        handle.run();
+        handle.run();
+
+        assertEquals(2, executedTicks.get());
+        assertEquals(2, handle.getTickCount());
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    void cancelledHandleNeitherTicksNorCompletes() {
+
+        EmulationHandle handle = new EmulationHandle(-1, 1, tickIndex -> executedTicks.incrementAndGet(), completions::incrementAndGet);
+
+        handle.run();
+        handle.cancel();
+        handle.run();
+
+        assertEquals(1, executedTicks.get());
+        assertEquals(0, completions.get());
+    }
+}
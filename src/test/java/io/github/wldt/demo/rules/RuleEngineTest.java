@@ -0,0 +1,94 @@
+package io.github.wldt.demo.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEngineTest {
+
+    // Transitions notified by the engine, as "+ruleId" for a raise and "-ruleId" for a clear
+    private final List<String> transitions = new ArrayList<>();
+
+    private final RuleEventListener listener = (ruleDefinition, raised, timestamp, signal) -> transitions.add((raised ? "+" : "-") + ruleDefinition.getRuleId());
+
+    private void evaluate(RuleEngine ruleEngine, String propertyKey, double... values) {
+        for (int i = 0; i < values.length; i++)
+            ruleEngine.evaluate(propertyKey, i * 1000L, values[i], listener);
+    }
+
+    @Test
+    void hysteresisIsReArmedOnlyBelowTheClearThreshold() {
+
+        RuleEngine ruleEngine = new RuleEngine(List.of(RuleDefinition.hysteresis("overheat", "temperature", "overheat-event", 30.0, 25.0)));
+
+        //Oscillating around the raise threshold notifies a single raise
+        evaluate(ruleEngine, "temperature", 20, 31, 29, 31, 26, 32);
+        assertEquals(List.of("+overheat"), transitions);
+        assertTrue(ruleEngine.isRaised("overheat"));
+
+        evaluate(ruleEngine, "temperature", 25, 31);
+        assertEquals(List.of("+overheat", "-overheat", "+overheat"), transitions);
+        assertEquals(2, ruleEngine.getRaiseCount("overheat"));
+    }
+
+    @Test
+    void belowHysteresisIsRaisedUnderTheThreshold() {
+
+        RuleDefinition ruleDefinition = RuleDefinition.hysteresis("freezing", "temperature", "freezing-event", 5.0, 10.0);
+        assertTrue(ruleDefinition.isBelow());
+
+        RuleEngine ruleEngine = new RuleEngine(List.of(ruleDefinition));
+
+        evaluate(ruleEngine, "temperature", 12, 5, 4, 6, 9, 3, 10, 4);
+        assertEquals(List.of("+freezing", "-freezing", "+freezing"), transitions);
+    }
+
+    @Test
+    void clearThresholdBeyondTheRaiseOneIsClamped() {
+
+        //Clear at 40 would leave the rule raised forever above 30, it behaves as a plain threshold at 30
+        RuleEngine ruleEngine = new RuleEngine(List.of(new RuleDefinition("overheat", RuleType.HYSTERESIS, "temperature", "overheat-event", 30.0, 40.0)));
+
+        evaluate(ruleEngine, "temperature", 35, 30, 35);
+        assertEquals(List.of("+overheat", "-overheat", "+overheat"), transitions);
+    }
+
+    @Test
+    void rateOfChangeUsesTheElapsedTime() {
+
+        RuleEngine ruleEngine = new RuleEngine(List.of(RuleDefinition.rateOfChange("spike", "temperature", "spike-event", 5.0)));
+
+        //One sample per second: variations of 2, 6 and 1 per second
+        evaluate(ruleEngine, "temperature", 20, 22, 28, 29);
+        assertEquals(List.of("+spike", "-spike"), transitions);
+    }
+
+    @Test
+    void windowAverageWaitsForAFullWindow() {
+
+        RuleEngine ruleEngine = new RuleEngine(List.of(RuleDefinition.windowAverage("hot", "temperature", "hot-event", 3, 30.0)));
+
+        evaluate(ruleEngine, "temperature", 40, 40);
+        assertTrue(transitions.isEmpty());
+
+        //Averages of 40, 30 and 20 once the window is full
+        ruleEngine.evaluate("temperature", 3000L, 40, listener);
+        ruleEngine.evaluate("temperature", 4000L, 10, listener);
+        assertEquals(List.of("+hot", "-hot"), transitions);
+    }
+
+    @Test
+    void otherPropertiesAreIgnored() {
+
+        RuleEngine ruleEngine = new RuleEngine(List.of(RuleDefinition.threshold("overheat", "temperature", "overheat-event", 30.0)));
+
+        evaluate(ruleEngine, "humidity", 80, 90);
+
+        assertTrue(transitions.isEmpty());
+        assertFalse(ruleEngine.hasRules("humidity"));
+        assertTrue(ruleEngine.hasRules("temperature"));
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.wldt.demo.shadowing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionAckTrackerTest {
+
+    private static final String SETPOINT_ACTION_KEY = "set-temperature";
+
+    @Test
+    void ackCompletesTheRequestItRefersTo() {
+
+        ActionAckTracker tracker = new ActionAckTracker(8);
+
+        long firstRequestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 1000L);
+        long secondRequestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 2000L);
+        assertNotEquals(firstRequestId, secondRequestId);
+
+        //Acknowledged out of dispatch order
+        assertEquals(2000L, tracker.onAck(secondRequestId));
+        assertEquals(1000L, tracker.onAck(firstRequestId));
+
+        assertEquals(2, tracker.getAckedCount());
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    void unknownOrRepeatedAckIsUnmatched() {
+
+        ActionAckTracker tracker = new ActionAckTracker(8);
+
+        long requestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 1000L);
+
+        assertEquals(1000L, tracker.onAck(requestId));
+        assertEquals(-1, tracker.onAck(requestId));
+        assertEquals(-1, tracker.onAck(requestId + 100));
+
+        assertEquals(1, tracker.getAckedCount());
+        assertEquals(2, tracker.getUnmatchedAckCount());
+    }
+
+    @Test
+    void failedPublishIsNotCountedAsDispatched() {
+
+        ActionAckTracker tracker = new ActionAckTracker(8);
+
+        long requestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 1000L);
+        tracker.onPublishFailed(requestId);
+
+        assertEquals(0, tracker.getDispatchedCount());
+        assertEquals(0, tracker.getPendingCount());
+        assertEquals(-1, tracker.onAck(requestId));
+    }
+
+    @Test
+    void oldestPendingRequestOfTheKeyExpires() {
+
+        ActionAckTracker tracker = new ActionAckTracker(2);
+
+        long firstRequestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 1000L);
+        long secondRequestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 2000L);
+        long otherRequestId = tracker.onDispatched("emergency-stop", 2500L);
+        long thirdRequestId = tracker.onDispatched(SETPOINT_ACTION_KEY, 3000L);
+
+        assertEquals(1, tracker.getExpiredCount());
+        assertEquals(3, tracker.getPendingCount());
+
+        assertEquals(-1, tracker.onAck(firstRequestId));
+        assertEquals(2000L, tracker.onAck(secondRequestId));
+        assertEquals(3000L, tracker.onAck(thirdRequestId));
+        assertEquals(2500L, tracker.onAck(otherRequestId));
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.wldt.demo.shadowing;
+
+import it.wldt.adapter.digital.event.DigitalActionWldtEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionRateLimiterTest {
+
+    private static final String SETPOINT_ACTION_KEY = "set-temperature";
+    private static final String FAN_ACTION_KEY = "set-fan-speed";
+    private static final String STOP_ACTION_KEY = "emergency-stop";
+
+    private final List<String> dispatchedActions = new CopyOnWriteArrayList<>();
+
+    private ActionRateLimiter actionRateLimiter;
+
+    private ActionRateLimiter startedLimiter(double twinRatePerSecond, int twinBurst, int queueCapacity, ActionRateLimit... actionRateLimits) {
+        actionRateLimiter = new ActionRateLimiter(List.of(actionRateLimits), twinRatePerSecond, twinBurst, queueCapacity,
+                (actionEvent, queueWaitNanos) -> dispatchedActions.add(actionEvent.getActionKey() + ":" + actionEvent.getBody()));
+        actionRateLimiter.start();
+        return actionRateLimiter;
+    }
+
+    @AfterEach
+    void stopLimiter() {
+        if (actionRateLimiter != null)
+            actionRateLimiter.stop();
+    }
+
+    private static DigitalActionWldtEvent<Integer> action(String actionKey, int value) throws Exception {
+        return new DigitalActionWldtEvent<>(actionKey, value);
+    }
+
+    @Test
+    void conformingRequestIsDispatchedRightAway() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0, 0, 4, new ActionRateLimit(SETPOINT_ACTION_KEY, 1.0, 2, ActionPriority.ROUTINE));
+
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 1)));
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 2)));
+
+        assertEquals(List.of(SETPOINT_ACTION_KEY + ":1", SETPOINT_ACTION_KEY + ":2"), dispatchedActions);
+        assertEquals(0L, limiter.getDelayedCounts().get(ActionPriority.ROUTINE.name()).longValue());
+    }
+
+    @Test
+    void exhaustedKeyDoesNotHoldBackTheOtherKeys() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0, 0, 4,
+                new ActionRateLimit(SETPOINT_ACTION_KEY, 0.1, 1, ActionPriority.ROUTINE),
+                new ActionRateLimit(FAN_ACTION_KEY, 100.0, 1, ActionPriority.ROUTINE));
+
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 1)));
+        //Waits 10 s for the bucket of its key
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 2)));
+        assertTrue(limiter.submit(action(FAN_ACTION_KEY, 1)));
+        assertTrue(limiter.submit(action(FAN_ACTION_KEY, 2)));
+
+        awaitDispatched(3);
+
+        assertEquals(List.of(SETPOINT_ACTION_KEY + ":1", FAN_ACTION_KEY + ":1", FAN_ACTION_KEY + ":2"), dispatchedActions);
+        assertEquals(1.0, limiter.getQueueDepths().get(ActionPriority.ROUTINE.name()).doubleValue());
+    }
+
+    @Test
+    void requestsOfAKeyAreDispatchedInOrder() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0, 0, 8, new ActionRateLimit(FAN_ACTION_KEY, 200.0, 1, ActionPriority.ROUTINE));
+
+        for (int i = 1; i <= 5; i++)
+            assertTrue(limiter.submit(action(FAN_ACTION_KEY, i)));
+
+        awaitDispatched(5);
+
+        for (int i = 1; i <= 5; i++)
+            assertEquals(FAN_ACTION_KEY + ":" + i, dispatchedActions.get(i - 1));
+    }
+
+    @Test
+    void safetyRequestTakesTheExhaustedTwinBudget() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0.1, 1, 4,
+                new ActionRateLimit(SETPOINT_ACTION_KEY, 0, 0, ActionPriority.ROUTINE),
+                new ActionRateLimit(STOP_ACTION_KEY, 0, 0, ActionPriority.SAFETY));
+
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 1)));
+        //The twin budget is exhausted: the routine request waits, the safety one does not
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 2)));
+        assertTrue(limiter.submit(action(STOP_ACTION_KEY, 1)));
+
+        assertEquals(List.of(SETPOINT_ACTION_KEY + ":1", STOP_ACTION_KEY + ":1"), dispatchedActions);
+        assertEquals(1L, limiter.getDelayedCounts().get(ActionPriority.ROUTINE.name()).longValue());
+        assertEquals(0L, limiter.getDelayedCounts().get(ActionPriority.SAFETY.name()).longValue());
+    }
+
+    @Test
+    void routineRequestDoesNotOvertakeQueuedRequestsOnTheTwinBudget() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0.1, 1, 4,
+                new ActionRateLimit(SETPOINT_ACTION_KEY, 0, 0, ActionPriority.ROUTINE),
+                new ActionRateLimit(FAN_ACTION_KEY, 0, 0, ActionPriority.ROUTINE));
+
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 1)));
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 2)));
+        assertTrue(limiter.submit(action(FAN_ACTION_KEY, 1)));
+
+        assertEquals(List.of(SETPOINT_ACTION_KEY + ":1"), dispatchedActions);
+        assertEquals(2.0, limiter.getQueueDepths().get(ActionPriority.ROUTINE.name()).doubleValue());
+    }
+
+    @Test
+    void overflowingRequestIsRejected() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0, 0, 2, new ActionRateLimit(SETPOINT_ACTION_KEY, 0.1, 1, ActionPriority.ROUTINE));
+
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 1)));
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 2)));
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 3)));
+        assertFalse(limiter.submit(action(SETPOINT_ACTION_KEY, 4)));
+
+        assertEquals(1L, limiter.getRejectedCounts().get(ActionPriority.ROUTINE.name()).longValue());
+        assertEquals(2.0, limiter.getQueueDepths().get(ActionPriority.ROUTINE.name()).doubleValue());
+    }
+
+    @Test
+    void stopDiscardsQueuedRequestsAndRejectsTheFollowingOnes() throws Exception {
+
+        ActionRateLimiter limiter = startedLimiter(0, 0, 4, new ActionRateLimit(SETPOINT_ACTION_KEY, 0.1, 1, ActionPriority.ROUTINE));
+
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 1)));
+        assertTrue(limiter.submit(action(SETPOINT_ACTION_KEY, 2)));
+
+        limiter.stop();
+
+        assertFalse(limiter.submit(action(SETPOINT_ACTION_KEY, 3)));
+        assertEquals(0.0, limiter.getQueueDepths().get(ActionPriority.ROUTINE.name()).doubleValue());
+        assertEquals(1L, limiter.getRejectedCounts().get(ActionPriority.ROUTINE.name()).longValue());
+        assertEquals(List.of(SETPOINT_ACTION_KEY + ":1"), dispatchedActions);
+    }
+
+    private void awaitDispatched(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatchedActions.size() < count && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertEquals(count, dispatchedActions.size());
+    }
+}
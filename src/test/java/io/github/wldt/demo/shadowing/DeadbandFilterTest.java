@@ -0,0 +1,108 @@
+package io.github.wldt.demo.shadowing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadbandFilterTest {
+
+    private final DeadbandFilter deadbandFilter = new DeadbandFilter();
+
+    @Test
+    void unconfiguredAndNonNumericSamplesPass() {
+
+        assertTrue(deadbandFilter.accept("temperature", 0, 20.0));
+        assertTrue(deadbandFilter.accept("temperature", 0, 20.0));
+
+        deadbandFilter.configure("state", 1.0, 0, 0, 0);
+        assertTrue(deadbandFilter.accept("state", 0, "on"));
+        assertTrue(deadbandFilter.accept("state", 1, "on"));
+    }
+
+    @Test
+    void absoluteDeadbandIsMeasuredFromTheLastForwardedValue() {
+
+        deadbandFilter.configure("temperature", 0.5, 0, 0, 0);
+
+        assertTrue(deadbandFilter.accept("temperature", 0, 20.0));
+        assertFalse(deadbandFilter.accept("temperature", 1, 20.3));
+        //A slow drift is reported once it reaches the deadband from the forwarded value, not from the previous sample
+        assertFalse(deadbandFilter.accept("temperature", 2, 20.4));
+        assertTrue(deadbandFilter.accept("temperature", 3, 20.5));
+        assertFalse(deadbandFilter.accept("temperature", 4, 20.1));
+        assertTrue(deadbandFilter.accept("temperature", 5, 19.9));
+
+        assertEquals(3, deadbandFilter.getPassedCounts().get("temperature").longValue());
+        assertEquals(3, deadbandFilter.getSuppressedCounts().get("temperature").longValue());
+        assertEquals(0.5, deadbandFilter.getSuppressionRatios().get("temperature").doubleValue(), 1e-9);
+    }
+
+    @Test
+    void percentDeadbandScalesWithTheValue() {
+
+        deadbandFilter.configure("power", 0, 10.0, 0, 0);
+
+        assertTrue(deadbandFilter.accept("power", 0, 100));
+        assertFalse(deadbandFilter.accept("power", 1, 109));
+        assertTrue(deadbandFilter.accept("power", 2, 110));
+        assertFalse(deadbandFilter.accept("power", 3, 120));
+        assertTrue(deadbandFilter.accept("power", 4, 121));
+
+        //From zero any change is a 100% change, an unchanged zero is not
+        deadbandFilter.configure("power", 0, 10.0, 0, 0);
+        assertTrue(deadbandFilter.accept("power", 0, 0));
+        assertFalse(deadbandFilter.accept("power", 1, 0));
+        assertTrue(deadbandFilter.accept("power", 2, 0.001));
+    }
+
+    @Test
+    void disabledDeltasForwardEveryChange() {
+
+        deadbandFilter.configure("temperature", 0, 0, 0, 0);
+
+        assertTrue(deadbandFilter.accept("temperature", 0, 20.0));
+        assertFalse(deadbandFilter.accept("temperature", 1, 20.0));
+        assertTrue(deadbandFilter.accept("temperature", 2, 20.01));
+        assertTrue(deadbandFilter.accept("temperature", 3, Double.NaN));
+    }
+
+    @Test
+    void minIntervalSuppressesEvenLargeChanges() {
+
+        deadbandFilter.configure("temperature", 0.5, 0, 1000, 0);
+
+        assertTrue(deadbandFilter.accept("temperature", 0, 20.0));
+        assertFalse(deadbandFilter.accept("temperature", 500, 30.0));
+        assertTrue(deadbandFilter.accept("temperature", 1000, 30.0));
+    }
+
+    @Test
+    void maxSilenceForwardsAHeartbeat() {
+
+        deadbandFilter.configure("temperature", 0.5, 0, 0, 5000);
+
+        assertTrue(deadbandFilter.accept("temperature", 0, 20.0));
+        assertFalse(deadbandFilter.accept("temperature", 4999, 20.1));
+        assertTrue(deadbandFilter.accept("temperature", 5000, 20.1));
+        //The heartbeat becomes the reference of the deadband and of the next silence
+        assertFalse(deadbandFilter.accept("temperature", 9999, 20.5));
+        assertTrue(deadbandFilter.accept("temperature", 9999, 20.6));
+
+        assertEquals(1, deadbandFilter.getHeartbeatCounts().get("temperature").longValue());
+        assertEquals(3, deadbandFilter.getPassedCounts().get("temperature").longValue());
+    }
+
+    @Test
+    void configureResetsTheState() {
+
+        deadbandFilter.configure("temperature", 0.5, 0, 0, 0);
+        deadbandFilter.accept("temperature", 0, 20.0);
+        deadbandFilter.accept("temperature", 1, 20.1);
+
+        deadbandFilter.configure("temperature", 0.5, 0, 0, 0);
+
+        assertTrue(deadbandFilter.isConfigured("temperature"));
+        assertEquals(0, deadbandFilter.getSuppressedCounts().get("temperature").longValue());
+        assertTrue(deadbandFilter.accept("temperature", 2, 20.1));
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.wldt.demo.shadowing;
+
+import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyVariationQueueTest {
+
+    private final List<Object> handledValues = new CopyOnWriteArrayList<>();
+
+    // Released by the tests to let the handler complete, so that the queue fills up behind it
+    private final CountDownLatch handlerReleased = new CountDownLatch(1);
+
+    private final CountDownLatch handlerEntered = new CountDownLatch(1);
+
+    private PropertyVariationQueue blockingHandlerQueue(int capacity, PropertyVariationQueue.OverflowPolicy overflowPolicy) {
+        return new PropertyVariationQueue(capacity, overflowPolicy, propertyEvent -> {
+            handlerEntered.countDown();
+            try {
+                handlerReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handledValues.add(propertyEvent.getBody());
+        });
+    }
+
+    private static PhysicalAssetPropertyWldtEvent<Double> sample(String propertyKey, double value) throws Exception {
+        return new PhysicalAssetPropertyWldtEvent<>(propertyKey, value);
+    }
+
+    @Test
+    void offerAfterStopIsDropped() throws Exception {
+
+        PropertyVariationQueue queue = new PropertyVariationQueue(4, PropertyVariationQueue.OverflowPolicy.BLOCK, propertyEvent -> handledValues.add(propertyEvent.getBody()));
+
+        queue.start();
+        queue.stop();
+
+        assertFalse(queue.offer(sample("p", 1.0)));
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(0, queue.getDepth());
+        assertTrue(handledValues.isEmpty());
+    }
+
+    @Test
+    void offerBeforeStartIsDropped() throws Exception {
+
+        PropertyVariationQueue queue = new PropertyVariationQueue(4, PropertyVariationQueue.OverflowPolicy.COALESCE, propertyEvent -> handledValues.add(propertyEvent.getBody()));
+
+        assertFalse(queue.offer(sample("p", 1.0)));
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test
+    void stopDrainsQueuedSamples() throws Exception {
+
+        PropertyVariationQueue queue = blockingHandlerQueue(8, PropertyVariationQueue.OverflowPolicy.BLOCK);
+        queue.start();
+
+        assertTrue(queue.offer(sample("p", 1.0)));
+        assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.offer(sample("p", 2.0)));
+        assertTrue(queue.offer(sample("p", 3.0)));
+
+        handlerReleased.countDown();
+        queue.stop();
+
+        assertEquals(List.of(1.0, 2.0, 3.0), handledValues);
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    void stopReleasesBlockedPublisher() throws Exception {
+
+        PropertyVariationQueue queue = blockingHandlerQueue(1, PropertyVariationQueue.OverflowPolicy.BLOCK);
+        queue.start();
+
+        assertTrue(queue.offer(sample("p", 1.0)));
+        assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+        //Fills the only slot while the handler is busy with the first sample
+        assertTrue(queue.offer(sample("p", 2.0)));
+
+        AtomicBoolean accepted = new AtomicBoolean(true);
+        CountDownLatch publisherDone = new CountDownLatch(1);
+        Thread publisher = new Thread(() -> {
+            try {
+                accepted.set(queue.offer(sample("p", 3.0)));
+            } catch (Exception e) {
+                fail(e.getMessage());
+            }
+            publisherDone.countDown();
+        });
+        publisher.start();
+
+        awaitWaiting(publisher);
+
+        Thread stopper = new Thread(queue::stop);
+        stopper.start();
+
+        assertTrue(publisherDone.await(5, TimeUnit.SECONDS), "publisher still blocked after stop");
+        assertFalse(accepted.get());
+
+        handlerReleased.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(stopper.isAlive());
+        assertEquals(List.of(1.0, 2.0), handledValues);
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test
+    void coalesceReleasesPublisherOfNewKeyOnStop() throws Exception {
+
+        PropertyVariationQueue queue = blockingHandlerQueue(1, PropertyVariationQueue.OverflowPolicy.COALESCE);
+        queue.start();
+
+        assertTrue(queue.offer(sample("a", 1.0)));
+        assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.offer(sample("b", 1.0)));
+        //Same key of the queued sample: overwritten without waiting
+        assertTrue(queue.offer(sample("b", 2.0)));
+        assertEquals(1, queue.getCoalescedCount());
+
+        Thread stopper = new Thread(queue::stop);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Thread publisher = new Thread(() -> {
+                try {
+                    assertFalse(queue.offer(sample("c", 1.0)));
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            });
+            publisher.start();
+            awaitWaiting(publisher);
+            stopper.start();
+            publisher.join();
+        });
+
+        handlerReleased.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(List.of(1.0, 2.0), handledValues);
+    }
+
+    @Test
+    void dropOldestKeepsNewestSamples() throws Exception {
+
+        PropertyVariationQueue queue = blockingHandlerQueue(2, PropertyVariationQueue.OverflowPolicy.DROP_OLDEST);
+        queue.start();
+
+        assertTrue(queue.offer(sample("p", 1.0)));
+        assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 5; i++)
+            assertTrue(queue.offer(sample("p", i)));
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(2, queue.getDroppedCount());
+
+        handlerReleased.countDown();
+        awaitHandled(3);
+        queue.stop();
+
+        assertEquals(List.of(1.0, 4.0, 5.0), handledValues);
+    }
+
+    @Test
+    void coalesceOverwritesTheQueuedSampleOfTheSameKey() throws Exception {
+
+        PropertyVariationQueue queue = blockingHandlerQueue(2, PropertyVariationQueue.OverflowPolicy.COALESCE);
+        queue.start();
+
+        assertTrue(queue.offer(sample("a", 1.0)));
+        assertTrue(handlerEntered.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.offer(sample("b", 1.0)));
+        assertTrue(queue.offer(sample("c", 1.0)));
+        //Full queue, the queued sample of the same key is replaced in place
+        assertTrue(queue.offer(sample("b", 2.0)));
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(1, queue.getCoalescedCount());
+        assertEquals(0, queue.getDroppedCount());
+
+        handlerReleased.countDown();
+        awaitHandled(3);
+        queue.stop();
+
+        assertEquals(List.of(1.0, 2.0, 1.0), handledValues);
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handledValues.size() < count && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertEquals(count, handledValues.size());
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.wldt.demo.shadowing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    @Test
+    void burstIsAvailableThenRequestsAreRejected() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 3);
+        //Taken after the creation, when the bucket is full
+        long nowNanos = System.nanoTime();
+
+        for (int i = 0; i < 3; i++)
+            assertTrue(bucket.tryAcquire(nowNanos));
+
+        assertFalse(bucket.tryAcquire(nowNanos));
+        assertTrue(bucket.nanosUntilAvailable(nowNanos) > 0);
+    }
+
+    @Test
+    void tokensAreRefilledAtTheRate() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 1);
+        long nowNanos = System.nanoTime();
+
+        assertTrue(bucket.tryAcquire(nowNanos));
+        assertFalse(bucket.tryAcquire(nowNanos));
+
+        long waitNanos = bucket.nanosUntilAvailable(nowNanos);
+        assertEquals(SECOND_NANOS / 10, waitNanos);
+
+        assertFalse(bucket.tryAcquire(nowNanos + waitNanos - 1));
+        assertTrue(bucket.tryAcquire(nowNanos + waitNanos));
+    }
+
+    @Test
+    void refillDoesNotExceedTheBurst() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 2);
+        long nowNanos = System.nanoTime();
+
+        //An idle bucket holds at most burst tokens
+        long laterNanos = nowNanos + 10 * SECOND_NANOS;
+        assertTrue(bucket.tryAcquire(laterNanos));
+        assertTrue(bucket.tryAcquire(laterNanos));
+        assertFalse(bucket.tryAcquire(laterNanos));
+    }
+
+    @Test
+    void forcedTokenIsPaidBackByTheFollowingRequests() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 1);
+        long nowNanos = System.nanoTime();
+
+        assertTrue(bucket.tryAcquire(nowNanos));
+        bucket.forceAcquire(nowNanos);
+
+        assertEquals(2 * SECOND_NANOS / 10, bucket.nanosUntilAvailable(nowNanos));
+        assertFalse(bucket.tryAcquire(nowNanos + SECOND_NANOS / 10));
+    }
+
+    @Test
+    void releasedTokenIsAvailableAgain() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 1);
+        long nowNanos = System.nanoTime();
+
+        assertTrue(bucket.tryAcquire(nowNanos));
+        bucket.release();
+
+        assertEquals(0, bucket.nanosUntilAvailable(nowNanos));
+        assertTrue(bucket.tryAcquire(nowNanos));
+    }
+}